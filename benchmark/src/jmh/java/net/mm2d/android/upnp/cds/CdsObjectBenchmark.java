@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * パース済みのタグ情報からのCdsObjectの構築、及びCdsObjectが提供する値の取り出し。
+ *
+ * <p>1オペレーションでコーパス1ページ分の全CdsObjectを処理する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CdsObjectBenchmark {
+    private static final String[] XPATHS = {
+            CdsObject.DC_TITLE,
+            CdsObject.UPNP_CLASS,
+            CdsObject.DC_DATE,
+            CdsObject.RES_PROTOCOL_INFO,
+            CdsObject.CHILD_COUNT,
+            CdsObject.UPNP_ALBUM_ART_URI,
+            "upnp:nonexistent",
+    };
+    private static final String[] DATES = {
+            "2018-07-01",
+            "2018-07-01T21:00:00",
+            "2018-07-01T21:00:00+0900",
+            "2018-07-01T21:00:00+09:00",
+    };
+
+    @Param({Corpus.SONY, Corpus.DIGA, Corpus.MINIDLNA, Corpus.WMP, Corpus.ARIB})
+    public String corpus;
+    private String[] mTagNames;
+    private TagMap[] mTagMaps;
+    private Tag[] mRootTags;
+
+    @Setup
+    public void setUp() throws IOException {
+        final List<CdsObject> list = Corpus.parse(corpus);
+        final int size = list.size();
+        mTagNames = new String[size];
+        mTagMaps = new TagMap[size];
+        mRootTags = new Tag[size];
+        for (int i = 0; i < size; i++) {
+            final CdsObject object = list.get(i);
+            mTagNames[i] = object.isItem() ? CdsObject.ITEM : CdsObject.CONTAINER;
+            mTagMaps[i] = object.getTagMap();
+            mRootTags[i] = object.getRootTag();
+        }
+    }
+
+    @Benchmark
+    public void construct(final Blackhole blackhole) {
+        for (int i = 0; i < mTagMaps.length; i++) {
+            blackhole.consume(new CdsObject(Corpus.UDN, mTagNames[i], mTagMaps[i], mRootTags[i]));
+        }
+    }
+
+    @Benchmark
+    public void tagMapGetValue(final Blackhole blackhole) {
+        for (final TagMap map : mTagMaps) {
+            for (final String xpath : XPATHS) {
+                blackhole.consume(map.getValue(xpath));
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseDate(final Blackhole blackhole) {
+        for (final String date : DATES) {
+            blackhole.consume(CdsObject.parseDate(date));
+        }
+    }
+}
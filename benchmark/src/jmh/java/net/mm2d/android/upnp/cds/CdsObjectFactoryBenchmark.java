@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BrowseDirectChildrenの結果1ページ分のパース。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CdsObjectFactoryBenchmark {
+    @Param({Corpus.SONY, Corpus.DIGA, Corpus.MINIDLNA, Corpus.WMP, Corpus.ARIB})
+    public String corpus;
+    private String mXml;
+
+    @Setup
+    public void setUp() throws IOException {
+        mXml = Corpus.load(corpus);
+    }
+
+    @Benchmark
+    public List<CdsObject> parseDirectChildren() {
+        return CdsObjectFactory.parseDirectChildren(Corpus.UDN, mXml);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SetAVTransportURIのCurrentURIMetaDataとして送信するXMLの作成。
+ *
+ * <p>1オペレーションでコーパス1ページ分の全CdsObjectを変換する。
+ * domは変更前のDOMとTransformerによる実装、writeはキャッシュを使用しないストリーミング実装。
+ * convertはページ先頭のitemをページの件数と同じ回数変換し、キャッシュが効く場合の1回あたりのコストを比較する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CdsObjectXmlConverterBenchmark {
+    @Param({Corpus.SONY, Corpus.DIGA, Corpus.MINIDLNA, Corpus.WMP, Corpus.ARIB})
+    public String corpus;
+    private List<CdsObject> mList;
+    private CdsObject mItem;
+
+    @Setup
+    public void setUp() throws IOException {
+        mList = Corpus.parse(corpus);
+        for (final CdsObject object : mList) {
+            if (object.isItem()) {
+                mItem = object;
+                break;
+            }
+        }
+    }
+
+    @Benchmark
+    public void dom(final Blackhole blackhole) {
+        for (final CdsObject object : mList) {
+            blackhole.consume(DomCdsObjectXmlConverter.convert(object));
+        }
+    }
+
+    @Benchmark
+    public void write(final Blackhole blackhole) {
+        for (final CdsObject object : mList) {
+            blackhole.consume(CdsObjectXmlConverter.write(object));
+        }
+    }
+
+    @Benchmark
+    public void convert(final Blackhole blackhole) {
+        final int size = mList.size();
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(CdsObjectXmlConverter.convert(mItem));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * ベンチマークに使用するDIDL-Liteのコーパス。
+ *
+ * <p>各ファイルは一回のBrowseDirectChildrenで返されるResultに相当する。
+ * <ul>
+ * <li>sony: Sony製レコーダー、av名前空間とarib:longDescriptionを含む録画番組</li>
+ * <li>diga: Panasonic DIGA、DTCP-IPの録画番組</li>
+ * <li>minidlna: MiniDLNA、フォルダと音楽ファイル</li>
+ * <li>wmp: Windows Media Playerのメディア共有、microsoft名前空間を含む音楽ファイル</li>
+ * <li>arib: ARIB外字と多数のarib:longDescriptionを含む録画番組</li>
+ * </ul>
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class Corpus {
+    public static final String UDN = "uuid:00000000-0000-0000-0000-000000000000";
+    public static final String SONY = "sony";
+    public static final String DIGA = "diga";
+    public static final String MINIDLNA = "minidlna";
+    public static final String WMP = "wmp";
+    public static final String ARIB = "arib";
+    public static final String[] ALL = {SONY, DIGA, MINIDLNA, WMP, ARIB};
+
+    private Corpus() {
+    }
+
+    /**
+     * コーパスのXMLを読み出す。
+     *
+     * @param name コーパス名
+     * @return XML
+     * @throws IOException 読み出しに失敗した場合
+     */
+    public static String load(final String name) throws IOException {
+        try (InputStream is = Corpus.class.getResourceAsStream("/didl/" + name + ".xml")) {
+            if (is == null) {
+                throw new IOException("corpus not found: " + name);
+            }
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int size;
+            while ((size = is.read(buffer)) >= 0) {
+                os.write(buffer, 0, size);
+            }
+            return new String(os.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * コーパスをパースしたCdsObjectのリストを返す。
+     *
+     * @param name コーパス名
+     * @return CdsObjectのリスト
+     * @throws IOException 読み出しに失敗した場合
+     */
+    public static List<CdsObject> parse(final String name) throws IOException {
+        return CdsObjectFactory.parseDirectChildren(UDN, load(name));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * コーパスのパース結果がCdsObject1つあたりに保持するヒープサイズを出力する。
+ *
+ * <p>同一のXMLを繰り返しパースした結果を保持したまま、GC後のヒープ使用量の差分を求める。
+ * あわせてCdsObject#estimateSize()の平均値を出力し、推定値との乖離を確認できるようにする。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class FootprintReport {
+    private static final int REPEAT = 200;
+
+    public static void main(final String[] args) throws IOException {
+        System.out.println("corpus     objects  retained[B/obj]  estimated[B/obj]");
+        for (final String name : Corpus.ALL) {
+            report(name, Corpus.load(name));
+        }
+    }
+
+    private static void report(
+            final String name,
+            final String xml) {
+        final List<CdsObject> sample = CdsObjectFactory.parseDirectChildren(Corpus.UDN, xml);
+        long estimated = 0;
+        for (final CdsObject object : sample) {
+            estimated += object.estimateSize();
+        }
+        final List<List<CdsObject>> holder = new ArrayList<>(REPEAT);
+        final long before = usedMemory();
+        for (int i = 0; i < REPEAT; i++) {
+            holder.add(CdsObjectFactory.parseDirectChildren(Corpus.UDN, xml));
+        }
+        final long after = usedMemory();
+        final int count = sample.size();
+        System.out.println(String.format(Locale.US, "%-10s %7d  %15d  %16d",
+                name, count, (after - before) / ((long) REPEAT * count), estimated / count));
+        holder.clear();
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (final InterruptedException ignored) {
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
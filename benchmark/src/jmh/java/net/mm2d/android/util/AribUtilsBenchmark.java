@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.util;
+
+import net.mm2d.android.upnp.cds.CdsObject;
+import net.mm2d.android.upnp.cds.Corpus;
+import net.mm2d.android.upnp.cds.Tag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ARIB外字の変換。
+ *
+ * <p>1オペレーションでコーパス1ページ分のタイトルと説明文を変換する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AribUtilsBenchmark {
+    @Param({Corpus.SONY, Corpus.ARIB})
+    public String corpus;
+    private List<String> mStrings;
+
+    @Setup
+    public void setUp() throws IOException {
+        mStrings = new ArrayList<>();
+        for (final CdsObject object : Corpus.parse(corpus)) {
+            mStrings.add(object.getTitle());
+            final List<Tag> tags = object.getTagList(CdsObject.ARIB_LONG_DESCRIPTION);
+            if (tags == null) {
+                continue;
+            }
+            for (final Tag tag : tags) {
+                mStrings.add(tag.getValue());
+            }
+        }
+    }
+
+    @Benchmark
+    public void toDisplayableString(final Blackhole blackhole) {
+        for (final String string : mStrings) {
+            blackhole.consume(AribUtils.toDisplayableString(string));
+        }
+    }
+}
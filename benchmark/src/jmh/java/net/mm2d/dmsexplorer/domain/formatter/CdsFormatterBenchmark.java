@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.formatter;
+
+import net.mm2d.android.upnp.cds.CdsObject;
+import net.mm2d.android.upnp.cds.Corpus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * arib:longDescriptionの整形。
+ *
+ * <p>1オペレーションでコーパス1ページ分の全CdsObjectを処理する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CdsFormatterBenchmark {
+    @Param({Corpus.SONY, Corpus.DIGA, Corpus.ARIB})
+    public String corpus;
+    private List<CdsObject> mList;
+
+    @Setup
+    public void setUp() throws IOException {
+        mList = Corpus.parse(corpus);
+    }
+
+    @Benchmark
+    public void parseLongDescription(final Blackhole blackhole) {
+        for (final CdsObject object : mList) {
+            blackhole.consume(CdsFormatter.parseLongDescription(object));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package android.content;
+
+/**
+ * JVM上でベンチマークを実行するためのandroid.content.Contextの代替。
+ *
+ * <p>コンパイルを通すためだけのものであり、ベンチマークからは使用しない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public abstract class Context {
+    public abstract String getString(int resId);
+}
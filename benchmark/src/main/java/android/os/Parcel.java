@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package android.os;
+
+/**
+ * JVM上でベンチマークを実行するためのandroid.os.Parcelの代替。
+ *
+ * <p>コンパイルを通すためだけのものであり、ベンチマークからは使用しない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class Parcel {
+    private Parcel() {
+    }
+
+    public int readInt() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void writeInt(final int val) {
+        throw new UnsupportedOperationException();
+    }
+
+    public byte readByte() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void writeByte(final byte val) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String readString() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void writeString(final String val) {
+        throw new UnsupportedOperationException();
+    }
+
+    public <T extends Parcelable> T readParcelable(final ClassLoader loader) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void writeParcelable(
+            final Parcelable p,
+            final int flags) {
+        throw new UnsupportedOperationException();
+    }
+}
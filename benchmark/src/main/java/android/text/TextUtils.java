@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package android.text;
+
+/**
+ * JVM上でベンチマークを実行するためのandroid.text.TextUtilsの代替。
+ *
+ * <p>実装はフレームワークのものと同一。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class TextUtils {
+    private TextUtils() {
+    }
+
+    public static boolean isEmpty(final CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+
+    public static boolean equals(
+            final CharSequence a,
+            final CharSequence b) {
+        if (a == b) {
+            return true;
+        }
+        if (a != null && b != null) {
+            final int length = a.length();
+            if (length != b.length()) {
+                return false;
+            }
+            if (a instanceof String && b instanceof String) {
+                return a.equals(b);
+            }
+            for (int i = 0; i < length; i++) {
+                if (a.charAt(i) != b.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package android.text.format;
+
+import java.util.Date;
+
+/**
+ * JVM上でベンチマークを実行するためのandroid.text.format.DateFormatの代替。
+ *
+ * <p>コンパイルを通すためだけのものであり、ベンチマークからは使用しない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class DateFormat {
+    private DateFormat() {
+    }
+
+    public static CharSequence format(
+            final CharSequence inFormat,
+            final Date inDate) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package android.util;
+
+/**
+ * JVM上でベンチマークを実行するためのandroid.util.Pairの代替。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class Pair<F, S> {
+    public final F first;
+    public final S second;
+
+    public Pair(
+            final F first,
+            final S second) {
+        this.first = first;
+        this.second = second;
+    }
+}
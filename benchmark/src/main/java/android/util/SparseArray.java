@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * JVM上でベンチマークを実行するためのandroid.util.SparseArrayの代替。
+ *
+ * <p>フレームワークと同様に、ソート済みのキー配列を二分探索する実装。
+ * 削除はサポートしない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class SparseArray<E> {
+    private int[] mKeys = new int[10];
+    private Object[] mValues = new Object[10];
+    private int mSize;
+
+    public E get(final int key) {
+        return get(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(
+            final int key,
+            final E valueIfKeyNotFound) {
+        final int i = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (i < 0) {
+            return valueIfKeyNotFound;
+        }
+        return (E) mValues[i];
+    }
+
+    public void put(
+            final int key,
+            final E value) {
+        int i = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (i >= 0) {
+            mValues[i] = value;
+            return;
+        }
+        i = ~i;
+        if (mSize == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mSize * 2);
+            mValues = Arrays.copyOf(mValues, mSize * 2);
+        }
+        System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);
+        System.arraycopy(mValues, i, mValues, i + 1, mSize - i);
+        mKeys[i] = key;
+        mValues[i] = value;
+        mSize++;
+    }
+
+    public int size() {
+        return mSize;
+    }
+}
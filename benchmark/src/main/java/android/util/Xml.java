@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package android.util;
+
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * JVM上でベンチマークを実行するためのandroid.util.Xmlの代替。
+ *
+ * <p>フレームワークと同様にKXmlParserを使用する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class Xml {
+    private Xml() {
+    }
+
+    public static XmlPullParser newPullParser() {
+        try {
+            final KXmlParser parser = new KXmlParser();
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_DOCDECL, true);
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+            return parser;
+        } catch (final XmlPullParserException e) {
+            throw new AssertionError();
+        }
+    }
+}
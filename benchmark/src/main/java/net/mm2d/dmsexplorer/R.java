@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer;
+
+/**
+ * JVM上でベンチマークを実行するためのリソースIDの代替。
+ *
+ * <p>CdsFormatterのコンパイルを通すためだけのものであり、ベンチマークからは使用しない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class R {
+    public static final class string {
+        public static final int network_tb = 0;
+        public static final int network_bs = 1;
+        public static final int network_cs = 2;
+    }
+}
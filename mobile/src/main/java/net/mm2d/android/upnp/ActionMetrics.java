@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import net.mm2d.upnp.Action;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Actionの実行結果を機器ごと、Actionごとに集計する。
+ *
+ * <p>応答時間の分布、ペイロードサイズ、SOAP Faultのエラーコード、タイムアウトの回数を記録する。
+ * ペイロードサイズは引数と戻り値の文字数の合計であり、通信上のバイト数ではない。
+ *
+ * <p>各メソッドは任意のスレッドからコール可能。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class ActionMetrics {
+    private static final ActionMetrics INSTANCE = new ActionMetrics();
+
+    @NonNull
+    public static ActionMetrics get() {
+        return INSTANCE;
+    }
+
+    @NonNull
+    private final Map<String, Entry> mEntries = new LinkedHashMap<>();
+
+    ActionMetrics() {
+    }
+
+    /**
+     * Actionを実行し、結果を記録する。
+     *
+     * @param device   実行する機器
+     * @param action   Action
+     * @param argument 引数
+     * @return 戻り値
+     * @throws IOException 通信エラー
+     */
+    @NonNull
+    Map<String, String> invoke(
+            @NonNull final DeviceWrapper device,
+            @NonNull final Action action,
+            @NonNull final Map<String, String> argument) throws IOException {
+        final String udn = device.getUdn();
+        final String deviceName = device.getFriendlyName();
+        final String actionName = action.getName();
+        final long begin = SystemClock.elapsedRealtime();
+        try {
+            final Map<String, String> result = action.invoke(argument);
+            final long elapsed = SystemClock.elapsedRealtime() - begin;
+            final String errorCode = result.get(Action.ERROR_CODE_KEY);
+            final int fault = TextUtils.isEmpty(errorCode) ? Result.SUCCESS : parseFault(errorCode);
+            record(udn, deviceName, actionName, elapsed, sizeOf(argument), sizeOf(result), fault);
+            return result;
+        } catch (final SocketTimeoutException e) {
+            record(udn, deviceName, actionName, SystemClock.elapsedRealtime() - begin, sizeOf(argument), 0, Result.TIMEOUT);
+            throw e;
+        } catch (final IOException e) {
+            record(udn, deviceName, actionName, SystemClock.elapsedRealtime() - begin, sizeOf(argument), 0, Result.ERROR);
+            throw e;
+        }
+    }
+
+    private static int parseFault(@NonNull final String errorCode) {
+        try {
+            final int code = Integer.parseInt(errorCode.trim());
+            return code > 0 ? code : Result.ERROR;
+        } catch (final NumberFormatException e) {
+            return Result.ERROR;
+        }
+    }
+
+    private static int sizeOf(@NonNull final Map<String, String> map) {
+        int size = 0;
+        for (final Map.Entry<String, String> entry : map.entrySet()) {
+            size += entry.getKey().length();
+            final String value = entry.getValue();
+            if (value != null) {
+                size += value.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 実行結果を記録する。
+     *
+     * @param udn           機器のUDN
+     * @param deviceName    機器の名前
+     * @param actionName    Action名
+     * @param latency       応答時間(ms)
+     * @param requestSize   引数のサイズ
+     * @param responseSize  戻り値のサイズ
+     * @param result        成功の場合{@link Result#SUCCESS}、SOAP Faultの場合はエラーコード、
+     *                      それ以外は{@link Result#TIMEOUT}もしくは{@link Result#ERROR}
+     */
+    synchronized void record(
+            @NonNull final String udn,
+            @NonNull final String deviceName,
+            @NonNull final String actionName,
+            final long latency,
+            final int requestSize,
+            final int responseSize,
+            final int result) {
+        final String key = udn + "\t" + actionName;
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            entry = new Entry(udn, actionName);
+            mEntries.put(key, entry);
+        }
+        entry.record(deviceName, latency, requestSize, responseSize, result);
+    }
+
+    /**
+     * 記録をすべて破棄する。
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    /**
+     * 現時点の集計結果を返す。
+     *
+     * @return 機器、Actionごとの集計結果
+     */
+    @NonNull
+    public synchronized List<Snapshot> getSnapshot() {
+        final List<Snapshot> list = new ArrayList<>(mEntries.size());
+        for (final Entry entry : mEntries.values()) {
+            list.add(entry.snapshot());
+        }
+        return list;
+    }
+
+    /**
+     * 現時点の集計結果をテキストで返す。
+     *
+     * @return 集計結果
+     */
+    @NonNull
+    public String dump() {
+        final StringBuilder sb = new StringBuilder();
+        String udn = null;
+        for (final Snapshot snapshot : getSnapshot()) {
+            if (!snapshot.udn.equals(udn)) {
+                udn = snapshot.udn;
+                if (sb.length() != 0) {
+                    sb.append('\n');
+                }
+                sb.append(snapshot.deviceName).append(" (").append(udn).append(")\n");
+            }
+            sb.append(snapshot.toString()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 実行結果の種類。
+     */
+    static final class Result {
+        static final int SUCCESS = 0;
+        static final int TIMEOUT = -1;
+        static final int ERROR = -2;
+
+        private Result() {
+        }
+    }
+
+    /**
+     * 一つの機器の一つのActionの集計結果。
+     */
+    public static class Snapshot {
+        @NonNull
+        public final String udn;
+        @NonNull
+        public final String deviceName;
+        @NonNull
+        public final String actionName;
+        public final int count;
+        public final int timeoutCount;
+        public final int errorCount;
+        /**
+         * SOAP FaultのエラーコードとそのFault回数。
+         */
+        @NonNull
+        public final Map<Integer, Integer> faultCounts;
+        public final long p50;
+        public final long p95;
+        public final long p99;
+        public final long max;
+        public final long averageRequestSize;
+        public final long averageResponseSize;
+
+        private Snapshot(
+                @NonNull final Entry entry,
+                @NonNull final String deviceName) {
+            udn = entry.mUdn;
+            this.deviceName = deviceName;
+            actionName = entry.mActionName;
+            count = entry.mCount;
+            timeoutCount = entry.mTimeoutCount;
+            errorCount = entry.mErrorCount;
+            faultCounts = Collections.unmodifiableMap(new TreeMap<>(entry.mFaultCounts));
+            p50 = entry.mHistogram.percentile(0.50);
+            p95 = entry.mHistogram.percentile(0.95);
+            p99 = entry.mHistogram.percentile(0.99);
+            max = entry.mHistogram.getMax();
+            averageRequestSize = count == 0 ? 0 : entry.mRequestSize / count;
+            final int responseCount = count - timeoutCount - errorCount;
+            averageResponseSize = responseCount <= 0 ? 0 : entry.mResponseSize / responseCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "  %s: n=%d p50=%dms p95=%dms p99=%dms max=%dms req=%d res=%d timeout=%d error=%d fault=%s",
+                    actionName, count, p50, p95, p99, max,
+                    averageRequestSize, averageResponseSize, timeoutCount, errorCount, faultCounts);
+        }
+    }
+
+    private static class Entry {
+        @NonNull
+        private final String mUdn;
+        @NonNull
+        private final String mActionName;
+        @NonNull
+        private String mDeviceName = "";
+        @NonNull
+        private final Histogram mHistogram = new Histogram();
+        @NonNull
+        private final Map<Integer, Integer> mFaultCounts = new TreeMap<>();
+        private int mCount;
+        private int mTimeoutCount;
+        private int mErrorCount;
+        private long mRequestSize;
+        private long mResponseSize;
+
+        Entry(
+                @NonNull final String udn,
+                @NonNull final String actionName) {
+            mUdn = udn;
+            mActionName = actionName;
+        }
+
+        void record(
+                @NonNull final String deviceName,
+                final long latency,
+                final int requestSize,
+                final int responseSize,
+                final int result) {
+            mDeviceName = deviceName;
+            mCount++;
+            mRequestSize += requestSize;
+            switch (result) {
+                case Result.SUCCESS:
+                    mResponseSize += responseSize;
+                    break;
+                case Result.TIMEOUT:
+                    mTimeoutCount++;
+                    break;
+                case Result.ERROR:
+                    mErrorCount++;
+                    break;
+                default:
+                    mResponseSize += responseSize;
+                    final Integer count = mFaultCounts.get(result);
+                    mFaultCounts.put(result, count == null ? 1 : count + 1);
+                    break;
+            }
+            // タイムアウトも遅い応答として分布に含める
+            mHistogram.add(latency);
+        }
+
+        @NonNull
+        Snapshot snapshot() {
+            return new Snapshot(this, mDeviceName);
+        }
+    }
+
+    /**
+     * 応答時間の分布。
+     *
+     * <p>1msから倍になるごとに4分割した対数スケールのバケットで数え、
+     * パーセンタイルはバケットの上限値で返すため、誤差は最大で約19%となる。
+     */
+    static class Histogram {
+        private static final int STEPS_PER_OCTAVE = 4;
+        /**
+         * 2^17ms(約131秒)まで、それ以上は最後のバケットに含める。
+         */
+        private static final int BUCKET_COUNT = 17 * STEPS_PER_OCTAVE + 2;
+        @NonNull
+        private final int[] mBuckets = new int[BUCKET_COUNT];
+        private int mTotal;
+        private long mMax;
+
+        void add(final long latency) {
+            mBuckets[indexOf(latency)]++;
+            mTotal++;
+            mMax = Math.max(mMax, latency);
+        }
+
+        long getMax() {
+            return mMax;
+        }
+
+        /**
+         * パーセンタイル値を返す。
+         *
+         * @param fraction 0より大きく1以下の割合
+         * @return 応答時間(ms)、記録がない場合は0
+         */
+        long percentile(final double fraction) {
+            if (mTotal == 0) {
+                return 0;
+            }
+            final int rank = Math.max((int) Math.ceil(mTotal * fraction), 1);
+            int sum = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                sum += mBuckets[i];
+                if (sum >= rank) {
+                    return Math.min(upperBoundOf(i), mMax);
+                }
+            }
+            return mMax;
+        }
+
+        private static int indexOf(final long latency) {
+            if (latency <= 1) {
+                return 0;
+            }
+            final double log = Math.log(latency) / Math.log(2);
+            final int index = (int) Math.ceil(log * STEPS_PER_OCTAVE - 1e-9);
+            return Math.min(index, BUCKET_COUNT - 1);
+        }
+
+        private static long upperBoundOf(final int index) {
+            return Math.round(Math.pow(2, (double) index / STEPS_PER_OCTAVE));
+        }
+    }
+}
@@ -11,10 +11,13 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import net.mm2d.upnp.Action;
 import net.mm2d.upnp.Device;
 import net.mm2d.upnp.Icon;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 特定のDeviceTypeへのインターフェースを備えるDeviceWrapperの共通の親。
@@ -55,6 +58,24 @@ public abstract class DeviceWrapper {
         return mDevice;
     }
 
+    /**
+     * Actionを実行する。
+     *
+     * <p>実行結果は{@link ActionMetrics}に記録される。
+     * このDeviceのActionは直接invokeせず、このメソッドを経由して実行すること。
+     *
+     * @param action   Action
+     * @param argument 引数
+     * @return 戻り値
+     * @throws IOException 通信エラー
+     */
+    @NonNull
+    protected Map<String, String> invokeAction(
+            @NonNull final Action action,
+            @NonNull final Map<String, String> argument) throws IOException {
+        return ActionMetrics.get().invoke(this, action, argument);
+    }
+
     /**
      * Deviceの有効なIconを返す。
      *
@@ -23,4 +23,8 @@ class Avt {
      * ConnectionManagerのサービスID。
      */
     static final String CMS_SERVICE_ID = "urn:upnp-org:serviceId:ConnectionManager";
+    /**
+     * AVTransportの状態変化を通知するStateVariable名。
+     */
+    static final String LAST_CHANGE = "LastChange";
 }
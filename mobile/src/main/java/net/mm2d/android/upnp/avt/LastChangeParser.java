@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.avt;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Xml;
+
+import net.mm2d.log.Log;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AVTransportのLastChangeイベントをパースする。
+ *
+ * <p>LastChangeは以下のように、InstanceIDごとに変化したStateVariableの名前と値をval属性で列挙したXMLである。
+ * <pre>{@code
+ * <Event xmlns="urn:schemas-upnp-org:metadata-1-0/AVT/">
+ *   <InstanceID val="0">
+ *     <TransportState val="PLAYING"/>
+ *     <CurrentTrackDuration val="0:03:20"/>
+ *   </InstanceID>
+ * </Event>
+ * }</pre>
+ *
+ * <p>本アプリではInstanceID 0のみを使用するため、それ以外は読み飛ばす。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+final class LastChangeParser {
+    private static final String INSTANCE_ID = "InstanceID";
+    private static final String VAL = "val";
+    private static final String TARGET_INSTANCE_ID = "0";
+
+    private LastChangeParser() {
+    }
+
+    /**
+     * LastChangeをパースし、InstanceID 0で変化したStateVariableを返す。
+     *
+     * @param xml LastChangeの値
+     * @return StateVariable名と値のMap、パースに失敗した場合は空
+     */
+    @NonNull
+    static Map<String, String> parse(@Nullable final String xml) {
+        if (TextUtils.isEmpty(xml)) {
+            return Collections.emptyMap();
+        }
+        try {
+            return parseInner(xml);
+        } catch (XmlPullParserException | IOException e) {
+            Log.w(e);
+        }
+        return Collections.emptyMap();
+    }
+
+    @NonNull
+    private static Map<String, String> parseInner(@NonNull final String xml)
+            throws XmlPullParserException, IOException {
+        final XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        parser.setInput(new StringReader(xml));
+        final Map<String, String> result = new HashMap<>();
+        int depth = 0;
+        boolean target = false;
+        int type;
+        while ((type = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if (type == XmlPullParser.START_TAG) {
+                depth++;
+                final String name = parser.getName();
+                if (depth == 2 && INSTANCE_ID.equals(name)) {
+                    target = TARGET_INSTANCE_ID.equals(parser.getAttributeValue(null, VAL));
+                } else if (depth == 3 && target) {
+                    final String value = parser.getAttributeValue(null, VAL);
+                    if (value != null) {
+                        result.put(name, value);
+                    }
+                }
+            } else if (type == XmlPullParser.END_TAG) {
+                if (depth == 2) {
+                    target = false;
+                }
+                depth--;
+            }
+        }
+        return result;
+    }
+}
@@ -40,6 +40,7 @@ import io.reactivex.schedulers.Schedulers;
  */
 public class MediaRenderer extends DeviceWrapper {
     private static final String SET_AV_TRANSPORT_URI = "SetAVTransportURI";
+    private static final String SET_NEXT_AV_TRANSPORT_URI = "SetNextAVTransportURI";
     private static final String GET_MEDIA_INFO = "GetMediaInfo";
     private static final String GET_TRANSPORT_INFO = "GetTransportInfo";
     private static final String GET_POSITION_INFO = "GetPositionInfo";
@@ -84,6 +85,12 @@ public class MediaRenderer extends DeviceWrapper {
     private static final String TARGET = "Target";
     private static final String ACTIONS = "Actions";
 
+    private static final String TRANSPORT_STATE = "TransportState";
+    private static final String CURRENT_TRACK_DURATION = "CurrentTrackDuration";
+    private static final String CURRENT_TRACK_URI = "CurrentTrackURI";
+    private static final String AV_TRANSPORT_URI = "AVTransportURI";
+    private static final String RELATIVE_TIME_POSITION = "RelativeTimePosition";
+
     private static final String NOT_IMPLEMENTED = "NOT_IMPLEMENTED";
     private static final String UNIT_REL_TIME = "REL_TIME";
     private static final String UNIT_ABS_TIME = "ABS_TIME";
@@ -110,6 +117,8 @@ public class MediaRenderer extends DeviceWrapper {
     private final Action mSeek;
     @Nullable
     private final Action mPause;
+    @Nullable
+    private final Action mSetNextAvTransportUri;
 
     MediaRenderer(
             @NonNull final MrControlPoint cp,
@@ -127,6 +136,7 @@ public class MediaRenderer extends DeviceWrapper {
         mStop = findAction(mAvTransport, STOP);
         mSeek = findAction(mAvTransport, SEEK);
         mPause = mAvTransport.findAction(PAUSE);
+        mSetNextAvTransportUri = mAvTransport.findAction(SET_NEXT_AV_TRANSPORT_URI);
     }
 
     @NonNull
@@ -155,6 +165,15 @@ public class MediaRenderer extends DeviceWrapper {
         return mPause != null;
     }
 
+    /**
+     * 次に再生するコンテンツの事前設定が可能かを返す。
+     *
+     * @return SetNextAVTransportURIに対応している場合true
+     */
+    public boolean isSupportSetNextUri() {
+        return mSetNextAvTransportUri != null;
+    }
+
 
     /**
      * AVTransportサービスを購読する。
@@ -198,6 +217,34 @@ public class MediaRenderer extends DeviceWrapper {
         return invoke(mSetAvTransportUri, argument);
     }
 
+    /**
+     * 現在のコンテンツの再生終了後に続けて再生するコンテンツを設定する。
+     *
+     * <p>対応しているMediaRendererでは再生終了を待たずに次のコンテンツへ移行するため、
+     * 途切れなく再生される。
+     *
+     * @param object 次のコンテンツ
+     * @param uri    次のコンテンツのURI
+     * @return 結果
+     */
+    @NonNull
+    public Single<Map<String, String>> setNextAVTransportURI(
+            @NonNull final CdsObject object,
+            @NonNull final String uri) {
+        if (mSetNextAvTransportUri == null) {
+            return Single.error(new IllegalStateException("SetNextAVTransportURI is not supported"));
+        }
+        final String metadata = CdsObjectXmlConverter.convert(object);
+        if (TextUtils.isEmpty(metadata)) {
+            return Single.error(new IllegalStateException("empty meta data"));
+        }
+        final Map<String, String> argument = new HashMap<>();
+        argument.put(INSTANCE_ID, "0");
+        argument.put(NEXT_URI, uri);
+        argument.put(NEXT_URI_META_DATA, metadata);
+        return invoke(mSetNextAvTransportUri, argument);
+    }
+
     @NonNull
     public Single<Map<String, String>> play() {
         final Map<String, String> argument = new HashMap<>();
@@ -257,7 +304,7 @@ public class MediaRenderer extends DeviceWrapper {
             @NonNull final Map<String, String> argument) {
         return Single.create((SingleOnSubscribe<Map<String, String>>) emitter -> {
             try {
-                final Map<String, String> result = action.invoke(argument);
+                final Map<String, String> result = invokeAction(action, argument);
                 emitter.onSuccess(result);
             } catch (final IOException e) {
                 emitter.onError(e);
@@ -274,6 +321,11 @@ public class MediaRenderer extends DeviceWrapper {
         return parseCount(result.get(TRACK_DURATION));
     }
 
+    @Nullable
+    public static String getTrackUri(@NonNull final Map<String, String> result) {
+        return result.get(TRACK_URI);
+    }
+
     public static int getProgress(@NonNull final Map<String, String> result) {
         final int progress = parseCount(result.get(REL_TIME));
         if (progress >= 0) {
@@ -282,6 +334,52 @@ public class MediaRenderer extends DeviceWrapper {
         return parseCount(result.get(ABS_TIME));
     }
 
+    /**
+     * LastChangeイベントからTransportStateを取り出す。
+     *
+     * @param values LastChangeで通知された値
+     * @return TransportState、含まれていない場合null
+     */
+    @Nullable
+    public static TransportState getEventTransportState(@NonNull final Map<String, String> values) {
+        final String state = values.get(TRANSPORT_STATE);
+        return state != null ? TransportState.of(state) : null;
+    }
+
+    /**
+     * LastChangeイベントからトラックの長さを取り出す。
+     *
+     * @param values LastChangeで通知された値
+     * @return トラックの長さ(ms)、含まれていない場合-1
+     */
+    public static int getEventDuration(@NonNull final Map<String, String> values) {
+        return parseCount(values.get(CURRENT_TRACK_DURATION));
+    }
+
+    /**
+     * LastChangeイベントから再生位置を取り出す。
+     *
+     * <p>仕様上RelativeTimePositionはイベント対象外だが、通知する実装もあるため利用する。
+     *
+     * @param values LastChangeで通知された値
+     * @return 再生位置(ms)、含まれていない場合-1
+     */
+    public static int getEventProgress(@NonNull final Map<String, String> values) {
+        return parseCount(values.get(RELATIVE_TIME_POSITION));
+    }
+
+    /**
+     * LastChangeイベントから再生中のトラックURIを取り出す。
+     *
+     * @param values LastChangeで通知された値
+     * @return トラックURI、含まれていない場合null
+     */
+    @Nullable
+    public static String getEventTrackUri(@NonNull final Map<String, String> values) {
+        final String uri = values.get(CURRENT_TRACK_URI);
+        return uri != null ? uri : values.get(AV_TRANSPORT_URI);
+    }
+
     /**
      * 00:00:00.000形式の時間をミリ秒に変換する。小数点以下がない場合も想定する。
      *
@@ -49,6 +49,23 @@ public class MrControlPoint implements ControlPointWrapper {
         void onLost(@NonNull MediaRenderer server);
     }
 
+    /**
+     * AVTransportのLastChangeイベントを通知するリスナー。
+     */
+    public interface LastChangeListener {
+        /**
+         * LastChangeが通知されたときにコールされる。
+         *
+         * <p>イベント受信スレッドからコールされる。
+         *
+         * @param renderer イベントを発行したMediaRenderer
+         * @param values   変化したStateVariableの名前と値
+         */
+        void onLastChange(
+                @NonNull MediaRenderer renderer,
+                @NonNull Map<String, String> values);
+    }
+
     private final DiscoveryListener mDiscoveryListener = new DiscoveryListener() {
         @Override
         public void onDiscover(@NonNull final Device device) {
@@ -62,6 +79,20 @@ public class MrControlPoint implements ControlPointWrapper {
     };
 
     private final NotifyEventListener mNotifyEventListener = (service, seq, variable, value) -> {
+        final LastChangeListener listener = mLastChangeListener;
+        if (listener == null
+                || !variable.equals(Avt.LAST_CHANGE)
+                || !service.getServiceId().equals(Avt.AVT_SERVICE_ID)) {
+            return;
+        }
+        final MediaRenderer renderer = getDevice(service.getDevice().getUdn());
+        if (renderer == null) {
+            return;
+        }
+        final Map<String, String> values = LastChangeParser.parse(value);
+        if (!values.isEmpty()) {
+            listener.onLastChange(renderer, values);
+        }
     };
     @NonNull
     private final AtomicBoolean mInitialized = new AtomicBoolean();
@@ -69,6 +100,8 @@ public class MrControlPoint implements ControlPointWrapper {
     private final Map<String, MediaRenderer> mMediaRendererMap;
     @NonNull
     private final Collection<MrDiscoveryListener> mMrDiscoveryListeners = new ArrayList<>();
+    @Nullable
+    private volatile LastChangeListener mLastChangeListener;
 
     public MrControlPoint() {
         mMediaRendererMap = Collections.synchronizedMap(new LinkedHashMap<>());
@@ -139,6 +172,15 @@ public class MrControlPoint implements ControlPointWrapper {
         mMrDiscoveryListeners.remove(listener);
     }
 
+    /**
+     * LastChangeの通知リスナーを登録する。
+     *
+     * @param listener リスナー
+     */
+    public void setLastChangeListener(@Nullable final LastChangeListener listener) {
+        mLastChangeListener = listener;
+    }
+
     /**
      * 保持しているMediaRendererの個数を返す。
      *
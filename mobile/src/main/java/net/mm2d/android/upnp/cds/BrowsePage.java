@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Browse1回分の結果。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class BrowsePage {
+    static final BrowsePage EMPTY = new BrowsePage(Collections.emptyList(), 0, 0);
+    @NonNull
+    private final List<CdsObject> mList;
+    private final int mNumber;
+    private final int mTotal;
+
+    BrowsePage(
+            @NonNull final List<CdsObject> list,
+            final int number,
+            final int total) {
+        mList = list;
+        mNumber = number;
+        mTotal = total;
+    }
+
+    /**
+     * 結果が空であるかを返す。
+     *
+     * @return 空の場合true
+     */
+    public boolean isEmpty() {
+        return mNumber == 0;
+    }
+
+    /**
+     * 取得したCdsObjectのリストを返す。
+     *
+     * @return CdsObjectのリスト
+     */
+    @NonNull
+    public List<CdsObject> getList() {
+        return mList;
+    }
+
+    /**
+     * NumberReturnedの値を返す。
+     *
+     * @return NumberReturned
+     */
+    public int getNumber() {
+        return mNumber;
+    }
+
+    /**
+     * TotalMatchesの値を返す。
+     *
+     * @return TotalMatches
+     */
+    public int getTotal() {
+        return mTotal;
+    }
+}
@@ -14,9 +14,6 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.text.DateFormat;
@@ -728,6 +725,8 @@ public class CdsObject implements Parcelable {
      */
     public static final int TYPE_CONTAINER = 4;
 
+    private static final int OBJECT_OVERHEAD = 64;
+
     /**
      * このオブジェクトがitemか否か、itemのときtrue
      */
@@ -811,20 +810,22 @@ public class CdsObject implements Parcelable {
     }
 
     /**
-     * elementをもとにインスタンス作成
+     * パース結果をもとにインスタンス作成
      *
      * @param udn     MediaServerのUDN
-     * @param element objectを示すelement
+     * @param tagName objectを示すタグ名、itemもしくはcontainer
+     * @param tagMap  objectの子要素の情報
      * @param rootTag DIDL-Liteノードの情報
      */
     CdsObject(
             @NonNull final String udn,
-            @NonNull final Element element,
+            @NonNull final String tagName,
+            @NonNull final TagMap tagMap,
             @NonNull final Tag rootTag) {
         mUdn = udn;
-        mItem = isItem(element.getTagName());
+        mItem = isItem(tagName);
         mRootTag = rootTag;
-        mTagMap = parseElement(element);
+        mTagMap = tagMap;
         final Param param = new Param(mTagMap);
         mObjectId = param.mObjectId;
         mParentId = param.mParentId;
@@ -844,25 +845,6 @@ public class CdsObject implements Parcelable {
         }
     }
 
-    /**
-     * 子要素の情報をパースし、格納する。
-     *
-     * @param element objectを示すelement
-     */
-    @NonNull
-    private static TagMap parseElement(@NonNull final Element element) {
-        final TagMap map = new TagMap();
-        map.putTag("", new Tag(element, true));
-        Node node = element.getFirstChild();
-        for (; node != null; node = node.getNextSibling()) {
-            if (node.getNodeType() != Node.ELEMENT_NODE) {
-                continue;
-            }
-            map.putTag(node.getNodeName(), new Tag((Element) node));
-        }
-        return map;
-    }
-
     @ContentType
     private static int getType(
             final boolean isItem,
@@ -1340,6 +1322,17 @@ public class CdsObject implements Parcelable {
         return sections[0];
     }
 
+    /**
+     * ヒープ上で占有するおおよそのサイズを返す。
+     *
+     * <p>キャッシュサイズの管理などに使用する概算値。
+     *
+     * @return 推定サイズ[byte]
+     */
+    public int estimateSize() {
+        return OBJECT_OVERHEAD + mTagMap.estimateSize();
+    }
+
     @Override
     @NonNull
     public String toString() {
@@ -1358,7 +1351,7 @@ public class CdsObject implements Parcelable {
 
     @Override
     public int hashCode() {
-        return mTagMap.hashCode();
+        return mObjectId.hashCode() * 31 + mUdn.hashCode();
     }
 
     @Override
@@ -1373,6 +1366,19 @@ public class CdsObject implements Parcelable {
         return mObjectId.equals(obj.mObjectId) && mUdn.equals(obj.mUdn);
     }
 
+    /**
+     * ObjectIDとUDNだけでなく、保持している全ての値が等しいかを返す。
+     *
+     * @param obj 比較対象
+     * @return 全ての値が等しい場合true
+     */
+    public boolean contentEquals(@Nullable final CdsObject obj) {
+        if (this == obj) {
+            return true;
+        }
+        return equals(obj) && mItem == obj.mItem && mTagMap.equals(obj.mTagMap);
+    }
+
     /**
      * Parcelable用のコンストラクタ。
      *
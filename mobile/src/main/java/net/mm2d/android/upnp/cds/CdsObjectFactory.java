@@ -10,29 +10,43 @@ package net.mm2d.android.upnp.cds;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
+import android.util.Xml;
 
 import net.mm2d.log.Log;
-import net.mm2d.util.XmlUtils;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.parsers.ParserConfigurationException;
-
 /**
  * CdsObjectのファクトリークラス。
  *
  * <p>BrowseDirectChildrenの結果及びBrowseMetadataの結果をCdsObjectに変換して返す。
  *
+ * <p>DOMツリーを構築せず、XmlPullParserで先頭から順に読み進め、
+ * item/containerの終了タグを読んだ時点でCdsObjectを作成する。
+ * item/containerの子要素の値は、DOMのgetTextContent()と同様に子孫要素を含むテキストを連結したものとする。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 final class CdsObjectFactory {
+    /**
+     * パースしたCdsObjectを受け取るインターフェース。
+     */
+    private interface ObjectHandler {
+        /**
+         * CdsObjectを一つパースするごとにコールされる。
+         *
+         * @param object パースしたCdsObject
+         * @return パースを継続する場合true
+         */
+        boolean onParse(@NonNull CdsObject object);
+    }
+
     /**
      * BrowseDirectChildrenの結果をパースしてCdsObjectのリストとして返す。
      *
@@ -49,20 +63,10 @@ final class CdsObjectFactory {
             return list;
         }
         try {
-            final Document document = XmlUtils.newDocument(false, xml);
-            final Tag rootTag = createRootTag(document);
-            Node node = document.getDocumentElement().getFirstChild();
-            for (; node != null; node = node.getNextSibling()) {
-                if (node.getNodeType() != Node.ELEMENT_NODE) {
-                    continue;
-                }
-                final CdsObject object = createCdsObject(udn, (Element) node, rootTag);
-                if (object != null) {
-                    list.add(object);
-                }
-            }
-        } catch (ParserConfigurationException | SAXException | IOException e) {
+            parse(udn, xml, list::add);
+        } catch (XmlPullParserException | IOException e) {
             Log.w(e);
+            list.clear();
         }
         return list;
     }
@@ -81,44 +85,168 @@ final class CdsObjectFactory {
         if (TextUtils.isEmpty(xml)) {
             return null;
         }
+        final CdsObject[] result = new CdsObject[1];
         try {
-            final Document document = XmlUtils.newDocument(false, xml);
-            final Tag rootTag = createRootTag(document);
-            Node node = document.getDocumentElement().getFirstChild();
-            for (; node != null; node = node.getNextSibling()) {
-                if (node.getNodeType() != Node.ELEMENT_NODE) {
-                    continue;
-                }
-                return createCdsObject(udn, (Element) node, rootTag);
-            }
-        } catch (ParserConfigurationException | SAXException | IOException e) {
+            parse(udn, xml, object -> {
+                result[0] = object;
+                return false;
+            });
+        } catch (XmlPullParserException | IOException e) {
             Log.w(e);
+            return null;
         }
-        return null;
+        return result[0];
     }
 
-    private static Tag createRootTag(@NonNull final Document doc) {
-        return new Tag(doc.getDocumentElement(), true);
+    /**
+     * DIDL-LiteのXMLをパースする。
+     *
+     * @param udn     MediaServerのUDN
+     * @param xml     パースするXML
+     * @param handler パース結果の通知先
+     * @throws XmlPullParserException パースに失敗した場合
+     * @throws IOException            読み込みに失敗した場合
+     */
+    private static void parse(
+            @NonNull final String udn,
+            @NonNull final String xml,
+            @NonNull final ObjectHandler handler)
+            throws XmlPullParserException, IOException {
+        final XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        parser.setInput(new StringReader(xml));
+        final StringPool pool = new StringPool();
+        int type = parser.next();
+        while (type != XmlPullParser.START_TAG) {
+            if (type == XmlPullParser.END_DOCUMENT) {
+                return;
+            }
+            type = parser.next();
+        }
+        final Tag rootTag = new Tag(pool.name(parser.getName()), "", readAttributes(parser, pool));
+        while ((type = parser.next()) != XmlPullParser.END_TAG) {
+            if (type == XmlPullParser.END_DOCUMENT) {
+                throw new XmlPullParserException("Unexpected end of document");
+            }
+            if (type != XmlPullParser.START_TAG) {
+                continue;
+            }
+            final CdsObject object = createCdsObject(udn, parser, rootTag, pool);
+            if (object != null && !handler.onParse(object)) {
+                return;
+            }
+        }
     }
 
     /**
      * CdsObjectのインスタンスを作成する。
      *
+     * <p>parserはitem/containerの開始タグを指している状態でコールし、
+     * 終了タグを指している状態でリターンする。
+     *
      * @param udn     MediaServerのUDN
-     * @param element CdsObjectを指すElement
+     * @param parser  XmlPullParser
      * @param rootTag DIDL-Liteノードに記載されたNamespace情報
+     * @param pool    文字列を共有するためのプール
      * @return CdsObjectのインスタンス、パースに失敗した場合null
+     * @throws XmlPullParserException パースに失敗した場合
+     * @throws IOException            読み込みに失敗した場合
      */
     @Nullable
     private static CdsObject createCdsObject(
             @NonNull final String udn,
-            @NonNull final Element element,
-            @NonNull final Tag rootTag) {
+            @NonNull final XmlPullParser parser,
+            @NonNull final Tag rootTag,
+            @NonNull final StringPool pool)
+            throws XmlPullParserException, IOException {
+        final String tagName = pool.name(parser.getName());
+        final TagMap map = new TagMap();
+        map.putTag("", new Tag(tagName, "", readAttributes(parser, pool)));
+        int type;
+        while ((type = parser.next()) != XmlPullParser.END_TAG) {
+            if (type == XmlPullParser.END_DOCUMENT) {
+                throw new XmlPullParserException("Unexpected end of document");
+            }
+            if (type != XmlPullParser.START_TAG) {
+                continue;
+            }
+            final String name = pool.name(parser.getName());
+            final String[] attributes = readAttributes(parser, pool);
+            map.putTag(name, new Tag(name, pool.value(readText(parser)), attributes));
+        }
+        map.trimToSize();
         try {
-            return new CdsObject(udn, element, rootTag);
+            return new CdsObject(udn, tagName, map, rootTag);
         } catch (final IllegalArgumentException e) {
             Log.w(e);
         }
         return null;
     }
+
+    /**
+     * 現在の開始タグの属性を読み出す。
+     *
+     * @param parser XmlPullParser
+     * @param pool   文字列を共有するためのプール
+     * @return 属性名と属性値を交互に格納した配列
+     */
+    @NonNull
+    private static String[] readAttributes(
+            @NonNull final XmlPullParser parser,
+            @NonNull final StringPool pool) {
+        final int size = parser.getAttributeCount();
+        if (size <= 0) {
+            return Tag.EMPTY_ATTRIBUTES;
+        }
+        final String[] attributes = new String[size * 2];
+        for (int i = 0; i < size; i++) {
+            attributes[i * 2] = pool.name(parser.getAttributeName(i));
+            attributes[i * 2 + 1] = pool.value(parser.getAttributeValue(i));
+        }
+        return attributes;
+    }
+
+    /**
+     * 現在の開始タグに対応する終了タグまで読み進め、子孫要素を含むテキストを連結して返す。
+     *
+     * @param parser XmlPullParser
+     * @return テキスト
+     * @throws XmlPullParserException パースに失敗した場合
+     * @throws IOException            読み込みに失敗した場合
+     */
+    @NonNull
+    private static String readText(@NonNull final XmlPullParser parser)
+            throws XmlPullParserException, IOException {
+        String text = null;
+        StringBuilder sb = null;
+        int depth = 1;
+        while (depth > 0) {
+            switch (parser.next()) {
+                case XmlPullParser.START_TAG:
+                    depth++;
+                    break;
+                case XmlPullParser.END_TAG:
+                    depth--;
+                    break;
+                case XmlPullParser.TEXT:
+                    if (text == null) {
+                        text = parser.getText();
+                    } else {
+                        if (sb == null) {
+                            sb = new StringBuilder(text);
+                        }
+                        sb.append(parser.getText());
+                    }
+                    break;
+                case XmlPullParser.END_DOCUMENT:
+                    throw new XmlPullParserException("Unexpected end of document");
+                default:
+                    break;
+            }
+        }
+        if (sb != null) {
+            return sb.toString();
+        }
+        return text != null ? text : "";
+    }
 }
@@ -11,29 +11,45 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
-import net.mm2d.util.XmlUtils;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
-import java.io.StringWriter;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
 /**
  * AVTransport#SetAVTransportURIのCurrentURIMetaDataとして送信するXMLを作成するクラス。
  *
+ * <p>DOMを構築してTransformerでシリアライズした場合と同一の文字列をStringBuilderへ直接書き出す。
+ * AndroidのDOM実装と同様に、属性は追加した順、つまり受信したXMLでの出現順に出力する。
+ *
+ * <p>同じCdsObjectは続けて変換されることが多いため、直近の変換結果を保持して再利用する。
+ * 結果はUDNとObjectIDで保持し、再度パースされたインスタンスであっても内容が等しければ再利用する。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 public class CdsObjectXmlConverter {
+    private static final int CACHE_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    @NonNull
+    private static final Map<CdsObject, Entry> CACHE = new LinkedHashMap<CdsObject, Entry>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<CdsObject, Entry> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private static class Entry {
+        @NonNull
+        final CdsObject mObject;
+        @NonNull
+        final String mXml;
+
+        Entry(
+                @NonNull final CdsObject object,
+                @NonNull final String xml) {
+            mObject = object;
+            mXml = xml;
+        }
+    }
+
     /**
      * CdsObjectの情報からXMLを作成する。
      *
@@ -42,83 +58,204 @@ public class CdsObjectXmlConverter {
      */
     @Nullable
     public static String convert(@NonNull final CdsObject object) {
+        synchronized (CACHE) {
+            // CdsObjectはUDNとObjectIDで等価判定されるため、内容が変化していないかも確認する
+            final Entry entry = CACHE.get(object);
+            if (entry != null && entry.mObject.contentEquals(object)) {
+                return entry.mXml;
+            }
+        }
+        final String xml = write(object);
+        if (xml != null) {
+            synchronized (CACHE) {
+                CACHE.put(object, new Entry(object, xml));
+            }
+        }
+        return xml;
+    }
+
+    /**
+     * キャッシュを使用せずにXMLを作成する。
+     *
+     * @param object CdsObject
+     * @return XML
+     */
+    @Nullable
+    static String write(@NonNull final CdsObject object) {
         if (!object.isItem()) {
             return null;
         }
-        try {
-            final Document document = XmlUtils.newDocument(false);
-            final Element didl = makeRootElement(document, object);
-            document.appendChild(didl);
-            final Element item = makeItemElement(document, object);
-            didl.appendChild(item);
-            for (final Map.Entry<String, List<Tag>> tagListEntry : object.getTagMap().getRawMap().entrySet()) {
-                final String key = tagListEntry.getKey();
-                if (TextUtils.isEmpty(key)) {
-                    continue;
-                }
-                for (final Tag tag : tagListEntry.getValue()) {
-                    item.appendChild(makeElement(document, key, tag));
+        final Tag tag = object.getTag("");
+        if (tag == null) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder(INITIAL_CAPACITY);
+        sb.append('<').append(CdsObject.DIDL_LITE);
+        appendAttributes(sb, object.getRootTag());
+        sb.append('>');
+        sb.append('<').append(CdsObject.ITEM);
+        appendAttributes(sb, tag);
+        final String value = tag.getValue();
+        boolean hasContent = !TextUtils.isEmpty(value);
+        if (hasContent) {
+            sb.append('>');
+            appendText(sb, value);
+        }
+        final TagMap tagMap = object.getTagMap();
+        final int size = tagMap.size();
+        for (int i = 0; i < size; i++) {
+            final String key = tagMap.getName(i);
+            if (TextUtils.isEmpty(key)) {
+                continue;
+            }
+            for (final Tag child : tagMap.getTags(i)) {
+                if (!hasContent) {
+                    hasContent = true;
+                    sb.append('>');
                 }
+                appendElement(sb, key, child);
             }
-            return formatXmlString(document);
-        } catch (ParserConfigurationException | TransformerException | IllegalArgumentException ignored) {
         }
-        return null;
+        if (hasContent) {
+            sb.append("</").append(CdsObject.ITEM).append('>');
+        } else {
+            sb.append("/>");
+        }
+        sb.append("</").append(CdsObject.DIDL_LITE).append('>');
+        return sb.toString();
     }
 
-    @NonNull
-    private static Element makeElement(
-            @NonNull final Document document,
+    private static void appendElement(
+            @NonNull final StringBuilder sb,
             @NonNull final String tagName,
             @NonNull final Tag tag) {
-        final Element element = document.createElement(tagName);
+        sb.append('<').append(tagName);
+        appendAttributes(sb, tag);
         final String value = tag.getValue();
-        if (!TextUtils.isEmpty(value)) {
-            element.setTextContent(value);
+        if (TextUtils.isEmpty(value)) {
+            sb.append("/>");
+            return;
         }
-        for (final Map.Entry<String, String> attribute : tag.getAttributes().entrySet()) {
-            element.setAttribute(attribute.getKey(), attribute.getValue());
+        sb.append('>');
+        appendText(sb, value);
+        sb.append("</").append(tagName).append('>');
+    }
+
+    private static void appendAttributes(
+            @NonNull final StringBuilder sb,
+            @NonNull final Tag tag) {
+        final int count = tag.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            sb.append(' ').append(tag.getAttributeName(i)).append("=\"");
+            appendAttributeValue(sb, tag.getAttributeValue(i));
+            sb.append('"');
         }
-        return element;
     }
 
-    @NonNull
-    private static Element makeRootElement(
-            @NonNull final Document document,
-            @NonNull final CdsObject object) {
-        final Element element = document.createElement(CdsObject.DIDL_LITE);
-        for (final Map.Entry<String, String> attribute : object.getRootTag().getAttributes().entrySet()) {
-            element.setAttribute(attribute.getKey(), attribute.getValue());
+    /**
+     * 属性値をエスケープして追加する。
+     *
+     * <p>Transformerの出力に合わせ、制御文字は改行、タブを含め文字参照とする。
+     *
+     * @param sb    追加先
+     * @param value 属性値
+     */
+    private static void appendAttributeValue(
+            @NonNull final StringBuilder sb,
+            @NonNull final String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        appendCharacterReference(sb, c);
+                    } else {
+                        i = appendChar(sb, value, i);
+                    }
+                    break;
+            }
         }
-        return element;
     }
 
-    @NonNull
-    private static Element makeItemElement(
-            @NonNull final Document document,
-            @NonNull final CdsObject object) {
-        final Tag tag = object.getTag("");
-        if (tag == null) {
-            throw new IllegalArgumentException();
+    /**
+     * テキストをエスケープして追加する。
+     *
+     * <p>Transformerの出力に合わせ、改行とタブ以外の制御文字、DELおよびC1制御文字は文字参照とする。
+     *
+     * @param sb    追加先
+     * @param value テキスト
+     */
+    private static void appendText(
+            @NonNull final StringBuilder sb,
+            @NonNull final String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '\t':
+                case '\n':
+                    sb.append(c);
+                    break;
+                default:
+                    if (c < 0x20 || (c >= 0x7f && c <= 0x9f)) {
+                        appendCharacterReference(sb, c);
+                    } else {
+                        i = appendChar(sb, value, i);
+                    }
+                    break;
+            }
         }
-        return makeElement(document, CdsObject.ITEM, tag);
     }
 
     /**
-     * XML Documentを文字列に変換する
+     * 1文字を追加する。
      *
-     * @param document 変換するXML Document
-     * @return 変換された文字列
-     * @throws TransformerException 変換処理に問題が発生した場合
+     * <p>サロゲートペアはTransformerの出力に合わせ、コードポイントの文字参照とする。
+     *
+     * @param sb    追加先
+     * @param value 文字列
+     * @param index 追加する文字の位置
+     * @return 最後に処理した文字の位置
      */
-    @NonNull
-    private static String formatXmlString(final @NonNull Document document)
-            throws TransformerException {
-        final TransformerFactory tf = TransformerFactory.newInstance();
-        final Transformer transformer = tf.newTransformer();
-        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-        final StringWriter sw = new StringWriter();
-        transformer.transform(new DOMSource(document), new StreamResult(sw));
-        return sw.toString();
+    private static int appendChar(
+            @NonNull final StringBuilder sb,
+            @NonNull final String value,
+            final int index) {
+        final char c = value.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            appendCharacterReference(sb, Character.toCodePoint(c, value.charAt(index + 1)));
+            return index + 1;
+        }
+        sb.append(c);
+        return index;
+    }
+
+    private static void appendCharacterReference(
+            @NonNull final StringBuilder sb,
+            final int codePoint) {
+        sb.append("&#").append(codePoint).append(';');
     }
 }
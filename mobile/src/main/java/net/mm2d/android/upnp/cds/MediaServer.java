@@ -7,6 +7,7 @@
 
 package net.mm2d.android.upnp.cds;
 
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
@@ -18,12 +19,22 @@ import net.mm2d.upnp.Device;
 import net.mm2d.upnp.Service;
 import net.mm2d.util.TextParseUtils;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Completable;
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableOnSubscribe;
 import io.reactivex.Single;
 import io.reactivex.SingleOnSubscribe;
@@ -38,13 +49,36 @@ public class MediaServer extends DeviceWrapper {
     public static final int NO_ERROR = 0;
     private static final String BROWSE = "Browse";
     private static final String DESTROY_OBJECT = "DestroyObject";
+    private static final String SEARCH = "Search";
+    private static final String GET_SEARCH_CAPABILITIES = "GetSearchCapabilities";
+    private static final String GET_SORT_CAPABILITIES = "GetSortCapabilities";
+    private static final String SEARCH_CAPS = "SearchCaps";
+    private static final String SORT_CAPS = "SortCaps";
+    private static final int MAX_SEARCH_DEPTH = 16;
     private static final String OBJECT_ID = "ObjectID";
+    private static final String ROOT_OBJECT_ID = "0";
+    private static final int PROBE_REQUESTS = 2;
+    private static final long PROBE_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
     @NonNull
     private final Service mCdsService;
     @NonNull
     private final Action mBrowse;
     @Nullable
     private final Action mDestroyObject;
+    @Nullable
+    private final Action mSearch;
+    @Nullable
+    private final Action mGetSearchCapabilities;
+    @Nullable
+    private final Action mGetSortCapabilities;
+    @Nullable
+    private volatile List<String> mSearchCapabilities;
+    @Nullable
+    private volatile List<String> mSortCapabilities;
+    private volatile int mPipelineWindow = 1;
+    @NonNull
+    private final RequestLimiter mRequestLimiter = new RequestLimiter();
+    private volatile boolean mPipelineProbed;
 
     /**
      * インスタンスを作成する。
@@ -69,6 +103,9 @@ public class MediaServer extends DeviceWrapper {
         mCdsService = cdsService;
         mBrowse = browse;
         mDestroyObject = cdsService.findAction(DESTROY_OBJECT);
+        mSearch = cdsService.findAction(SEARCH);
+        mGetSearchCapabilities = cdsService.findAction(GET_SEARCH_CAPABILITIES);
+        mGetSortCapabilities = cdsService.findAction(GET_SORT_CAPABILITIES);
     }
 
     /**
@@ -98,7 +135,7 @@ public class MediaServer extends DeviceWrapper {
             return Single.never();
         }
         return Single.create((SingleOnSubscribe<Integer>) emitter -> {
-            final Map<String, String> result = mDestroyObject.invoke(Collections.singletonMap(OBJECT_ID, objectId));
+            final Map<String, String> result = invokeAction(mDestroyObject, Collections.singletonMap(OBJECT_ID, objectId));
             final String errorDescription = result.get(Action.ERROR_DESCRIPTION_KEY);
             if (!TextUtils.isEmpty(errorDescription)) {
                 Log.e(errorDescription);
@@ -150,17 +187,22 @@ public class MediaServer extends DeviceWrapper {
         return browse(objectId, "*", null, startingIndex, requestedCount);
     }
 
-    private static final int REQUEST_MAX = 10;
-
     /**
      * Browseを実行する。
      *
+     * <p>1回のリクエストで取得する件数はサーバの応答状況に応じて調整される。
+     * パイプライン数に2以上が設定されている場合、
+     * 最初の応答でTotalMatchesが判明した後、残りの範囲を並行して取得する。
+     * いずれの場合も結果はインデックス順に通知される。
+     *
      * @param objectId       ObjectID
      * @param filter         filter
      * @param sortCriteria   sortCriteria
      * @param startingIndex  startIndex
-     * @param requestedCount requestedCount
+     * @param requestedCount requestedCount、0の場合は全件
      * @return 結果
+     * @see PageSizeController
+     * @see #setPipelineWindow(int)
      */
     @NonNull
     public Observable<CdsObject> browse(
@@ -169,40 +211,632 @@ public class MediaServer extends DeviceWrapper {
             @Nullable final String sortCriteria,
             final int startingIndex,
             final int requestedCount) {
-        final BrowseArgument argument = new BrowseArgument()
+        return invokePaged((start, count) -> invokeLimited(mBrowse,
+                createBrowseArgument(objectId, filter, sortCriteria)
+                        .setStartIndex(start)
+                        .setRequestCount(count)
+                        .get()),
+                startingIndex, requestedCount);
+    }
+
+    /**
+     * 要求された件数に応じてBrowseを実行する。
+     *
+     * @param objectId ObjectID
+     * @return 結果
+     * @see #browseFlowable(String, String, String, int, int)
+     */
+    @NonNull
+    public Flowable<CdsObject> browseFlowable(@NonNull final String objectId) {
+        return browseFlowable(objectId, "*", null, 0, 0);
+    }
+
+    /**
+     * 要求された件数に応じてBrowseを実行する。
+     *
+     * <p>{@link #browse(String, String, String, int, int)}と異なり、
+     * 取得済みのページを通知し終え、購読者がさらに要求した時点で次のページを取得する。
+     * パイプラインの設定は使用せず、1ページずつ順に取得する。
+     * キャンセルされた場合は以降のページを取得せず、実行中のリクエストの結果は破棄する。
+     *
+     * @param objectId       ObjectID
+     * @param filter         filter
+     * @param sortCriteria   sortCriteria
+     * @param startingIndex  startIndex
+     * @param requestedCount requestedCount、0の場合は全件
+     * @return 結果
+     */
+    @NonNull
+    public Flowable<CdsObject> browseFlowable(
+            @NonNull final String objectId,
+            @Nullable final String filter,
+            @Nullable final String sortCriteria,
+            final int startingIndex,
+            final int requestedCount) {
+        return invokeOnDemand((start, count) -> invokeLimited(mBrowse,
+                createBrowseArgument(objectId, filter, sortCriteria)
+                        .setStartIndex(start)
+                        .setRequestCount(count)
+                        .get()),
+                startingIndex, requestedCount);
+    }
+
+    /**
+     * Searchアクションを持っているかを返す。
+     *
+     * @return Searchアクションを持っている場合true
+     */
+    public boolean hasSearch() {
+        return mSearch != null;
+    }
+
+    /**
+     * Searchを実行する。
+     *
+     * <p>サーバがSearchを実行できない場合はBrowseで取得した結果を端末側で絞り込む。
+     *
+     * @param containerId 検索対象のコンテナのObjectID
+     * @param criteria    検索条件
+     * @return 結果
+     * @see #search(String, SearchCriteria, String, String)
+     */
+    @NonNull
+    public Observable<CdsObject> search(
+            @NonNull final String containerId,
+            @NonNull final SearchCriteria criteria) {
+        return search(containerId, criteria, "*", null);
+    }
+
+    /**
+     * Searchを実行する。
+     *
+     * <p>以下の場合はサーバにSearchを要求せず、
+     * 指定コンテナ以下をBrowseで辿り、結果を端末側で絞り込む。
+     * <ul>
+     * <li>Searchアクションがない</li>
+     * <li>SearchCapabilitiesが検索条件のプロパティを含まない</li>
+     * <li>コンテナの@searchableがfalse</li>
+     * </ul>
+     *
+     * <p>サーバにSearchを要求する場合、結果はBrowseと同様にページ単位で取得される。
+     *
+     * @param containerId  検索対象のコンテナのObjectID
+     * @param criteria     検索条件
+     * @param filter       filter
+     * @param sortCriteria sortCriteria
+     * @return 結果
+     */
+    @NonNull
+    public Observable<CdsObject> search(
+            @NonNull final String containerId,
+            @NonNull final SearchCriteria criteria,
+            @Nullable final String filter,
+            @Nullable final String sortCriteria) {
+        if (mSearch == null) {
+            return searchByBrowse(containerId, criteria, filter, sortCriteria, 0);
+        }
+        return Single.zip(getSearchCapabilities(), isSearchable(containerId),
+                (capabilities, searchable) -> searchable && criteria.isSupportedBy(capabilities))
+                .onErrorReturnItem(false)
+                .flatMapObservable(supported -> supported
+                        ? searchOnServer(containerId, criteria.toCriteria(), filter, sortCriteria, 0, 0)
+                        : searchByBrowse(containerId, criteria, filter, sortCriteria, 0));
+    }
+
+    /**
+     * サーバ上でSearchを実行する。
+     *
+     * @param containerId    検索対象のコンテナのObjectID
+     * @param searchCriteria SearchCriteria
+     * @param filter         filter
+     * @param sortCriteria   sortCriteria
+     * @param startingIndex  startIndex
+     * @param requestedCount requestedCount、0の場合は全件
+     * @return 結果
+     */
+    @NonNull
+    public Observable<CdsObject> searchOnServer(
+            @NonNull final String containerId,
+            @NonNull final String searchCriteria,
+            @Nullable final String filter,
+            @Nullable final String sortCriteria,
+            final int startingIndex,
+            final int requestedCount) {
+        final Action search = mSearch;
+        if (search == null) {
+            return Observable.error(new UnsupportedOperationException("Device don't have search action"));
+        }
+        return invokePaged((start, count) -> invokeLimited(search, new SearchArgument()
+                        .setContainerId(containerId)
+                        .setSearchCriteria(searchCriteria)
+                        .setFilter(filter)
+                        .setSortCriteria(sortCriteria)
+                        .setStartIndex(start)
+                        .setRequestCount(count)
+                        .get()),
+                startingIndex, requestedCount);
+    }
+
+    /**
+     * 指定コンテナ以下をBrowseで辿り、検索条件に一致するものを返す。
+     */
+    @NonNull
+    private Observable<CdsObject> searchByBrowse(
+            @NonNull final String containerId,
+            @NonNull final SearchCriteria criteria,
+            @Nullable final String filter,
+            @Nullable final String sortCriteria,
+            final int depth) {
+        return browse(containerId, filter, sortCriteria).concatMap(object -> {
+            final Observable<CdsObject> self = criteria.matches(object) ? Observable.just(object) : Observable.empty();
+            if (!object.isContainer() || depth >= MAX_SEARCH_DEPTH) {
+                return self;
+            }
+            return self.concatWith(searchByBrowse(object.getObjectId(), criteria, filter, sortCriteria, depth + 1));
+        });
+    }
+
+    /**
+     * コンテナの@searchableを確認する。
+     *
+     * <p>属性が記述されていない場合はSearchを試みるためtrueとする。
+     */
+    @NonNull
+    private Single<Boolean> isSearchable(@NonNull final String containerId) {
+        return browseMetadata(containerId, CdsObject.SEARCHABLE)
+                .map(object -> {
+                    final String searchable = object.getValue(CdsObject.SEARCHABLE);
+                    return !"0".equals(searchable) && !"false".equalsIgnoreCase(searchable);
+                })
+                .onErrorReturnItem(true);
+    }
+
+    /**
+     * GetSearchCapabilitiesを実行する。
+     *
+     * <p>一度取得した結果は保持し、以降はサーバに問い合わせない。
+     *
+     * @return Searchに使用できるプロパティ名のリスト、"*"を含む場合は全て
+     */
+    @NonNull
+    public Single<List<String>> getSearchCapabilities() {
+        final List<String> capabilities = mSearchCapabilities;
+        if (capabilities != null) {
+            return Single.just(capabilities);
+        }
+        return getCapabilities(mGetSearchCapabilities, SEARCH_CAPS)
+                .doOnSuccess(result -> mSearchCapabilities = result);
+    }
+
+    /**
+     * GetSortCapabilitiesを実行する。
+     *
+     * <p>一度取得した結果は保持し、以降はサーバに問い合わせない。
+     *
+     * @return sortCriteriaに使用できるプロパティ名のリスト、"*"を含む場合は全て
+     */
+    @NonNull
+    public Single<List<String>> getSortCapabilities() {
+        final List<String> capabilities = mSortCapabilities;
+        if (capabilities != null) {
+            return Single.just(capabilities);
+        }
+        return getCapabilities(mGetSortCapabilities, SORT_CAPS)
+                .doOnSuccess(result -> mSortCapabilities = result);
+    }
+
+    @NonNull
+    private Single<List<String>> getCapabilities(
+            @Nullable final Action action,
+            @NonNull final String key) {
+        if (action == null) {
+            return Single.just(Collections.emptyList());
+        }
+        return Single.create((SingleOnSubscribe<List<String>>) emitter -> {
+            final String value = invokeAction(action, Collections.emptyMap()).get(key);
+            final List<String> result = new ArrayList<>();
+            if (!TextUtils.isEmpty(value)) {
+                for (final String property : value.split(",")) {
+                    final String trimmed = property.trim();
+                    if (!trimmed.isEmpty()) {
+                        result.add(trimmed);
+                    }
+                }
+            }
+            emitter.onSuccess(Collections.unmodifiableList(result));
+        }).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * ページ単位で結果を返すアクションを実行する。
+     *
+     * <p>1回のリクエストで取得する件数はサーバの応答状況に応じて調整される。
+     * パイプライン数に2以上が設定されている場合、
+     * 最初の応答でTotalMatchesが判明した後、残りの範囲を並行して取得する。
+     * いずれの場合も結果はインデックス順に通知される。
+     *
+     * @param action         ページ単位のアクション
+     * @param startingIndex  startIndex
+     * @param requestedCount requestedCount、0の場合は全件
+     * @return 結果
+     */
+    @NonNull
+    private Observable<CdsObject> invokePaged(
+            @NonNull final PageAction action,
+            final int startingIndex,
+            final int requestedCount) {
+        final int end = requestedCount == 0 ? Integer.MAX_VALUE : startingIndex + requestedCount;
+        final int window = mPipelineWindow;
+        if (window <= 1) {
+            return Observable.create((ObservableOnSubscribe<List<CdsObject>>) emitter ->
+                    browseRange(emitter, action, new PageSizeController(this), startingIndex, end))
+                    .flatMap(Observable::fromIterable)
+                    .subscribeOn(Schedulers.io());
+        }
+        return Observable.<List<CdsObject>>defer(() -> {
+            final PageSizeController controller = new PageSizeController(this);
+            return Single.fromCallable(() -> browsePage(action, controller, startingIndex, end))
+                    .flatMapObservable(page -> browseRemaining(
+                            action, page, startingIndex, end, controller.getPageSize(), window));
+        }).flatMap(Observable::fromIterable)
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Browseのパイプライン数を設定する。
+     *
+     * <p>1以下の場合は1ページずつ順に取得する。
+     * 2以上の場合は最初のページ取得後、残りのページを指定数まで並行して取得する。
+     * 並行したSOAPリクエストを処理できるサーバでのみ有効にすること。
+     *
+     * <p>この値はBrowse/Searchの呼び出しごとではなく、このサーバへ同時に発行するリクエスト数の上限でもある。
+     * 表示中のBrowse、先読み、ライブラリの巡回などが同時に実行されても、合計で指定数を超えない。
+     *
+     * @param window 同時に発行するリクエストの最大数
+     * @see #probePipeline(int)
+     */
+    public void setPipelineWindow(final int window) {
+        final int limit = Math.max(window, 1);
+        mPipelineWindow = limit;
+        mRequestLimiter.setLimit(limit);
+    }
+
+    /**
+     * サーバが並行したリクエストを処理できるかを確認し、処理できればパイプライン数を設定する。
+     *
+     * <p>ルートコンテナへのBrowseを同時に発行し、全てが正常に応答した場合のみ有効にする。
+     * 確認は完了するまで一度のみ行い、処理できない場合、応答がない場合は1ページずつ順に取得する設定のままとする。
+     *
+     * @param window 有効にする場合のパイプライン数
+     * @return 確認の完了
+     */
+    @NonNull
+    public Completable probePipeline(final int window) {
+        if (window <= 1 || mPipelineProbed) {
+            return Completable.complete();
+        }
+        final Map<String, String> argument = createBrowseArgument(ROOT_OBJECT_ID, "*", "")
+                .setStartIndex(0)
+                .setRequestCount(1)
+                .get();
+        return Flowable.range(0, PROBE_REQUESTS)
+                .flatMapSingle(i -> Single.fromCallable(() -> new BrowseResponse(invokeAction(mBrowse, argument)))
+                        .subscribeOn(Schedulers.io()), false, PROBE_REQUESTS)
+                .all(response -> response.getNumberReturned() >= 0 && response.getTotalMatches() >= 0)
+                .timeout(PROBE_TIMEOUT, TimeUnit.MILLISECONDS)
+                .flatMapCompletable(supported -> {
+                    Log.d(getFriendlyName() + " pipeline:" + supported);
+                    if (supported) {
+                        setPipelineWindow(window);
+                    }
+                    return Completable.complete();
+                })
+                // 途中で破棄された場合は次回に再確認する
+                .doOnEvent(error -> mPipelineProbed = true);
+    }
+
+    /**
+     * 同時に発行するリクエスト数の上限を守ってBrowse/Searchを実行する。
+     *
+     * @param action   Action
+     * @param argument 引数
+     * @return 戻り値
+     * @throws IOException 通信エラー、もしくは待機中に割り込まれた場合
+     */
+    @NonNull
+    private Map<String, String> invokeLimited(
+            @NonNull final Action action,
+            @NonNull final Map<String, String> argument) throws IOException {
+        try {
+            mRequestLimiter.acquire();
+        } catch (final InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+        try {
+            return invokeAction(action, argument);
+        } finally {
+            mRequestLimiter.release();
+        }
+    }
+
+    /**
+     * サーバへ同時に発行するリクエスト数を制限するSemaphore。
+     *
+     * <p>上限は実行中のリクエストがあっても変更でき、超過分は完了したものから解消される。
+     */
+    private static class RequestLimiter extends Semaphore {
+        private int mLimit = 1;
+
+        RequestLimiter() {
+            super(1, true);
+        }
+
+        synchronized void setLimit(final int limit) {
+            final int delta = limit - mLimit;
+            mLimit = limit;
+            if (delta > 0) {
+                release(delta);
+            } else if (delta < 0) {
+                reducePermits(-delta);
+            }
+        }
+    }
+
+    @NonNull
+    private static BrowseArgument createBrowseArgument(
+            @NonNull final String objectId,
+            @Nullable final String filter,
+            @Nullable final String sortCriteria) {
+        return new BrowseArgument()
                 .setObjectId(objectId)
                 .setBrowseDirectChildren()
                 .setFilter(filter)
                 .setSortCriteria(sortCriteria);
-        final int request = requestedCount == 0 ? Integer.MAX_VALUE : requestedCount;
-        return Observable.create((ObservableOnSubscribe<List<CdsObject>>) emitter -> {
-            int start = startingIndex;
-            while (!emitter.isDisposed()) {
-                argument.setStartIndex(start)
-                        .setRequestCount(Math.min(request - start, REQUEST_MAX));
-                final BrowseResponse response = new BrowseResponse(mBrowse.invoke(argument.get()));
-                final int number = response.getNumberReturned();
-                final int total = response.getTotalMatches();
-                if (number == 0 || total == 0) {
-                    emitter.onComplete();
-                    return;
-                }
-                final List<CdsObject> result = CdsObjectFactory.parseDirectChildren(getUdn(), response.getResult());
-                if (result.size() == 0 || number < 0 || total < 0) {
-                    emitter.onError(new IllegalStateException());
-                    return;
-                }
-                start += number;
-                emitter.onNext(result);
-                if (start >= total || start >= request) {
-                    break;
-                }
+    }
+
+    /**
+     * ページ単位で結果を返すアクションを、要求された件数に応じて実行する。
+     *
+     * @param action         ページ単位のアクション
+     * @param startingIndex  startIndex
+     * @param requestedCount requestedCount、0の場合は全件
+     * @return 結果
+     */
+    @NonNull
+    private Flowable<CdsObject> invokeOnDemand(
+            @NonNull final PageAction action,
+            final int startingIndex,
+            final int requestedCount) {
+        final int end = requestedCount == 0 ? Integer.MAX_VALUE : startingIndex + requestedCount;
+        return Flowable.<CdsObject, PageCursor>generate(
+                () -> new PageCursor(new PageSizeController(this), startingIndex, end),
+                (cursor, emitter) -> emitNext(action, cursor, emitter))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * 1件を通知する。
+     *
+     * <p>取得済みのページを通知し終えている場合のみ次のページを取得する。
+     *
+     * @param action  ページ単位のアクション
+     * @param cursor  取得状態
+     * @param emitter 通知先
+     * @throws IOException 通信エラー
+     */
+    private void emitNext(
+            @NonNull final PageAction action,
+            @NonNull final PageCursor cursor,
+            @NonNull final Emitter<CdsObject> emitter) throws IOException {
+        if (!cursor.mIterator.hasNext()) {
+            if (cursor.mLast) {
+                emitter.onComplete();
+                return;
+            }
+            final BrowsePage page = browsePage(action, cursor.mController, cursor.mStart, cursor.mEnd);
+            if (page.isEmpty()) {
+                emitter.onComplete();
+                return;
             }
+            cursor.mStart += page.getNumber();
+            cursor.mLast = cursor.mStart >= page.getTotal() || cursor.mStart >= cursor.mEnd;
+            cursor.mIterator = page.getList().iterator();
+        }
+        emitter.onNext(cursor.mIterator.next());
+        if (cursor.mLast && !cursor.mIterator.hasNext()) {
             emitter.onComplete();
-        }).flatMap(Observable::fromIterable)
+        }
+    }
+
+    /**
+     * 要求に応じたBrowseの取得状態。
+     */
+    private static class PageCursor {
+        @NonNull
+        private final PageSizeController mController;
+        private final int mEnd;
+        private int mStart;
+        private boolean mLast;
+        @NonNull
+        private Iterator<CdsObject> mIterator = Collections.<CdsObject>emptyList().iterator();
+
+        PageCursor(
+                @NonNull final PageSizeController controller,
+                final int start,
+                final int end) {
+            mController = controller;
+            mStart = start;
+            mEnd = end;
+        }
+    }
+
+    /**
+     * 指定範囲を1ページずつ順に取得し、emitterに通知する。
+     *
+     * @param emitter       通知先
+     * @param action        ページ単位のアクション
+     * @param controller    ページサイズの制御、nullの場合は範囲全体を一度に要求する
+     * @param startingIndex 開始インデックス
+     * @param end           終了インデックス（このインデックスは含まない）
+     * @throws IOException 通信エラー
+     */
+    private void browseRange(
+            @NonNull final ObservableEmitter<List<CdsObject>> emitter,
+            @NonNull final PageAction action,
+            @Nullable final PageSizeController controller,
+            final int startingIndex,
+            final int end) throws IOException {
+        int start = startingIndex;
+        while (!emitter.isDisposed()) {
+            final BrowsePage page = browsePage(action, controller, start, end);
+            if (page.isEmpty()) {
+                break;
+            }
+            start += page.getNumber();
+            emitter.onNext(page.getList());
+            if (start >= page.getTotal() || start >= end) {
+                break;
+            }
+        }
+        emitter.onComplete();
+    }
+
+    /**
+     * 最初のページ以降の範囲をページ単位に分割し、並行して取得する。
+     *
+     * <p>結果は並行数に関わらずインデックス順に通知される。
+     */
+    @NonNull
+    private Observable<List<CdsObject>> browseRemaining(
+            @NonNull final PageAction action,
+            @NonNull final BrowsePage firstPage,
+            final int startingIndex,
+            final int end,
+            final int pageSize,
+            final int window) {
+        if (firstPage.isEmpty()) {
+            return Observable.empty();
+        }
+        final Observable<List<CdsObject>> first = Observable.just(firstPage.getList());
+        final int start = startingIndex + firstPage.getNumber();
+        final int last = Math.min(firstPage.getTotal(), end);
+        if (start >= last) {
+            return first;
+        }
+        final int pages = (last - start + pageSize - 1) / pageSize;
+        return first.concatWith(Observable.range(0, pages)
+                .concatMapEager(i -> {
+                    final int rangeStart = start + i * pageSize;
+                    final int rangeEnd = Math.min(rangeStart + pageSize, last);
+                    return Observable.create((ObservableOnSubscribe<List<CdsObject>>) emitter ->
+                            browseRange(emitter, action, null, rangeStart, rangeEnd))
+                            .subscribeOn(Schedulers.io());
+                }, window, 1));
+    }
+
+    /**
+     * 1ページ分のBrowseを実行する。
+     *
+     * @param action     ページ単位のアクション
+     * @param controller ページサイズの制御、nullの場合は範囲全体を一度に要求する
+     * @param start      開始インデックス
+     * @param end        終了インデックス（このインデックスは含まない）
+     * @return 結果
+     * @throws IOException 通信エラー
+     */
+    @NonNull
+    private BrowsePage browsePage(
+            @NonNull final PageAction action,
+            @Nullable final PageSizeController controller,
+            final int start,
+            final int end) throws IOException {
+        while (true) {
+            final int count = controller == null ? end - start : Math.min(end - start, controller.getPageSize());
+            final long begin = SystemClock.elapsedRealtime();
+            final BrowseResponse response;
+            try {
+                response = new BrowseResponse(action.invoke(start, count));
+            } catch (final SocketTimeoutException e) {
+                if (controller != null && controller.onTimeout()) {
+                    continue;
+                }
+                throw e;
+            }
+            final long elapsed = SystemClock.elapsedRealtime() - begin;
+            final int number = response.getNumberReturned();
+            final int total = response.getTotalMatches();
+            if (number == 0 || total == 0) {
+                return BrowsePage.EMPTY;
+            }
+            final String xml = response.getResult();
+            final List<CdsObject> result = CdsObjectFactory.parseDirectChildren(getUdn(), xml);
+            if (result.size() == 0 || number < 0 || total < 0) {
+                throw new IllegalStateException();
+            }
+            if (controller != null) {
+                final int remaining = Math.min(total, end) - start - number;
+                controller.onResponse(count, number, remaining, elapsed, xml == null ? 0 : xml.length());
+            }
+            return new BrowsePage(result, number, total);
+        }
+    }
+
+    /**
+     * ページ単位で結果を返すアクション。
+     *
+     * <p>Browse(BrowseDirectChildren)とSearchの応答は同じ形式であるため、共通に扱う。
+     */
+    private interface PageAction {
+        @NonNull
+        Map<String, String> invoke(
+                int startingIndex,
+                int requestedCount) throws IOException;
+    }
+
+    /**
+     * 1回のBrowseで指定範囲を取得し、TotalMatchesとともに返す。
+     *
+     * <p>サーバが要求より少ない件数を返した場合でも追加の取得は行わない。
+     *
+     * @param objectId       ObjectID
+     * @param startingIndex  startIndex
+     * @param requestedCount requestedCount
+     * @return 結果
+     */
+    @NonNull
+    public Single<BrowsePage> browsePage(
+            @NonNull final String objectId,
+            final int startingIndex,
+            final int requestedCount) {
+        final PageAction action = (start, count) -> invokeLimited(mBrowse,
+                createBrowseArgument(objectId, "*", null)
+                        .setStartIndex(start)
+                        .setRequestCount(count)
+                        .get());
+        return Single.fromCallable(() -> browsePage(action, null, startingIndex, startingIndex + requestedCount))
                 .subscribeOn(Schedulers.io());
     }
 
+    /**
+     * 指定したコンテナのUpdateIDを取得する。
+     *
+     * <p>BrowseDirectChildrenで1件のみ要求し、応答に含まれるUpdateIDを返す。
+     * サーバがUpdateIDを返さない場合は-1となる。
+     *
+     * @param objectId ObjectID
+     * @return UpdateID
+     */
+    @NonNull
+    public Single<Integer> getUpdateId(@NonNull final String objectId) {
+        final BrowseArgument argument = createBrowseArgument(objectId, "*", "")
+                .setStartIndex(0)
+                .setRequestCount(1);
+        return Single.create((SingleOnSubscribe<Integer>) emitter -> {
+            final BrowseResponse response = new BrowseResponse(invokeLimited(mBrowse, argument.get()));
+            emitter.onSuccess(response.getUpdateId());
+        }).subscribeOn(Schedulers.io());
+    }
+
     /**
      * BrowseMetadataを実行する。
      *
@@ -233,7 +867,7 @@ public class MediaServer extends DeviceWrapper {
                 .setStartIndex(0)
                 .setRequestCount(0);
         return Single.create((SingleOnSubscribe<CdsObject>) emitter -> {
-            final BrowseResponse response = new BrowseResponse(mBrowse.invoke(argument.get()));
+            final BrowseResponse response = new BrowseResponse(invokeLimited(mBrowse, argument.get()));
             final CdsObject result = CdsObjectFactory.parseMetadata(getUdn(), response.getResult());
             if (result == null || response.getNumberReturned() < 0 || response.getTotalMatches() < 0) {
                 emitter.onError(new IllegalStateException());
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import android.support.annotation.NonNull;
+
+import net.mm2d.android.upnp.DeviceWrapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Browseの1回あたりの取得件数を応答状況に応じて調整するクラス。
+ *
+ * <p>最初のページは最初の項目を早く表示させるため小さいサイズで取得し、
+ * 応答時間とペイロードサイズが予算内に収まっている間は段階的にサイズを大きくする。
+ * タイムアウトや、要求数に満たない応答が返ってきた場合はサイズを小さくする。
+ *
+ * <p>学習したサイズの上限はDeviceWrapperのタグとして保存し、
+ * 同一サーバに対する以降のBrowseでは2ページ目から上限のサイズで取得する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class PageSizeController {
+    /**
+     * 学習したページサイズの上限を格納するタグの名前。
+     */
+    static final String KEY_PAGE_SIZE_CEILING = "KEY_PAGE_SIZE_CEILING";
+    private static final int[] PAGE_SIZES = {10, 50, 200};
+    private static final long LATENCY_BUDGET = TimeUnit.SECONDS.toMillis(2);
+    private static final int PAYLOAD_BUDGET = 1024 * 1024;
+
+    @NonNull
+    private final DeviceWrapper mDevice;
+    private int mLevel;
+    private int mCeiling;
+    private boolean mFirst = true;
+
+    /**
+     * インスタンス作成。
+     *
+     * @param device Browseを行うデバイス
+     */
+    PageSizeController(@NonNull final DeviceWrapper device) {
+        mDevice = device;
+        synchronized (mDevice) {
+            mCeiling = toLevel(mDevice.getIntTag(KEY_PAGE_SIZE_CEILING, 0));
+        }
+    }
+
+    /**
+     * 次のリクエストで要求する件数を返す。
+     *
+     * @return 要求件数
+     */
+    int getPageSize() {
+        return PAGE_SIZES[mLevel];
+    }
+
+    /**
+     * 正常に応答が得られた場合にコールする。
+     *
+     * @param requested 要求した件数
+     * @param returned  返ってきた件数
+     * @param remaining 未取得の件数
+     * @param elapsed   応答までにかかった時間[ms]
+     * @param payload   Resultのサイズ
+     */
+    void onResponse(
+            final int requested,
+            final int returned,
+            final int remaining,
+            final long elapsed,
+            final int payload) {
+        if (returned < requested && remaining > 0) {
+            shrinkTo(toLevel(returned));
+            return;
+        }
+        if (elapsed > LATENCY_BUDGET || payload > PAYLOAD_BUDGET) {
+            shrinkTo(mLevel - 1);
+            return;
+        }
+        if (mFirst && mCeiling > mLevel) {
+            mLevel = mCeiling;
+        } else if (returned == requested && elapsed < LATENCY_BUDGET / 2 && payload < PAYLOAD_BUDGET / 2) {
+            growTo(mLevel + 1);
+        }
+        mFirst = false;
+    }
+
+    /**
+     * タイムアウトが発生した場合にコールする。
+     *
+     * @return 縮小してリトライする余地がある場合true、既に最小の場合false
+     */
+    boolean onTimeout() {
+        if (mLevel == 0) {
+            return false;
+        }
+        shrinkTo(mLevel - 1);
+        return true;
+    }
+
+    private void growTo(final int level) {
+        if (level >= PAGE_SIZES.length) {
+            return;
+        }
+        mLevel = level;
+        if (mLevel > mCeiling) {
+            saveCeiling(mLevel);
+        }
+    }
+
+    private void shrinkTo(final int level) {
+        mFirst = false;
+        mLevel = Math.max(0, Math.min(level, mLevel));
+        if (mLevel < mCeiling) {
+            saveCeiling(mLevel);
+        }
+    }
+
+    private void saveCeiling(final int level) {
+        mCeiling = level;
+        synchronized (mDevice) {
+            mDevice.putIntTag(KEY_PAGE_SIZE_CEILING, PAGE_SIZES[level]);
+        }
+    }
+
+    private static int toLevel(final int size) {
+        for (int i = PAGE_SIZES.length - 1; i > 0; i--) {
+            if (PAGE_SIZES[i] <= size) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
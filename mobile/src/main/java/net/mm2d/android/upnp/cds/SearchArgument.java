@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.ArrayMap;
+
+import java.util.Map;
+
+/**
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class SearchArgument {
+    private static final String CONTAINER_ID = "ContainerID";
+    private static final String SEARCH_CRITERIA = "SearchCriteria";
+    private static final String FILTER = "Filter";
+    private static final String SORT_CRITERIA = "SortCriteria";
+    private static final String START_INDEX = "StartingIndex";
+    private static final String REQUESTED_COUNT = "RequestedCount";
+    @NonNull
+    private final Map<String, String> mArgument;
+
+    SearchArgument() {
+        mArgument = new ArrayMap<>(6);
+    }
+
+    @NonNull
+    SearchArgument setContainerId(@NonNull final String containerId) {
+        mArgument.put(CONTAINER_ID, containerId);
+        return this;
+    }
+
+    @NonNull
+    SearchArgument setSearchCriteria(@NonNull final String searchCriteria) {
+        mArgument.put(SEARCH_CRITERIA, searchCriteria);
+        return this;
+    }
+
+    @NonNull
+    SearchArgument setFilter(@Nullable final String filter) {
+        mArgument.put(FILTER, filter);
+        return this;
+    }
+
+    @NonNull
+    SearchArgument setSortCriteria(@Nullable final String sortCriteria) {
+        mArgument.put(SORT_CRITERIA, sortCriteria);
+        return this;
+    }
+
+    @NonNull
+    SearchArgument setStartIndex(final int startIndex) {
+        mArgument.put(START_INDEX, String.valueOf(startIndex));
+        return this;
+    }
+
+    @NonNull
+    SearchArgument setRequestCount(final int requestCount) {
+        mArgument.put(REQUESTED_COUNT, String.valueOf(requestCount));
+        return this;
+    }
+
+    @NonNull
+    Map<String, String> get() {
+        return mArgument;
+    }
+}
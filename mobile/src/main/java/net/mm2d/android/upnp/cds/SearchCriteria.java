@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import android.support.annotation.NonNull;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * CDS SearchのSearchCriteriaを表現するクラス。
+ *
+ * <p>Builderで指定した条件は全てANDで結合される。
+ * サーバに渡す文字列への変換と、CdsObjectが条件に一致するかの判定の両方を提供し、
+ * サーバがSearchを実行できない場合はBrowse結果を同じ条件で絞り込むことができる。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class SearchCriteria {
+    private static final String ALL = "*";
+
+    public static class Builder {
+        @NonNull
+        private final List<Condition> mConditions = new ArrayList<>();
+
+        /**
+         * upnp:classが指定クラスもしくはその派生クラスであることを条件に加える。
+         *
+         * @param upnpClass upnp:class 例："object.item.videoItem"
+         * @return Builder
+         */
+        @NonNull
+        public Builder setClassDerivedFrom(@NonNull final String upnpClass) {
+            mConditions.add(new ClassCondition(upnpClass, true));
+            return this;
+        }
+
+        /**
+         * upnp:classが指定クラスと一致することを条件に加える。
+         *
+         * @param upnpClass upnp:class
+         * @return Builder
+         */
+        @NonNull
+        public Builder setClassEquals(@NonNull final String upnpClass) {
+            mConditions.add(new ClassCondition(upnpClass, false));
+            return this;
+        }
+
+        /**
+         * dc:titleが指定文字列を含むことを条件に加える。
+         *
+         * <p>大文字小文字は区別しない。
+         *
+         * @param keyword キーワード
+         * @return Builder
+         */
+        @NonNull
+        public Builder setTitleContains(@NonNull final String keyword) {
+            mConditions.add(new TitleCondition(keyword));
+            return this;
+        }
+
+        /**
+         * dc:dateが指定日時以降であることを条件に加える。
+         *
+         * @param date 日時
+         * @return Builder
+         */
+        @NonNull
+        public Builder setDateFrom(@NonNull final Date date) {
+            mConditions.add(new DateCondition(date, true));
+            return this;
+        }
+
+        /**
+         * dc:dateが指定日時より前であることを条件に加える。
+         *
+         * @param date 日時
+         * @return Builder
+         */
+        @NonNull
+        public Builder setDateBefore(@NonNull final Date date) {
+            mConditions.add(new DateCondition(date, false));
+            return this;
+        }
+
+        @NonNull
+        public SearchCriteria build() {
+            return new SearchCriteria(this);
+        }
+    }
+
+    @NonNull
+    private final List<Condition> mConditions;
+
+    private SearchCriteria(@NonNull final Builder builder) {
+        mConditions = Collections.unmodifiableList(new ArrayList<>(builder.mConditions));
+    }
+
+    /**
+     * SearchアクションのSearchCriteria引数として渡す文字列を返す。
+     *
+     * @return SearchCriteria、条件がない場合"*"
+     */
+    @NonNull
+    public String toCriteria() {
+        if (mConditions.isEmpty()) {
+            return ALL;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final Condition condition : mConditions) {
+            if (sb.length() != 0) {
+                sb.append(" and ");
+            }
+            sb.append(condition.toCriteria());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 条件に使用しているプロパティ名を返す。
+     *
+     * @return プロパティ名のセット
+     */
+    @NonNull
+    public Set<String> getProperties() {
+        final Set<String> result = new LinkedHashSet<>();
+        for (final Condition condition : mConditions) {
+            result.add(condition.getProperty());
+        }
+        return result;
+    }
+
+    /**
+     * サーバのSearchCapabilitiesでこの条件を処理できるかを返す。
+     *
+     * @param capabilities GetSearchCapabilitiesの結果
+     * @return 処理できる場合true
+     */
+    public boolean isSupportedBy(@NonNull final List<String> capabilities) {
+        return capabilities.contains(ALL) || capabilities.containsAll(getProperties());
+    }
+
+    /**
+     * CdsObjectがこの条件に一致するかを返す。
+     *
+     * @param object CdsObject
+     * @return 一致する場合true
+     */
+    public boolean matches(@NonNull final CdsObject object) {
+        for (final Condition condition : mConditions) {
+            if (!condition.matches(object)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return toCriteria();
+    }
+
+    @NonNull
+    private static String quote(@NonNull final String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private interface Condition {
+        @NonNull
+        String getProperty();
+
+        @NonNull
+        String toCriteria();
+
+        boolean matches(@NonNull CdsObject object);
+    }
+
+    private static class ClassCondition implements Condition {
+        @NonNull
+        private final String mUpnpClass;
+        private final boolean mDerived;
+
+        ClassCondition(
+                @NonNull final String upnpClass,
+                final boolean derived) {
+            mUpnpClass = upnpClass;
+            mDerived = derived;
+        }
+
+        @NonNull
+        @Override
+        public String getProperty() {
+            return CdsObject.UPNP_CLASS;
+        }
+
+        @NonNull
+        @Override
+        public String toCriteria() {
+            return CdsObject.UPNP_CLASS + (mDerived ? " derivedfrom " : " = ") + quote(mUpnpClass);
+        }
+
+        @Override
+        public boolean matches(@NonNull final CdsObject object) {
+            final String upnpClass = object.getUpnpClass();
+            if (mDerived) {
+                return upnpClass.equals(mUpnpClass) || upnpClass.startsWith(mUpnpClass + ".");
+            }
+            return upnpClass.equals(mUpnpClass);
+        }
+    }
+
+    private static class TitleCondition implements Condition {
+        @NonNull
+        private final String mKeyword;
+
+        TitleCondition(@NonNull final String keyword) {
+            mKeyword = keyword;
+        }
+
+        @NonNull
+        @Override
+        public String getProperty() {
+            return CdsObject.DC_TITLE;
+        }
+
+        @NonNull
+        @Override
+        public String toCriteria() {
+            return CdsObject.DC_TITLE + " contains " + quote(mKeyword);
+        }
+
+        @Override
+        public boolean matches(@NonNull final CdsObject object) {
+            return object.getTitle().toLowerCase(Locale.ENGLISH)
+                    .contains(mKeyword.toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    private static class DateCondition implements Condition {
+        @NonNull
+        private final Date mDate;
+        private final boolean mFrom;
+
+        DateCondition(
+                @NonNull final Date date,
+                final boolean from) {
+            mDate = date;
+            mFrom = from;
+        }
+
+        @NonNull
+        @Override
+        public String getProperty() {
+            return CdsObject.DC_DATE;
+        }
+
+        @NonNull
+        @Override
+        public String toCriteria() {
+            final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+            return CdsObject.DC_DATE + (mFrom ? " >= " : " < ") + quote(format.format(mDate));
+        }
+
+        @Override
+        public boolean matches(@NonNull final CdsObject object) {
+            final Date date = object.getDateValue(CdsObject.DC_DATE);
+            if (date == null) {
+                return false;
+            }
+            return mFrom ? date.compareTo(mDate) >= 0 : date.compareTo(mDate) < 0;
+        }
+    }
+}
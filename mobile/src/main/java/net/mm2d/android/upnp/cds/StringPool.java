@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * パース中に出現する文字列を共有するためのプール。
+ *
+ * <p>タグ名・属性名は種類が限られ、全てのCdsObjectで繰り返し出現するため、internして共有する。
+ * upnp:classやprotocolInfoのような値も同一のBrowse結果の中では繰り返し出現するため、
+ * 一定の長さ以下の値はこのプールの中で共有する。
+ * スレッドセーフではないため、一つのパース処理の中でのみ使用する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class StringPool {
+    private static final int MAX_VALUE_LENGTH = 128;
+    @NonNull
+    private final Map<String, String> mNameMap = new HashMap<>();
+    @NonNull
+    private final Map<String, String> mValueMap = new HashMap<>();
+
+    /**
+     * タグ名・属性名を共有された文字列に置き換える。
+     *
+     * @param name タグ名・属性名
+     * @return 共有された文字列
+     */
+    @NonNull
+    String name(@NonNull final String name) {
+        final String pooled = mNameMap.get(name);
+        if (pooled != null) {
+            return pooled;
+        }
+        final String interned = name.intern();
+        mNameMap.put(interned, interned);
+        return interned;
+    }
+
+    /**
+     * 値を共有された文字列に置き換える。
+     *
+     * <p>長い値は重複する可能性が低いため、共有せずそのまま返す。
+     *
+     * @param value 値
+     * @return 共有された文字列
+     */
+    @NonNull
+    String value(@NonNull final String value) {
+        if (value.isEmpty()) {
+            return "";
+        }
+        if (value.length() > MAX_VALUE_LENGTH) {
+            return value;
+        }
+        final String pooled = mValueMap.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        mValueMap.put(value, value);
+        return value;
+    }
+}
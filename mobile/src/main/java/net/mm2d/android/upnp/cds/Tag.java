@@ -12,14 +12,10 @@ import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
 /**
  * シンプルなXMLのタグ情報を表現するクラス
@@ -33,60 +29,42 @@ import java.util.Map.Entry;
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 public class Tag implements Parcelable {
+    private static final int TAG_OVERHEAD = 24;
+    static final int ARRAY_OVERHEAD = 16;
+    static final int REFERENCE_SIZE = 4;
+    private static final int STRING_OVERHEAD = 40;
+    /**
+     * 属性を持たないタグで共有する空の属性配列。
+     */
+    static final String[] EMPTY_ATTRIBUTES = new String[0];
     @NonNull
     private final String mName;
     @NonNull
     private final String mValue;
-    @NonNull
-    private final Map<String, String> mAttribute;
-
     /**
-     * インスタンス作成。
-     *
-     * パッケージ外でのインスタンス化禁止
+     * 属性名と属性値を交互に格納した配列。
      *
-     * @param element タグ情報
+     * <p>属性の数は少ないため、Mapではなく配列に格納し線形探索する。
      */
-    Tag(@NonNull final Element element) {
-        this(element, false);
-    }
+    @NonNull
+    private final String[] mAttributes;
 
     /**
      * インスタンス作成。
      *
      * パッケージ外でのインスタンス化禁止
      *
-     * @param element タグ情報
-     * @param root    タグがitem/containerのときtrue
+     * @param name       タグ名
+     * @param value      タグの値
+     * @param attributes 属性名と属性値を交互に格納した配列、このインスタンスが保持するため以降変更してはならない
      */
     Tag(
-            @NonNull final Element element,
-            final boolean root) {
-        this(element, root ? "" : element.getTextContent());
-    }
-
-    /**
-     * インスタンス作成。
-     *
-     * @param element タグ情報
-     * @param value   タグの値
-     */
-    private Tag(
-            @NonNull final Element element,
-            @NonNull final String value) {
-        mName = element.getTagName();
+            @NonNull final String name,
+            @NonNull final String value,
+            @NonNull final String[] attributes) {
+        mName = name;
         mValue = value;
-        final NamedNodeMap attributes = element.getAttributes();
-        final int size = attributes.getLength();
-        if (size == 0) {
-            mAttribute = Collections.emptyMap();
-            return;
-        }
-        mAttribute = new LinkedHashMap<>(size);
-        for (int i = 0; i < size; i++) {
-            final Node attr = attributes.item(i);
-            mAttribute.put(attr.getNodeName(), attr.getNodeValue());
-        }
+        mAttributes = attributes.length == 0 ? EMPTY_ATTRIBUTES : attributes;
     }
 
     /**
@@ -117,53 +95,148 @@ public class Tag implements Parcelable {
      */
     @Nullable
     public String getAttribute(@Nullable final String name) {
-        return mAttribute.get(name);
+        if (name == null) {
+            return null;
+        }
+        for (int i = 0; i < mAttributes.length; i += 2) {
+            if (name.equals(mAttributes[i])) {
+                return mAttributes[i + 1];
+            }
+        }
+        return null;
     }
 
     /**
      * 属性値を格納したMapを返す。
      *
+     * <p>コールごとにMapを作成するため、個別の属性値を参照する場合は{@link #getAttribute(String)}を使用する。
+     *
      * @return 属性値を格納したUnmodifiable Map
      */
     @NonNull
     public Map<String, String> getAttributes() {
-        if (mAttribute.size() == 0) {
+        if (mAttributes.length == 0) {
             return Collections.emptyMap();
         }
-        return Collections.unmodifiableMap(mAttribute);
+        final Map<String, String> map = new LinkedHashMap<>(mAttributes.length / 2);
+        for (int i = 0; i < mAttributes.length; i += 2) {
+            map.put(mAttributes[i], mAttributes[i + 1]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * 属性の数を返す。
+     *
+     * <p>{@link #getAttributeName(int)}、{@link #getAttributeValue(int)}と合わせ、
+     * Mapを作成せずに出現順に属性を参照する場合に使用する。
+     *
+     * @return 属性の数
+     */
+    int getAttributeCount() {
+        return mAttributes.length / 2;
+    }
+
+    /**
+     * 属性名を返す。
+     *
+     * @param index インデックス
+     * @return 属性名
+     */
+    @NonNull
+    String getAttributeName(final int index) {
+        return mAttributes[index * 2];
+    }
+
+    /**
+     * 属性値を返す。
+     *
+     * @param index インデックス
+     * @return 属性値
+     */
+    @NonNull
+    String getAttributeValue(final int index) {
+        return mAttributes[index * 2 + 1];
+    }
+
+    /**
+     * ヒープ上で占有するおおよそのサイズを返す。
+     *
+     * @return 推定サイズ[byte]
+     */
+    int estimateSize() {
+        int size = TAG_OVERHEAD + estimateSize(mValue);
+        if (mAttributes.length == 0) {
+            return size;
+        }
+        size += ARRAY_OVERHEAD + mAttributes.length * REFERENCE_SIZE;
+        for (int i = 1; i < mAttributes.length; i += 2) {
+            size += estimateSize(mAttributes[i]);
+        }
+        return size;
+    }
+
+    /**
+     * 文字列がヒープ上で占有するおおよそのサイズを返す。
+     *
+     * <p>タグ名・属性名のように共有される文字列は含めない。
+     *
+     * @param value 文字列
+     * @return 推定サイズ[byte]
+     */
+    static int estimateSize(@Nullable final String value) {
+        return value == null ? 0 : STRING_OVERHEAD + value.length() * 2;
     }
 
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
         sb.append(mValue);
-        for (final Entry<String, String> entry : mAttribute.entrySet()) {
+        for (int i = 0; i < mAttributes.length; i += 2) {
             sb.append("\n");
             sb.append("@");
-            sb.append(entry.getKey());
+            sb.append(mAttributes[i]);
             sb.append(" => ");
-            sb.append(entry.getValue());
+            sb.append(mAttributes[i + 1]);
         }
         return sb.toString();
     }
 
+    @Override
+    public int hashCode() {
+        return (mName.hashCode() * 31 + mValue.hashCode()) * 31 + Arrays.hashCode(mAttributes);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Tag)) {
+            return false;
+        }
+        final Tag obj = (Tag) o;
+        return mName.equals(obj.mName)
+                && mValue.equals(obj.mValue)
+                && Arrays.equals(mAttributes, obj.mAttributes);
+    }
+
     /**
      * Parcelable用のコンストラクタ。
      *
      * @param in Parcel
      */
     private Tag(@NonNull final Parcel in) {
-        mName = in.readString();
+        mName = in.readString().intern();
         mValue = in.readString();
         final int size = in.readInt();
         if (size == 0) {
-            mAttribute = Collections.emptyMap();
+            mAttributes = EMPTY_ATTRIBUTES;
         } else {
-            mAttribute = new LinkedHashMap<>(size);
-            for (int i = 0; i < size; i++) {
-                final String name = in.readString();
-                final String value = in.readString();
-                mAttribute.put(name, value);
+            mAttributes = new String[size * 2];
+            for (int i = 0; i < mAttributes.length; i += 2) {
+                mAttributes[i] = in.readString().intern();
+                mAttributes[i + 1] = in.readString();
             }
         }
     }
@@ -174,10 +247,9 @@ public class Tag implements Parcelable {
             final int flags) {
         dest.writeString(mName);
         dest.writeString(mValue);
-        dest.writeInt(mAttribute.size());
-        for (final Entry<String, String> entry : mAttribute.entrySet()) {
-            dest.writeString(entry.getKey());
-            dest.writeString(entry.getValue());
+        dest.writeInt(mAttributes.length / 2);
+        for (int i = 0; i < mAttributes.length; i++) {
+            dest.writeString(mAttributes[i]);
         }
     }
 
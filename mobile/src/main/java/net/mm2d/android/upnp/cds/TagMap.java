@@ -11,10 +11,11 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v4.util.ArrayMap;
 import android.text.TextUtils;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -28,19 +29,31 @@ import java.util.Map.Entry;
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 class TagMap implements Parcelable {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int OBJECT_OVERHEAD = 24;
+    /**
+     * タグ名。
+     *
+     * <p>同一のタグ名は一つだけ格納し、{@link #mTags}の同じインデックスにTagの配列を格納する。
+     * タグ名はinternされた文字列を格納することで、インスタンス間で共有する。
+     */
+    @NonNull
+    private String[] mNames;
     /**
      * XMLのタグ情報。
      *
-     * <p>タグ名をKeyとして、TagのListを保持する。
-     * 同一のタグが複数ある場合はListに出現順に格納する。
+     * <p>同一のタグが複数ある場合は配列に出現順に格納する。
      */
-    private final Map<String, List<Tag>> mMap;
+    @NonNull
+    private Tag[][] mTags;
+    private int mSize;
 
     /**
      * インスタンス作成。
      */
     TagMap() {
-        mMap = new ArrayMap<>();
+        mNames = new String[INITIAL_CAPACITY];
+        mTags = new Tag[INITIAL_CAPACITY][];
     }
 
     /**
@@ -49,18 +62,18 @@ class TagMap implements Parcelable {
      * @param in Parcel
      */
     private TagMap(final Parcel in) {
-        final int size = in.readInt();
-        mMap = new ArrayMap<>(size);
+        mSize = in.readInt();
+        mNames = new String[mSize];
+        mTags = new Tag[mSize][];
         final ClassLoader classLoader = Tag.class.getClassLoader();
-        for (int i = 0; i < size; i++) {
-            final String name = in.readString();
+        for (int i = 0; i < mSize; i++) {
+            mNames[i] = in.readString().intern();
             final int length = in.readInt();
-            final List<Tag> list = new ArrayList<>(length);
+            final Tag[] tags = new Tag[length];
             for (int j = 0; j < length; j++) {
-                final Tag tag = in.readParcelable(classLoader);
-                list.add(tag);
+                tags[j] = in.readParcelable(classLoader);
             }
-            mMap.put(name, list);
+            mTags[i] = tags;
         }
     }
 
@@ -68,12 +81,12 @@ class TagMap implements Parcelable {
     public void writeToParcel(
             final Parcel dest,
             final int flags) {
-        dest.writeInt(mMap.size());
-        for (final Entry<String, List<Tag>> entry : mMap.entrySet()) {
-            dest.writeString(entry.getKey());
-            final List<Tag> list = entry.getValue();
-            dest.writeInt(list.size());
-            for (final Tag tag : list) {
+        dest.writeInt(mSize);
+        for (int i = 0; i < mSize; i++) {
+            dest.writeString(mNames[i]);
+            final Tag[] tags = mTags[i];
+            dest.writeInt(tags.length);
+            for (final Tag tag : tags) {
                 dest.writeParcelable(tag, flags);
             }
         }
@@ -102,18 +115,48 @@ class TagMap implements Parcelable {
     /**
      * タグ情報を格納する。
      *
-     * @param name タグ名
+     * @param name タグ名、internされた文字列であることが望ましい
      * @param tag  格納するタグ情報
      */
     void putTag(
             @NonNull final String name,
             @NonNull final Tag tag) {
-        List<Tag> tags = mMap.get(name);
-        if (tags == null) {
-            tags = new ArrayList<>(1);
-            mMap.put(name, tags);
+        final int index = indexOf(name);
+        if (index >= 0) {
+            final Tag[] tags = Arrays.copyOf(mTags[index], mTags[index].length + 1);
+            tags[tags.length - 1] = tag;
+            mTags[index] = tags;
+            return;
+        }
+        if (mSize == mNames.length) {
+            final int capacity = Math.max(INITIAL_CAPACITY, mSize * 2);
+            mNames = Arrays.copyOf(mNames, capacity);
+            mTags = Arrays.copyOf(mTags, capacity);
+        }
+        mNames[mSize] = name;
+        mTags[mSize] = new Tag[]{tag};
+        mSize++;
+    }
+
+    /**
+     * 格納が完了した後にコールし、配列の余剰領域を解放する。
+     */
+    void trimToSize() {
+        if (mSize == mNames.length) {
+            return;
+        }
+        mNames = Arrays.copyOf(mNames, mSize);
+        mTags = Arrays.copyOf(mTags, mSize);
+    }
+
+    private int indexOf(@NonNull final String name) {
+        for (int i = 0; i < mSize; i++) {
+            final String n = mNames[i];
+            if (n == name || n.equals(name)) {
+                return i;
+            }
         }
-        tags.add(tag);
+        return -1;
     }
 
     /**
@@ -237,11 +280,11 @@ class TagMap implements Parcelable {
     Tag getTag(
             @Nullable final String tagName,
             final int index) {
-        final List<Tag> list = getTagList(tagName);
-        if (list == null || list.size() <= index) {
+        final int i = indexOf(tagName == null ? "" : tagName);
+        if (i < 0 || index < 0 || mTags[i].length <= index) {
             return null;
         }
-        return list.get(index);
+        return mTags[i][index];
     }
 
     /**
@@ -252,26 +295,90 @@ class TagMap implements Parcelable {
      */
     @Nullable
     List<Tag> getTagList(@Nullable final String tagName) {
-        if (tagName == null) {
-            return mMap.get("");
+        final int index = indexOf(tagName == null ? "" : tagName);
+        if (index < 0) {
+            return null;
         }
-        return mMap.get(tagName);
+        return Collections.unmodifiableList(Arrays.asList(mTags[index]));
+    }
+
+    /**
+     * ヒープ上で占有するおおよそのサイズを返す。
+     *
+     * @return 推定サイズ[byte]
+     */
+    int estimateSize() {
+        int size = OBJECT_OVERHEAD + (Tag.ARRAY_OVERHEAD + mNames.length * Tag.REFERENCE_SIZE) * 2;
+        for (int i = 0; i < mSize; i++) {
+            final Tag[] tags = mTags[i];
+            size += Tag.ARRAY_OVERHEAD + tags.length * Tag.REFERENCE_SIZE;
+            for (final Tag tag : tags) {
+                size += tag.estimateSize();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 格納しているタグ名の数を返す。
+     *
+     * <p>{@link #getName(int)}、{@link #getTags(int)}と合わせ、
+     * Mapを作成せずに出現順にタグを参照する場合に使用する。
+     *
+     * @return タグ名の数
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * タグ名を返す。
+     *
+     * @param index インデックス
+     * @return タグ名
+     */
+    @NonNull
+    String getName(final int index) {
+        return mNames[index];
+    }
+
+    /**
+     * 指定したインデックスのタグ名を持つTagを出現順に返す。
+     *
+     * @param index インデックス
+     * @return Tagの配列、変更してはならない
+     */
+    @NonNull
+    Tag[] getTags(final int index) {
+        return mTags[index];
     }
 
+    /**
+     * タグ名をKeyとして、TagのListを出現順に格納したMapを返す。
+     *
+     * <p>コールごとにMapを作成する。
+     *
+     * @return タグ情報を格納したMap
+     */
+    @NonNull
     Map<String, List<Tag>> getRawMap() {
-        return mMap;
+        final Map<String, List<Tag>> map = new LinkedHashMap<>(mSize);
+        for (int i = 0; i < mSize; i++) {
+            map.put(mNames[i], Collections.unmodifiableList(Arrays.asList(mTags[i])));
+        }
+        return map;
     }
 
     @Override
     @NonNull
     public String toString() {
         final StringBuilder sb = new StringBuilder();
-        for (final Entry<String, List<Tag>> entry : mMap.entrySet()) {
-            final List<Tag> tags = entry.getValue();
-            for (int i = 0; i < tags.size(); i++) {
-                final Tag tag = tags.get(i);
-                sb.append(entry.getKey());
-                if (tags.size() == 1) {
+        for (int j = 0; j < mSize; j++) {
+            final Tag[] tags = mTags[j];
+            for (int i = 0; i < tags.length; i++) {
+                final Tag tag = tags[i];
+                sb.append(mNames[j]);
+                if (tags.length == 1) {
                     sb.append(" => ");
                 } else {
                     sb.append("[");
@@ -295,7 +402,11 @@ class TagMap implements Parcelable {
 
     @Override
     public int hashCode() {
-        return mMap.hashCode();
+        int result = 0;
+        for (int i = 0; i < mSize; i++) {
+            result += mNames[i].hashCode() ^ Arrays.hashCode(mTags[i]);
+        }
+        return result;
     }
 
     @Override
@@ -307,6 +418,15 @@ class TagMap implements Parcelable {
             return false;
         }
         final TagMap obj = (TagMap) o;
-        return mMap.equals(obj.mMap);
+        if (mSize != obj.mSize) {
+            return false;
+        }
+        for (int i = 0; i < mSize; i++) {
+            final int index = obj.indexOf(mNames[i]);
+            if (index < 0 || !Arrays.equals(mTags[i], obj.mTags[index])) {
+                return false;
+            }
+        }
+        return true;
     }
 }
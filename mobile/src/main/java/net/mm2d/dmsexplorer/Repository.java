@@ -9,12 +9,16 @@ package net.mm2d.dmsexplorer;
 
 import android.support.annotation.NonNull;
 
+import net.mm2d.dmsexplorer.domain.library.LibraryCrawler;
 import net.mm2d.dmsexplorer.domain.model.ControlPointModel;
 import net.mm2d.dmsexplorer.domain.model.MediaRendererModel;
 import net.mm2d.dmsexplorer.domain.model.MediaServerModel;
 import net.mm2d.dmsexplorer.domain.model.OpenUriModel;
 import net.mm2d.dmsexplorer.domain.model.PlaybackTargetModel;
+import net.mm2d.dmsexplorer.domain.model.PollingScheduler;
+import net.mm2d.dmsexplorer.domain.model.RendererGroupModel;
 import net.mm2d.dmsexplorer.domain.model.ThemeModel;
+import net.mm2d.dmsexplorer.domain.thumbnail.ThumbnailLoader;
 
 /**
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
@@ -34,11 +38,19 @@ public abstract class Repository {
 
     public abstract OpenUriModel getOpenUriModel();
 
+    public abstract LibraryCrawler getLibraryCrawler();
+
+    public abstract ThumbnailLoader getThumbnailLoader();
+
+    public abstract PollingScheduler getPollingScheduler();
+
     public abstract ControlPointModel getControlPointModel();
 
     public abstract MediaServerModel getMediaServerModel();
 
     public abstract MediaRendererModel getMediaRendererModel();
 
+    public abstract RendererGroupModel getRendererGroupModel();
+
     public abstract PlaybackTargetModel getPlaybackTargetModel();
 }
@@ -15,8 +15,10 @@ import android.support.annotation.Nullable;
 import net.mm2d.android.upnp.avt.MediaRenderer;
 import net.mm2d.android.upnp.cds.MediaServer;
 import net.mm2d.dmsexplorer.Repository;
+import net.mm2d.dmsexplorer.domain.cache.BrowseCache;
 import net.mm2d.dmsexplorer.domain.entity.ContentEntity;
 import net.mm2d.dmsexplorer.domain.formatter.CdsFormatter;
+import net.mm2d.dmsexplorer.domain.library.LibraryCrawler;
 import net.mm2d.dmsexplorer.domain.model.ControlPointModel;
 import net.mm2d.dmsexplorer.domain.model.CustomTabsBinder;
 import net.mm2d.dmsexplorer.domain.model.CustomTabsHelper;
@@ -25,10 +27,15 @@ import net.mm2d.dmsexplorer.domain.model.MediaServerModel;
 import net.mm2d.dmsexplorer.domain.model.OpenUriCustomTabsModel;
 import net.mm2d.dmsexplorer.domain.model.OpenUriModel;
 import net.mm2d.dmsexplorer.domain.model.PlaybackTargetModel;
+import net.mm2d.dmsexplorer.domain.model.PollingScheduler;
+import net.mm2d.dmsexplorer.domain.model.RendererGroupModel;
 import net.mm2d.dmsexplorer.domain.model.ThemeModel;
 import net.mm2d.dmsexplorer.domain.model.ThemeModelImpl;
+import net.mm2d.dmsexplorer.domain.thumbnail.ThumbnailLoader;
 import net.mm2d.dmsexplorer.settings.Settings;
 
+import java.util.List;
+
 import io.reactivex.Completable;
 import io.reactivex.schedulers.Schedulers;
 
@@ -44,16 +51,41 @@ public class AppRepository extends Repository {
     private final ThemeModel mThemeModel;
     @NonNull
     private final OpenUriCustomTabsModel mOpenUriModel;
+    @NonNull
+    private final BrowseCache mBrowseCache;
+    @NonNull
+    private final LibraryCrawler mLibraryCrawler;
+    @NonNull
+    private final ThumbnailLoader mThumbnailLoader;
+    @NonNull
+    private final PollingScheduler mPollingScheduler;
     @Nullable
     private MediaServerModel mMediaServerModel;
     @Nullable
     private MediaRendererModel mMediaRendererModel;
     @Nullable
+    private RendererGroupModel mRendererGroupModel;
+    @Nullable
     private PlaybackTargetModel mPlaybackTargetModel;
 
     public AppRepository(@NonNull final Application application) {
         mContext = application;
-        mControlPointModel = new ControlPointModel(mContext, this::updateMediaServer, this::updateMediaRenderer);
+        mControlPointModel = new ControlPointModel(mContext,
+                this::updateMediaServer, this::updateMediaRenderer, this::updateRendererGroup);
+        mBrowseCache = new BrowseCache(mContext);
+        // 検索の入り口ができるまではクロールを開始しない
+        mLibraryCrawler = new LibraryCrawler(mContext);
+        mThumbnailLoader = new ThumbnailLoader(mContext);
+        mPollingScheduler = new PollingScheduler();
+        application.registerActivityLifecycleCallbacks(mPollingScheduler);
+        mControlPointModel.setContainerUpdateIdsListener(mBrowseCache);
+        mControlPointModel.setSystemUpdateIdListener(mBrowseCache);
+        mControlPointModel.setLastChangeListener((renderer, values) -> {
+            final MediaRendererModel model = mMediaRendererModel;
+            if (model != null && model.getMediaRenderer().equals(renderer)) {
+                model.notifyLastChange(values);
+            }
+        });
         Completable.fromAction(() -> CdsFormatter.initialize(application))
                 .subscribeOn(Schedulers.io())
                 .subscribe();
@@ -87,12 +119,22 @@ public class AppRepository extends Repository {
         }
     }
 
+    private void updateRendererGroup(@NonNull final List<MediaRenderer> renderers) {
+        if (mRendererGroupModel != null) {
+            mRendererGroupModel.terminate();
+            mRendererGroupModel = null;
+        }
+        if (!renderers.isEmpty()) {
+            mRendererGroupModel = new RendererGroupModel(mContext, renderers, mPollingScheduler);
+        }
+    }
+
     private MediaServerModel createMediaServerModel(@NonNull final MediaServer server) {
-        return new MediaServerModel(mContext, server, this::updatePlaybackTarget);
+        return new MediaServerModel(mContext, server, mBrowseCache, this::updatePlaybackTarget);
     }
 
     private MediaRendererModel createMediaRendererModel(@NonNull final MediaRenderer renderer) {
-        return new MediaRendererModel(mContext, renderer);
+        return new MediaRendererModel(mContext, renderer, mPollingScheduler);
     }
 
     private void updatePlaybackTarget(@Nullable final ContentEntity object) {
@@ -112,6 +154,24 @@ public class AppRepository extends Repository {
         return mOpenUriModel;
     }
 
+    @Override
+    @NonNull
+    public LibraryCrawler getLibraryCrawler() {
+        return mLibraryCrawler;
+    }
+
+    @Override
+    @NonNull
+    public ThumbnailLoader getThumbnailLoader() {
+        return mThumbnailLoader;
+    }
+
+    @Override
+    @NonNull
+    public PollingScheduler getPollingScheduler() {
+        return mPollingScheduler;
+    }
+
     @Override
     @NonNull
     public ControlPointModel getControlPointModel() {
@@ -130,6 +190,12 @@ public class AppRepository extends Repository {
         return mMediaRendererModel;
     }
 
+    @Override
+    @Nullable
+    public RendererGroupModel getRendererGroupModel() {
+        return mRendererGroupModel;
+    }
+
     @Override
     @Nullable
     public PlaybackTargetModel getPlaybackTargetModel() {
@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.cache;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import net.mm2d.android.upnp.cds.CdsObject;
+import net.mm2d.android.upnp.cds.MediaServer;
+import net.mm2d.android.upnp.cds.MsControlPoint.ContainerUpdateIdsListener;
+import net.mm2d.android.upnp.cds.MsControlPoint.SystemUpdateIdListener;
+import net.mm2d.dmsexplorer.BuildConfig;
+import net.mm2d.log.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Browse結果をストレージに保持するキャッシュ。
+ *
+ * <p>UDNとObjectIDの組をキーとして、子要素のリストと、
+ * 取得時点のコンテナのUpdateID及びSystemUpdateIDを保存する。
+ *
+ * <p>キャッシュがあればそれを即座に返し、必要に応じてバックグラウンドで再検証を行う。
+ * 取得時点のSystemUpdateIDが現在のSystemUpdateIDと一致する場合はサーバ上で更新がないため再検証しない。
+ * 一致しない、もしくは現在の値が不明な場合はコンテナのUpdateIDを比較し、
+ * 異なっていた場合はキャッシュを破棄して通知する。
+ *
+ * <p>ContainerUpdateIDsのイベントを受けた場合は該当するキャッシュを破棄する。
+ * SystemUpdateIDはイベントを購読している間のみ有効なため、購読を終了する際に{@link #onUnsubscribe(MediaServer)}で破棄すること。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class BrowseCache implements ContainerUpdateIdsListener, SystemUpdateIdListener {
+    /**
+     * キャッシュが古くなっていたことを通知するリスナー。
+     */
+    public interface StaleListener {
+        /**
+         * キャッシュしていた内容がサーバ上で更新されていた場合に通知される。
+         *
+         * <p>コールされるスレッドは不定。
+         */
+        void onStale();
+    }
+
+    private static final String DIRECTORY_NAME = "browse";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_ENTRIES = 256;
+
+    @NonNull
+    private final File mDirectory;
+    @NonNull
+    private final Map<String, String> mSystemUpdateIdMap = new ConcurrentHashMap<>();
+
+    public BrowseCache(@NonNull final Context context) {
+        mDirectory = new File(context.getCacheDir(), DIRECTORY_NAME);
+    }
+
+    /**
+     * キャッシュを優先してBrowseを実行する。
+     *
+     * <p>キャッシュが存在すればそれを返し、バックグラウンドで再検証を行う。
+     * 再検証でサーバ上の更新が判明した場合、キャッシュは破棄され、listenerに通知される。
+     * キャッシュが存在しなければサーバからBrowseし、結果をキャッシュする。
+     *
+     * @param server   MediaServer
+     * @param objectId ObjectID
+     * @param listener 再検証でキャッシュが古いことが判明したときの通知先
+     * @return 結果
+     */
+    @NonNull
+    public Observable<CdsObject> browse(
+            @NonNull final MediaServer server,
+            @NonNull final String objectId,
+            @NonNull final StaleListener listener) {
+        return Observable.defer(() -> {
+            final Entry entry = read(server.getUdn(), objectId);
+            if (entry == null) {
+                return refresh(server, objectId);
+            }
+            revalidate(server, entry, listener);
+            return Observable.fromIterable(entry.getList());
+        }).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * キャッシュを使用せずサーバからBrowseを実行し、結果をキャッシュする。
+     *
+     * @param server   MediaServer
+     * @param objectId ObjectID
+     * @return 結果
+     */
+    @NonNull
+    public Observable<CdsObject> refresh(
+            @NonNull final MediaServer server,
+            @NonNull final String objectId) {
+        return Observable.defer(() -> {
+            final String udn = server.getUdn();
+            final String systemUpdateId = mSystemUpdateIdMap.get(udn);
+            final Single<Integer> updateId = server.getUpdateId(objectId)
+                    .onErrorReturnItem(-1)
+                    .cache();
+            updateId.subscribe();
+            final List<CdsObject> list = new ArrayList<>();
+            return server.browse(objectId)
+                    .doOnNext(list::add)
+                    .doOnComplete(() -> updateId.subscribe(id ->
+                            write(new Entry(udn, objectId, id, systemUpdateId, list))));
+        });
+    }
+
+    /**
+     * 保持しているキャッシュを基に、指定コンテナがサーバ上で更新されていないかを確認する。
+     *
+     * <p>キャッシュが存在しない場合は、破棄されたものとして古いと判断する。
+     *
+     * @param server   MediaServer
+     * @param objectId ObjectID
+     * @param listener 更新が判明したときの通知先
+     */
+    public void validate(
+            @NonNull final MediaServer server,
+            @NonNull final String objectId,
+            @NonNull final StaleListener listener) {
+        Single.fromCallable(() -> {
+            final Entry entry = read(server.getUdn(), objectId);
+            if (entry == null) {
+                listener.onStale();
+            } else {
+                revalidate(server, entry, listener);
+            }
+            return true;
+        }).subscribeOn(Schedulers.io())
+                .subscribe((result, e) -> {
+                });
+    }
+
+    private void revalidate(
+            @NonNull final MediaServer server,
+            @NonNull final Entry entry,
+            @NonNull final StaleListener listener) {
+        final String current = mSystemUpdateIdMap.get(entry.getUdn());
+        if (current != null && current.equals(entry.getSystemUpdateId())) {
+            return;
+        }
+        server.getUpdateId(entry.getObjectId())
+                .subscribe(id -> {
+                    if (id >= 0 && id == entry.getContainerUpdateId()) {
+                        return;
+                    }
+                    remove(entry.getUdn(), entry.getObjectId());
+                    listener.onStale();
+                }, Log::w);
+    }
+
+    @Override
+    public void onContainerUpdateIds(
+            @NonNull final MediaServer server,
+            @NonNull final List<String> ids) {
+        for (final String id : ids) {
+            remove(server.getUdn(), id);
+        }
+    }
+
+    @Override
+    public void onSystemUpdateId(
+            @NonNull final MediaServer server,
+            @NonNull final String id) {
+        mSystemUpdateIdMap.put(server.getUdn(), id);
+    }
+
+    /**
+     * 指定サーバのイベント購読終了を通知する。
+     *
+     * <p>購読していない間の更新はSystemUpdateIDに反映されないため、保持している値を破棄し、
+     * 次に購読して通知を受けるまではコンテナのUpdateIDで再検証を行う。
+     *
+     * @param server MediaServer
+     */
+    public void onUnsubscribe(@NonNull final MediaServer server) {
+        mSystemUpdateIdMap.remove(server.getUdn());
+    }
+
+    private void remove(
+            @NonNull final String udn,
+            @NonNull final String objectId) {
+        delete(getEntryFile(udn, objectId));
+    }
+
+    @Nullable
+    private Entry read(
+            @NonNull final String udn,
+            @NonNull final String objectId) {
+        final File file = getEntryFile(udn, objectId);
+        if (!file.exists()) {
+            return null;
+        }
+        try (final DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (is.readInt() != FORMAT_VERSION
+                    || is.readInt() != BuildConfig.VERSION_CODE
+                    || is.readInt() != Build.VERSION.SDK_INT) {
+                delete(file);
+                return null;
+            }
+            if (!udn.equals(is.readUTF()) || !objectId.equals(is.readUTF())) {
+                return null;
+            }
+            final int containerUpdateId = is.readInt();
+            final String systemUpdateId = is.readBoolean() ? is.readUTF() : null;
+            final byte[] data = new byte[is.readInt()];
+            is.readFully(data);
+            return new Entry(udn, objectId, containerUpdateId, systemUpdateId, unmarshall(data));
+        } catch (final IOException | RuntimeException e) {
+            Log.w(e);
+            delete(file);
+        }
+        return null;
+    }
+
+    private void write(@NonNull final Entry entry) {
+        final File directory = getServerDirectory(entry.getUdn());
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+        final File file = getEntryFile(entry.getUdn(), entry.getObjectId());
+        final File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try (final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            os.writeInt(FORMAT_VERSION);
+            os.writeInt(BuildConfig.VERSION_CODE);
+            os.writeInt(Build.VERSION.SDK_INT);
+            os.writeUTF(entry.getUdn());
+            os.writeUTF(entry.getObjectId());
+            os.writeInt(entry.getContainerUpdateId());
+            final String systemUpdateId = entry.getSystemUpdateId();
+            os.writeBoolean(systemUpdateId != null);
+            if (systemUpdateId != null) {
+                os.writeUTF(systemUpdateId);
+            }
+            final byte[] data = marshall(entry.getList());
+            os.writeInt(data.length);
+            os.write(data);
+        } catch (final IOException e) {
+            Log.w(e);
+            delete(temp);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            delete(temp);
+            return;
+        }
+        trim();
+    }
+
+    /**
+     * エントリ数が上限を超えていれば、更新が古いものから削除する。
+     */
+    private void trim() {
+        final List<File> files = new ArrayList<>();
+        final File[] directories = mDirectory.listFiles();
+        if (directories == null) {
+            return;
+        }
+        for (final File directory : directories) {
+            final File[] entries = directory.listFiles();
+            if (entries != null) {
+                files.addAll(Arrays.asList(entries));
+            }
+        }
+        if (files.size() <= MAX_ENTRIES) {
+            return;
+        }
+        Collections.sort(files, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
+        for (int i = 0; i < files.size() - MAX_ENTRIES; i++) {
+            delete(files.get(i));
+        }
+    }
+
+    @NonNull
+    private static byte[] marshall(@NonNull final List<CdsObject> list) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeTypedList(list);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @NonNull
+    private static List<CdsObject> unmarshall(@NonNull final byte[] data) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            final List<CdsObject> list = parcel.createTypedArrayList(CdsObject.CREATOR);
+            if (list == null) {
+                throw new IllegalStateException();
+            }
+            return list;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static void delete(@NonNull final File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w("fail to delete " + file.getName());
+        }
+    }
+
+    @NonNull
+    private File getServerDirectory(@NonNull final String udn) {
+        return new File(mDirectory, hash(udn));
+    }
+
+    @NonNull
+    private File getEntryFile(
+            @NonNull final String udn,
+            @NonNull final String objectId) {
+        return new File(getServerDirectory(udn), hash(objectId));
+    }
+
+    @NonNull
+    private static String hash(@NonNull final String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+                sb.append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (final NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+
+    /**
+     * キャッシュの1エントリ。
+     */
+    private static class Entry {
+        @NonNull
+        private final String mUdn;
+        @NonNull
+        private final String mObjectId;
+        private final int mContainerUpdateId;
+        @Nullable
+        private final String mSystemUpdateId;
+        @NonNull
+        private final List<CdsObject> mList;
+
+        Entry(
+                @NonNull final String udn,
+                @NonNull final String objectId,
+                final int containerUpdateId,
+                @Nullable final String systemUpdateId,
+                @NonNull final List<CdsObject> list) {
+            mUdn = udn;
+            mObjectId = objectId;
+            mContainerUpdateId = containerUpdateId;
+            mSystemUpdateId = systemUpdateId;
+            mList = list;
+        }
+
+        @NonNull
+        String getUdn() {
+            return mUdn;
+        }
+
+        @NonNull
+        String getObjectId() {
+            return mObjectId;
+        }
+
+        int getContainerUpdateId() {
+            return mContainerUpdateId;
+        }
+
+        @Nullable
+        String getSystemUpdateId() {
+            return mSystemUpdateId;
+        }
+
+        @NonNull
+        List<CdsObject> getList() {
+            return mList;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.cache;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.net.ConnectivityManagerCompat;
+
+import net.mm2d.android.upnp.cds.CdsObject;
+import net.mm2d.android.upnp.cds.MediaServer;
+import net.mm2d.log.Log;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * 次に開かれる可能性の高いコンテナの先頭ページを先読みする。
+ *
+ * <p>先読みは1コンテナずつ順に行い、フォアグラウンドのBrowseを妨げないよう、
+ * pauseからresumeまでの間は実行中のリクエストを破棄して待機する。
+ * 従量制のネットワークに接続されている場合は先読みを行わない。
+ *
+ * <p>先読みした結果は一度取り出すと破棄される。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class BrowsePrefetcher {
+    private static final int PAGE_SIZE = 32;
+    private static final int MAX_ENTRIES = 8;
+
+    @Nullable
+    private final ConnectivityManager mConnectivityManager;
+    @NonNull
+    private final MediaServer mMediaServer;
+    @NonNull
+    private final Map<String, List<CdsObject>> mMap = new LinkedHashMap<String, List<CdsObject>>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, List<CdsObject>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    @NonNull
+    private final LinkedList<String> mQueue = new LinkedList<>();
+    @Nullable
+    private String mRunningId;
+    @Nullable
+    private Disposable mDisposable;
+    private boolean mPaused;
+
+    public BrowsePrefetcher(
+            @NonNull final Context context,
+            @NonNull final MediaServer server) {
+        mConnectivityManager = (ConnectivityManager) context.getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+        mMediaServer = server;
+    }
+
+    /**
+     * 先読みするコンテナを指定する。
+     *
+     * <p>まだ実行されていない以前の指定は破棄される。
+     *
+     * @param ids 先読みするコンテナのObjectID、優先度の高い順
+     */
+    public synchronized void prefetch(@NonNull final List<String> ids) {
+        mQueue.clear();
+        for (final String id : ids) {
+            if (!mMap.containsKey(id) && !id.equals(mRunningId)) {
+                mQueue.add(id);
+            }
+        }
+        next();
+    }
+
+    /**
+     * 指定したコンテナを最優先で先読みする。
+     *
+     * @param id 先読みするコンテナのObjectID
+     */
+    public synchronized void prefetchFirst(@NonNull final String id) {
+        mQueue.remove(id);
+        if (mMap.containsKey(id) || id.equals(mRunningId)) {
+            return;
+        }
+        mQueue.addFirst(id);
+        next();
+    }
+
+    /**
+     * 先読みを一時停止する。
+     *
+     * <p>実行中のリクエストは破棄され、resume後に再実行される。
+     */
+    public synchronized void pause() {
+        mPaused = true;
+        if (mDisposable == null || mRunningId == null) {
+            return;
+        }
+        mDisposable.dispose();
+        mDisposable = null;
+        mQueue.addFirst(mRunningId);
+        mRunningId = null;
+    }
+
+    /**
+     * 一時停止していた先読みを再開する。
+     */
+    public synchronized void resume() {
+        mPaused = false;
+        next();
+    }
+
+    /**
+     * 実行中及び実行待ちの先読みを全てキャンセルする。
+     */
+    public synchronized void cancel() {
+        mQueue.clear();
+        if (mDisposable != null) {
+            mDisposable.dispose();
+            mDisposable = null;
+        }
+        mRunningId = null;
+    }
+
+    /**
+     * 先読みをキャンセルし、先読み済みの結果も全て破棄する。
+     */
+    public synchronized void clear() {
+        cancel();
+        mMap.clear();
+    }
+
+    /**
+     * 指定したコンテナの先読み結果を破棄する。
+     *
+     * @param id コンテナのObjectID
+     */
+    public synchronized void remove(@NonNull final String id) {
+        mMap.remove(id);
+    }
+
+    /**
+     * 先読み結果を利用したBrowseを返す。
+     *
+     * <p>先読み結果は先頭ページのみであるため、残りがある場合は続きをサーバから取得する。
+     *
+     * @param id コンテナのObjectID
+     * @return 先読み済みであればその結果から始まるBrowse、先読みされていない場合null
+     */
+    @Nullable
+    public synchronized Observable<CdsObject> take(@NonNull final String id) {
+        final List<CdsObject> list = mMap.remove(id);
+        if (list == null) {
+            return null;
+        }
+        final Observable<CdsObject> observable = Observable.fromIterable(list);
+        if (list.size() < PAGE_SIZE) {
+            return observable;
+        }
+        return observable.concatWith(mMediaServer.browse(id, list.size(), 0));
+    }
+
+    private void next() {
+        if (mPaused || mDisposable != null || mQueue.isEmpty()) {
+            return;
+        }
+        if (isMetered()) {
+            mQueue.clear();
+            return;
+        }
+        final String id = mQueue.removeFirst();
+        mRunningId = id;
+        mDisposable = mMediaServer.browse(id, 0, PAGE_SIZE)
+                .toList()
+                .subscribe(list -> onResult(id, list), e -> {
+                    Log.w(e);
+                    onResult(id, null);
+                });
+    }
+
+    private synchronized void onResult(
+            @NonNull final String id,
+            @Nullable final List<CdsObject> list) {
+        if (!id.equals(mRunningId)) {
+            return;
+        }
+        mRunningId = null;
+        mDisposable = null;
+        if (list != null) {
+            mMap.put(id, list);
+        }
+        next();
+    }
+
+    private boolean isMetered() {
+        return mConnectivityManager == null
+                || ConnectivityManagerCompat.isActiveNetworkMetered(mConnectivityManager);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.cache;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import net.mm2d.android.upnp.cds.CdsObject;
+import net.mm2d.dmsexplorer.domain.entity.ContentEntity;
+import net.mm2d.dmsexplorer.domain.entity.EntityList;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 直近に表示したディレクトリのリストをメモリ上に保持するLRUキャッシュ。
+ *
+ * <p>エントリ数と推定ヒープサイズの両方で上限を持ち、
+ * いずれかを超えた場合は最も長く参照されていないものから破棄する。
+ * メモリが逼迫した場合、もしくはバックグラウンドでプロセスが破棄される候補となった場合は全て破棄する。
+ * UIが非表示になっただけの場合は、復帰時に再利用するため保持する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class DirectoryLruCache implements ComponentCallbacks2 {
+    private static final int MAX_ENTRIES = 16;
+    private static final long MAX_BYTES = Runtime.getRuntime().maxMemory() / 16;
+    private static final int ENTITY_OVERHEAD = 64;
+    private static final int UNKNOWN_OBJECT_SIZE = 2048;
+
+    private static class Entry {
+        @NonNull
+        final List<ContentEntity> mList;
+        final long mSize;
+
+        Entry(
+                @NonNull final List<ContentEntity> list,
+                final long size) {
+            mList = list;
+            mSize = size;
+        }
+    }
+
+    @NonNull
+    private final Map<String, Entry> mMap = new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true);
+    private long mSize;
+
+    /**
+     * ディレクトリのリストを格納する。
+     *
+     * @param objectId ディレクトリのObjectID
+     * @param list     子要素のリスト
+     */
+    public synchronized void put(
+            @NonNull final String objectId,
+            @NonNull final List<ContentEntity> list) {
+        final long size = estimateSize(list);
+        remove(objectId);
+        if (size > MAX_BYTES) {
+            return;
+        }
+        mMap.put(objectId, new Entry(EntityList.copyOf(list), size));
+        mSize += size;
+        trim();
+    }
+
+    /**
+     * ディレクトリのリストを取り出す。
+     *
+     * @param objectId ディレクトリのObjectID
+     * @return 子要素のリスト、キャッシュされていない場合null
+     */
+    @Nullable
+    public synchronized List<ContentEntity> get(@NonNull final String objectId) {
+        final Entry entry = mMap.get(objectId);
+        return entry == null ? null : entry.mList;
+    }
+
+    /**
+     * 指定したディレクトリのキャッシュを破棄する。
+     *
+     * @param objectId ディレクトリのObjectID
+     */
+    public synchronized void remove(@NonNull final String objectId) {
+        final Entry entry = mMap.remove(objectId);
+        if (entry != null) {
+            mSize -= entry.mSize;
+        }
+    }
+
+    /**
+     * 全てのキャッシュを破棄する。
+     */
+    public synchronized void clear() {
+        mMap.clear();
+        mSize = 0;
+    }
+
+    private void trim() {
+        final Iterator<Entry> iterator = mMap.values().iterator();
+        while (iterator.hasNext() && (mMap.size() > MAX_ENTRIES || mSize > MAX_BYTES)) {
+            mSize -= iterator.next().mSize;
+            iterator.remove();
+        }
+    }
+
+    private static long estimateSize(@NonNull final List<ContentEntity> list) {
+        long size = 0;
+        for (final ContentEntity entity : list) {
+            final Object object = entity.getObject();
+            size += ENTITY_OVERHEAD;
+            size += object instanceof CdsObject ? ((CdsObject) object).estimateSize() : UNKNOWN_OBJECT_SIZE;
+        }
+        return size;
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND
+                || level == TRIM_MEMORY_RUNNING_LOW
+                || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(final Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+}
@@ -10,10 +10,20 @@ import net.mm2d.android.upnp.cds.Tag;
 import net.mm2d.dmsexplorer.domain.formatter.CdsFormatter;
 import net.mm2d.dmsexplorer.util.StringJoiner;
 
+import java.util.List;
+
 /**
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 public class CdsContentEntity implements ContentEntity {
+    /**
+     * サムネイルとして使用するresのDLNAプロファイル、優先度の高い順。
+     */
+    private static final String[] THUMBNAIL_PROFILES = {
+            "DLNA.ORG_PN=JPEG_TN",
+            "DLNA.ORG_PN=PNG_TN",
+            "DLNA.ORG_PN=JPEG_SM",
+    };
     @NonNull
     private final CdsObject mObject;
     @NonNull
@@ -110,6 +120,26 @@ public class CdsContentEntity implements ContentEntity {
     @NonNull
     @Override
     public Uri getIconUri() {
+        final String albumArt = mObject.getValue(CdsObject.UPNP_ALBUM_ART_URI);
+        if (!TextUtils.isEmpty(albumArt)) {
+            return Uri.parse(albumArt);
+        }
+        final String icon = mObject.getValue(CdsObject.UPNP_ICON);
+        if (!TextUtils.isEmpty(icon)) {
+            return Uri.parse(icon);
+        }
+        final List<Tag> list = mObject.getTagList(CdsObject.RES);
+        if (list == null) {
+            return Uri.EMPTY;
+        }
+        for (final String profile : THUMBNAIL_PROFILES) {
+            for (final Tag res : list) {
+                final String protocolInfo = res.getAttribute(CdsObject.PROTOCOL_INFO);
+                if (protocolInfo != null && protocolInfo.contains(profile) && !TextUtils.isEmpty(res.getValue())) {
+                    return Uri.parse(res.getValue());
+                }
+            }
+        }
         return Uri.EMPTY;
     }
 
@@ -151,6 +181,11 @@ public class CdsContentEntity implements ContentEntity {
         return mObject.getIntValue(CdsObject.RESTRICTED, -1) == 0;
     }
 
+    @Override
+    public boolean isPlaceholder() {
+        return false;
+    }
+
     @Override
     public void selectResource(final int index) {
         if (index < 0 || index >= getResourceCount()) {
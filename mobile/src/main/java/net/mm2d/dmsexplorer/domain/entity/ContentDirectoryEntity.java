@@ -15,26 +15,39 @@ import net.mm2d.dmsexplorer.domain.model.ExploreListener;
 import net.mm2d.dmsexplorer.domain.model.ExploreListenerAdapter;
 import net.mm2d.log.Log;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Observable;
+import io.reactivex.Single;
 import io.reactivex.disposables.Disposable;
 
 /**
+ * CDSのコンテナを表現するDirectoryEntity。
+ *
+ * <p>Browse結果は一定時間もしくは一定件数ごとにまとめて反映し、
+ * ExploreListenerには変更されることのないスナップショットを通知する。
+ * 再取得の場合は完了するまで現在のリストを保持し、完了時にまとめて差し替える。
+ *
+ * <p>子要素が非常に多いコンテナは{@link #startWindowed(Single)}により、
+ * 全件を取得せず表示位置の周辺のみを取得する{@link PagedEntityList}で扱う。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 public class ContentDirectoryEntity implements DirectoryEntity {
     private static final String ROOT_OBJECT_ID = "0";
     private static final String ROOT_TITLE = "";
+    private static final long BATCH_INTERVAL = 100;
+    private static final int BATCH_SIZE = 256;
     @NonNull
     private final String mParentId;
     @NonNull
     private final String mParentTitle;
+    private final int mChildCount;
     @Nullable
     private ContentEntity mSelectedEntity;
     @NonNull
-    private final List<ContentEntity> mList = new ArrayList<>();
+    private volatile List<ContentEntity> mList = EntityList.empty();
     private static final ExploreListener ENTRY_LISTENER = new ExploreListenerAdapter();
     @NonNull
     private ExploreListener mEntryListener = ENTRY_LISTENER;
@@ -42,22 +55,31 @@ public class ContentDirectoryEntity implements DirectoryEntity {
     private volatile Disposable mDisposable;
 
     public ContentDirectoryEntity() {
-        this(ROOT_OBJECT_ID, ROOT_TITLE);
+        this(ROOT_OBJECT_ID, ROOT_TITLE, -1);
     }
 
     private ContentDirectoryEntity(
             @NonNull final String parentId,
-            @NonNull final String parentTitle) {
+            @NonNull final String parentTitle,
+            final int childCount) {
         mParentId = parentId;
         mParentTitle = parentTitle;
+        mChildCount = childCount;
     }
 
     public void terminate() {
         setExploreListener(null);
+        dispose();
+    }
+
+    private void dispose() {
         if (mDisposable != null) {
             mDisposable.dispose();
             mDisposable = null;
         }
+        if (mList instanceof PagedEntityList) {
+            ((PagedEntityList) mList).dispose();
+        }
     }
 
     @NonNull
@@ -71,6 +93,24 @@ public class ContentDirectoryEntity implements DirectoryEntity {
         return mParentTitle;
     }
 
+    /**
+     * コンテナの@childCountの値を返す。
+     *
+     * @return 子要素数、不明な場合-1
+     */
+    public int getChildCount() {
+        return mChildCount;
+    }
+
+    /**
+     * 表示位置の周辺のみを取得するモードであるかを返す。
+     *
+     * @return PagedEntityListを使用している場合true
+     */
+    public boolean isWindowed() {
+        return mList instanceof PagedEntityList;
+    }
+
     @Override
     public boolean isInProgress() {
         return mInProgress;
@@ -92,16 +132,24 @@ public class ContentDirectoryEntity implements DirectoryEntity {
         }
         mSelectedEntity = entity;
         final CdsObject object = (CdsObject) entity.getObject();
-        return new ContentDirectoryEntity(object.getObjectId(), object.getTitle());
+        return new ContentDirectoryEntity(object.getObjectId(), object.getTitle(),
+                object.getIntValue(CdsObject.CHILD_COUNT, -1));
     }
 
     @Override
     public void setSelectedEntity(@Nullable final ContentEntity entity) {
         if (entity == null || !mList.contains(entity)) {
             mSelectedEntity = null;
+            if (mList instanceof PagedEntityList) {
+                ((PagedEntityList) mList).pin(-1);
+            }
             return;
         }
         mSelectedEntity = entity;
+        if (mList instanceof PagedEntityList) {
+            final PagedEntityList list = (PagedEntityList) mList;
+            list.pin(list.indexOf(entity));
+        }
     }
 
     @Nullable
@@ -115,25 +163,100 @@ public class ContentDirectoryEntity implements DirectoryEntity {
     }
 
     public void clearState() {
-        if (mDisposable != null) {
-            mDisposable.dispose();
-            mDisposable = null;
-        }
+        dispose();
         mSelectedEntity = null;
         mInProgress = true;
-        mList.clear();
+        mList = EntityList.empty();
+        mEntryListener.onStart();
+    }
+
+    public void restore(@NonNull final List<ContentEntity> list) {
+        mList = EntityList.copyOf(list);
+        mInProgress = false;
         mEntryListener.onStart();
+        mEntryListener.onUpdate(mList);
+        mEntryListener.onComplete();
     }
 
     public void startBrowse(@NonNull final Observable<CdsObject> observable) {
         mEntryListener.onStart();
+        final EntityList.Builder builder = new EntityList.Builder();
         mDisposable = observable
-                .subscribe(object -> {
-                    mList.add(new CdsContentEntity(object));
+                .map(object -> (ContentEntity) new CdsContentEntity(object))
+                .buffer(BATCH_INTERVAL, TimeUnit.MILLISECONDS, BATCH_SIZE)
+                .filter(batch -> !batch.isEmpty())
+                .subscribe(batch -> {
+                    mList = builder.addAll(batch).build();
                     mEntryListener.onUpdate(mList);
-                }, Log::w, () -> {
+                }, e -> {
+                    // 取得できた分を表示したまま終了とし、先読みなどの待機を解除する
+                    Log.w(e);
+                    mInProgress = false;
+                    mEntryListener.onComplete();
+                }, () -> {
                     mInProgress = false;
                     mEntryListener.onComplete();
                 });
     }
+
+    /**
+     * 先頭ページのみを取得し、以降は表示位置に応じて取得する。
+     *
+     * @param single 先頭ページ取得済みのPagedEntityList
+     */
+    public void startWindowed(@NonNull final Single<PagedEntityList> single) {
+        mEntryListener.onStart();
+        mDisposable = single.subscribe(list -> {
+            mList = list;
+            mInProgress = false;
+            mEntryListener.onUpdate(mList);
+            mEntryListener.onComplete();
+        }, e -> {
+            Log.w(e);
+            mInProgress = false;
+            mEntryListener.onComplete();
+        });
+    }
+
+    /**
+     * 現在のリストを保持したまま再取得する。
+     *
+     * <p>取得が完了した時点でリストを差し替え、onUpdate/onCompleteを通知する。
+     * 選択中の要素は同じObjectIDの要素に引き継がれる。
+     * 失敗した場合はリストを差し替えず、onCompleteのみを通知する。
+     *
+     * @param observable 再取得の結果
+     */
+    public void refresh(@NonNull final Observable<CdsObject> observable) {
+        if (mDisposable != null) {
+            mDisposable.dispose();
+        }
+        mInProgress = true;
+        final EntityList.Builder builder = new EntityList.Builder();
+        mDisposable = observable
+                .subscribe(object -> builder.add(new CdsContentEntity(object)), e -> {
+                    // 再取得に失敗した場合は現在のリストを保持したまま終了とする
+                    Log.w(e);
+                    mInProgress = false;
+                    mEntryListener.onComplete();
+                }, () -> {
+                    final EntityList list = builder.build();
+                    mSelectedEntity = findSameEntity(list, mSelectedEntity);
+                    mList = list;
+                    mInProgress = false;
+                    mEntryListener.onUpdate(mList);
+                    mEntryListener.onComplete();
+                });
+    }
+
+    @Nullable
+    private static ContentEntity findSameEntity(
+            @NonNull final EntityList list,
+            @Nullable final ContentEntity entity) {
+        if (entity == null) {
+            return null;
+        }
+        final int index = list.indexOfSameObject(entity);
+        return index < 0 ? null : list.get(index);
+    }
 }
@@ -47,5 +47,12 @@ public interface ContentEntity {
 
     boolean canDelete();
 
+    /**
+     * まだ取得されていない位置を埋めるための要素であるかを返す。
+     *
+     * @return 取得前の位置を表す場合true
+     */
+    boolean isPlaceholder();
+
     void selectResource(int index);
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.entity;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import net.mm2d.android.upnp.cds.CdsObject;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ObjectIDから位置を引く索引を持った、変更不可能なContentEntityのリスト。
+ *
+ * <p>indexOf/containsは索引を使用するため定数時間で完了する。
+ * 索引に該当するObjectIDがない場合は含まれていないと判断し、
+ * ObjectIDが重複している場合など、索引の位置に別の要素がある場合のみ先頭から探索する。
+ *
+ * <p>Browse中は{@link Builder}に追加しながら、その時点のスナップショットを作成する。
+ * 索引は追加順に位置が確定するため、スナップショット間で共有する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class EntityList extends AbstractList<ContentEntity> implements RandomAccess {
+    private static final EntityList EMPTY = new EntityList(new ContentEntity[0], new ConcurrentHashMap<>());
+
+    /**
+     * 追加しながらスナップショットを作成するためのBuilder。
+     *
+     * <p>追加は単一のスレッドから行うこと。
+     */
+    public static class Builder {
+        @NonNull
+        private final List<ContentEntity> mList = new ArrayList<>();
+        @NonNull
+        private final Map<String, Integer> mIndex = new ConcurrentHashMap<>();
+
+        @NonNull
+        public Builder add(@NonNull final ContentEntity entity) {
+            final String key = getKey(entity);
+            if (key != null && !mIndex.containsKey(key)) {
+                mIndex.put(key, mList.size());
+            }
+            mList.add(entity);
+            return this;
+        }
+
+        @NonNull
+        public Builder addAll(@NonNull final Collection<? extends ContentEntity> entities) {
+            for (final ContentEntity entity : entities) {
+                add(entity);
+            }
+            return this;
+        }
+
+        /**
+         * ここまでに追加された要素のスナップショットを作成する。
+         *
+         * @return スナップショット
+         */
+        @NonNull
+        public EntityList build() {
+            return new EntityList(mList.toArray(new ContentEntity[mList.size()]), mIndex);
+        }
+    }
+
+    @NonNull
+    private final ContentEntity[] mEntities;
+    @NonNull
+    private final Map<String, Integer> mIndex;
+
+    private EntityList(
+            @NonNull final ContentEntity[] entities,
+            @NonNull final Map<String, Integer> index) {
+        mEntities = entities;
+        mIndex = index;
+    }
+
+    /**
+     * 空のリストを返す。
+     *
+     * @return 空のリスト
+     */
+    @NonNull
+    public static EntityList empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 指定されたリストと同じ内容のEntityListを返す。
+     *
+     * @param list リスト
+     * @return listがEntityListであればそのもの、そうでなければ索引を作成したコピー
+     */
+    @NonNull
+    public static EntityList copyOf(@NonNull final List<ContentEntity> list) {
+        if (list instanceof EntityList) {
+            return (EntityList) list;
+        }
+        return new Builder().addAll(list).build();
+    }
+
+    @Override
+    public ContentEntity get(final int index) {
+        return mEntities[index];
+    }
+
+    @Override
+    public int size() {
+        return mEntities.length;
+    }
+
+    @Override
+    public int indexOf(final Object o) {
+        if (!(o instanceof ContentEntity)) {
+            return -1;
+        }
+        final String key = getKey((ContentEntity) o);
+        if (key == null) {
+            return super.indexOf(o);
+        }
+        final Integer position = mIndex.get(key);
+        if (position == null || position >= mEntities.length) {
+            return -1;
+        }
+        if (o.equals(mEntities[position])) {
+            return position;
+        }
+        return super.indexOf(o);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * 指定されたContentEntityと同じObjectIDを持つ要素の位置を返す。
+     *
+     * <p>再取得により別のインスタンスとなった要素を探す場合に使用する。
+     *
+     * @param entity ContentEntity
+     * @return 位置、見つからない場合-1
+     */
+    public int indexOfSameObject(@NonNull final ContentEntity entity) {
+        final String key = getKey(entity);
+        if (key == null) {
+            return indexOf(entity);
+        }
+        final Integer position = mIndex.get(key);
+        if (position == null || position >= mEntities.length) {
+            return -1;
+        }
+        return position;
+    }
+
+    @Nullable
+    private static String getKey(@NonNull final ContentEntity entity) {
+        final Object object = entity.getObject();
+        return object instanceof CdsObject ? ((CdsObject) object).getObjectId() : null;
+    }
+}
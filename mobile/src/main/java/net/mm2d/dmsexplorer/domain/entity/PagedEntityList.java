@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.entity;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import net.mm2d.android.upnp.cds.BrowsePage;
+import net.mm2d.android.upnp.cds.CdsObject;
+import net.mm2d.android.upnp.cds.MediaServer;
+import net.mm2d.log.Log;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * 表示位置の周辺のみをページ単位で取得する、巨大なコンテナ向けのリスト。
+ *
+ * <p>サイズはTotalMatchesとし、取得していない位置には{@link ContentEntity#isPlaceholder()}が
+ * trueを返す要素を返す。{@link #touch(int)}で指定された位置の周辺ページを取得し、
+ * 離れたページは破棄するため、保持する要素数はコンテナの大きさによらず一定となる。
+ * ただし{@link #pin(int)}で指定された選択中の要素を含むページとその前後のページは破棄しない。
+ *
+ * <p>他のリストと異なり内容が変化するため、メインスレッドからのみ使用すること。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class PagedEntityList extends AbstractList<ContentEntity> implements RandomAccess {
+    /**
+     * ページの取得により内容が変化したことを通知するリスナー。
+     */
+    public interface OnRangeChangeListener {
+        /**
+         * 指定範囲の内容が変化した。
+         *
+         * @param positionStart 開始位置
+         * @param itemCount     件数
+         */
+        void onRangeChanged(
+                int positionStart,
+                int itemCount);
+    }
+
+    private static final int PAGE_SIZE = 100;
+    private static final int LOAD_DISTANCE = 1;
+    private static final int KEEP_DISTANCE = 5;
+    private static final OnRangeChangeListener ON_RANGE_CHANGE_LISTENER = (positionStart, itemCount) -> {
+    };
+
+    @NonNull
+    private final MediaServer mMediaServer;
+    @NonNull
+    private final String mObjectId;
+    private final int mSize;
+    @NonNull
+    private final SparseArray<ContentEntity[]> mPages = new SparseArray<>();
+    @NonNull
+    private final SparseArray<Disposable> mLoading = new SparseArray<>();
+    @NonNull
+    private OnRangeChangeListener mListener = ON_RANGE_CHANGE_LISTENER;
+    private int mPinnedPage = -1;
+
+    private PagedEntityList(
+            @NonNull final MediaServer server,
+            @NonNull final String objectId,
+            @NonNull final BrowsePage firstPage) {
+        mMediaServer = server;
+        mObjectId = objectId;
+        mSize = Math.max(firstPage.getTotal(), firstPage.getList().size());
+        if (mSize == 0) {
+            return;
+        }
+        final ContentEntity[] page = new ContentEntity[getPageLength(0)];
+        final List<CdsObject> list = firstPage.getList();
+        for (int i = 0; i < list.size() && i < page.length; i++) {
+            page[i] = new CdsContentEntity(list.get(i));
+        }
+        mPages.put(0, page);
+    }
+
+    /**
+     * 先頭ページを取得し、PagedEntityListを作成する。
+     *
+     * @param server   MediaServer
+     * @param objectId コンテナのObjectID
+     * @return 先頭ページのみ取得済みのPagedEntityList、メインスレッドで通知される
+     */
+    @NonNull
+    public static Single<PagedEntityList> load(
+            @NonNull final MediaServer server,
+            @NonNull final String objectId) {
+        return server.browsePage(objectId, 0, PAGE_SIZE)
+                .map(page -> new PagedEntityList(server, objectId, page))
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
+    @Override
+    public ContentEntity get(final int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        final ContentEntity[] page = mPages.get(index / PAGE_SIZE);
+        if (page == null || page[index % PAGE_SIZE] == null) {
+            return PlaceholderEntity.INSTANCE;
+        }
+        return page[index % PAGE_SIZE];
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * 取得済みのページのみから探索する。
+     *
+     * @param o 探索する要素
+     * @return 位置、取得済みのページに含まれない場合-1
+     */
+    @Override
+    public int indexOf(final Object o) {
+        if (!(o instanceof ContentEntity) || ((ContentEntity) o).isPlaceholder()) {
+            return -1;
+        }
+        int result = -1;
+        for (int i = 0; i < mPages.size(); i++) {
+            final int offset = mPages.keyAt(i) * PAGE_SIZE;
+            if (result >= 0 && offset > result) {
+                break;
+            }
+            final ContentEntity[] page = mPages.valueAt(i);
+            for (int j = 0; j < page.length; j++) {
+                if (o.equals(page[j])) {
+                    result = offset + j;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int lastIndexOf(final Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    public void setOnRangeChangeListener(@Nullable final OnRangeChangeListener listener) {
+        mListener = listener != null ? listener : ON_RANGE_CHANGE_LISTENER;
+    }
+
+    /**
+     * 指定位置が表示されることを通知する。
+     *
+     * <p>前後のページを含めて未取得であれば取得を開始し、
+     * 離れたページは取得中のものも含めて破棄する。
+     *
+     * @param position 表示位置
+     */
+    public void touch(final int position) {
+        if (position < 0 || position >= mSize) {
+            return;
+        }
+        final int center = position / PAGE_SIZE;
+        loadAround(center);
+        evict(center);
+    }
+
+    /**
+     * 指定位置の要素が選択されたことを通知する。
+     *
+     * <p>選択中の要素を含むページとその前後のページは表示位置が離れても破棄せず、未取得であれば取得する。
+     * 連続再生などで選択中の要素の前後を探索できるようにするため。
+     *
+     * @param position 選択位置、負の値の場合選択を解除する
+     */
+    public void pin(final int position) {
+        if (position < 0 || position >= mSize) {
+            mPinnedPage = -1;
+            return;
+        }
+        mPinnedPage = position / PAGE_SIZE;
+        loadAround(mPinnedPage);
+    }
+
+    private void loadAround(final int center) {
+        final int last = (mSize - 1) / PAGE_SIZE;
+        loadPage(center);
+        for (int i = 1; i <= LOAD_DISTANCE; i++) {
+            if (center + i <= last) {
+                loadPage(center + i);
+            }
+            if (center - i >= 0) {
+                loadPage(center - i);
+            }
+        }
+    }
+
+    private boolean shouldKeep(
+            final int index,
+            final int center) {
+        return Math.abs(index - center) <= KEEP_DISTANCE
+                || (mPinnedPage >= 0 && Math.abs(index - mPinnedPage) <= LOAD_DISTANCE);
+    }
+
+    /**
+     * 取得中のページを全て破棄する。
+     */
+    public void dispose() {
+        for (int i = 0; i < mLoading.size(); i++) {
+            mLoading.valueAt(i).dispose();
+        }
+        mLoading.clear();
+    }
+
+    private int getPageLength(final int index) {
+        return Math.min(PAGE_SIZE, mSize - index * PAGE_SIZE);
+    }
+
+    private void loadPage(final int index) {
+        if (mLoading.get(index) != null) {
+            return;
+        }
+        final ContentEntity[] loaded = mPages.get(index);
+        int filled = 0;
+        if (loaded != null) {
+            while (filled < loaded.length && loaded[filled] != null) {
+                filled++;
+            }
+            if (filled == loaded.length) {
+                return;
+            }
+        }
+        final int offset = index * PAGE_SIZE + filled;
+        final int count = getPageLength(index) - filled;
+        mLoading.put(index, mMediaServer.browse(mObjectId, offset, count)
+                .toList()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(list -> onLoad(index, offset, list), e -> {
+                    Log.w(e);
+                    mLoading.remove(index);
+                }));
+    }
+
+    private void onLoad(
+            final int index,
+            final int offset,
+            @NonNull final List<CdsObject> list) {
+        mLoading.remove(index);
+        ContentEntity[] page = mPages.get(index);
+        if (page == null) {
+            page = new ContentEntity[getPageLength(index)];
+            mPages.put(index, page);
+        }
+        final int start = offset - index * PAGE_SIZE;
+        final int count = Math.min(list.size(), page.length - start);
+        for (int i = 0; i < count; i++) {
+            page[start + i] = new CdsContentEntity(list.get(i));
+        }
+        if (count > 0) {
+            mListener.onRangeChanged(offset, count);
+        }
+    }
+
+    private void evict(final int center) {
+        for (int i = mLoading.size() - 1; i >= 0; i--) {
+            if (!shouldKeep(mLoading.keyAt(i), center)) {
+                mLoading.valueAt(i).dispose();
+                mLoading.removeAt(i);
+            }
+        }
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            if (!shouldKeep(mPages.keyAt(i), center)) {
+                mPages.removeAt(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.entity;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * まだ取得していない位置を表すContentEntity。
+ *
+ * <p>リソースを持たず、選択や再生の対象とはならない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class PlaceholderEntity implements ContentEntity {
+    static final PlaceholderEntity INSTANCE = new PlaceholderEntity();
+
+    private PlaceholderEntity() {
+    }
+
+    @NonNull
+    @Override
+    public Object getObject() {
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public String getName() {
+        return "";
+    }
+
+    @NonNull
+    @Override
+    public String getDescription() {
+        return "";
+    }
+
+    @NonNull
+    @Override
+    public Uri getArtUri() {
+        return Uri.EMPTY;
+    }
+
+    @NonNull
+    @Override
+    public Uri getIconUri() {
+        return Uri.EMPTY;
+    }
+
+    @NonNull
+    @Override
+    public ContentType getType() {
+        return ContentType.UNKNOWN;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public String getMimeType() {
+        return null;
+    }
+
+    @Override
+    public int getResourceCount() {
+        return 0;
+    }
+
+    @Override
+    public boolean hasResource() {
+        return false;
+    }
+
+    @Override
+    public boolean isProtected() {
+        return false;
+    }
+
+    @Override
+    public boolean canDelete() {
+        return false;
+    }
+
+    @Override
+    public boolean isPlaceholder() {
+        return true;
+    }
+
+    @Override
+    public void selectResource(final int index) {
+        throw new IndexOutOfBoundsException();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.library;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.net.ConnectivityManagerCompat;
+
+import net.mm2d.android.upnp.cds.CdsObject;
+import net.mm2d.android.upnp.cds.MediaServer;
+import net.mm2d.android.upnp.cds.MsControlPoint.ContainerUpdateIdsListener;
+import net.mm2d.dmsexplorer.domain.library.LibraryIndex.Checkpoint;
+import net.mm2d.log.Log;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * MediaServerの階層全体をバックグラウンドで辿り、ローカルの全文検索インデックスを作成する。
+ *
+ * <p>1サーバにつき1ページずつ順に取得し、ページ間には一定の間隔をあけることで、
+ * サーバとネットワークへの負荷を抑える。
+ * 進捗はページ単位でデータベースに記録するため、中断やプロセスの終了があっても続きから再開できる。
+ * 取得済みのサーバでもContainerUpdateIDsを受けた場合は該当するコンテナのみを再取得する。
+ * 従量制のネットワークに接続している間はクロールしない。
+ *
+ * <p>検索はローカルのインデックスのみを使用するため、サーバの状態によらず即座に完了する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class LibraryCrawler implements ContainerUpdateIdsListener {
+    private static final String FILTER = CdsObject.DC_TITLE + ","
+            + CdsObject.DC_DATE + ","
+            + CdsObject.UPNP_GENRE + ","
+            + CdsObject.UPNP_CHANNEL_NAME + ","
+            + CdsObject.ARIB_LONG_DESCRIPTION;
+    private static final int PAGE_SIZE = 100;
+    private static final long REQUEST_INTERVAL = 500;
+    private static final int MAX_RESULTS = 500;
+
+    @NonNull
+    private final LibraryIndex mIndex;
+    @NonNull
+    private final Map<String, Disposable> mRunningMap = new HashMap<>();
+    @Nullable
+    private final ConnectivityManager mConnectivityManager;
+
+    public LibraryCrawler(@NonNull final Context context) {
+        mIndex = new LibraryIndex(context);
+        mConnectivityManager = (ConnectivityManager) context.getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    /**
+     * 指定サーバのクロールを開始する。
+     *
+     * <p>既にクロール中の場合、従量制のネットワークに接続している場合は何もしない。
+     * 全て取得済みの場合はすぐに終了する。
+     *
+     * @param server MediaServer
+     */
+    public synchronized void start(@NonNull final MediaServer server) {
+        final String udn = server.getUdn();
+        if (mRunningMap.containsKey(udn) || isMetered()) {
+            return;
+        }
+        mRunningMap.put(udn, crawl(server)
+                .subscribe(() -> onFinish(udn), e -> {
+                    Log.w(e);
+                    onFinish(udn);
+                }));
+    }
+
+    /**
+     * 指定サーバのクロールを中断する。
+     *
+     * @param udn UDN
+     */
+    public synchronized void stop(@NonNull final String udn) {
+        final Disposable disposable = mRunningMap.remove(udn);
+        if (disposable != null) {
+            disposable.dispose();
+        }
+    }
+
+    /**
+     * 全てのクロールを中断する。
+     */
+    public synchronized void stopAll() {
+        for (final Disposable disposable : mRunningMap.values()) {
+            disposable.dispose();
+        }
+        mRunningMap.clear();
+    }
+
+    /**
+     * 指定サーバのインデックスを破棄する。
+     *
+     * @param udn UDN
+     * @return 結果
+     */
+    @NonNull
+    public Completable clear(@NonNull final String udn) {
+        stop(udn);
+        return Completable.fromAction(() -> mIndex.clear(udn))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * インデックスを検索する。
+     *
+     * <p>タイトル、ジャンル、詳細説明、日付、チャンネル名を対象とし、
+     * 空白で区切られた語を全て含むものを日付の新しい順に返す。
+     *
+     * @param query 検索語
+     * @return 結果
+     */
+    @NonNull
+    public Single<List<LibraryEntry>> search(@NonNull final String query) {
+        return Single.fromCallable(() -> mIndex.search(query, MAX_RESULTS))
+                .subscribeOn(Schedulers.io());
+    }
+
+    @Override
+    public void onContainerUpdateIds(
+            @NonNull final MediaServer server,
+            @NonNull final List<String> ids) {
+        Completable.fromAction(() -> mIndex.invalidate(server.getUdn(), ids))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> start(server), Log::w);
+    }
+
+    private synchronized void onFinish(@NonNull final String udn) {
+        mRunningMap.remove(udn);
+    }
+
+    @NonNull
+    private Completable crawl(@NonNull final MediaServer server) {
+        return Single.fromCallable(() -> crawlNextPage(server))
+                .subscribeOn(Schedulers.io())
+                .repeatWhen(completed -> completed.delay(REQUEST_INTERVAL, TimeUnit.MILLISECONDS))
+                .takeUntil(progressed -> !progressed)
+                .ignoreElements();
+    }
+
+    /**
+     * 次の1ページを取得してインデックスに格納する。
+     *
+     * <p>通信エラーもしくは中断の場合はクロールを終了し、次回同じ位置から再開する。
+     * それ以外のエラーの場合はそのコンテナを読み飛ばして続行する。
+     *
+     * @param server MediaServer
+     * @return 取得を行った場合true、全て取得済みもしくは従量制のネットワークに切り替わった場合false
+     */
+    private boolean crawlNextPage(@NonNull final MediaServer server) throws IOException {
+        if (isMetered()) {
+            return false;
+        }
+        final String udn = server.getUdn();
+        final Checkpoint checkpoint = mIndex.nextCheckpoint(udn);
+        if (checkpoint == null) {
+            return false;
+        }
+        final List<CdsObject> list;
+        try {
+            list = server.browseFlowable(checkpoint.getObjectId(), FILTER, null, checkpoint.getNextIndex(), PAGE_SIZE)
+                    .toList()
+                    .blockingGet();
+        } catch (final RuntimeException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw e;
+            }
+            Log.w(e);
+            mIndex.skip(udn, checkpoint);
+            return true;
+        }
+        mIndex.store(udn, checkpoint, list, list.size() < PAGE_SIZE);
+        return true;
+    }
+
+    private boolean isMetered() {
+        return mConnectivityManager == null
+                || ConnectivityManagerCompat.isActiveNetworkMetered(mConnectivityManager);
+    }
+}
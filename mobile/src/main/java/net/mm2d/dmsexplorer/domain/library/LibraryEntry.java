@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.library;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * ライブラリインデックスの検索結果。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class LibraryEntry {
+    @NonNull
+    private final String mUdn;
+    @NonNull
+    private final String mObjectId;
+    @NonNull
+    private final String mParentId;
+    @NonNull
+    private final String mUpnpClass;
+    @NonNull
+    private final String mTitle;
+    @Nullable
+    private final String mDate;
+    @Nullable
+    private final String mChannelName;
+
+    LibraryEntry(
+            @NonNull final String udn,
+            @NonNull final String objectId,
+            @NonNull final String parentId,
+            @NonNull final String upnpClass,
+            @NonNull final String title,
+            @Nullable final String date,
+            @Nullable final String channelName) {
+        mUdn = udn;
+        mObjectId = objectId;
+        mParentId = parentId;
+        mUpnpClass = upnpClass;
+        mTitle = title;
+        mDate = date;
+        mChannelName = channelName;
+    }
+
+    @NonNull
+    public String getUdn() {
+        return mUdn;
+    }
+
+    @NonNull
+    public String getObjectId() {
+        return mObjectId;
+    }
+
+    @NonNull
+    public String getParentId() {
+        return mParentId;
+    }
+
+    @NonNull
+    public String getUpnpClass() {
+        return mUpnpClass;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return mTitle;
+    }
+
+    @Nullable
+    public String getDate() {
+        return mDate;
+    }
+
+    @Nullable
+    public String getChannelName() {
+        return mChannelName;
+    }
+}
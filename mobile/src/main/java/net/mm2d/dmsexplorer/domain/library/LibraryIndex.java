@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.library;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import net.mm2d.android.upnp.cds.CdsObject;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * クロールしたCdsObjectの全文検索インデックスと、クロールの進捗を保持するデータベース。
+ *
+ * <p>objectsテーブルに表示用の値を、FTS4のobjects_ftsテーブルに検索用の値を
+ * objectsの_idをdocidとして格納する。
+ * containersテーブルはクロール対象のコンテナと、次に取得する開始インデックスを保持し、
+ * プロセスが終了しても途中から再開できるようにする。
+ *
+ * <p>各メソッドはI/Oを伴うため、メインスレッド以外から呼び出すこと。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class LibraryIndex extends SQLiteOpenHelper {
+    private static final String DB_NAME = "library.db";
+    private static final int DB_VERSION = 1;
+    private static final String ROOT_OBJECT_ID = "0";
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_DONE = 1;
+    private static final int DATE_LENGTH = 10;
+
+    /**
+     * 次に取得するコンテナの位置。
+     */
+    static class Checkpoint {
+        @NonNull
+        private final String mObjectId;
+        private final int mNextIndex;
+
+        Checkpoint(
+                @NonNull final String objectId,
+                final int nextIndex) {
+            mObjectId = objectId;
+            mNextIndex = nextIndex;
+        }
+
+        @NonNull
+        String getObjectId() {
+            return mObjectId;
+        }
+
+        int getNextIndex() {
+            return mNextIndex;
+        }
+    }
+
+    LibraryIndex(@NonNull final Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(final SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE objects ("
+                + "_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "udn TEXT NOT NULL,"
+                + "object_id TEXT NOT NULL,"
+                + "parent_id TEXT NOT NULL,"
+                + "upnp_class TEXT NOT NULL,"
+                + "title TEXT NOT NULL,"
+                + "date TEXT,"
+                + "channel TEXT,"
+                + "UNIQUE(udn, object_id))");
+        db.execSQL("CREATE INDEX objects_parent ON objects(udn, parent_id)");
+        db.execSQL("CREATE VIRTUAL TABLE objects_fts USING fts4("
+                + "title, genre, description, date, channel)");
+        db.execSQL("CREATE TABLE containers ("
+                + "udn TEXT NOT NULL,"
+                + "object_id TEXT NOT NULL,"
+                + "parent_id TEXT,"
+                + "next_index INTEGER NOT NULL DEFAULT 0,"
+                + "state INTEGER NOT NULL DEFAULT " + STATE_PENDING + ","
+                + "stale INTEGER NOT NULL DEFAULT 0,"
+                + "PRIMARY KEY(udn, object_id))");
+        db.execSQL("CREATE INDEX containers_parent ON containers(udn, parent_id)");
+    }
+
+    @Override
+    public void onUpgrade(
+            final SQLiteDatabase db,
+            final int oldVersion,
+            final int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS objects");
+        db.execSQL("DROP TABLE IF EXISTS objects_fts");
+        db.execSQL("DROP TABLE IF EXISTS containers");
+        onCreate(db);
+    }
+
+    /**
+     * 次に取得すべきコンテナを返す。
+     *
+     * <p>一度もクロールしていないサーバの場合はルートコンテナを登録する。
+     *
+     * @param udn UDN
+     * @return 次に取得すべきコンテナ、全て取得済みの場合null
+     */
+    @Nullable
+    Checkpoint nextCheckpoint(@NonNull final String udn) {
+        final SQLiteDatabase db = getWritableDatabase();
+        final String[] args = {udn};
+        if (DatabaseUtils.queryNumEntries(db, "containers", "udn=?", args) == 0) {
+            final ContentValues values = new ContentValues();
+            values.put("udn", udn);
+            values.put("object_id", ROOT_OBJECT_ID);
+            db.insert("containers", null, values);
+        }
+        try (final Cursor c = db.query("containers", new String[]{"object_id", "next_index"},
+                "udn=? AND state=" + STATE_PENDING, args, null, null, "rowid", "1")) {
+            if (!c.moveToFirst()) {
+                return null;
+            }
+            return new Checkpoint(c.getString(0), c.getInt(1));
+        }
+    }
+
+    /**
+     * 取得したページを格納し、進捗を更新する。
+     *
+     * <p>コンテナの先頭ページの場合は、以前の子要素を破棄してから格納する。
+     * 最後のページの場合、今回のクロールで見つからなかった子コンテナ以下を破棄する。
+     *
+     * @param udn        UDN
+     * @param checkpoint 取得したコンテナの位置
+     * @param list       取得したページ
+     * @param last       コンテナの最後のページであればtrue
+     */
+    void store(
+            @NonNull final String udn,
+            @NonNull final Checkpoint checkpoint,
+            @NonNull final List<CdsObject> list,
+            final boolean last) {
+        final String parentId = checkpoint.getObjectId();
+        final SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (checkpoint.getNextIndex() == 0) {
+                deleteChildren(db, udn, parentId);
+                final ContentValues values = new ContentValues();
+                values.put("stale", 1);
+                db.update("containers", values, "udn=? AND parent_id=?", new String[]{udn, parentId});
+            }
+            insertObjects(db, udn, parentId, list);
+            final ContentValues values = new ContentValues();
+            if (last) {
+                values.put("state", STATE_DONE);
+                values.put("next_index", 0);
+            } else {
+                values.put("next_index", checkpoint.getNextIndex() + list.size());
+            }
+            db.update("containers", values, "udn=? AND object_id=?", new String[]{udn, parentId});
+            if (last) {
+                deleteStaleContainers(db, udn, parentId);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 取得できなかったコンテナを取得済みとして扱い、以降のクロールで読み飛ばす。
+     *
+     * @param udn        UDN
+     * @param checkpoint 取得できなかったコンテナの位置
+     */
+    void skip(
+            @NonNull final String udn,
+            @NonNull final Checkpoint checkpoint) {
+        final ContentValues values = new ContentValues();
+        values.put("state", STATE_DONE);
+        values.put("next_index", 0);
+        getWritableDatabase().update("containers", values, "udn=? AND object_id=?",
+                new String[]{udn, checkpoint.getObjectId()});
+    }
+
+    /**
+     * 指定コンテナを再取得の対象とする。
+     *
+     * <p>まだ登録されていないコンテナは無視する。
+     *
+     * @param udn UDN
+     * @param ids 更新のあったコンテナのObjectID
+     */
+    void invalidate(
+            @NonNull final String udn,
+            @NonNull final List<String> ids) {
+        final SQLiteDatabase db = getWritableDatabase();
+        final ContentValues values = new ContentValues();
+        values.put("state", STATE_PENDING);
+        values.put("next_index", 0);
+        db.beginTransaction();
+        try {
+            for (final String id : ids) {
+                db.update("containers", values, "udn=? AND object_id=?", new String[]{udn, id});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 指定サーバの情報を全て破棄する。
+     *
+     * @param udn UDN
+     */
+    void clear(@NonNull final String udn) {
+        final SQLiteDatabase db = getWritableDatabase();
+        final String[] args = {udn};
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM objects_fts WHERE docid IN (SELECT _id FROM objects WHERE udn=?)", args);
+            db.delete("objects", "udn=?", args);
+            db.delete("containers", "udn=?", args);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 全文検索を行う。
+     *
+     * @param query 入力された検索語、空白区切りの語は全て含むものを検索する
+     * @param limit 最大件数
+     * @return 検索結果
+     */
+    @NonNull
+    List<LibraryEntry> search(
+            @NonNull final String query,
+            final int limit) {
+        final List<LibraryEntry> result = new ArrayList<>();
+        final String match = LibraryTokenizer.toMatchQuery(query);
+        if (match == null) {
+            return result;
+        }
+        final SQLiteDatabase db = getReadableDatabase();
+        try (final Cursor c = db.rawQuery("SELECT o.udn, o.object_id, o.parent_id, o.upnp_class, o.title, o.date, o.channel"
+                + " FROM objects_fts f JOIN objects o ON o._id=f.docid"
+                + " WHERE objects_fts MATCH ? ORDER BY o.date DESC LIMIT " + limit, new String[]{match})) {
+            while (c.moveToNext()) {
+                result.add(new LibraryEntry(c.getString(0), c.getString(1), c.getString(2),
+                        c.getString(3), c.getString(4), c.getString(5), c.getString(6)));
+            }
+        }
+        return result;
+    }
+
+    private static void insertObjects(
+            @NonNull final SQLiteDatabase db,
+            @NonNull final String udn,
+            @NonNull final String parentId,
+            @NonNull final List<CdsObject> list) {
+        final SQLiteStatement deleteFts = db.compileStatement(
+                "DELETE FROM objects_fts WHERE docid IN (SELECT _id FROM objects WHERE udn=? AND object_id=?)");
+        final SQLiteStatement insertObject = db.compileStatement(
+                "INSERT OR REPLACE INTO objects(udn, object_id, parent_id, upnp_class, title, date, channel)"
+                        + " VALUES(?, ?, ?, ?, ?, ?, ?)");
+        final SQLiteStatement insertFts = db.compileStatement(
+                "INSERT INTO objects_fts(docid, title, genre, description, date, channel) VALUES(?, ?, ?, ?, ?, ?)");
+        final SQLiteStatement insertContainer = db.compileStatement(
+                "INSERT OR IGNORE INTO containers(udn, object_id, parent_id) VALUES(?, ?, ?)");
+        final SQLiteStatement refreshContainer = db.compileStatement(
+                "UPDATE containers SET stale=0, parent_id=? WHERE udn=? AND object_id=?");
+        try {
+            for (final CdsObject object : list) {
+                final String objectId = object.getObjectId();
+                final String date = object.getValue(CdsObject.DC_DATE);
+                final String channel = object.getValue(CdsObject.UPNP_CHANNEL_NAME);
+                deleteFts.bindString(1, udn);
+                deleteFts.bindString(2, objectId);
+                deleteFts.executeUpdateDelete();
+
+                insertObject.bindString(1, udn);
+                insertObject.bindString(2, objectId);
+                insertObject.bindString(3, parentId);
+                insertObject.bindString(4, object.getUpnpClass());
+                insertObject.bindString(5, object.getTitle());
+                bindStringOrNull(insertObject, 6, date);
+                bindStringOrNull(insertObject, 7, channel);
+                final long rowId = insertObject.executeInsert();
+
+                insertFts.bindLong(1, rowId);
+                insertFts.bindString(2, LibraryTokenizer.toIndexText(object.getTitle()));
+                insertFts.bindString(3, LibraryTokenizer.toIndexText(object.getValue(CdsObject.UPNP_GENRE)));
+                insertFts.bindString(4, LibraryTokenizer.toIndexText(object.getValue(CdsObject.ARIB_LONG_DESCRIPTION)));
+                insertFts.bindString(5, LibraryTokenizer.toIndexText(
+                        date == null || date.length() < DATE_LENGTH ? date : date.substring(0, DATE_LENGTH)));
+                insertFts.bindString(6, LibraryTokenizer.toIndexText(channel));
+                insertFts.executeInsert();
+
+                if (object.isContainer()) {
+                    insertContainer.bindString(1, udn);
+                    insertContainer.bindString(2, objectId);
+                    insertContainer.bindString(3, parentId);
+                    insertContainer.executeInsert();
+                    refreshContainer.bindString(1, parentId);
+                    refreshContainer.bindString(2, udn);
+                    refreshContainer.bindString(3, objectId);
+                    refreshContainer.executeUpdateDelete();
+                }
+            }
+        } finally {
+            deleteFts.close();
+            insertObject.close();
+            insertFts.close();
+            insertContainer.close();
+            refreshContainer.close();
+        }
+    }
+
+    private static void bindStringOrNull(
+            @NonNull final SQLiteStatement statement,
+            final int index,
+            @Nullable final String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static void deleteChildren(
+            @NonNull final SQLiteDatabase db,
+            @NonNull final String udn,
+            @NonNull final String parentId) {
+        final String[] args = {udn, parentId};
+        db.execSQL("DELETE FROM objects_fts WHERE docid IN (SELECT _id FROM objects WHERE udn=? AND parent_id=?)", args);
+        db.delete("objects", "udn=? AND parent_id=?", args);
+    }
+
+    /**
+     * 再取得で見つからなかった子コンテナと、その下の要素を全て破棄する。
+     */
+    private static void deleteStaleContainers(
+            @NonNull final SQLiteDatabase db,
+            @NonNull final String udn,
+            @NonNull final String parentId) {
+        final LinkedList<String> queue = new LinkedList<>();
+        try (final Cursor c = db.query("containers", new String[]{"object_id"},
+                "udn=? AND parent_id=? AND stale=1", new String[]{udn, parentId}, null, null, null)) {
+            while (c.moveToNext()) {
+                queue.add(c.getString(0));
+            }
+        }
+        while (!queue.isEmpty()) {
+            final String id = queue.removeFirst();
+            try (final Cursor c = db.query("containers", new String[]{"object_id"},
+                    "udn=? AND parent_id=?", new String[]{udn, id}, null, null, null)) {
+                while (c.moveToNext()) {
+                    queue.add(c.getString(0));
+                }
+            }
+            deleteChildren(db, udn, id);
+            db.delete("containers", "udn=? AND object_id=?", new String[]{udn, id});
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.library;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 全文検索インデックスに格納する文字列と、検索式への変換を行う。
+ *
+ * <p>FTSの標準トークナイザは空白と記号でのみ単語を区切るため、
+ * 分かち書きされない日本語はそのままでは部分一致で検索できない。
+ * そこで英数字以外の文字の連続はbi-gramに分割し、末尾の1文字を加えてインデックスに格納する。
+ * 検索時も同様に分割し、bi-gramはフレーズ検索、英数字と1文字の語は前方一致検索とする。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class LibraryTokenizer {
+    /**
+     * インデックスに格納する文字列へ変換する。
+     *
+     * @param text 元の文字列
+     * @return トークンを空白で区切った文字列
+     */
+    @NonNull
+    static String toIndexText(@Nullable final String text) {
+        if (text == null) {
+            return "";
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final String word : split(text)) {
+            for (final String token : tokenize(word, true)) {
+                if (sb.length() != 0) {
+                    sb.append(' ');
+                }
+                sb.append(token);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 入力された検索語をMATCHに渡す検索式へ変換する。
+     *
+     * <p>全ての語をANDで結合する。
+     *
+     * @param query 入力された検索語
+     * @return 検索式、有効な語がない場合null
+     */
+    @Nullable
+    static String toMatchQuery(@NonNull final String query) {
+        final StringBuilder sb = new StringBuilder();
+        for (final String word : split(query)) {
+            if (sb.length() != 0) {
+                sb.append(' ');
+            }
+            if (isAscii(word) || word.length() == 1) {
+                sb.append(word).append('*');
+                continue;
+            }
+            sb.append('"');
+            final List<String> tokens = tokenize(word, false);
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i != 0) {
+                    sb.append(' ');
+                }
+                sb.append(tokens.get(i));
+            }
+            sb.append('"');
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+
+    /**
+     * 文字もしくは数字の連続に分割し、小文字に変換する。
+     *
+     * <p>「NHKニュース7」のように英数字とそれ以外が続く場合も、その境界で分割する。
+     */
+    @NonNull
+    private static List<String> split(@NonNull final String text) {
+        final List<String> result = new ArrayList<>();
+        final String lower = text.toLowerCase(Locale.ENGLISH);
+        int start = -1;
+        for (int i = 0; i < lower.length(); i++) {
+            final char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (start < 0) {
+                    start = i;
+                } else if (isAscii(c) != isAscii(lower.charAt(i - 1))) {
+                    result.add(lower.substring(start, i));
+                    start = i;
+                }
+                continue;
+            }
+            if (start >= 0) {
+                result.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            result.add(lower.substring(start));
+        }
+        return result;
+    }
+
+    @NonNull
+    private static List<String> tokenize(
+            @NonNull final String word,
+            final boolean withTail) {
+        final List<String> result = new ArrayList<>();
+        if (isAscii(word) || word.length() == 1) {
+            result.add(word);
+            return result;
+        }
+        for (int i = 0; i + 2 <= word.length(); i++) {
+            result.add(word.substring(i, i + 2));
+        }
+        if (withTail) {
+            result.add(word.substring(word.length() - 1));
+        }
+        return result;
+    }
+
+    private static boolean isAscii(@NonNull final String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (!isAscii(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(final char c) {
+        return c < 0x80;
+    }
+}
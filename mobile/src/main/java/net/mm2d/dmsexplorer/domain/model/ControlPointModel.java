@@ -20,9 +20,12 @@ import net.mm2d.android.net.Lan;
 import net.mm2d.android.upnp.AvControlPointManager;
 import net.mm2d.android.upnp.avt.MediaRenderer;
 import net.mm2d.android.upnp.avt.MrControlPoint;
+import net.mm2d.android.upnp.avt.MrControlPoint.LastChangeListener;
 import net.mm2d.android.upnp.cds.MediaServer;
 import net.mm2d.android.upnp.cds.MsControlPoint;
+import net.mm2d.android.upnp.cds.MsControlPoint.ContainerUpdateIdsListener;
 import net.mm2d.android.upnp.cds.MsControlPoint.MsDiscoveryListener;
+import net.mm2d.android.upnp.cds.MsControlPoint.SystemUpdateIdListener;
 import net.mm2d.android.util.RuntimeEnvironment;
 import net.mm2d.android.util.Toaster;
 import net.mm2d.dmsexplorer.BuildConfig;
@@ -30,7 +33,9 @@ import net.mm2d.dmsexplorer.R;
 import net.mm2d.dmsexplorer.debug.DebugData;
 
 import java.net.NetworkInterface;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -47,6 +52,10 @@ public class ControlPointModel {
         void update(@Nullable MediaRenderer renderer);
     }
 
+    public interface SelectMediaRendererGroupObserver {
+        void update(@NonNull List<MediaRenderer> renderers);
+    }
+
     private static final String TAG = ControlPointModel.class.getSimpleName();
     @Nullable
     private WifiManager.WifiLock mWifiLock;
@@ -55,6 +64,8 @@ public class ControlPointModel {
     @NonNull
     private final SelectMediaRendererObserver mSelectMediaRendererObserver;
     @NonNull
+    private final SelectMediaRendererGroupObserver mSelectMediaRendererGroupObserver;
+    @NonNull
     private final AvControlPointManager mAvControlPointManager = new AvControlPointManager();
     @NonNull
     private final Context mContext;
@@ -68,6 +79,8 @@ public class ControlPointModel {
     private MediaServer mSelectedMediaServer;
     @Nullable
     private MediaRenderer mSelectedMediaRenderer;
+    @NonNull
+    private List<MediaRenderer> mSelectedMediaRendererGroup = Collections.emptyList();
     private static final MsDiscoveryListener MS_DISCOVERY_LISTENER = new MsDiscoveryListener() {
         @Override
         public void onDiscover(@NonNull final MediaServer server) {
@@ -130,17 +143,31 @@ public class ControlPointModel {
     public ControlPointModel(
             @NonNull final Context context,
             @NonNull final SelectMediaServerObserver serverObserver,
-            @NonNull final SelectMediaRendererObserver rendererObserver) {
+            @NonNull final SelectMediaRendererObserver rendererObserver,
+            @NonNull final SelectMediaRendererGroupObserver rendererGroupObserver) {
         mContext = context.getApplicationContext();
         mLan = Lan.createInstance(mContext);
         mSelectMediaServerObserver = serverObserver;
         mSelectMediaRendererObserver = rendererObserver;
+        mSelectMediaRendererGroupObserver = rendererGroupObserver;
     }
 
     public void setMsDiscoveryListener(@Nullable final MsDiscoveryListener listener) {
         mMsDiscoveryListener = listener != null ? listener : MS_DISCOVERY_LISTENER;
     }
 
+    public void setContainerUpdateIdsListener(@Nullable final ContainerUpdateIdsListener listener) {
+        getMsControlPoint().setContainerUpdateIdsListener(listener);
+    }
+
+    public void setSystemUpdateIdListener(@NonNull final SystemUpdateIdListener listener) {
+        getMsControlPoint().setSystemUpdateIdListener(listener);
+    }
+
+    public void setLastChangeListener(@Nullable final LastChangeListener listener) {
+        getMrControlPoint().setLastChangeListener(listener);
+    }
+
     public void setSelectedMediaServer(@Nullable final MediaServer server) {
         if (mSelectedMediaServer != null) {
             mSelectedMediaServer.unsubscribe();
@@ -166,6 +193,26 @@ public class ControlPointModel {
     }
 
     public void setSelectedMediaRenderer(@Nullable final MediaRenderer server) {
+        updateSelectedMediaRendererGroup(Collections.emptyList());
+        updateSelectedMediaRenderer(server);
+    }
+
+    /**
+     * 複数のMediaRendererをまとめて選択する。
+     *
+     * <p>単体のMediaRendererの選択は解除する。
+     *
+     * @param renderers 選択するMediaRenderer
+     */
+    public void setSelectedMediaRendererGroup(@NonNull final List<MediaRenderer> renderers) {
+        updateSelectedMediaRenderer(null);
+        updateSelectedMediaRendererGroup(new ArrayList<>(renderers));
+    }
+
+    private void updateSelectedMediaRenderer(@Nullable final MediaRenderer server) {
+        if (mSelectedMediaRenderer == null && server == null) {
+            return;
+        }
         if (mSelectedMediaRenderer != null) {
             mSelectedMediaRenderer.unsubscribe();
         }
@@ -176,8 +223,23 @@ public class ControlPointModel {
         }
     }
 
+    private void updateSelectedMediaRendererGroup(@NonNull final List<MediaRenderer> renderers) {
+        if (mSelectedMediaRendererGroup.isEmpty() && renderers.isEmpty()) {
+            return;
+        }
+        for (final MediaRenderer renderer : mSelectedMediaRendererGroup) {
+            renderer.unsubscribe();
+        }
+        mSelectedMediaRendererGroup = renderers;
+        mSelectMediaRendererGroupObserver.update(renderers);
+        for (final MediaRenderer renderer : renderers) {
+            renderer.subscribe();
+        }
+    }
+
     public void clearSelectedRenderer() {
-        setSelectedMediaRenderer(null);
+        updateSelectedMediaRenderer(null);
+        updateSelectedMediaRendererGroup(Collections.emptyList());
     }
 
     private void acquireWifiLock() {
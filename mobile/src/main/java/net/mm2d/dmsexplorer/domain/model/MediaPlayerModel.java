@@ -13,13 +13,20 @@ import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.CallSuper;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import net.mm2d.dmsexplorer.domain.model.PollingScheduler.Handle;
 import net.mm2d.dmsexplorer.domain.model.control.MediaControl;
 import net.mm2d.log.Log;
 
 import java.util.concurrent.TimeUnit;
 
 /**
+ * 端末上で再生するPlayerModel。
+ *
+ * <p>取得のタイミングは{@link PollingScheduler}で管理するが、
+ * MediaControlはVideoViewなどUIスレッドでのみ操作可能なものを含むため、値の取得はメインスレッドで行う。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 public abstract class MediaPlayerModel implements PlayerModel, OnPreparedListener {
@@ -33,40 +40,55 @@ public abstract class MediaPlayerModel implements PlayerModel, OnPreparedListene
     private StatusListener mStatusListener = STATUS_LISTENER;
     @NonNull
     private final MediaControl mMediaControl;
+    @NonNull
+    private final PollingScheduler mPollingScheduler;
+    @Nullable
+    private Handle mPollingHandle;
     private boolean mPlaying;
     private int mProgress;
     private int mDuration;
-    private boolean mTerminated;
-
-    private final Runnable mGetPositionTask = new Runnable() {
-        @Override
-        public void run() {
-            try {
-                int sleep = 1000;
-                final boolean playing = mMediaControl.isPlaying();
-                setPlaying(playing);
-                if (playing) {
-                    final int duration = mMediaControl.getDuration();
-                    final int position = mMediaControl.getCurrentPosition();
-                    if (duration >= position) {
-                        setProgress(position);
-                        setDuration(duration);
-                    }
-                    sleep = 1001 - position % 1000;
-                }
-                sleep = Math.min(Math.max(sleep, 100), 1000);
-                mHandler.removeCallbacks(this);
-                mHandler.postDelayed(this, sleep);
-            } catch (final IllegalStateException ignored) {
-            }
-        }
-    };
+    private volatile boolean mTerminated;
+    /**
+     * メインスレッドで最後に取得した値から求めた、次回取得までの希望する間隔。
+     */
+    private volatile long mPollingHint;
 
-    MediaPlayerModel(@NonNull final MediaControl mediaControl) {
+    MediaPlayerModel(
+            @NonNull final MediaControl mediaControl,
+            @NonNull final PollingScheduler pollingScheduler) {
         mMediaControl = mediaControl;
+        mPollingScheduler = pollingScheduler;
         mMediaControl.setOnPreparedListener(this);
     }
 
+    private long poll() {
+        mHandler.post(this::updateStatus);
+        return mPollingHint;
+    }
+
+    private void updateStatus() {
+        if (mTerminated) {
+            return;
+        }
+        try {
+            final boolean playing = mMediaControl.isPlaying();
+            setPlaying(playing);
+            if (!playing) {
+                mPollingHint = 0;
+                return;
+            }
+            final int duration = mMediaControl.getDuration();
+            final int position = mMediaControl.getCurrentPosition();
+            if (duration >= position) {
+                setDuration(duration);
+                setProgress(position);
+            }
+            mPollingHint = Math.max(1001 - position % 1000, 100);
+        } catch (final IllegalStateException ignored) {
+            mPollingHint = 0;
+        }
+    }
+
     @Override
     public boolean canPause() {
         return true;
@@ -78,6 +100,10 @@ public abstract class MediaPlayerModel implements PlayerModel, OnPreparedListene
         if (mTerminated) {
             return;
         }
+        if (mPollingHandle != null) {
+            mPollingHandle.cancel();
+            mPollingHandle = null;
+        }
         mMediaControl.setOnPreparedListener(null);
         mMediaControl.setOnErrorListener(null);
         mMediaControl.setOnInfoListener(null);
@@ -98,10 +124,7 @@ public abstract class MediaPlayerModel implements PlayerModel, OnPreparedListene
             logInfo(what, extra);
             return mStatusListener.onInfo(what, extra);
         });
-        mMediaControl.setOnCompletionListener((mp) -> {
-            mHandler.removeCallbacks(mGetPositionTask);
-            mStatusListener.onCompletion();
-        });
+        mMediaControl.setOnCompletionListener((mp) -> mStatusListener.onCompletion());
     }
 
     @Override
@@ -145,6 +168,9 @@ public abstract class MediaPlayerModel implements PlayerModel, OnPreparedListene
             return;
         }
         mPlaying = playing;
+        if (mPollingHandle != null) {
+            mPollingHandle.setActive(playing);
+        }
         mStatusListener.notifyPlayingState(playing);
     }
 
@@ -161,8 +187,9 @@ public abstract class MediaPlayerModel implements PlayerModel, OnPreparedListene
     @Override
     public void seekTo(final int position) {
         mMediaControl.seekTo(position);
-        mHandler.removeCallbacks(mGetPositionTask);
-        mHandler.post(mGetPositionTask);
+        if (mPollingHandle != null) {
+            mPollingHandle.boost();
+        }
     }
 
     @Override
@@ -187,7 +214,9 @@ public abstract class MediaPlayerModel implements PlayerModel, OnPreparedListene
     public void onPrepared(@NonNull final MediaPlayer mediaPlayer) {
         preparePlaying(mediaPlayer);
         setDuration(getDuration());
-        mHandler.post(mGetPositionTask);
+        if (mPollingHandle == null) {
+            mPollingHandle = mPollingScheduler.register(this::poll);
+        }
         play();
         if (mProgress > 0) {
             seekTo(mProgress);
@@ -12,6 +12,7 @@ import android.net.Uri;
 import android.net.wifi.WifiManager;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -20,6 +21,7 @@ import net.mm2d.android.upnp.avt.TransportState;
 import net.mm2d.android.upnp.cds.CdsObject;
 import net.mm2d.android.upnp.cds.chapter.ChapterFetcherFactory;
 import net.mm2d.dmsexplorer.domain.entity.ContentEntity;
+import net.mm2d.dmsexplorer.domain.model.PollingScheduler.Handle;
 import net.mm2d.log.Log;
 
 import java.util.Collections;
@@ -30,49 +32,322 @@ import java.util.concurrent.TimeUnit;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 
 /**
+ * MediaRendererを操作するPlayerModel。
+ *
+ * <p>LastChangeイベントを受信できるMediaRendererでは、再生状態、トラックの長さはイベントで更新し、
+ * 再生位置は最後に取得した位置からの経過時間で補間する。
+ * 補間のずれやイベントの取りこぼしを補正するため、一定間隔でのみ状態を取得する。
+ * イベントを受信できない場合は{@link PollingScheduler}の間隔で状態を取得する。
+ *
+ * <p>SetNextAVTransportURIに対応したMediaRendererでは{@link #setNextUri(Uri, ContentEntity)}で
+ * 次のコンテンツを事前に設定しておくことで、再生終了を待たずに途切れなく次のコンテンツへ移行する。
+ * 移行したことは{@link OnTrackChangedListener}で通知する。
+ *
+ * <p>MediaRendererの状態は{@link PollingScheduler}のスレッドで管理し、
+ * 変化があった場合のみメインスレッドで{@link StatusListener}へ通知する。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 public class MediaRendererModel implements PlayerModel {
     private static final String TAG = MediaRendererModel.class.getSimpleName();
     private static final int CHAPTER_MARGIN = (int) TimeUnit.SECONDS.toMillis(5);
-    private static final int STOPPING_THRESHOLD = 5;
+    /**
+     * イベントを受信できない場合、STOPPEDがこの時間継続すれば再生終了とみなす。
+     */
+    private static final long STOPPING_TIME = TimeUnit.SECONDS.toMillis(5);
+    private static final long POLLING_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+    /**
+     * イベント受信時に、補間した再生位置を実際の位置で補正する間隔。
+     */
+    private static final long SYNC_INTERVAL = TimeUnit.SECONDS.toMillis(10);
     private static final StatusListener STATUS_LISTENER = new StatusListenerAdapter();
+    private static final OnTrackChangedListener ON_TRACK_CHANGED_LISTENER = () -> {
+    };
+
+    /**
+     * 事前に設定したコンテンツへの移行を通知するリスナー。
+     */
+    public interface OnTrackChangedListener {
+        /**
+         * {@link #setNextUri(Uri, ContentEntity)}で設定したコンテンツの再生が始まった。
+         *
+         * <p>メインスレッドで通知する。
+         */
+        void onTrackChanged();
+    }
 
     @NonNull
     private StatusListener mStatusListener = STATUS_LISTENER;
     @NonNull
+    private OnTrackChangedListener mOnTrackChangedListener = ON_TRACK_CHANGED_LISTENER;
+    @NonNull
     private final MediaRenderer mMediaRenderer;
     @NonNull
+    private final PollingScheduler mPollingScheduler;
+    @Nullable
+    private volatile Handle mPollingHandle;
+    @NonNull
     private final Handler mHandler = new Handler(Looper.getMainLooper());
     @NonNull
     private List<Integer> mChapterList = Collections.emptyList();
     private boolean mPlaying;
     private int mProgress;
     private int mDuration;
-    private boolean mStarted;
-    private int mStoppingCount;
-    @NonNull
-    private final Runnable mGetPositionTask;
+    private volatile boolean mStarted;
+    private boolean mTransportReady;
+    @Nullable
+    private String mPendingNextUri;
+    @Nullable
+    private CdsObject mPendingNextObject;
     @NonNull
     private final WifiManager.WifiLock mWifiLock;
 
+    // 以下はPollingSchedulerのスレッドで使用する
+    private boolean mEventDriven;
+    private boolean mPlayedOnce;
+    private boolean mCompleted;
+    @Nullable
+    private TransportState mState;
+    private long mStoppedTime;
+    private int mBaseProgress;
+    private long mBaseTime;
+    private long mLastSyncTime;
+    private int mRendererDuration;
+    private boolean mReportedPlaying;
+    private int mReportedProgress;
+    private int mReportedDuration;
+    @Nullable
+    private String mNextUri;
+    @Nullable
+    private CdsObject mNextObject;
+
     public MediaRendererModel(
             @NonNull final Context context,
-            @NonNull final MediaRenderer renderer) {
+            @NonNull final MediaRenderer renderer,
+            @NonNull final PollingScheduler pollingScheduler) {
         final WifiManager wm = (WifiManager) context.getApplicationContext()
                 .getSystemService(Context.WIFI_SERVICE);
         mWifiLock = wm.createWifiLock(WifiManager.WIFI_MODE_FULL, TAG);
         mWifiLock.setReferenceCounted(true);
         mWifiLock.acquire();
         mMediaRenderer = renderer;
-        mGetPositionTask = () -> {
-            mMediaRenderer.getPositionInfo()
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(this::onGetPositionInfo);
-            mMediaRenderer.getTransportInfo()
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(this::onGetTransportInfo);
-        };
+        mPollingScheduler = pollingScheduler;
+    }
+
+    private long poll() {
+        if (mCompleted) {
+            return 0;
+        }
+        if (!mEventDriven) {
+            requestStatus();
+            return 0;
+        }
+        final long now = SystemClock.elapsedRealtime();
+        if (now - mLastSyncTime >= SYNC_INTERVAL) {
+            mLastSyncTime = now;
+            requestStatus();
+        }
+        if (mState != TransportState.PLAYING) {
+            checkStopped(now);
+            return 0;
+        }
+        final int progress = interpolateProgress(now);
+        reportProgress(progress);
+        return POLLING_INTERVAL - progress % POLLING_INTERVAL;
+    }
+
+    private void requestStatus() {
+        mMediaRenderer.getPositionInfo()
+                .observeOn(mPollingScheduler.getScheduler())
+                .subscribe(this::onGetPositionInfo, Log::w);
+        mMediaRenderer.getTransportInfo()
+                .observeOn(mPollingScheduler.getScheduler())
+                .subscribe(this::onGetTransportInfo, Log::w);
+    }
+
+    private void resetState() {
+        mPlayedOnce = false;
+        mCompleted = false;
+        mState = null;
+        mStoppedTime = 0;
+        mLastSyncTime = 0;
+        mRendererDuration = 0;
+        mReportedPlaying = false;
+        mReportedProgress = -1;
+        mReportedDuration = -1;
+        mNextUri = null;
+        mNextObject = null;
+        rebaseProgress(0);
+    }
+
+    /**
+     * 再生中のコンテンツが事前に設定したものへ移行したかを確認し、移行していればコンテンツごとの状態を初期化する。
+     *
+     * @param trackUri MediaRendererが通知した再生中のURI
+     */
+    private void checkTrackChanged(@Nullable final String trackUri) {
+        if (trackUri == null || mNextUri == null || !mNextUri.equals(trackUri)) {
+            return;
+        }
+        final CdsObject object = mNextObject;
+        mNextUri = null;
+        mNextObject = null;
+        // 移行中のSTOPPEDが継続する場合に備え、再生終了の判定は移行した時点からやり直す
+        mStoppedTime = mState == TransportState.STOPPED ? SystemClock.elapsedRealtime() : 0;
+        mRendererDuration = 0;
+        mReportedProgress = -1;
+        mReportedDuration = -1;
+        rebaseProgress(0);
+        postIfStarted(() -> {
+            setChapterList(Collections.emptyList());
+            mOnTrackChangedListener.onTrackChanged();
+            if (object != null) {
+                ChapterFetcherFactory.create(object)
+                        .subscribe(this::setChapterList, Log::w);
+            }
+        });
+    }
+
+    private int interpolateProgress(final long now) {
+        if (mState != TransportState.PLAYING) {
+            return mBaseProgress;
+        }
+        final int progress = (int) (mBaseProgress + now - mBaseTime);
+        return mRendererDuration > 0 ? Math.min(progress, mRendererDuration) : progress;
+    }
+
+    private void rebaseProgress(final int progress) {
+        mBaseProgress = progress;
+        mBaseTime = SystemClock.elapsedRealtime();
+    }
+
+    private void reportProgress(final int progress) {
+        if (mReportedProgress == progress) {
+            return;
+        }
+        mReportedProgress = progress;
+        postIfStarted(() -> {
+            mProgress = progress;
+            mStatusListener.notifyProgress(progress);
+        });
+    }
+
+    private void reportDuration(final int duration) {
+        mRendererDuration = duration;
+        if (mReportedDuration == duration) {
+            return;
+        }
+        mReportedDuration = duration;
+        postIfStarted(() -> {
+            mDuration = duration;
+            mStatusListener.notifyDuration(duration);
+        });
+    }
+
+    private void reportPlaying(final boolean playing) {
+        if (mReportedPlaying == playing) {
+            return;
+        }
+        mReportedPlaying = playing;
+        final Handle handle = mPollingHandle;
+        if (handle != null) {
+            handle.setActive(playing);
+        }
+        postIfStarted(() -> {
+            mPlaying = playing;
+            mStatusListener.notifyPlayingState(playing);
+        });
+    }
+
+    private void reportCompletion() {
+        mCompleted = true;
+        postIfStarted(() -> mStatusListener.onCompletion());
+    }
+
+    private void postIfStarted(@NonNull final Runnable runnable) {
+        mHandler.post(() -> {
+            if (mStarted) {
+                runnable.run();
+            }
+        });
+    }
+
+    /**
+     * LastChangeイベントを通知する。
+     *
+     * <p>任意のスレッドからコール可能。
+     *
+     * @param values LastChangeで通知された値
+     */
+    public void notifyLastChange(@NonNull final Map<String, String> values) {
+        mPollingScheduler.execute(() -> onLastChange(values));
+    }
+
+    private void onLastChange(@NonNull final Map<String, String> values) {
+        if (!mStarted || mCompleted) {
+            return;
+        }
+        if (!mEventDriven) {
+            mEventDriven = true;
+            mLastSyncTime = SystemClock.elapsedRealtime();
+        }
+        checkTrackChanged(MediaRenderer.getEventTrackUri(values));
+        final int duration = MediaRenderer.getEventDuration(values);
+        if (duration >= 0) {
+            reportDuration(duration);
+        }
+        final int progress = MediaRenderer.getEventProgress(values);
+        if (progress >= 0) {
+            rebaseProgress(progress);
+        }
+        final TransportState state = MediaRenderer.getEventTransportState(values);
+        if (state != null) {
+            onTransportState(state);
+        }
+    }
+
+    /**
+     * イベントで通知された再生状態の変化を反映する。
+     *
+     * <p>再生開始後のSTOPPEDは再生終了の候補とし、{@link #checkStopped(long)}で判定する。
+     * SetNextAVTransportURIで設定したコンテンツへの移行時など、一時的にSTOPPEDを経由する場合があるため、
+     * STOPPEDとなった時点では再生終了とはみなさない。
+     */
+    private void onTransportState(@NonNull final TransportState state) {
+        if (mState == state) {
+            return;
+        }
+        final long now = SystemClock.elapsedRealtime();
+        if (mState == TransportState.PLAYING) {
+            rebaseProgress(interpolateProgress(now));
+        } else if (state == TransportState.PLAYING) {
+            mBaseTime = now;
+            mPlayedOnce = true;
+        }
+        mState = state;
+        reportPlaying(state == TransportState.PLAYING);
+        if (state != TransportState.STOPPED) {
+            mStoppedTime = 0;
+        } else if (mPlayedOnce && mStoppedTime == 0) {
+            mStoppedTime = now;
+        }
+    }
+
+    /**
+     * イベントで通知されたSTOPPEDが継続していれば再生終了とみなす。
+     *
+     * <p>継続している間に再生中のURIが事前に設定したものへ移行した場合、
+     * {@link #checkTrackChanged(String)}で判定をやり直す。
+     *
+     * @param now 現在時刻
+     */
+    private void checkStopped(final long now) {
+        if (mState != TransportState.STOPPED || mStoppedTime == 0) {
+            return;
+        }
+        if (now - mStoppedTime >= STOPPING_TIME) {
+            reportCompletion();
+        }
     }
 
     @NonNull
@@ -99,7 +374,12 @@ public class MediaRendererModel implements PlayerModel {
             mWifiLock.release();
         }
         mStatusListener = STATUS_LISTENER;
-        mHandler.removeCallbacks(mGetPositionTask);
+        mOnTrackChangedListener = ON_TRACK_CHANGED_LISTENER;
+        mTransportReady = false;
+        if (mPollingHandle != null) {
+            mPollingHandle.cancel();
+            mPollingHandle = null;
+        }
         mMediaRenderer.stop()
                 .subscribe();
         mMediaRenderer.clearAVTransportURI()
@@ -113,6 +393,50 @@ public class MediaRendererModel implements PlayerModel {
         mStatusListener = listener;
     }
 
+    public void setOnTrackChangedListener(@Nullable final OnTrackChangedListener listener) {
+        mOnTrackChangedListener = listener != null ? listener : ON_TRACK_CHANGED_LISTENER;
+    }
+
+    /**
+     * 現在のコンテンツの後に続けて再生するコンテンツを設定する。
+     *
+     * <p>MediaRendererが対応していない場合は何もしない。
+     * {@link #setUri(Uri, ContentEntity)}による再生開始前であれば、再生開始後に設定する。
+     *
+     * @param uri    次のコンテンツのURI
+     * @param entity 次のコンテンツ
+     * @return 設定を行う場合true、MediaRendererが対応していない場合false
+     */
+    public boolean setNextUri(
+            @NonNull final Uri uri,
+            @NonNull final ContentEntity entity) {
+        if (!mMediaRenderer.isSupportSetNextUri()) {
+            return false;
+        }
+        mPendingNextUri = uri.toString();
+        mPendingNextObject = (CdsObject) entity.getObject();
+        if (mTransportReady) {
+            sendNextUri();
+        }
+        return true;
+    }
+
+    private void sendNextUri() {
+        final String uri = mPendingNextUri;
+        final CdsObject object = mPendingNextObject;
+        mPendingNextUri = null;
+        mPendingNextObject = null;
+        if (uri == null || object == null) {
+            return;
+        }
+        mMediaRenderer.setNextAVTransportURI(object, uri)
+                .observeOn(mPollingScheduler.getScheduler())
+                .subscribe(map -> {
+                    mNextUri = uri;
+                    mNextObject = object;
+                }, Log::w);
+    }
+
     @Override
     public void setUri(
             @NonNull final Uri uri,
@@ -120,13 +444,24 @@ public class MediaRendererModel implements PlayerModel {
         mMediaRenderer.clearAVTransportURI()
                 .subscribe();
         final CdsObject object = (CdsObject) entity.getObject();
+        mTransportReady = false;
+        mPendingNextUri = null;
+        mPendingNextObject = null;
         mMediaRenderer.setAVTransportURI(object, uri.toString())
                 .flatMap(map -> mMediaRenderer.play())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(map -> {
+                    mTransportReady = true;
+                    sendNextUri();
                 }, e -> onError());
-        mStoppingCount = 0;
-        mHandler.postDelayed(mGetPositionTask, 1000);
+        mPollingScheduler.execute(this::resetState);
+        if (mPollingHandle == null) {
+            mPollingHandle = mPollingScheduler.register(this::poll);
+            // LastChangeを通知しないMediaRendererでは再生終了をポーリングで検出するため、画面消灯中も継続する
+            mPollingHandle.setRunInBackground(true);
+        }
+        mPollingHandle.setActive(true);
+        mPollingHandle.pollAfter(POLLING_INTERVAL);
         ChapterFetcherFactory.create(object)
                 .subscribe(this::setChapterList, Log::w);
         mStarted = true;
@@ -174,9 +509,14 @@ public class MediaRendererModel implements PlayerModel {
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(map -> {
                 }, e -> onError());
-        mStoppingCount = 0;
-        mHandler.removeCallbacks(mGetPositionTask);
-        mHandler.postDelayed(mGetPositionTask, 1000);
+        mPollingScheduler.execute(() -> {
+            mStoppedTime = 0;
+            mLastSyncTime = 0;
+            rebaseProgress(position);
+        });
+        if (mPollingHandle != null) {
+            mPollingHandle.boost();
+        }
     }
 
     @Override
@@ -228,42 +568,44 @@ public class MediaRendererModel implements PlayerModel {
     }
 
     private void onGetPositionInfo(final Map<String, String> result) {
-        if (result == null) {
-            mHandler.postDelayed(mGetPositionTask, 1000);
+        if (result == null || !mStarted || mCompleted) {
             return;
         }
+        checkTrackChanged(MediaRenderer.getTrackUri(result));
         final int duration = MediaRenderer.getDuration(result);
         final int progress = MediaRenderer.getProgress(result);
         if (duration < 0 || progress < 0) {
-            mHandler.postDelayed(mGetPositionTask, 1000);
             return;
         }
-        if (mDuration != duration) {
-            mDuration = duration;
-            mStatusListener.notifyDuration(duration);
+        reportDuration(duration);
+        rebaseProgress(progress);
+        reportProgress(progress);
+        final Handle handle = mPollingHandle;
+        if (!mEventDriven && mState == TransportState.PLAYING && handle != null) {
+            handle.pollAfter(POLLING_INTERVAL - progress % POLLING_INTERVAL);
         }
-        if (mProgress != progress) {
-            mProgress = progress;
-            mStatusListener.notifyProgress(progress);
-        }
-        final long interval = 1000 - progress % 1000;
-        mHandler.postDelayed(mGetPositionTask, interval);
     }
 
     private void onGetTransportInfo(final Map<String, String> result) {
-        if (result == null) {
+        if (result == null || !mStarted || mCompleted) {
             return;
         }
         final TransportState state = MediaRenderer.getCurrentTransportState(result);
-        final boolean playing = state == TransportState.PLAYING;
-        if (mPlaying != playing) {
-            mPlaying = playing;
-            mStatusListener.notifyPlayingState(playing);
+        if (mEventDriven) {
+            onTransportState(state);
+            return;
+        }
+        mState = state;
+        reportPlaying(state == TransportState.PLAYING);
+        if (state != TransportState.STOPPED) {
+            mStoppedTime = 0;
+            return;
         }
-        mStoppingCount = state == TransportState.STOPPED ? mStoppingCount + 1 : 0;
-        if (mStoppingCount > STOPPING_THRESHOLD) {
-            mHandler.removeCallbacks(mGetPositionTask);
-            mStatusListener.onCompletion();
+        final long now = SystemClock.elapsedRealtime();
+        if (mStoppedTime == 0) {
+            mStoppedTime = now;
+        } else if (now - mStoppedTime >= STOPPING_TIME) {
+            reportCompletion();
         }
     }
 
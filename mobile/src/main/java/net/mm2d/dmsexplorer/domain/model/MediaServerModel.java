@@ -16,16 +16,25 @@ import android.support.annotation.Nullable;
 
 import net.mm2d.android.upnp.cds.CdsObject;
 import net.mm2d.android.upnp.cds.MediaServer;
+import net.mm2d.dmsexplorer.domain.cache.BrowseCache;
+import net.mm2d.dmsexplorer.domain.cache.BrowsePrefetcher;
+import net.mm2d.dmsexplorer.domain.cache.DirectoryLruCache;
 import net.mm2d.dmsexplorer.domain.entity.ContentDirectoryEntity;
 import net.mm2d.dmsexplorer.domain.entity.ContentEntity;
+import net.mm2d.dmsexplorer.domain.entity.ContentType;
 import net.mm2d.dmsexplorer.domain.entity.DirectoryEntity;
+import net.mm2d.dmsexplorer.domain.entity.PagedEntityList;
+import net.mm2d.log.Log;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 
 /**
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
@@ -44,11 +53,20 @@ public class MediaServerModel implements ExploreListener {
     }
 
     private static final String DELIMITER = " < ";
+    private static final int PIPELINE_WINDOW = 4;
+    private static final int PREFETCH_COUNT = 3;
+    private static final int WINDOWED_THRESHOLD = 2000;
     private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Context mContext;
     private final PlaybackTargetObserver mPlaybackTargetObserver;
     private final MediaServer mMediaServer;
+    private final BrowseCache mBrowseCache;
+    private final DirectoryLruCache mDirectoryCache = new DirectoryLruCache();
+    private final BrowsePrefetcher mPrefetcher;
     private final LinkedList<ContentDirectoryEntity> mHistoryStack = new LinkedList<>();
     private String mPath;
+    @Nullable
+    private Disposable mProbeDisposable;
     @NonNull
     private final static ExploreListener EXPLORE_LISTENER = new ExploreListenerAdapter();
     @NonNull
@@ -57,8 +75,12 @@ public class MediaServerModel implements ExploreListener {
     public MediaServerModel(
             @NonNull final Context context,
             @NonNull final MediaServer server,
+            @NonNull final BrowseCache browseCache,
             @NonNull final PlaybackTargetObserver observer) {
+        mContext = context.getApplicationContext();
         mMediaServer = server;
+        mBrowseCache = browseCache;
+        mPrefetcher = new BrowsePrefetcher(mContext, server);
         mPlaybackTargetObserver = observer;
     }
 
@@ -68,10 +90,23 @@ public class MediaServerModel implements ExploreListener {
     }
 
     public void initialize() {
+        mContext.registerComponentCallbacks(mDirectoryCache);
         prepareEntry(new ContentDirectoryEntity());
+        // 並行したリクエストを処理できることを確認できたサーバでのみパイプラインを有効にする
+        mProbeDisposable = mMediaServer.probePipeline(PIPELINE_WINDOW)
+                .subscribe(() -> {
+                }, Log::w);
     }
 
     public void terminate() {
+        if (mProbeDisposable != null) {
+            mProbeDisposable.dispose();
+            mProbeDisposable = null;
+        }
+        mContext.unregisterComponentCallbacks(mDirectoryCache);
+        mBrowseCache.onUnsubscribe(mMediaServer);
+        mDirectoryCache.clear();
+        mPrefetcher.clear();
         setExploreListener(null);
         for (final ContentDirectoryEntity directory : mHistoryStack) {
             directory.terminate();
@@ -133,7 +168,31 @@ public class MediaServerModel implements ExploreListener {
         mPath = makePath();
         directory.setExploreListener(this);
         directory.clearState();
-        directory.startBrowse(mMediaServer.browse(directory.getParentId()));
+        final String id = directory.getParentId();
+        if (directory.getChildCount() >= WINDOWED_THRESHOLD) {
+            directory.startWindowed(PagedEntityList.load(mMediaServer, id));
+            return;
+        }
+        final List<ContentEntity> cache = mDirectoryCache.get(id);
+        if (cache != null) {
+            directory.restore(cache);
+            mBrowseCache.validate(mMediaServer, id, () -> onStale(directory));
+            return;
+        }
+        final Observable<CdsObject> prefetched = mPrefetcher.take(id);
+        if (prefetched != null) {
+            directory.startBrowse(prefetched);
+            return;
+        }
+        directory.startBrowse(mBrowseCache.browse(mMediaServer, id, () -> onStale(directory)));
+    }
+
+    private void onStale(@NonNull final ContentDirectoryEntity directory) {
+        mHandler.post(() -> {
+            if (mHistoryStack.peekFirst() == directory) {
+                reload();
+            }
+        });
     }
 
     public boolean exitToParent() {
@@ -148,6 +207,9 @@ public class MediaServerModel implements ExploreListener {
                 return;
             }
             directory.terminate();
+            if (!directory.isInProgress() && !directory.isWindowed()) {
+                mDirectoryCache.put(directory.getParentId(), directory.getEntities());
+            }
             mPath = makePath();
             final ContentDirectoryEntity parent = mHistoryStack.peekFirst();
             if (parent == null) {
@@ -166,8 +228,64 @@ public class MediaServerModel implements ExploreListener {
         if (directory == null) {
             return;
         }
-        directory.clearState();
-        directory.startBrowse(mMediaServer.browse(directory.getParentId()));
+        if (directory.isWindowed()) {
+            directory.clearState();
+            directory.startWindowed(PagedEntityList.load(mMediaServer, directory.getParentId()));
+            return;
+        }
+        mDirectoryCache.remove(directory.getParentId());
+        mPrefetcher.remove(directory.getParentId());
+        directory.refresh(mBrowseCache.refresh(mMediaServer, directory.getParentId()));
+    }
+
+    /**
+     * 指定されたコンテンツがコンテナであれば、その先頭ページを優先して先読みする。
+     *
+     * <p>フォーカスが当たったなど、次に開かれる可能性が高い場合にコールする。
+     *
+     * @param entity コンテンツ
+     */
+    public void prefetch(@NonNull final ContentEntity entity) {
+        final String id = getContainerId(entity);
+        if (id == null || mDirectoryCache.get(id) != null) {
+            return;
+        }
+        mPrefetcher.prefetchFirst(id);
+    }
+
+    private void prefetchChildren() {
+        final ContentDirectoryEntity directory = mHistoryStack.peekFirst();
+        if (directory == null || directory.isInProgress()) {
+            return;
+        }
+        // onStartで一時停止しているため、先読みする子要素がなくても再開する
+        if (!directory.isWindowed()) {
+            mPrefetcher.prefetch(collectChildContainerIds(directory));
+        }
+        mPrefetcher.resume();
+    }
+
+    @NonNull
+    private List<String> collectChildContainerIds(@NonNull final ContentDirectoryEntity directory) {
+        final List<String> ids = new ArrayList<>();
+        for (final ContentEntity entity : directory.getEntities()) {
+            if (ids.size() >= PREFETCH_COUNT) {
+                break;
+            }
+            final String id = getContainerId(entity);
+            if (id != null && mDirectoryCache.get(id) == null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @Nullable
+    private static String getContainerId(@NonNull final ContentEntity entity) {
+        if (entity.getType() != ContentType.CONTAINER) {
+            return null;
+        }
+        return ((CdsObject) entity.getObject()).getObjectId();
     }
 
     public void setExploreListener(@Nullable final ExploreListener listener) {
@@ -217,6 +335,17 @@ public class MediaServerModel implements ExploreListener {
         return entry.getSelectedEntity();
     }
 
+    /**
+     * 選択状態を変更せず、{@link #selectPreviousEntity(int)}で選択される項目を返す。
+     *
+     * @param scanMode スキャンモード
+     * @return 前の項目、ない場合null
+     */
+    @Nullable
+    public ContentEntity peekPreviousEntity(@ScanMode final int scanMode) {
+        return findPrevious(getSelectedEntity(), scanMode);
+    }
+
     public boolean selectPreviousEntity(@ScanMode final int scanMode) {
         final ContentEntity nextEntity = findPrevious(getSelectedEntity(), scanMode);
         if (nextEntity == null) {
@@ -253,6 +382,9 @@ public class MediaServerModel implements ExploreListener {
         }
         for (int i = index - 1; i >= 0; i--) {
             final ContentEntity target = list.get(i);
+            if (target.isPlaceholder()) {
+                return null;
+            }
             if (isValidEntity(current, target)) {
                 return target;
             }
@@ -266,8 +398,14 @@ public class MediaServerModel implements ExploreListener {
             @NonNull final List<ContentEntity> list) {
         final int size = list.size();
         final int index = list.indexOf(current);
+        if (index < 0) {
+            return null;
+        }
         for (int i = (size + index - 1) % size; i != index; i = (size + i - 1) % size) {
             final ContentEntity target = list.get(i);
+            if (target.isPlaceholder()) {
+                return null;
+            }
             if (isValidEntity(current, target)) {
                 return target;
             }
@@ -275,6 +413,17 @@ public class MediaServerModel implements ExploreListener {
         return null;
     }
 
+    /**
+     * 選択状態を変更せず、{@link #selectNextEntity(int)}で選択される項目を返す。
+     *
+     * @param scanMode スキャンモード
+     * @return 次の項目、ない場合null
+     */
+    @Nullable
+    public ContentEntity peekNextEntity(@ScanMode final int scanMode) {
+        return findNext(getSelectedEntity(), scanMode);
+    }
+
     public boolean selectNextEntity(@ScanMode final int scanMode) {
         final ContentEntity nextEntity = findNext(getSelectedEntity(), scanMode);
         if (nextEntity == null) {
@@ -309,11 +458,14 @@ public class MediaServerModel implements ExploreListener {
             @NonNull final List<ContentEntity> list) {
         final int size = list.size();
         final int index = list.indexOf(current);
-        if (index + 1 == size) {
+        if (index < 0 || index + 1 == size) {
             return null;
         }
         for (int i = index + 1; i < size; i++) {
             final ContentEntity target = list.get(i);
+            if (target.isPlaceholder()) {
+                return null;
+            }
             if (isValidEntity(current, target)) {
                 return target;
             }
@@ -327,8 +479,14 @@ public class MediaServerModel implements ExploreListener {
             @NonNull final List<ContentEntity> list) {
         final int size = list.size();
         final int index = list.indexOf(current);
+        if (index < 0) {
+            return null;
+        }
         for (int i = (index + 1) % size; i != index; i = (i + 1) % size) {
             final ContentEntity target = list.get(i);
+            if (target.isPlaceholder()) {
+                return null;
+            }
             if (isValidEntity(current, target)) {
                 return target;
             }
@@ -358,6 +516,7 @@ public class MediaServerModel implements ExploreListener {
 
     @Override
     public void onStart() {
+        mPrefetcher.pause();
         mExploreListener.onStart();
     }
 
@@ -369,5 +528,6 @@ public class MediaServerModel implements ExploreListener {
     @Override
     public void onComplete() {
         mExploreListener.onComplete();
+        mHandler.post(this::prefetchChildren);
     }
 }
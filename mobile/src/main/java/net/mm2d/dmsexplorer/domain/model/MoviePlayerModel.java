@@ -32,8 +32,9 @@ public class MoviePlayerModel extends MediaPlayerModel {
 
     public MoviePlayerModel(
             @NonNull final Context context,
-            @NonNull final VideoView videoView) {
-        super(new VideoViewControl(videoView));
+            @NonNull final VideoView videoView,
+            @NonNull final PollingScheduler pollingScheduler) {
+        super(new VideoViewControl(videoView), pollingScheduler);
         mContext = context;
         mVideoView = videoView;
     }
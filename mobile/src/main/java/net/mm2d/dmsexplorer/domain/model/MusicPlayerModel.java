@@ -32,14 +32,17 @@ public class MusicPlayerModel extends MediaPlayerModel {
     @NonNull
     private final MediaPlayer mMediaPlayer;
 
-    public MusicPlayerModel(@NonNull final Context context) {
-        this(context, new MediaPlayer());
+    public MusicPlayerModel(
+            @NonNull final Context context,
+            @NonNull final PollingScheduler pollingScheduler) {
+        this(context, new MediaPlayer(), pollingScheduler);
     }
 
     private MusicPlayerModel(
             @NonNull final Context context,
-            @NonNull final MediaPlayer mediaPlayer) {
-        super(new MediaPlayerControl(mediaPlayer));
+            @NonNull final MediaPlayer mediaPlayer,
+            @NonNull final PollingScheduler pollingScheduler) {
+        super(new MediaPlayerControl(mediaPlayer), pollingScheduler);
         mContext = context;
         mMediaPlayer = mediaPlayer;
     }
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.model;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import net.mm2d.android.util.ActivityLifecycleCallbacksAdapter;
+import net.mm2d.log.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * 再生位置などの定期的な状態取得を一つのバックグラウンドスレッドのタイマーでまとめて実行する。
+ *
+ * <p>取得間隔は状態に応じて変化させる。
+ * シーク直後は短く、再生中は1秒、停止中は長くし、
+ * アプリのActivityが一つも表示されていない間は取得を停止する。
+ * ただし{@link Handle#setRunInBackground(boolean)}を指定したタスクは、
+ * 再生終了の検出などのため非表示の間も長い間隔で実行を続ける。
+ * 実行時刻が近いタスクはまとめて実行し、タイマーの起床回数を抑える。
+ *
+ * <p>タスクはこのクラスのスレッドで実行する。
+ * タスクの状態は{@link #getScheduler()}もしくは{@link #execute(Runnable)}を使ってこのスレッドに閉じ込め、
+ * 変化があった場合のみメインスレッドへ通知することを想定している。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class PollingScheduler extends ActivityLifecycleCallbacksAdapter {
+    private static final long FAST_INTERVAL = 250;
+    private static final long NORMAL_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+    private static final long SLOW_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+    /**
+     * シーク後、短い間隔で取得する期間。
+     */
+    private static final long FAST_PERIOD = TimeUnit.SECONDS.toMillis(3);
+    /**
+     * 実行時刻がこの範囲内のタスクはまとめて実行する。
+     */
+    private static final long COALESCE_WINDOW = 50;
+
+    /**
+     * 定期的に実行するタスク。
+     */
+    public interface Task {
+        /**
+         * 状態を取得する。
+         *
+         * <p>{@link PollingScheduler}のスレッドで実行する。
+         *
+         * @return 次回実行までの希望する間隔(ms)、状態に応じた間隔より短い場合のみ採用する。0以下の場合は指定なし
+         */
+        long poll();
+    }
+
+    @NonNull
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor();
+    @NonNull
+    private final Scheduler mScheduler = Schedulers.from(mExecutor);
+    @NonNull
+    private final List<Handle> mHandles = new ArrayList<>();
+    @Nullable
+    private ScheduledFuture<?> mFuture;
+    private boolean mVisible;
+    private int mStartedCount;
+
+    /**
+     * タスクを登録する。
+     *
+     * <p>表示中であれば即座に実行を開始する。
+     *
+     * @param task タスク
+     * @return 登録を操作するHandle
+     */
+    @NonNull
+    public Handle register(@NonNull final Task task) {
+        final Handle handle = new Handle(task);
+        execute(() -> {
+            mHandles.add(handle);
+            reschedule();
+        });
+        return handle;
+    }
+
+    /**
+     * タスクと同じスレッドで実行する。
+     *
+     * @param runnable 実行する処理
+     */
+    public void execute(@NonNull final Runnable runnable) {
+        mExecutor.execute(() -> {
+            try {
+                runnable.run();
+            } catch (final RuntimeException e) {
+                Log.w(e);
+            }
+        });
+    }
+
+    /**
+     * タスクと同じスレッドのScheduler。
+     *
+     * @return Scheduler
+     */
+    @NonNull
+    public Scheduler getScheduler() {
+        return mScheduler;
+    }
+
+    @Override
+    public void onActivityStarted(final Activity activity) {
+        mStartedCount++;
+        if (mStartedCount == 1) {
+            execute(() -> setVisible(true));
+        }
+    }
+
+    @Override
+    public void onActivityStopped(final Activity activity) {
+        mStartedCount--;
+        if (mStartedCount == 0) {
+            execute(() -> setVisible(false));
+        }
+    }
+
+    private void setVisible(final boolean visible) {
+        mVisible = visible;
+        if (visible) {
+            // 非表示の間に変化した状態を即座に反映させる
+            for (final Handle handle : mHandles) {
+                handle.mNextTime = 0;
+            }
+        }
+        reschedule();
+    }
+
+    private void onTimer() {
+        mFuture = null;
+        final long now = SystemClock.elapsedRealtime();
+        for (final Handle handle : new ArrayList<>(mHandles)) {
+            if (handle.isRunnable() && handle.mNextTime <= now + COALESCE_WINDOW) {
+                handle.run(now);
+            }
+        }
+        reschedule();
+    }
+
+    private void reschedule() {
+        if (mFuture != null) {
+            mFuture.cancel(false);
+            mFuture = null;
+        }
+        long next = Long.MAX_VALUE;
+        for (final Handle handle : mHandles) {
+            if (handle.isRunnable()) {
+                next = Math.min(next, handle.mNextTime);
+            }
+        }
+        if (next == Long.MAX_VALUE) {
+            return;
+        }
+        final long delay = Math.max(next - SystemClock.elapsedRealtime(), 0);
+        mFuture = mExecutor.schedule(this::onTimer, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 登録したタスクの操作を行う。
+     *
+     * <p>各メソッドは任意のスレッドからコール可能。
+     */
+    public class Handle {
+        @NonNull
+        private final Object mLock = new Object();
+        @NonNull
+        private final Task mTask;
+        private boolean mCanceled;
+        private boolean mActive;
+        private boolean mRunInBackground;
+        private long mFastUntil;
+        private long mNextTime;
+
+        private Handle(@NonNull final Task task) {
+            mTask = task;
+        }
+
+        /**
+         * 再生中など、状態が頻繁に変化する状態であるかを設定する。
+         *
+         * @param active 状態が頻繁に変化する場合true
+         */
+        public void setActive(final boolean active) {
+            execute(() -> {
+                if (mActive == active) {
+                    return;
+                }
+                mActive = active;
+                update(0);
+            });
+        }
+
+        /**
+         * アプリのActivityが表示されていない間も実行を続けるかを設定する。
+         *
+         * <p>非表示の間は状態によらず長い間隔で実行する。
+         *
+         * @param runInBackground 非表示の間も実行する場合true
+         */
+        public void setRunInBackground(final boolean runInBackground) {
+            execute(() -> {
+                mRunInBackground = runInBackground;
+                reschedule();
+            });
+        }
+
+        /**
+         * シークなどの操作直後、一定期間短い間隔で取得させる。
+         */
+        public void boost() {
+            execute(() -> {
+                mFastUntil = SystemClock.elapsedRealtime() + FAST_PERIOD;
+                update(0);
+            });
+        }
+
+        /**
+         * 次回の実行を指定時間後に変更する。
+         *
+         * @param delay 次回実行までの時間(ms)
+         */
+        public void pollAfter(final long delay) {
+            execute(() -> update(delay));
+        }
+
+        /**
+         * 登録を解除する。
+         *
+         * <p>実行中のタスクがあれば終了を待つため、戻った後にタスクが実行されることはない。
+         */
+        public void cancel() {
+            synchronized (mLock) {
+                mCanceled = true;
+            }
+            execute(() -> {
+                mHandles.remove(this);
+                reschedule();
+            });
+        }
+
+        private boolean isRunnable() {
+            return mVisible || mRunInBackground;
+        }
+
+        private void update(final long delay) {
+            mNextTime = SystemClock.elapsedRealtime() + delay;
+            reschedule();
+        }
+
+        private void run(final long now) {
+            long hint = 0;
+            synchronized (mLock) {
+                if (mCanceled) {
+                    return;
+                }
+                try {
+                    hint = mTask.poll();
+                } catch (final RuntimeException e) {
+                    Log.w(e);
+                }
+            }
+            if (!mVisible) {
+                mNextTime = now + SLOW_INTERVAL;
+                return;
+            }
+            final long interval = getInterval(now);
+            mNextTime = now + (hint > 0 ? Math.min(hint, interval) : interval);
+        }
+
+        private long getInterval(final long now) {
+            if (now < mFastUntil) {
+                return FAST_INTERVAL;
+            }
+            return mActive ? NORMAL_INTERVAL : SLOW_INTERVAL;
+        }
+    }
+}
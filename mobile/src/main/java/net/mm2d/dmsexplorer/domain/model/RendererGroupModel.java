@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.model;
+
+import android.content.Context;
+import android.net.Uri;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import net.mm2d.android.upnp.avt.MediaRenderer;
+import net.mm2d.android.upnp.avt.TransportState;
+import net.mm2d.android.upnp.cds.CdsObject;
+import net.mm2d.dmsexplorer.domain.entity.ContentEntity;
+import net.mm2d.dmsexplorer.domain.model.PollingScheduler.Handle;
+import net.mm2d.log.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.functions.Function;
+
+/**
+ * 複数のMediaRendererで同じコンテンツを再生するPlayerModel。
+ *
+ * <p>各操作は全MediaRendererへ並行して送信し、同時に実行する数は{@link #MAX_CONCURRENCY}までに制限する。
+ * そのため、グループ全体の操作にかかる時間は各機器の応答時間の合計ではなく、最も遅い機器の応答時間程度となる。
+ *
+ * <p>機器ごとに応答時間の実績から操作が届くまでの時間を推定し、
+ * 再生開始とシークは全機器に同時に届くよう、速い機器ほど遅らせて送信する。
+ *
+ * <p>状態は全機器から並行して取得し、{@link PollingScheduler}のスレッドで集約して変化があった場合のみ通知する。
+ * 前回の取得が完了するまでは次の取得を行わない。
+ * 再生位置と長さは先頭の機器のもの、再生状態はいずれかの機器が再生中であれば再生中とし、
+ * 全機器のSTOPPEDが継続した場合に再生終了とみなす。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class RendererGroupModel implements PlayerModel {
+    private static final String TAG = RendererGroupModel.class.getSimpleName();
+    /**
+     * 同時に実行する操作の最大数。
+     *
+     * <p>再生開始の同期のための遅延中の機器はこの数に含まない。
+     */
+    private static final int MAX_CONCURRENCY = 8;
+    private static final long STOPPING_TIME = TimeUnit.SECONDS.toMillis(5);
+    private static final StatusListener STATUS_LISTENER = new StatusListenerAdapter();
+
+    @NonNull
+    private StatusListener mStatusListener = STATUS_LISTENER;
+    @NonNull
+    private final List<Member> mMembers;
+    @NonNull
+    private final PollingScheduler mPollingScheduler;
+    @Nullable
+    private volatile Handle mPollingHandle;
+    @NonNull
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    @NonNull
+    private final WifiManager.WifiLock mWifiLock;
+    private boolean mPlaying;
+    private int mProgress;
+    private int mDuration;
+    private volatile boolean mStarted;
+
+    // 以下はPollingSchedulerのスレッドで使用する
+    private boolean mCompleted;
+    private boolean mPolling;
+    private int mGeneration;
+    private long mStoppedTime;
+    private boolean mReportedPlaying;
+    private int mReportedProgress;
+    private int mReportedDuration;
+
+    public RendererGroupModel(
+            @NonNull final Context context,
+            @NonNull final List<MediaRenderer> renderers,
+            @NonNull final PollingScheduler pollingScheduler) {
+        if (renderers.isEmpty()) {
+            throw new IllegalArgumentException("renderers is empty");
+        }
+        final WifiManager wm = (WifiManager) context.getApplicationContext()
+                .getSystemService(Context.WIFI_SERVICE);
+        mWifiLock = wm.createWifiLock(WifiManager.WIFI_MODE_FULL, TAG);
+        mWifiLock.setReferenceCounted(true);
+        mWifiLock.acquire();
+        final List<Member> members = new ArrayList<>(renderers.size());
+        for (final MediaRenderer renderer : renderers) {
+            members.add(new Member(renderer));
+        }
+        mMembers = Collections.unmodifiableList(members);
+        mPollingScheduler = pollingScheduler;
+    }
+
+    @NonNull
+    public List<MediaRenderer> getMediaRenderers() {
+        final List<MediaRenderer> list = new ArrayList<>(mMembers.size());
+        for (final Member member : mMembers) {
+            list.add(member.mRenderer);
+        }
+        return list;
+    }
+
+    /**
+     * 全機器へ並行して操作を行う。
+     *
+     * <p>一部の機器で失敗しても他の機器の操作は継続し、全機器で失敗した場合のみエラーとする。
+     *
+     * @param action 機器ごとの操作
+     * @return 全機器の操作の完了
+     */
+    @NonNull
+    private Completable fanOut(@NonNull final Function<Member, Single<Map<String, String>>> action) {
+        return fanOut(Flowable.fromIterable(mMembers), action);
+    }
+
+    /**
+     * 通知された機器から順に操作を行う。
+     *
+     * @param members 操作を行う機器
+     * @param action  機器ごとの操作
+     * @return 全機器の操作の完了
+     */
+    @NonNull
+    private Completable fanOut(
+            @NonNull final Flowable<Member> members,
+            @NonNull final Function<Member, Single<Map<String, String>>> action) {
+        return members
+                .flatMapSingle(member -> measure(member, action.apply(member))
+                        .map(result -> true)
+                        .onErrorReturn(e -> {
+                            Log.w(null, member.mRenderer.getFriendlyName() + ":", e);
+                            return false;
+                        }), false, MAX_CONCURRENCY)
+                .toList()
+                .flatMapCompletable(results -> results.contains(true) ? Completable.complete()
+                        : Completable.error(new IllegalStateException("all renderers failed")));
+    }
+
+    /**
+     * 全機器へ同時に届くよう、推定した遅延に応じて送信時刻をずらして操作を行う。
+     *
+     * @param action 機器ごとの操作
+     * @return 全機器の操作の完了
+     */
+    @NonNull
+    private Completable fanOutAligned(@NonNull final Function<Member, Single<Map<String, String>>> action) {
+        long max = 0;
+        for (final Member member : mMembers) {
+            max = Math.max(max, member.getLatency());
+        }
+        final long slowest = max;
+        // 遅延の待機で同時実行数の枠を占有しないよう、全機器の待機を並行して行い、待機を終えた機器から操作する
+        return fanOut(Flowable.fromIterable(mMembers)
+                .flatMapSingle(member -> Single.timer(slowest - member.getLatency(), TimeUnit.MILLISECONDS)
+                        .map(ignored -> member)), action);
+    }
+
+    /**
+     * 操作の応答時間から、操作が機器に届くまでの時間を計測する。
+     */
+    @NonNull
+    private static Single<Map<String, String>> measure(
+            @NonNull final Member member,
+            @NonNull final Single<Map<String, String>> action) {
+        return Single.defer(() -> {
+            final long start = SystemClock.elapsedRealtime();
+            return action.doOnSuccess(result ->
+                    member.updateLatency((SystemClock.elapsedRealtime() - start) / 2));
+        });
+    }
+
+    private long poll() {
+        if (mCompleted || mPolling) {
+            return 0;
+        }
+        mPolling = true;
+        final int generation = mGeneration;
+        Flowable.fromIterable(mMembers)
+                .flatMapMaybe(this::requestStatus, false, MAX_CONCURRENCY)
+                .toList()
+                .observeOn(mPollingScheduler.getScheduler())
+                .doFinally(() -> mPolling = false)
+                .subscribe(statuses -> aggregate(generation, statuses), Log::w);
+        return 0;
+    }
+
+    /**
+     * 機器の状態を取得する。
+     *
+     * <p>取得に失敗した場合は前回の状態を維持するため、結果を返さない。
+     */
+    @NonNull
+    private Maybe<Status> requestStatus(@NonNull final Member member) {
+        final MediaRenderer renderer = member.mRenderer;
+        return Single.zip(
+                measure(member, renderer.getTransportInfo()),
+                renderer.getPositionInfo(),
+                (transport, position) -> new Status(member,
+                        MediaRenderer.getCurrentTransportState(transport),
+                        MediaRenderer.getDuration(position),
+                        MediaRenderer.getProgress(position)))
+                .toMaybe()
+                .onErrorComplete();
+    }
+
+    /**
+     * 取得した状態を反映し、全機器の状態を集約して通知する。
+     *
+     * @param generation 取得開始時点の世代、再生対象の変更前に開始した取得の結果は破棄する
+     * @param statuses   取得できた機器の状態
+     */
+    private void aggregate(
+            final int generation,
+            @NonNull final List<Status> statuses) {
+        if (!mStarted || mCompleted || generation != mGeneration) {
+            return;
+        }
+        for (final Status status : statuses) {
+            final Member member = status.mMember;
+            member.mState = status.mState;
+            member.mDuration = status.mDuration;
+            member.mProgress = status.mProgress;
+        }
+        boolean playing = false;
+        boolean stopped = true;
+        Member leader = null;
+        for (final Member member : mMembers) {
+            final TransportState state = member.mState;
+            playing |= state == TransportState.PLAYING;
+            stopped &= state == TransportState.STOPPED;
+            if (leader == null && member.mDuration >= 0 && member.mProgress >= 0) {
+                leader = member;
+            }
+        }
+        reportPlaying(playing);
+        if (leader != null) {
+            reportDuration(leader.mDuration);
+            reportProgress(leader.mProgress);
+        }
+        if (!stopped) {
+            mStoppedTime = 0;
+            return;
+        }
+        final long now = SystemClock.elapsedRealtime();
+        if (mStoppedTime == 0) {
+            mStoppedTime = now;
+        } else if (now - mStoppedTime >= STOPPING_TIME) {
+            mCompleted = true;
+            postIfStarted(() -> mStatusListener.onCompletion());
+        }
+    }
+
+    private void resetState() {
+        mGeneration++;
+        mCompleted = false;
+        mStoppedTime = 0;
+        mReportedPlaying = false;
+        mReportedProgress = -1;
+        mReportedDuration = -1;
+        for (final Member member : mMembers) {
+            member.mState = null;
+            member.mDuration = -1;
+            member.mProgress = -1;
+        }
+    }
+
+    private void reportProgress(final int progress) {
+        if (mReportedProgress == progress) {
+            return;
+        }
+        mReportedProgress = progress;
+        postIfStarted(() -> {
+            mProgress = progress;
+            mStatusListener.notifyProgress(progress);
+        });
+    }
+
+    private void reportDuration(final int duration) {
+        if (mReportedDuration == duration) {
+            return;
+        }
+        mReportedDuration = duration;
+        postIfStarted(() -> {
+            mDuration = duration;
+            mStatusListener.notifyDuration(duration);
+        });
+    }
+
+    private void reportPlaying(final boolean playing) {
+        if (mReportedPlaying == playing) {
+            return;
+        }
+        mReportedPlaying = playing;
+        final Handle handle = mPollingHandle;
+        if (handle != null) {
+            handle.setActive(playing);
+        }
+        postIfStarted(() -> {
+            mPlaying = playing;
+            mStatusListener.notifyPlayingState(playing);
+        });
+    }
+
+    private void postIfStarted(@NonNull final Runnable runnable) {
+        mHandler.post(() -> {
+            if (mStarted) {
+                runnable.run();
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        final List<String> names = new ArrayList<>(mMembers.size());
+        for (final Member member : mMembers) {
+            names.add(member.mRenderer.getFriendlyName());
+        }
+        return TextUtils.join(", ", names);
+    }
+
+    @Override
+    public boolean canPause() {
+        for (final Member member : mMembers) {
+            if (!member.mRenderer.isSupportPause()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void terminate() {
+        if (!mStarted) {
+            return;
+        }
+        if (mWifiLock.isHeld()) {
+            mWifiLock.release();
+        }
+        mStatusListener = STATUS_LISTENER;
+        if (mPollingHandle != null) {
+            mPollingHandle.cancel();
+            mPollingHandle = null;
+        }
+        fanOut(member -> member.mRenderer.stop())
+                .subscribe(() -> {
+                }, Log::w);
+        mStarted = false;
+    }
+
+    @Override
+    public void setStatusListener(@NonNull final StatusListener listener) {
+        mStatusListener = listener;
+    }
+
+    @Override
+    public void setUri(
+            @NonNull final Uri uri,
+            @Nullable final ContentEntity entity) {
+        final CdsObject object = (CdsObject) entity.getObject();
+        final String uriString = uri.toString();
+        fanOut(member -> member.mRenderer.setAVTransportURI(object, uriString))
+                .andThen(fanOutAligned(member -> member.mRenderer.play()))
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(() -> {
+                }, e -> onError());
+        mPollingScheduler.execute(this::resetState);
+        if (mPollingHandle == null) {
+            mPollingHandle = mPollingScheduler.register(this::poll);
+            // 再生終了を検出するため、バックグラウンドでも低頻度で取得を継続する
+            mPollingHandle.setRunInBackground(true);
+        }
+        mPollingHandle.setActive(true);
+        mStarted = true;
+    }
+
+    @Override
+    public void restoreSaveProgress(final int progress) {
+        mProgress = progress;
+    }
+
+    @Override
+    public int getProgress() {
+        return mProgress;
+    }
+
+    @Override
+    public int getDuration() {
+        return mDuration;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mPlaying;
+    }
+
+    @Override
+    public void play() {
+        fanOutAligned(member -> member.mRenderer.play())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(() -> {
+                }, e -> onError());
+    }
+
+    @Override
+    public void pause() {
+        fanOut(member -> member.mRenderer.pause())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(() -> {
+                }, e -> onError());
+    }
+
+    @Override
+    public void seekTo(final int position) {
+        fanOutAligned(member -> member.mRenderer.seek(position))
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(() -> {
+                }, e -> onError());
+        mPollingScheduler.execute(() -> mStoppedTime = 0);
+        if (mPollingHandle != null) {
+            mPollingHandle.boost();
+        }
+    }
+
+    @Override
+    public boolean next() {
+        return false;
+    }
+
+    @Override
+    public boolean previous() {
+        return false;
+    }
+
+    private void onError() {
+        mStatusListener.onError(0, 0);
+    }
+
+    /**
+     * 取得した機器の状態。
+     */
+    private static class Status {
+        @NonNull
+        private final Member mMember;
+        @Nullable
+        private final TransportState mState;
+        private final int mDuration;
+        private final int mProgress;
+
+        Status(
+                @NonNull final Member member,
+                @Nullable final TransportState state,
+                final int duration,
+                final int progress) {
+            mMember = member;
+            mState = state;
+            mDuration = duration;
+            mProgress = progress;
+        }
+    }
+
+    /**
+     * グループを構成する機器。
+     */
+    private static class Member {
+        /**
+         * 遅延の推定値を更新する際の新しい計測値の重み。
+         */
+        private static final float LATENCY_WEIGHT = 0.25f;
+        @NonNull
+        private final MediaRenderer mRenderer;
+        private long mLatency = -1;
+
+        // 以下はPollingSchedulerのスレッドで使用する
+        @Nullable
+        private TransportState mState;
+        private int mDuration = -1;
+        private int mProgress = -1;
+
+        Member(@NonNull final MediaRenderer renderer) {
+            mRenderer = renderer;
+        }
+
+        /**
+         * 操作が届くまでの時間の推定値を返す。
+         *
+         * @return 推定値(ms)、計測前は0
+         */
+        synchronized long getLatency() {
+            return Math.max(mLatency, 0);
+        }
+
+        synchronized void updateLatency(final long latency) {
+            mLatency = mLatency < 0 ? latency
+                    : (long) (mLatency + (latency - mLatency) * LATENCY_WEIGHT);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.photo;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import net.mm2d.dmsexplorer.util.FileDownloader;
+import net.mm2d.log.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.SingleSubject;
+
+/**
+ * 静止画を一時ファイルへ取得し、プレビューまでデコードした{@link TiledImage}を作成する。
+ *
+ * <p>表示中の静止画の前後など、次に表示される可能性が高いものを{@link #prefetch(Collection)}で先読みしておくことで、
+ * {@link #load(String)}は取得済みもしくは取得中のものを引き継ぐ。
+ * 先読みの対象から外れたものは取得を中断し、破棄する。
+ * 先読みはプレビューのメモリを保持するため、メモリが逼迫した場合、
+ * もしくはバックグラウンドでプロセスが破棄される候補となった場合は全て破棄する。
+ * UIが非表示になっただけの場合は、復帰時に再利用するため保持する。
+ *
+ * <p>メインスレッドから使用すること。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class PhotoPrefetcher implements ComponentCallbacks2 {
+    private static final String DIRECTORY_NAME = "photo";
+    /**
+     * この時間より古い一時ファイルは異常終了などで残されたものとして削除する。
+     */
+    private static final long STALE_TIME = 60 * 60 * 1000L;
+    private static final int MAX_ENTRIES = 2;
+
+    @NonNull
+    private final Context mContext;
+    @NonNull
+    private final File mDirectory;
+    private final int mWidth;
+    private final int mHeight;
+    @NonNull
+    private final Map<String, Entry> mEntryMap = new HashMap<>();
+
+    /**
+     * インスタンス作成。
+     *
+     * @param context Context
+     * @param width   表示枠の幅
+     * @param height  表示枠の高さ
+     */
+    public PhotoPrefetcher(
+            @NonNull final Context context,
+            final int width,
+            final int height) {
+        mContext = context.getApplicationContext();
+        mDirectory = new File(mContext.getCacheDir(), DIRECTORY_NAME);
+        mWidth = width;
+        mHeight = height;
+        mContext.registerComponentCallbacks(this);
+        Completable.fromAction(this::deleteStaleFiles)
+                .subscribeOn(Schedulers.io())
+                .subscribe();
+    }
+
+    /**
+     * 先読みを全て破棄し、終了する。
+     */
+    public void terminate() {
+        mContext.unregisterComponentCallbacks(this);
+        clear();
+    }
+
+    /**
+     * 静止画を取得する。
+     *
+     * <p>先読み済み、もしくは先読み中であればそれを引き継ぐ。
+     * 結果の{@link TiledImage}の所有権は呼び出し元に移る。
+     * 取得前にdisposeされた場合は取得を中断する。
+     *
+     * @param uri URI
+     * @return 結果、メインスレッドで通知する
+     */
+    @NonNull
+    public Single<TiledImage> load(@NonNull final String uri) {
+        final Entry cached = mEntryMap.remove(uri);
+        final Entry entry = cached != null ? cached : start(uri);
+        return Single.create(emitter -> {
+            final Disposable disposable = entry.mSubject
+                    .subscribe(emitter::onSuccess, emitter::tryOnError);
+            emitter.setCancellable(() -> {
+                disposable.dispose();
+                // 通知前に破棄された場合は取得を中断する
+                if (entry.mSubject.getValue() == null) {
+                    entry.drop();
+                }
+            });
+        });
+    }
+
+    /**
+     * 指定されたものを先読みする。
+     *
+     * <p>先読み済みのもので、指定されていないものは破棄する。
+     *
+     * @param uris 先読みするURI
+     */
+    public void prefetch(@NonNull final Collection<String> uris) {
+        final Iterator<Map.Entry<String, Entry>> iterator = mEntryMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Entry> entry = iterator.next();
+            if (!uris.contains(entry.getKey())) {
+                entry.getValue().drop();
+                iterator.remove();
+            }
+        }
+        for (final String uri : uris) {
+            if (mEntryMap.size() >= MAX_ENTRIES) {
+                break;
+            }
+            if (mEntryMap.containsKey(uri)) {
+                continue;
+            }
+            mEntryMap.put(uri, start(uri));
+        }
+    }
+
+    /**
+     * 先読みを全て破棄する。
+     */
+    public void clear() {
+        for (final Entry entry : mEntryMap.values()) {
+            entry.drop();
+        }
+        mEntryMap.clear();
+    }
+
+    @NonNull
+    private Entry start(@NonNull final String uri) {
+        final Entry entry = new Entry();
+        entry.mDisposable = Single.fromCallable(this::createTempFile)
+                .flatMap(file -> FileDownloader.create(uri, file))
+                .map(file -> TiledImage.open(file, mWidth, mHeight))
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(entry.mSubject::onSuccess, e -> {
+                    Log.w(e);
+                    if (mEntryMap.get(uri) == entry) {
+                        mEntryMap.remove(uri);
+                    }
+                    entry.mSubject.onError(e);
+                });
+        return entry;
+    }
+
+    @NonNull
+    private File createTempFile() throws IOException {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            throw new IOException("fail to create " + mDirectory.getName());
+        }
+        return File.createTempFile(DIRECTORY_NAME, null, mDirectory);
+    }
+
+    private void deleteStaleFiles() {
+        final File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long limit = System.currentTimeMillis() - STALE_TIME;
+        for (final File file : files) {
+            if (file.lastModified() < limit && !file.delete()) {
+                Log.w("fail to delete " + file.getName());
+            }
+        }
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND
+                || level == TRIM_MEMORY_RUNNING_LOW
+                || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(final Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    /**
+     * 先読み中もしくは先読み済みの静止画。
+     */
+    private static class Entry {
+        @NonNull
+        private final SingleSubject<TiledImage> mSubject = SingleSubject.create();
+        @Nullable
+        private Disposable mDisposable;
+
+        /**
+         * 取得を中断し、取得済みであれば破棄する。
+         */
+        void drop() {
+            if (mDisposable != null) {
+                mDisposable.dispose();
+            }
+            final TiledImage image = mSubject.getValue();
+            if (image != null) {
+                image.recycle();
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.photo;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.media.ExifInterface;
+
+import net.mm2d.log.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * ファイルに保存された静止画と、表示サイズに合わせてダウンサンプルしたプレビュー。
+ *
+ * <p>ファイル全体をメモリに展開することはせず、プレビューで解像度が不足する場合は
+ * {@link #decodeTile(Rect, int)}で必要な範囲のみをデコードする。
+ *
+ * <p>幅、高さはファイル上の大きさ、OrientedWidth/OrientedHeightはEXIFの向き情報を適用した大きさ。
+ * {@link #getOrientation()}はファイル上の座標を向きを補正した座標に変換する。
+ *
+ * <p>ファイルはこのインスタンスが所有し、{@link #recycle()}で削除する。
+ * 別スレッドで実行中のデコードは中断できないため、デコーダの解放とファイルの削除は実行中のデコードが全て完了した後に行う。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class TiledImage {
+    @NonNull
+    private final File mFile;
+    @Nullable
+    private final BitmapRegionDecoder mDecoder;
+    @NonNull
+    private final Bitmap mPreview;
+    private final int mPreviewSample;
+    private final int mWidth;
+    private final int mHeight;
+    @NonNull
+    private final Matrix mOrientation;
+    private final float mOrientedWidth;
+    private final float mOrientedHeight;
+    // 以下はthisで同期する
+    private int mActiveDecodes;
+    private boolean mRecycled;
+
+    private TiledImage(
+            @NonNull final File file,
+            @Nullable final BitmapRegionDecoder decoder,
+            @NonNull final Bitmap preview,
+            final int previewSample,
+            final int width,
+            final int height,
+            @NonNull final Matrix orientation) {
+        mFile = file;
+        mDecoder = decoder;
+        mPreview = preview;
+        mPreviewSample = previewSample;
+        mWidth = width;
+        mHeight = height;
+        mOrientation = orientation;
+        final RectF bounds = new RectF(0, 0, width, height);
+        orientation.mapRect(bounds);
+        mOrientedWidth = bounds.width();
+        mOrientedHeight = bounds.height();
+    }
+
+    /**
+     * 画像ファイルを開き、表示サイズに合わせたプレビューをデコードする。
+     *
+     * <p>I/Oを伴うため、メインスレッド以外から呼び出すこと。
+     * 失敗した場合ファイルは削除する。
+     *
+     * @param file       画像ファイル
+     * @param viewWidth  表示枠の幅
+     * @param viewHeight 表示枠の高さ
+     * @return TiledImage
+     * @throws IOException デコードできない場合
+     */
+    @NonNull
+    public static TiledImage open(
+            @NonNull final File file,
+            final int viewWidth,
+            final int viewHeight) throws IOException {
+        try {
+            return openInner(file, viewWidth, viewHeight);
+        } catch (final IOException e) {
+            delete(file);
+            throw e;
+        }
+    }
+
+    @NonNull
+    private static TiledImage openInner(
+            @NonNull final File file,
+            final int viewWidth,
+            final int viewHeight) throws IOException {
+        final String path = file.getPath();
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        final int width = options.outWidth;
+        final int height = options.outHeight;
+        if (width <= 0 || height <= 0) {
+            throw new IOException("unsupported image");
+        }
+        final Matrix orientation = createOrientationMatrix(readOrientation(path), width, height);
+        final RectF bounds = new RectF(0, 0, width, height);
+        orientation.mapRect(bounds);
+        final float fitScale = Math.min(viewWidth / bounds.width(), viewHeight / bounds.height());
+        final int sample = calculateSampleSize(fitScale);
+        BitmapRegionDecoder decoder = null;
+        try {
+            decoder = BitmapRegionDecoder.newInstance(path, false);
+        } catch (final IOException ignored) {
+            // JPEG/PNG以外はプレビューのみで表示する
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sample;
+        final Bitmap preview;
+        try {
+            preview = BitmapFactory.decodeFile(path, options);
+        } catch (final OutOfMemoryError e) {
+            recycle(decoder);
+            throw new IOException(e);
+        }
+        if (preview == null) {
+            recycle(decoder);
+            throw new IOException("fail to decode");
+        }
+        return new TiledImage(file, decoder, preview, sample, width, height, orientation);
+    }
+
+    /**
+     * 表示倍率に対して品質を落とさない最大のダウンサンプル数を返す。
+     *
+     * @param scale 画像1画素あたりの表示画素数
+     * @return ダウンサンプル数、2のべき乗
+     */
+    public static int calculateSampleSize(final float scale) {
+        int sample = 1;
+        while (sample * 2 * scale <= 1.0f) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public float getOrientedWidth() {
+        return mOrientedWidth;
+    }
+
+    public float getOrientedHeight() {
+        return mOrientedHeight;
+    }
+
+    @NonNull
+    public Matrix getOrientation() {
+        return mOrientation;
+    }
+
+    @NonNull
+    public Bitmap getPreview() {
+        return mPreview;
+    }
+
+    public int getPreviewSample() {
+        return mPreviewSample;
+    }
+
+    /**
+     * プレビューが使用しているメモリ量を返す。
+     *
+     * @return バイト数
+     */
+    public int getByteCount() {
+        return mPreview.getByteCount();
+    }
+
+    /**
+     * 部分的なデコードが可能かを返す。
+     *
+     * @return 部分的なデコードが可能な場合true
+     */
+    public boolean canDecodeTile() {
+        return mDecoder != null;
+    }
+
+    /**
+     * 指定範囲をデコードする。
+     *
+     * <p>I/Oを伴うため、メインスレッド以外から呼び出すこと。
+     *
+     * @param region ファイル上の座標での範囲
+     * @param sample ダウンサンプル数
+     * @return デコード結果
+     * @throws IOException デコードできない場合、{@link #recycle()}済みの場合
+     */
+    @NonNull
+    public Bitmap decodeTile(
+            @NonNull final Rect region,
+            final int sample) throws IOException {
+        if (mDecoder == null) {
+            throw new IllegalStateException();
+        }
+        synchronized (this) {
+            if (mRecycled) {
+                throw new IOException("already recycled");
+            }
+            mActiveDecodes++;
+        }
+        try {
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = sample;
+            final Bitmap bitmap;
+            try {
+                bitmap = mDecoder.decodeRegion(region, options);
+            } catch (final OutOfMemoryError e) {
+                throw new IOException(e);
+            }
+            if (bitmap == null) {
+                throw new IOException("fail to decode region");
+            }
+            return bitmap;
+        } finally {
+            final boolean release;
+            synchronized (this) {
+                mActiveDecodes--;
+                release = mRecycled && mActiveDecodes == 0;
+            }
+            if (release) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * デコーダを解放し、ファイルを削除する。
+     *
+     * <p>実行中のデコードがある場合は、最後のデコードが完了した時点で解放する。
+     */
+    public void recycle() {
+        synchronized (this) {
+            if (mRecycled) {
+                return;
+            }
+            mRecycled = true;
+            if (mActiveDecodes > 0) {
+                return;
+            }
+        }
+        release();
+    }
+
+    private void release() {
+        recycle(mDecoder);
+        Completable.fromAction(() -> delete(mFile))
+                .subscribeOn(Schedulers.io())
+                .subscribe();
+    }
+
+    private static void recycle(@Nullable final BitmapRegionDecoder decoder) {
+        if (decoder != null) {
+            decoder.recycle();
+        }
+    }
+
+    private static void delete(@NonNull final File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w("fail to delete " + file.getName());
+        }
+    }
+
+    private static int readOrientation(@NonNull final String path) {
+        try {
+            return new ExifInterface(path)
+                    .getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED);
+        } catch (final IOException ignored) {
+        }
+        return ExifInterface.ORIENTATION_UNDEFINED;
+    }
+
+    /**
+     * EXIFの向き情報に基づき、ファイル上の座標を表示上の座標に変換するMatrixを作成する。
+     *
+     * <p>変換後の画像の左上が原点となるよう平行移動を加える。
+     */
+    @NonNull
+    private static Matrix createOrientationMatrix(
+            final int orientation,
+            final int width,
+            final int height) {
+        final Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1f, 1f);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1f, -1f);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90f);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180f);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270f);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90f);
+                matrix.postScale(-1f, 1f);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270f);
+                matrix.postScale(-1f, 1f);
+                break;
+            default:
+                return matrix;
+        }
+        final RectF bounds = new RectF(0, 0, width, height);
+        matrix.mapRect(bounds);
+        matrix.postTranslate(-bounds.left, -bounds.top);
+        return matrix;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.thumbnail;
+
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import io.reactivex.Single;
+
+/**
+ * ホストごとに同時に実行する処理の数を制限する。
+ *
+ * <p>上限に達している場合は待ち行列に追加し、実行中の処理が終わり次第、
+ * 最後に追加されたものから順に実行する。
+ * スクロール中は新しく表示された行ほど優先されるようにするため、後入れ先出しとしている。
+ * 実行前にdisposeされた処理は待ち行列から取り除かれる。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class HostLimiter {
+    private final int mMaxConcurrency;
+    @NonNull
+    private final Map<String, Host> mHostMap = new HashMap<>();
+
+    HostLimiter(final int maxConcurrency) {
+        mMaxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * 同時実行数の制限を加える。
+     *
+     * @param host   ホスト
+     * @param source 処理
+     * @param <T>    結果の型
+     * @return 制限を加えた処理
+     */
+    @NonNull
+    <T> Single<T> limit(
+            @NonNull final String host,
+            @NonNull final Single<T> source) {
+        return Single.create(emitter -> {
+            final Runnable[] task = new Runnable[1];
+            task[0] = () -> {
+                if (emitter.isDisposed()) {
+                    release(host);
+                    return;
+                }
+                emitter.setDisposable(source
+                        .doFinally(() -> release(host))
+                        .subscribe(emitter::onSuccess, emitter::onError));
+            };
+            emitter.setCancellable(() -> cancel(host, task[0]));
+            enqueue(host, task[0]);
+        });
+    }
+
+    private void enqueue(
+            @NonNull final String host,
+            @NonNull final Runnable task) {
+        synchronized (this) {
+            Host h = mHostMap.get(host);
+            if (h == null) {
+                h = new Host();
+                mHostMap.put(host, h);
+            }
+            if (h.mRunning >= mMaxConcurrency) {
+                h.mPending.addFirst(task);
+                return;
+            }
+            h.mRunning++;
+        }
+        task.run();
+    }
+
+    private synchronized void cancel(
+            @NonNull final String host,
+            @NonNull final Runnable task) {
+        final Host h = mHostMap.get(host);
+        if (h != null) {
+            h.mPending.remove(task);
+        }
+    }
+
+    private void release(@NonNull final String host) {
+        final Runnable next;
+        synchronized (this) {
+            final Host h = mHostMap.get(host);
+            if (h == null) {
+                return;
+            }
+            next = h.mPending.pollFirst();
+            if (next == null) {
+                h.mRunning--;
+                if (h.mRunning == 0) {
+                    mHostMap.remove(host);
+                }
+                return;
+            }
+        }
+        next.run();
+    }
+
+    /**
+     * ホストごとの実行状態。
+     */
+    private static class Host {
+        private int mRunning;
+        @NonNull
+        private final LinkedList<Runnable> mPending = new LinkedList<>();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.thumbnail;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.graphics.BitmapFactory;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import net.mm2d.log.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 縮小済みのサムネイルをストレージに保持するLRUキャッシュ。
+ *
+ * <p>URLのハッシュをファイル名とし、参照時に更新日時を更新する。
+ * 合計サイズが上限を超えた場合は更新日時が古いものから削除する。
+ *
+ * <p>読み出しは並行して行えるが、書き込みと削除は排他的に行う。
+ * 各メソッドはI/Oを伴うため、メインスレッド以外から呼び出すこと。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class ThumbnailDiskCache {
+    private static final String DIRECTORY_NAME = "thumbnail";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long MAX_SIZE = 32L * 1024 * 1024;
+    private static final int JPEG_QUALITY = 90;
+
+    @NonNull
+    private final File mDirectory;
+    private long mSize = -1;
+
+    ThumbnailDiskCache(@NonNull final Context context) {
+        mDirectory = new File(context.getCacheDir(), DIRECTORY_NAME);
+    }
+
+    /**
+     * キャッシュされたサムネイルを読み出す。
+     *
+     * @param url URL
+     * @return サムネイル、キャッシュされていない場合null
+     */
+    @Nullable
+    Bitmap get(@NonNull final String url) {
+        final File file = getFile(url);
+        if (!file.exists()) {
+            return null;
+        }
+        final Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+        if (bitmap == null) {
+            delete(file);
+            return null;
+        }
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            Log.w("fail to touch " + file.getName());
+        }
+        return bitmap;
+    }
+
+    /**
+     * サムネイルを書き込む。
+     *
+     * @param url    URL
+     * @param bitmap サムネイル
+     */
+    synchronized void put(
+            @NonNull final String url,
+            @NonNull final Bitmap bitmap) {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            return;
+        }
+        final File file = getFile(url);
+        final File temp = new File(file.getPath() + TEMP_SUFFIX);
+        final CompressFormat format = bitmap.hasAlpha() ? CompressFormat.PNG : CompressFormat.JPEG;
+        try (final OutputStream os = new BufferedOutputStream(new FileOutputStream(temp))) {
+            if (!bitmap.compress(format, JPEG_QUALITY, os)) {
+                throw new IOException("fail to compress");
+            }
+        } catch (final IOException e) {
+            Log.w(e);
+            delete(temp);
+            return;
+        }
+        final long oldLength = file.length();
+        if (!temp.renameTo(file)) {
+            delete(temp);
+            return;
+        }
+        mSize = getSize() - oldLength + file.length();
+        trim();
+    }
+
+    private long getSize() {
+        if (mSize >= 0) {
+            return mSize;
+        }
+        long size = 0;
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                size += file.length();
+            }
+        }
+        mSize = size;
+        return size;
+    }
+
+    /**
+     * 合計サイズが上限を超えていれば、更新日時が古いものから削除する。
+     */
+    private void trim() {
+        if (mSize <= MAX_SIZE) {
+            return;
+        }
+        final File[] array = mDirectory.listFiles();
+        if (array == null) {
+            return;
+        }
+        final List<File> files = Arrays.asList(array);
+        Collections.sort(files, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
+        for (final File file : files) {
+            if (mSize <= MAX_SIZE * 3 / 4) {
+                break;
+            }
+            final long length = file.length();
+            if (file.delete()) {
+                mSize -= length;
+            }
+        }
+    }
+
+    private static void delete(@NonNull final File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w("fail to delete " + file.getName());
+        }
+    }
+
+    @NonNull
+    private File getFile(@NonNull final String url) {
+        return new File(mDirectory, hash(url));
+    }
+
+    @NonNull
+    private static String hash(@NonNull final String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+                sb.append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (final NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
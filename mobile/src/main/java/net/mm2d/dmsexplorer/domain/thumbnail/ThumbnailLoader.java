@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.thumbnail;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import net.mm2d.android.util.BitmapUtils;
+import net.mm2d.dmsexplorer.util.Downloader;
+
+import java.io.IOException;
+
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * リスト表示用のサムネイルを取得する。
+ *
+ * <p>メモリ、ストレージ、ネットワークの順に探索し、
+ * ネットワークから取得したものは表示サイズに縮小した上で両方のキャッシュに格納する。
+ * ネットワークからの取得はホストごとに同時実行数を制限し、
+ * 購読を破棄した時点で実行待ちのものは取り消される。
+ * 取得に失敗したURLは一定数まで記憶し、再度取得を試みない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class ThumbnailLoader {
+    private static final int MAX_CONCURRENCY_PER_HOST = 2;
+    private static final int MEMORY_CACHE_RATIO = 8;
+    private static final int MAX_FAILURES = 256;
+
+    @NonNull
+    private final LruCache<String, Bitmap> mMemoryCache;
+    @NonNull
+    private final LruCache<String, Boolean> mFailures = new LruCache<>(MAX_FAILURES);
+    @NonNull
+    private final ThumbnailDiskCache mDiskCache;
+    @NonNull
+    private final HostLimiter mHostLimiter = new HostLimiter(MAX_CONCURRENCY_PER_HOST);
+
+    public ThumbnailLoader(@NonNull final Context context) {
+        final ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        final int memoryClass = am == null ? 16 : am.getMemoryClass();
+        mMemoryCache = new LruCache<String, Bitmap>(memoryClass * 1024 * 1024 / MEMORY_CACHE_RATIO) {
+            @Override
+            protected int sizeOf(
+                    final String key,
+                    final Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        mDiskCache = new ThumbnailDiskCache(context);
+    }
+
+    /**
+     * メモリキャッシュにあるサムネイルを返す。
+     *
+     * <p>メインスレッドから呼び出しても問題ない。
+     *
+     * @param url URL
+     * @return サムネイル、メモリキャッシュにない場合null
+     */
+    @Nullable
+    public Bitmap getFromMemory(@NonNull final String url) {
+        return mMemoryCache.get(url);
+    }
+
+    /**
+     * 取得に失敗したURLであるかを返す。
+     *
+     * @param url URL
+     * @return 以前に取得に失敗している場合true
+     */
+    public boolean hasFailed(@NonNull final String url) {
+        return mFailures.get(url) != null;
+    }
+
+    /**
+     * サムネイルを取得する。
+     *
+     * @param url    URL
+     * @param width  表示する幅
+     * @param height 表示する高さ
+     * @return 結果、スレッドは不定
+     */
+    @NonNull
+    public Single<Bitmap> load(
+            @NonNull final String url,
+            final int width,
+            final int height) {
+        final Bitmap cached = mMemoryCache.get(url);
+        if (cached != null) {
+            return Single.just(cached);
+        }
+        return Single.fromCallable(() -> {
+            final Bitmap bitmap = mDiskCache.get(url);
+            if (bitmap == null) {
+                throw new CacheMissException();
+            }
+            mMemoryCache.put(url, bitmap);
+            return bitmap;
+        }).subscribeOn(Schedulers.io())
+                .onErrorResumeNext(e -> e instanceof CacheMissException
+                        ? download(url, width, height)
+                        : Single.error(e));
+    }
+
+    @NonNull
+    private Single<Bitmap> download(
+            @NonNull final String url,
+            final int width,
+            final int height) {
+        final String host = Uri.parse(url).getHost();
+        final Single<Bitmap> download = Downloader.create(url)
+                .map(binary -> {
+                    final Bitmap bitmap = BitmapUtils.decode(binary, width, height);
+                    if (bitmap == null) {
+                        throw new IOException("fail to decode " + url);
+                    }
+                    final Bitmap scaled = scale(bitmap, width, height);
+                    mDiskCache.put(url, scaled);
+                    mMemoryCache.put(url, scaled);
+                    return scaled;
+                })
+                .doOnError(e -> mFailures.put(url, Boolean.TRUE))
+                .subscribeOn(Schedulers.io());
+        return host == null ? download : mHostLimiter.limit(host, download);
+    }
+
+    /**
+     * 表示枠に内接する大きさまで縮小する。
+     *
+     * <p>BitmapUtils.decodeはダウンサンプル数が整数であるため、最大で2倍の大きさとなる。
+     * メモリ及びストレージの使用量を抑えるため、キャッシュする前に表示サイズに合わせる。
+     */
+    @NonNull
+    private static Bitmap scale(
+            @NonNull final Bitmap bitmap,
+            final int width,
+            final int height) {
+        final int sourceWidth = bitmap.getWidth();
+        final int sourceHeight = bitmap.getHeight();
+        if (width <= 0 || height <= 0 || (sourceWidth <= width && sourceHeight <= height)) {
+            return bitmap;
+        }
+        final float scale = Math.min((float) width / sourceWidth, (float) height / sourceHeight);
+        final int targetWidth = Math.max(1, Math.round(sourceWidth * scale));
+        final int targetHeight = Math.max(1, Math.round(sourceHeight * scale));
+        final Bitmap scaled = Bitmap.createScaledBitmap(bitmap, targetWidth, targetHeight, true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+
+    /**
+     * ストレージにキャッシュがなかったことを表す。
+     */
+    private static class CacheMissException extends Exception {
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.util;
+
+import android.support.annotation.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+
+/**
+ * HTTPで取得したデータをメモリに保持せずファイルへ書き出す。
+ *
+ * <p>{@link Downloader}はデータ全体をバイト列として返すため、
+ * 数十MBにおよぶ静止画などの大きなデータの取得にはこちらを使用する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class FileDownloader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TIMEOUT = 30 * 1000;
+
+    /**
+     * 指定URLのデータをファイルへ書き出す。
+     *
+     * <p>失敗した場合、もしくは途中でdisposeされた場合は書き出し途中のファイルを削除する。
+     *
+     * @param url  URL
+     * @param file 書き出し先
+     * @return 書き出し先のファイル、スレッドは購読したスレッド
+     */
+    @NonNull
+    public static Single<File> create(
+            @NonNull final String url,
+            @NonNull final File file) {
+        return Single.create(emitter -> {
+            try {
+                download(url, file, emitter);
+                emitter.onSuccess(file);
+            } catch (final IOException e) {
+                deleteQuietly(file);
+                emitter.tryOnError(e);
+            }
+        });
+    }
+
+    private static void download(
+            @NonNull final String url,
+            @NonNull final File file,
+            @NonNull final SingleEmitter<?> emitter) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("status " + connection.getResponseCode() + ": " + url);
+            }
+            try (final InputStream is = connection.getInputStream();
+                 final OutputStream os = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int size;
+                while ((size = is.read(buffer)) >= 0) {
+                    if (emitter.isDisposed()) {
+                        throw new IOException("canceled");
+                    }
+                    os.write(buffer, 0, size);
+                }
+            }
+            if (file.length() == 0) {
+                throw new IOException("empty: " + url);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void deleteQuietly(@NonNull final File file) {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
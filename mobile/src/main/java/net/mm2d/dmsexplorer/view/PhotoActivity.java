@@ -9,17 +9,21 @@ package net.mm2d.dmsexplorer.view;
 
 import android.content.res.Configuration;
 import android.databinding.DataBindingUtil;
+import android.graphics.Point;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.v4.view.ViewPager;
 import android.support.v4.view.ViewPager.OnPageChangeListener;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 
+import net.mm2d.android.util.DisplaySizeUtils;
 import net.mm2d.dmsexplorer.R;
 import net.mm2d.dmsexplorer.Repository;
 import net.mm2d.dmsexplorer.databinding.PhotoActivityBinding;
 import net.mm2d.dmsexplorer.domain.model.MediaServerModel;
+import net.mm2d.dmsexplorer.domain.photo.PhotoPrefetcher;
 import net.mm2d.dmsexplorer.log.EventLogger;
 import net.mm2d.dmsexplorer.settings.Settings;
 import net.mm2d.dmsexplorer.util.FullscreenHelper;
@@ -39,6 +43,8 @@ public class PhotoActivity extends BaseActivity {
     private PhotoActivityModel mModel;
     private Repository mRepository;
     private MediaServerModel mServerModel;
+    private PhotoPrefetcher mPrefetcher;
+    private boolean mImageTouching;
     private final OnPageChangeListener mOnPageChangeListener = new OnPageChangeListener() {
         @Override
         public void onPageScrolled(
@@ -70,8 +76,10 @@ public class PhotoActivity extends BaseActivity {
                 .build();
         mRepository = Repository.get();
         mServerModel = mRepository.getMediaServerModel();
+        final Point size = DisplaySizeUtils.getRealSize(this);
+        mPrefetcher = new PhotoPrefetcher(this, size.x, size.y);
         try {
-            mModel = new PhotoActivityModel(this, mRepository);
+            mModel = new PhotoActivityModel(this, mRepository, mPrefetcher);
         } catch (final IllegalStateException ignored) {
             finish();
             return;
@@ -99,6 +107,10 @@ public class PhotoActivity extends BaseActivity {
     protected void onDestroy() {
         super.onDestroy();
         mFullscreenHelper.terminate();
+        if (mModel != null) {
+            mModel.terminate();
+        }
+        mPrefetcher.terminate();
     }
 
     @Override
@@ -118,6 +130,12 @@ public class PhotoActivity extends BaseActivity {
 
     @Override
     public boolean dispatchTouchEvent(final MotionEvent ev) {
+        if (mBinding != null && dispatchImageTouchEvent(ev)) {
+            if (mSettings.shouldShowPhotoUiOnTouch()) {
+                mFullscreenHelper.showNavigation();
+            }
+            return true;
+        }
         final boolean result = super.dispatchTouchEvent(ev);
         if (mSettings.shouldShowPhotoUiOnTouch()) {
             mFullscreenHelper.showNavigation();
@@ -125,6 +143,27 @@ public class PhotoActivity extends BaseActivity {
         return result;
     }
 
+    /**
+     * 拡大操作中のタッチイベントはページ送りに渡さず、画像の表示に渡す。
+     *
+     * <p>操作の途中から拡大操作となった場合はページ送り側にキャンセルを通知する。
+     *
+     * @param ev タッチイベント
+     * @return 画像の表示で消費した場合true
+     */
+    private boolean dispatchImageTouchEvent(@NonNull final MotionEvent ev) {
+        final boolean handled = mBinding.imageView.handleTouchEvent(ev);
+        final int action = ev.getActionMasked();
+        if (handled && !mImageTouching) {
+            final MotionEvent cancel = MotionEvent.obtain(ev);
+            cancel.setAction(MotionEvent.ACTION_CANCEL);
+            super.dispatchTouchEvent(cancel);
+            cancel.recycle();
+        }
+        mImageTouching = handled && action != MotionEvent.ACTION_UP && action != MotionEvent.ACTION_CANCEL;
+        return handled;
+    }
+
     @Override
     public void onConfigurationChanged(Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
@@ -142,7 +181,8 @@ public class PhotoActivity extends BaseActivity {
             finish();
             return;
         }
-        mModel = new PhotoActivityModel(this, mRepository);
+        mModel.terminate();
+        mModel = new PhotoActivityModel(this, mRepository, mPrefetcher);
         mBinding.setModel(mModel);
         mBinding.viewPager.setCurrentItem(1, false);
         EventLogger.sendPlayContent(true);
@@ -40,6 +40,7 @@ import net.mm2d.dmsexplorer.settings.Key;
 import net.mm2d.dmsexplorer.settings.Orientation;
 import net.mm2d.dmsexplorer.settings.Settings;
 import net.mm2d.dmsexplorer.util.AttrUtils;
+import net.mm2d.dmsexplorer.view.dialog.ActionMetricsDialog;
 import net.mm2d.dmsexplorer.view.base.PreferenceFragmentBase;
 import net.mm2d.dmsexplorer.view.eventrouter.EventNotifier;
 import net.mm2d.dmsexplorer.view.eventrouter.EventObserver;
@@ -282,7 +283,14 @@ public class SettingsActivity extends PreferenceActivityCompat {
                 LaunchUtils.openGooglePlay(context, Const.PACKAGE_NAME);
                 return true;
             });
-            findPreference(Key.VERSION_NUMBER.name()).setSummary(makeVersionInfo());
+            final Preference versionNumber = findPreference(Key.VERSION_NUMBER.name());
+            versionNumber.setSummary(makeVersionInfo());
+            if (BuildConfig.DEBUG) {
+                versionNumber.setOnPreferenceClickListener(preference -> {
+                    ActionMetricsDialog.show(getActivity());
+                    return true;
+                });
+            }
             findPreference(Key.SOURCE_CODE.name()).setOnPreferenceClickListener(preference -> {
                 openUrl(getActivity(), Const.URL_GITHUB_PROJECT);
                 return true;
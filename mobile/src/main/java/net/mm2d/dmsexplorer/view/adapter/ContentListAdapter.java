@@ -9,28 +9,41 @@ package net.mm2d.dmsexplorer.view.adapter;
 
 import android.content.Context;
 import android.databinding.DataBindingUtil;
+import android.graphics.Bitmap;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 
+import net.mm2d.android.upnp.cds.CdsObject;
 import net.mm2d.dmsexplorer.R;
 import net.mm2d.dmsexplorer.databinding.ContentListItemBinding;
 import net.mm2d.dmsexplorer.domain.entity.ContentEntity;
+import net.mm2d.dmsexplorer.domain.entity.PagedEntityList;
+import net.mm2d.dmsexplorer.domain.thumbnail.ThumbnailLoader;
 import net.mm2d.dmsexplorer.util.FeatureUtils;
 import net.mm2d.dmsexplorer.viewmodel.ContentItemModel;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+
 /**
  * CDSのコンテンツリストをRecyclerViewへ表示するためのAdapter。
  *
+ * <p>リストの更新はObjectIDをキーとした差分として通知する。
+ * {@link PagedEntityList}の場合は表示する位置を通知し、ページの取得に応じて該当範囲を更新する。
+ *
+ * <p>サムネイルを持つ項目はアクセント表示の代わりにサムネイルを表示する。
+ * 取得は非同期で行い、ViewHolderが再利用される時点で取り消す。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 public class ContentListAdapter
@@ -47,27 +60,66 @@ public class ContentListAdapter
                 @NonNull ContentEntity entity);
     }
 
+    public interface OnItemFocusListener {
+        void onItemFocus(
+                @NonNull View v,
+                @NonNull ContentEntity entity);
+    }
+
     private static final float FOCUS_SCALE = 1.1f;
     private static final OnItemClickListener ON_ITEM_CLICK_LISTENER = (v, entity) -> {
     };
     private static final OnItemLongClickListener ON_ITEM_LONG_CLICK_LISTENER = (v, entity) -> {
     };
+    private static final OnItemFocusListener ON_ITEM_FOCUS_LISTENER = (v, entity) -> {
+    };
     @NonNull
     private final LayoutInflater mInflater;
     @NonNull
-    private final List<ContentEntity> mList = new ArrayList<>();
+    private final ThumbnailLoader mThumbnailLoader;
+    @NonNull
+    private final ListDiffer<ContentEntity> mDiffer = new ListDiffer<>(this, new ListDiffer.ItemCallback<ContentEntity>() {
+        @Override
+        public boolean areItemsTheSame(
+                @NonNull final ContentEntity oldItem,
+                @NonNull final ContentEntity newItem) {
+            return oldItem == newItem || oldItem.getObject().equals(newItem.getObject());
+        }
+
+        @Override
+        public boolean areContentsTheSame(
+                @NonNull final ContentEntity oldItem,
+                @NonNull final ContentEntity newItem) {
+            if (oldItem == newItem) {
+                return true;
+            }
+            final Object oldObject = oldItem.getObject();
+            final Object newObject = newItem.getObject();
+            if (oldObject instanceof CdsObject && newObject instanceof CdsObject) {
+                return ((CdsObject) oldObject).contentEquals((CdsObject) newObject);
+            }
+            return oldObject.equals(newObject);
+        }
+    });
     @NonNull
     private OnItemClickListener mClickListener = ON_ITEM_CLICK_LISTENER;
     @NonNull
     private OnItemLongClickListener mLongClickListener = ON_ITEM_LONG_CLICK_LISTENER;
+    @NonNull
+    private OnItemFocusListener mFocusListener = ON_ITEM_FOCUS_LISTENER;
     private ContentEntity mSelectedEntity;
     private final boolean mHasTouchScreen;
     private final float mTranslationZ;
+    private final int mThumbnailSize;
 
-    public ContentListAdapter(@NonNull final Context context) {
+    public ContentListAdapter(
+            @NonNull final Context context,
+            @NonNull final ThumbnailLoader thumbnailLoader) {
         mInflater = LayoutInflater.from(context);
+        mThumbnailLoader = thumbnailLoader;
         mHasTouchScreen = FeatureUtils.hasTouchScreen(context);
         mTranslationZ = context.getResources().getDimension(R.dimen.list_item_focus_elevation);
+        mThumbnailSize = context.getResources().getDimensionPixelSize(R.dimen.accent_size);
     }
 
     @NonNull
@@ -83,12 +135,21 @@ public class ContentListAdapter
     public void onBindViewHolder(
             @NonNull final ViewHolder holder,
             final int position) {
-        holder.applyItem(mList.get(position));
+        final List<ContentEntity> list = mDiffer.getList();
+        if (list instanceof PagedEntityList) {
+            ((PagedEntityList) list).touch(position);
+        }
+        holder.applyItem(list.get(position));
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull final ViewHolder holder) {
+        holder.cancelThumbnail();
     }
 
     @Override
     public int getItemCount() {
-        return mList.size();
+        return mDiffer.getList().size();
     }
 
     public void setOnItemClickListener(@Nullable final OnItemClickListener listener) {
@@ -99,29 +160,44 @@ public class ContentListAdapter
         mLongClickListener = listener != null ? listener : ON_ITEM_LONG_CLICK_LISTENER;
     }
 
-    public void clear() {
-        mList.clear();
+    public void setOnItemFocusListener(@Nullable final OnItemFocusListener listener) {
+        mFocusListener = listener != null ? listener : ON_ITEM_FOCUS_LISTENER;
     }
 
-    public void addAll(@NonNull final Collection<? extends ContentEntity> entities) {
-        mList.addAll(entities);
-    }
-
-    public int add(@NonNull final ContentEntity entity) {
-        mList.add(entity);
-        return mList.size() - 1;
+    /**
+     * 表示するリストを差し替える。
+     *
+     * @param list      新しいリスト、これ以降変更しないこと
+     * @param committed 差し替えが反映された後に実行する処理
+     */
+    public void submitList(
+            @NonNull final List<ContentEntity> list,
+            @Nullable final Runnable committed) {
+        final List<ContentEntity> oldList = mDiffer.getList();
+        if (oldList == list) {
+            mDiffer.submit(list, committed);
+            return;
+        }
+        if (oldList instanceof PagedEntityList) {
+            ((PagedEntityList) oldList).setOnRangeChangeListener(null);
+        }
+        if (list instanceof PagedEntityList) {
+            ((PagedEntityList) list).setOnRangeChangeListener(this::notifyItemRangeChanged);
+        }
+        if (oldList instanceof PagedEntityList || list instanceof PagedEntityList) {
+            mDiffer.replace(list, committed);
+            return;
+        }
+        mDiffer.submit(list, committed);
     }
 
-    public int remove(@NonNull final ContentEntity entity) {
-        final int position = mList.indexOf(entity);
-        if (position >= 0) {
-            mList.remove(position);
-        }
-        return position;
+    @NonNull
+    public List<ContentEntity> getList() {
+        return mDiffer.getList();
     }
 
     public int indexOf(@NonNull final ContentEntity entity) {
-        return mList.indexOf(entity);
+        return mDiffer.getList().indexOf(entity);
     }
 
     public ContentEntity getSelectedEntity() {
@@ -143,7 +219,7 @@ public class ContentListAdapter
         if (entity == null) {
             return;
         }
-        final int position = mList.indexOf(entity);
+        final int position = indexOf(entity);
         if (position < 0) {
             return;
         }
@@ -157,6 +233,8 @@ public class ContentListAdapter
     class ViewHolder extends RecyclerView.ViewHolder {
         private final ContentListItemBinding mBinding;
         private ContentEntity mEntity;
+        @Nullable
+        private Disposable mThumbnailDisposable;
 
         ViewHolder(@NonNull final ContentListItemBinding binding) {
             super(binding.getRoot());
@@ -174,6 +252,39 @@ public class ContentListAdapter
             itemView.setSelected(selected);
             mBinding.setModel(new ContentItemModel(itemView.getContext(), entity, selected));
             mBinding.executePendingBindings();
+            applyThumbnail(entity);
+        }
+
+        private void applyThumbnail(@NonNull final ContentEntity entity) {
+            cancelThumbnail();
+            final String url = entity.getIconUri().toString();
+            if (TextUtils.isEmpty(url) || mThumbnailLoader.hasFailed(url)) {
+                showThumbnail(null);
+                return;
+            }
+            final Bitmap cached = mThumbnailLoader.getFromMemory(url);
+            if (cached != null) {
+                showThumbnail(cached);
+                return;
+            }
+            showThumbnail(null);
+            mThumbnailDisposable = mThumbnailLoader.load(url, mThumbnailSize, mThumbnailSize)
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(this::showThumbnail, e -> {
+                    });
+        }
+
+        private void showThumbnail(@Nullable final Bitmap bitmap) {
+            final ImageView view = mBinding.thumbnail;
+            view.setImageBitmap(bitmap);
+            view.setVisibility(bitmap != null ? View.VISIBLE : View.GONE);
+        }
+
+        void cancelThumbnail() {
+            if (mThumbnailDisposable != null) {
+                mThumbnailDisposable.dispose();
+                mThumbnailDisposable = null;
+            }
         }
 
         private void onClick(@NonNull final View v) {
@@ -198,6 +309,9 @@ public class ContentListAdapter
             if (VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
                 v.setTranslationZ(focus ? mTranslationZ : 0.0f);
             }
+            if (focus && mEntity != null) {
+                mFocusListener.onItemFocus(v, mEntity);
+            }
         }
     }
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.view.adapter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Adapterが表示するリストを保持し、リストの差し替え時に差分のみを通知する。
+ *
+ * <p>差分計算はバックグラウンドで行い、メインスレッドでリストの差し替えと通知を行う。
+ * 末尾への追加のみの場合は差分計算を行わず挿入を通知する。
+ * 差分計算中に次のリストが渡された場合、古い計算結果は破棄される。
+ *
+ * <p>メインスレッドからのみ使用すること。
+ *
+ * @param <T> 要素の型
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class ListDiffer<T> {
+    /**
+     * 要素の同一性を判定するコールバック。
+     *
+     * @param <T> 要素の型
+     */
+    public interface ItemCallback<T> {
+        /**
+         * 同じ要素を表しているかを返す。
+         *
+         * @param oldItem 変更前の要素
+         * @param newItem 変更後の要素
+         * @return 同じ要素を表している場合true
+         */
+        boolean areItemsTheSame(
+                @NonNull T oldItem,
+                @NonNull T newItem);
+
+        /**
+         * 表示内容が同じかを返す。
+         *
+         * <p>areItemsTheSameがtrueを返した場合のみコールされる。
+         *
+         * @param oldItem 変更前の要素
+         * @param newItem 変更後の要素
+         * @return 表示内容が同じ場合true
+         */
+        boolean areContentsTheSame(
+                @NonNull T oldItem,
+                @NonNull T newItem);
+    }
+
+    @NonNull
+    private final RecyclerView.Adapter<?> mAdapter;
+    @NonNull
+    private final ItemCallback<T> mCallback;
+    @NonNull
+    private List<T> mList = Collections.emptyList();
+    @Nullable
+    private Disposable mDisposable;
+    private int mGeneration;
+
+    public ListDiffer(
+            @NonNull final RecyclerView.Adapter<?> adapter,
+            @NonNull final ItemCallback<T> callback) {
+        mAdapter = adapter;
+        mCallback = callback;
+    }
+
+    /**
+     * 現在表示中のリストを返す。
+     *
+     * @return 現在表示中のリスト
+     */
+    @NonNull
+    public List<T> getList() {
+        return mList;
+    }
+
+    /**
+     * 表示するリストを差し替える。
+     *
+     * <p>渡したリストはこれ以降変更しないこと。
+     *
+     * @param list      新しいリスト
+     * @param committed 差し替えが反映された後に実行する処理
+     */
+    public void submit(
+            @NonNull final List<T> list,
+            @Nullable final Runnable committed) {
+        final int generation = ++mGeneration;
+        dispose();
+        final List<T> oldList = mList;
+        if (oldList == list) {
+            runIfNotNull(committed);
+            return;
+        }
+        if (oldList.isEmpty() || list.isEmpty()) {
+            mList = list;
+            if (!oldList.isEmpty()) {
+                mAdapter.notifyItemRangeRemoved(0, oldList.size());
+            }
+            if (!list.isEmpty()) {
+                mAdapter.notifyItemRangeInserted(0, list.size());
+            }
+            runIfNotNull(committed);
+            return;
+        }
+        mDisposable = Single.fromCallable(() -> calculate(oldList, list))
+                .subscribeOn(Schedulers.computation())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(update -> {
+                    if (generation != mGeneration) {
+                        return;
+                    }
+                    mDisposable = null;
+                    mList = list;
+                    update.dispatch(mAdapter);
+                    runIfNotNull(committed);
+                });
+    }
+
+    /**
+     * 差分計算を行わずに表示するリストを差し替える。
+     *
+     * <p>要素の同一性を判定できないリストを扱う場合に使用する。
+     *
+     * @param list      新しいリスト
+     * @param committed 差し替えが反映された後に実行する処理
+     */
+    public void replace(
+            @NonNull final List<T> list,
+            @Nullable final Runnable committed) {
+        ++mGeneration;
+        dispose();
+        mList = list;
+        mAdapter.notifyDataSetChanged();
+        runIfNotNull(committed);
+    }
+
+    /**
+     * 実行中の差分計算を破棄する。
+     */
+    public void dispose() {
+        if (mDisposable != null) {
+            mDisposable.dispose();
+            mDisposable = null;
+        }
+    }
+
+    @NonNull
+    private Update calculate(
+            @NonNull final List<T> oldList,
+            @NonNull final List<T> newList) {
+        final int oldSize = oldList.size();
+        final int newSize = newList.size();
+        if (isAppended(oldList, newList)) {
+            return adapter -> adapter.notifyItemRangeInserted(oldSize, newSize - oldSize);
+        }
+        final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldSize;
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newSize;
+            }
+
+            @Override
+            public boolean areItemsTheSame(
+                    final int oldItemPosition,
+                    final int newItemPosition) {
+                return mCallback.areItemsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(
+                    final int oldItemPosition,
+                    final int newItemPosition) {
+                return mCallback.areContentsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+            }
+        });
+        return result::dispatchUpdatesTo;
+    }
+
+    private boolean isAppended(
+            @NonNull final List<T> oldList,
+            @NonNull final List<T> newList) {
+        if (oldList.size() > newList.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldList.size(); i++) {
+            final T oldItem = oldList.get(i);
+            final T newItem = newList.get(i);
+            if (!mCallback.areItemsTheSame(oldItem, newItem)
+                    || !mCallback.areContentsTheSame(oldItem, newItem)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void runIfNotNull(@Nullable final Runnable runnable) {
+        if (runnable != null) {
+            runnable.run();
+        }
+    }
+
+    /**
+     * 差分計算の結果。
+     */
+    private interface Update {
+        void dispatch(@NonNull RecyclerView.Adapter<?> adapter);
+    }
+}
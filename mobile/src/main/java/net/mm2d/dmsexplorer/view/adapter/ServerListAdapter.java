@@ -31,6 +31,8 @@ import java.util.List;
 /**
  * MediaServerをRecyclerViewへ表示するためのAdapter。
  *
+ * <p>リストの更新はUDNをキーとした差分として通知する。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 public class ServerListAdapter
@@ -53,7 +55,21 @@ public class ServerListAdapter
     private static final OnItemLongClickListener ON_ITEM_LONG_CLICK_LISTENER = (v, server) -> {
     };
     private final LayoutInflater mInflater;
-    private final List<MediaServer> mList;
+    private final ListDiffer<MediaServer> mDiffer = new ListDiffer<>(this, new ListDiffer.ItemCallback<MediaServer>() {
+        @Override
+        public boolean areItemsTheSame(
+                @NonNull final MediaServer oldItem,
+                @NonNull final MediaServer newItem) {
+            return oldItem.getUdn().equals(newItem.getUdn());
+        }
+
+        @Override
+        public boolean areContentsTheSame(
+                @NonNull final MediaServer oldItem,
+                @NonNull final MediaServer newItem) {
+            return oldItem.equals(newItem);
+        }
+    });
     private final Context mContext;
     private OnItemClickListener mClickListener = ON_ITEM_CLICK_LISTENER;
     private OnItemLongClickListener mLongClickListener = ON_ITEM_LONG_CLICK_LISTENER;
@@ -67,10 +83,8 @@ public class ServerListAdapter
         mContext = context;
         mInflater = LayoutInflater.from(context);
         mHasTouchScreen = FeatureUtils.hasTouchScreen(context);
-        if (servers == null) {
-            mList = new ArrayList<>();
-        } else {
-            mList = new ArrayList<>(servers);
+        if (servers != null) {
+            mDiffer.submit(new ArrayList<>(servers), null);
         }
         mTranslationZ = context.getResources().getDimension(R.dimen.list_item_focus_elevation);
     }
@@ -87,16 +101,16 @@ public class ServerListAdapter
     public void onBindViewHolder(
             @NonNull final ViewHolder holder,
             int position) {
-        holder.applyItem(mList.get(position));
+        holder.applyItem(mDiffer.getList().get(position));
     }
 
     @Override
     public int getItemCount() {
-        return mList.size();
+        return mDiffer.getList().size();
     }
 
-    public int indexOf(@NonNull final MediaServer server) {
-        return mList.indexOf(server);
+    public int indexOf(@Nullable final MediaServer server) {
+        return mDiffer.getList().indexOf(server);
     }
 
     public void setOnItemClickListener(@Nullable final OnItemClickListener listener) {
@@ -107,25 +121,16 @@ public class ServerListAdapter
         mLongClickListener = listener != null ? listener : ON_ITEM_LONG_CLICK_LISTENER;
     }
 
-    public void clear() {
-        mList.clear();
-    }
-
-    public void addAll(@NonNull final Collection<? extends MediaServer> servers) {
-        mList.addAll(servers);
-    }
-
-    public int add(@NonNull final MediaServer server) {
-        mList.add(server);
-        return mList.size() - 1;
-    }
-
-    public int remove(@NonNull final MediaServer server) {
-        final int position = mList.indexOf(server);
-        if (position >= 0) {
-            mList.remove(position);
-        }
-        return position;
+    /**
+     * 表示するリストを差し替える。
+     *
+     * @param servers   新しいリスト、これ以降変更しないこと
+     * @param committed 差し替えが反映された後に実行する処理
+     */
+    public void submitList(
+            @NonNull final List<MediaServer> servers,
+            @Nullable final Runnable committed) {
+        mDiffer.submit(servers, committed);
     }
 
     public void setSelectedServer(@Nullable final MediaServer server) {
@@ -142,7 +147,7 @@ public class ServerListAdapter
         if (server == null) {
             return;
         }
-        final int position = mList.indexOf(server);
+        final int position = indexOf(server);
         if (position < 0) {
             return;
         }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.view.dialog;
+
+import android.app.Dialog;
+import android.arch.lifecycle.Lifecycle;
+import android.content.ActivityNotFoundException;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.v4.app.DialogFragment;
+import android.support.v4.app.FragmentActivity;
+import android.support.v7.app.AlertDialog;
+import android.text.TextUtils;
+
+import net.mm2d.android.upnp.ActionMetrics;
+import net.mm2d.dmsexplorer.R;
+import net.mm2d.log.Log;
+
+/**
+ * 機器ごと、Actionごとの応答時間やエラーの集計結果を表示するデバッグ用ダイアログ。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class ActionMetricsDialog extends DialogFragment {
+    @NonNull
+    public static ActionMetricsDialog newInstance() {
+        return new ActionMetricsDialog();
+    }
+
+    public static void show(@NonNull final FragmentActivity activity) {
+        if (activity.getLifecycle().getCurrentState() != Lifecycle.State.RESUMED) {
+            return;
+        }
+        newInstance().show(activity.getSupportFragmentManager(), "");
+    }
+
+    @NonNull
+    @Override
+    public Dialog onCreateDialog(final Bundle savedInstanceState) {
+        final Context context = getActivity();
+        final ActionMetrics metrics = ActionMetrics.get();
+        final String dump = metrics.dump();
+        Log.d(dump);
+        return new AlertDialog.Builder(context)
+                .setTitle(R.string.dialog_title_action_metrics)
+                .setMessage(TextUtils.isEmpty(dump) ? "-" : dump)
+                .setPositiveButton(R.string.ok, null)
+                .setNegativeButton(R.string.dialog_button_clear, (d, i) -> metrics.clear())
+                .setNeutralButton(R.string.dialog_button_share, (d, i) -> share(context, dump))
+                .create();
+    }
+
+    private static void share(
+            @NonNull final Context context,
+            @NonNull final String text) {
+        final Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("text/plain");
+        intent.putExtra(Intent.EXTRA_TEXT, text);
+        try {
+            context.startActivity(Intent.createChooser(intent, null));
+        } catch (final ActivityNotFoundException e) {
+            Log.w(e);
+        }
+    }
+}
@@ -75,6 +75,14 @@ public class SelectRendererDialog extends DialogFragment {
         binding.recyclerView.setAdapter(adapter);
         builder.setTitle(R.string.dialog_title_select_device);
         builder.setView(binding.getRoot());
+        if (rendererList.size() >= 2) {
+            builder.setNeutralButton(R.string.dialog_button_play_all_devices, (dialog, which) -> {
+                model.setSelectedMediaRendererGroup(rendererList);
+                EventLogger.sendSelectRenderer();
+                ItemSelectUtils.sendSelectedRenderer(getActivity());
+                dismiss();
+            });
+        }
         return builder.create();
     }
 }
@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.view.view;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.util.LruCache;
+import android.view.GestureDetector;
+import android.view.GestureDetector.SimpleOnGestureListener;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.ScaleGestureDetector.SimpleOnScaleGestureListener;
+import android.view.View;
+
+import net.mm2d.dmsexplorer.domain.photo.TiledImage;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * {@link TiledImage}を表示するView。
+ *
+ * <p>通常はプレビューを表示し、拡大した場合はプレビューでは解像度が不足する範囲のみをタイル単位にデコードし、
+ * プレビューの上に重ねて表示する。タイルは表示範囲外になったものから破棄する。
+ * 部分的なデコードができない形式の場合はプレビューのみを拡大して表示する。
+ *
+ * <p>EXIFの向き情報に基づく回転、反転は描画時に行う。
+ *
+ * <p>ViewPagerなどの下に重ねて配置し、直接タッチイベントを受け取れない場合を想定し、
+ * タッチイベントは{@link #handleTouchEvent(MotionEvent)}で受け取る。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class TiledImageView extends View {
+    private static final int TILE_SIZE = 512;
+    /**
+     * 画像の1画素を拡大表示する最大の画素数。
+     */
+    private static final float MAX_PIXEL_SCALE = 2.0f;
+    private static final float DOUBLE_TAP_SCALE = 2.5f;
+    /**
+     * タイルキャッシュの上限を画面何枚分とするか。
+     */
+    private static final int TILE_CACHE_SCREENS = 3;
+
+    @NonNull
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    @NonNull
+    private final Matrix mMatrix = new Matrix();
+    @NonNull
+    private final Matrix mInverse = new Matrix();
+    @NonNull
+    private final RectF mRect = new RectF();
+    @NonNull
+    private final Set<Tile> mVisibleTiles = new HashSet<>();
+    @NonNull
+    private final Map<Tile, Disposable> mPendingMap = new HashMap<>();
+    @NonNull
+    private final ScaleGestureDetector mScaleDetector;
+    @NonNull
+    private final GestureDetector mGestureDetector;
+    @Nullable
+    private TiledImage mImage;
+    @Nullable
+    private LruCache<Tile, Bitmap> mTileCache;
+    private float mScale = 1.0f;
+    private float mTranslateX;
+    private float mTranslateY;
+
+    public TiledImageView(@NonNull final Context context) {
+        this(context, null);
+    }
+
+    public TiledImageView(
+            @NonNull final Context context,
+            @Nullable final AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public TiledImageView(
+            @NonNull final Context context,
+            @Nullable final AttributeSet attrs,
+            final int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mScaleDetector = new ScaleGestureDetector(context, new SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(@NonNull final ScaleGestureDetector detector) {
+                zoom(mScale * detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+        mGestureDetector = new GestureDetector(context, new SimpleOnGestureListener() {
+            @Override
+            public boolean onScroll(
+                    final MotionEvent e1,
+                    final MotionEvent e2,
+                    final float distanceX,
+                    final float distanceY) {
+                if (mScale <= 1.0f) {
+                    return false;
+                }
+                translate(mTranslateX - distanceX, mTranslateY - distanceY);
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(final MotionEvent e) {
+                zoom(mScale > 1.0f ? 1.0f : DOUBLE_TAP_SCALE, e.getX(), e.getY());
+                return true;
+            }
+        });
+    }
+
+    /**
+     * 表示する画像を設定する。
+     *
+     * <p>画像の所有権はこのViewに移り、次の画像が設定された時点もしくはWindowから外れた時点で解放する。
+     *
+     * @param image 画像、nullの場合は表示をクリアする
+     */
+    public void setImage(@Nullable final TiledImage image) {
+        if (image == mImage) {
+            return;
+        }
+        release();
+        mImage = image;
+        updateMatrix();
+        invalidate();
+    }
+
+    @NonNull
+    private LruCache<Tile, Bitmap> createTileCache() {
+        final int cacheSize = Math.max(getWidth() * getHeight() * 4 * TILE_CACHE_SCREENS, 1);
+        return new LruCache<Tile, Bitmap>(cacheSize) {
+            @Override
+            protected int sizeOf(
+                    final Tile key,
+                    final Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * タッチイベントを処理する。
+     *
+     * <p>拡大表示中、もしくはピンチ操作中はイベントを消費したものとして扱う。
+     * それ以外の場合は上に重なったViewでページ送りなどの操作を行えるようにする。
+     *
+     * @param event タッチイベント
+     * @return イベントを消費した場合true
+     */
+    public boolean handleTouchEvent(@NonNull final MotionEvent event) {
+        if (mImage == null) {
+            return false;
+        }
+        mScaleDetector.onTouchEvent(event);
+        mGestureDetector.onTouchEvent(event);
+        return mScale > 1.0f || event.getPointerCount() > 1 || mScaleDetector.isInProgress();
+    }
+
+    private void release() {
+        for (final Disposable disposable : mPendingMap.values()) {
+            disposable.dispose();
+        }
+        mPendingMap.clear();
+        if (mTileCache != null) {
+            mTileCache.evictAll();
+            mTileCache = null;
+        }
+        if (mImage != null) {
+            // disposeしても実行中のデコードは中断されないため、デコーダはその完了後に解放される
+            mImage.recycle();
+            mImage = null;
+        }
+        mScale = 1.0f;
+        mTranslateX = 0;
+        mTranslateY = 0;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        release();
+    }
+
+    @Override
+    protected void onSizeChanged(
+            final int w,
+            final int h,
+            final int oldw,
+            final int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (mImage != null) {
+            translate(mTranslateX, mTranslateY);
+        }
+    }
+
+    private float getFitScale(@NonNull final TiledImage image) {
+        return Math.min((float) getWidth() / image.getOrientedWidth(), (float) getHeight() / image.getOrientedHeight());
+    }
+
+    private float getMaxScale(@NonNull final TiledImage image) {
+        return Math.max(1.0f, MAX_PIXEL_SCALE / getFitScale(image));
+    }
+
+    private void zoom(
+            final float scale,
+            final float focusX,
+            final float focusY) {
+        final TiledImage image = mImage;
+        if (image == null) {
+            return;
+        }
+        final float newScale = Math.max(1.0f, Math.min(scale, getMaxScale(image)));
+        final float ratio = newScale / mScale;
+        final float centerX = getWidth() / 2.0f;
+        final float centerY = getHeight() / 2.0f;
+        mScale = newScale;
+        // フォーカス位置の画像上の点が動かないように移動量を調整する
+        translate(focusX - centerX - (focusX - centerX - mTranslateX) * ratio,
+                focusY - centerY - (focusY - centerY - mTranslateY) * ratio);
+    }
+
+    private void translate(
+            final float x,
+            final float y) {
+        final TiledImage image = mImage;
+        if (image == null) {
+            return;
+        }
+        final float scale = getFitScale(image) * mScale;
+        final float maxX = Math.max(0, (image.getOrientedWidth() * scale - getWidth()) / 2);
+        final float maxY = Math.max(0, (image.getOrientedHeight() * scale - getHeight()) / 2);
+        mTranslateX = Math.max(-maxX, Math.min(x, maxX));
+        mTranslateY = Math.max(-maxY, Math.min(y, maxY));
+        updateMatrix();
+        invalidate();
+    }
+
+    private void updateMatrix() {
+        final TiledImage image = mImage;
+        if (image == null) {
+            return;
+        }
+        final float scale = getFitScale(image) * mScale;
+        mMatrix.set(image.getOrientation());
+        mMatrix.postScale(scale, scale);
+        mMatrix.postTranslate(
+                (getWidth() - image.getOrientedWidth() * scale) / 2 + mTranslateX,
+                (getHeight() - image.getOrientedHeight() * scale) / 2 + mTranslateY);
+        mMatrix.invert(mInverse);
+    }
+
+    @Override
+    protected void onDraw(final Canvas canvas) {
+        final TiledImage image = mImage;
+        if (image == null) {
+            return;
+        }
+        canvas.save();
+        canvas.concat(mMatrix);
+        mRect.set(0, 0, image.getWidth(), image.getHeight());
+        canvas.drawBitmap(image.getPreview(), null, mRect, mPaint);
+        drawTiles(canvas, image);
+        canvas.restore();
+    }
+
+    /**
+     * プレビューの解像度が不足している場合、表示範囲のタイルを描画する。
+     *
+     * <p>キャッシュにないタイルはデコードを要求し、完了後に再描画する。
+     * 表示範囲外になったタイルのデコード要求は取り消す。
+     */
+    private void drawTiles(
+            @NonNull final Canvas canvas,
+            @NonNull final TiledImage image) {
+        mVisibleTiles.clear();
+        final int sample = TiledImage.calculateSampleSize(getFitScale(image) * mScale);
+        if (image.canDecodeTile() && sample < image.getPreviewSample()) {
+            if (mTileCache == null) {
+                mTileCache = createTileCache();
+            }
+            final LruCache<Tile, Bitmap> cache = mTileCache;
+            mRect.set(0, 0, getWidth(), getHeight());
+            mInverse.mapRect(mRect);
+            final int step = TILE_SIZE * sample;
+            final int left = Math.max(0, (int) mRect.left / step);
+            final int top = Math.max(0, (int) mRect.top / step);
+            final int right = Math.min((image.getWidth() - 1) / step, (int) mRect.right / step);
+            final int bottom = Math.min((image.getHeight() - 1) / step, (int) mRect.bottom / step);
+            for (int row = top; row <= bottom; row++) {
+                for (int column = left; column <= right; column++) {
+                    final Tile tile = new Tile(sample, column, row);
+                    mVisibleTiles.add(tile);
+                    final Rect region = tile.getRegion(image);
+                    final Bitmap bitmap = cache.get(tile);
+                    if (bitmap == null) {
+                        requestTile(image, tile, region);
+                        continue;
+                    }
+                    mRect.set(region);
+                    canvas.drawBitmap(bitmap, null, mRect, mPaint);
+                }
+            }
+        }
+        final Iterator<Entry<Tile, Disposable>> iterator = mPendingMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Entry<Tile, Disposable> entry = iterator.next();
+            if (!mVisibleTiles.contains(entry.getKey())) {
+                entry.getValue().dispose();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void requestTile(
+            @NonNull final TiledImage image,
+            @NonNull final Tile tile,
+            @NonNull final Rect region) {
+        if (mPendingMap.containsKey(tile)) {
+            return;
+        }
+        mPendingMap.put(tile, Single.fromCallable(() -> image.decodeTile(region, tile.mSample))
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(bitmap -> {
+                    mPendingMap.remove(tile);
+                    if (mImage == image && mTileCache != null) {
+                        mTileCache.put(tile, bitmap);
+                        invalidate();
+                    }
+                }, e -> mPendingMap.remove(tile)));
+    }
+
+    /**
+     * タイルの識別子。ダウンサンプル数と位置で特定する。
+     */
+    private static class Tile {
+        private final int mSample;
+        private final int mColumn;
+        private final int mRow;
+
+        Tile(
+                final int sample,
+                final int column,
+                final int row) {
+            mSample = sample;
+            mColumn = column;
+            mRow = row;
+        }
+
+        @NonNull
+        Rect getRegion(@NonNull final TiledImage image) {
+            final int step = TILE_SIZE * mSample;
+            final int left = mColumn * step;
+            final int top = mRow * step;
+            return new Rect(left, top,
+                    Math.min(left + step, image.getWidth()),
+                    Math.min(top + step, image.getHeight()));
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Tile)) {
+                return false;
+            }
+            final Tile tile = (Tile) obj;
+            return mSample == tile.mSample && mColumn == tile.mColumn && mRow == tile.mRow;
+        }
+
+        @Override
+        public int hashCode() {
+            return (mSample * 31 + mColumn) * 31 + mRow;
+        }
+    }
+}
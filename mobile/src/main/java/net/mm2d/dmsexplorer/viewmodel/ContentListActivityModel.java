@@ -99,6 +99,8 @@ public class ContentListActivityModel extends BaseObservable implements ExploreL
     @NonNull
     private Runnable mUpdateList = () -> {
     };
+    @NonNull
+    private List<ContentEntity> mSubmittedList = Collections.emptyList();
     private long mUpdateTime;
     private boolean mTimerResetLatch;
 
@@ -117,9 +119,10 @@ public class ContentListActivityModel extends BaseObservable implements ExploreL
         }
         mMediaServerModel = model;
         mMediaServerModel.setExploreListener(this);
-        mContentListAdapter = new ContentListAdapter(context);
+        mContentListAdapter = new ContentListAdapter(context, repository.getThumbnailLoader());
         mContentListAdapter.setOnItemClickListener(this::onItemClick);
         mContentListAdapter.setOnItemLongClickListener(this::onItemLongClick);
+        mContentListAdapter.setOnItemFocusListener((v, entity) -> mMediaServerModel.prefetch(entity));
         mCdsSelectListener = listener;
 
         focusable = !FeatureUtils.hasTouchScreen(context);
@@ -162,6 +165,9 @@ public class ContentListActivityModel extends BaseObservable implements ExploreL
     private void onItemClick(
             @NonNull final View v,
             @NonNull final ContentEntity entity) {
+        if (entity.isPlaceholder()) {
+            return;
+        }
         if (mMediaServerModel.enterChild(entity)) {
             mCdsSelectListener.onLostSelection();
             return;
@@ -183,6 +189,9 @@ public class ContentListActivityModel extends BaseObservable implements ExploreL
     private void onItemLongClick(
             @NonNull final View v,
             @NonNull final ContentEntity entity) {
+        if (entity.isPlaceholder()) {
+            return;
+        }
         if (mMediaServerModel.enterChild(entity)) {
             mCdsSelectListener.onLostSelection();
             return;
@@ -256,11 +265,11 @@ public class ContentListActivityModel extends BaseObservable implements ExploreL
     }
 
     private void updateList(@NonNull final List<ContentEntity> list) {
-        final int beforeSize = mContentListAdapter.getItemCount();
-        final int afterSize = list.size();
-        if (beforeSize == afterSize) {
+        if (mSubmittedList == list) {
             return;
         }
+        final int beforeSize = mSubmittedList.size();
+        final int afterSize = list.size();
         if (mTimerResetLatch && beforeSize == 0 && afterSize == 1) {
             mUpdateTime = System.currentTimeMillis();
         }
@@ -273,20 +282,16 @@ public class ContentListActivityModel extends BaseObservable implements ExploreL
             return;
         }
         mUpdateTime = System.currentTimeMillis();
-        mContentListAdapter.clear();
-        mContentListAdapter.addAll(list);
-        final ContentEntity entity = mMediaServerModel.getSelectedEntity();
-        mContentListAdapter.setSelectedEntity(entity);
-        if (beforeSize < afterSize) {
-            mContentListAdapter.notifyItemRangeInserted(beforeSize, afterSize - beforeSize);
-        } else {
-            mContentListAdapter.notifyDataSetChanged();
-        }
-        if (beforeSize == 0 && entity != null) {
-            setScrollPosition(list.indexOf(entity));
-        } else {
-            mScrollPosition = INVALID_POSITION;
-        }
+        mSubmittedList = list;
+        mContentListAdapter.submitList(list, () -> {
+            final ContentEntity entity = mMediaServerModel.getSelectedEntity();
+            mContentListAdapter.setSelectedEntity(entity);
+            if (beforeSize == 0 && entity != null) {
+                setScrollPosition(list.indexOf(entity));
+            } else {
+                mScrollPosition = INVALID_POSITION;
+            }
+        });
     }
 
     public boolean isItemSelected() {
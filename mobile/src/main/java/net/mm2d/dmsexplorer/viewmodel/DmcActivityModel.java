@@ -15,6 +15,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.app.ActivityCompat;
 
 import net.mm2d.android.util.AribUtils;
@@ -23,10 +24,13 @@ import net.mm2d.dmsexplorer.BR;
 import net.mm2d.dmsexplorer.R;
 import net.mm2d.dmsexplorer.Repository;
 import net.mm2d.dmsexplorer.domain.entity.ContentEntity;
+import net.mm2d.dmsexplorer.domain.model.MediaRendererModel;
 import net.mm2d.dmsexplorer.domain.model.MediaServerModel;
 import net.mm2d.dmsexplorer.domain.model.PlaybackTargetModel;
 import net.mm2d.dmsexplorer.domain.model.PlayerModel;
 import net.mm2d.dmsexplorer.domain.model.PlayerModel.StatusListener;
+import net.mm2d.dmsexplorer.settings.RepeatMode;
+import net.mm2d.dmsexplorer.settings.Settings;
 import net.mm2d.dmsexplorer.view.adapter.PropertyAdapter;
 import net.mm2d.dmsexplorer.view.view.ScrubBar;
 import net.mm2d.dmsexplorer.view.view.ScrubBar.Accuracy;
@@ -43,11 +47,7 @@ public class DmcActivityModel extends BaseObservable implements StatusListener {
     private static final long TRACKING_DELAY = 1000L;
     private static final char EN_SPACE = 0x2002; // &ensp;
     @NonNull
-    public final String title;
-    @NonNull
     public final String subtitle;
-    @NonNull
-    public final PropertyAdapter propertyAdapter;
     @DrawableRes
     public final int imageResource;
     public final boolean isPlayControlEnabled;
@@ -55,6 +55,10 @@ public class DmcActivityModel extends BaseObservable implements StatusListener {
     @NonNull
     public final ScrubBarListener seekBarListener;
 
+    @NonNull
+    private String mTitle;
+    @NonNull
+    private PropertyAdapter mPropertyAdapter;
     @NonNull
     private String mProgressText = makeTimeText(0);
     @NonNull
@@ -76,9 +80,22 @@ public class DmcActivityModel extends BaseObservable implements StatusListener {
     @NonNull
     private final Activity mActivity;
     @NonNull
-    private final PlaybackTargetModel mTargetModel;
+    private final Repository mRepository;
+    @NonNull
+    private final MediaServerModel mServerModel;
+    @NonNull
+    private PlaybackTargetModel mTargetModel;
     @NonNull
     private final PlayerModel mRendererModel;
+    /**
+     * 単体のMediaRendererを操作する場合のみ非null。
+     *
+     * <p>次のコンテンツの事前設定は単体のMediaRendererでのみ行う。
+     */
+    @Nullable
+    private final MediaRendererModel mSingleRendererModel;
+    @NonNull
+    private final RepeatMode mRepeatMode;
     private boolean mTracking;
 
     @NonNull
@@ -88,26 +105,34 @@ public class DmcActivityModel extends BaseObservable implements StatusListener {
             @NonNull final Activity activity,
             @NonNull final Repository repository) {
         mActivity = activity;
+        mRepository = repository;
         final PlaybackTargetModel targetModel = repository.getPlaybackTargetModel();
-        final PlayerModel playerModel = repository.getMediaRendererModel();
+        final PlayerModel groupModel = repository.getRendererGroupModel();
+        final MediaRendererModel rendererModel = groupModel != null ? null : repository.getMediaRendererModel();
+        final PlayerModel playerModel = groupModel != null ? groupModel : rendererModel;
         if (playerModel == null || targetModel == null || targetModel.getUri() == Uri.EMPTY) {
             throw new IllegalStateException();
         }
         mTargetModel = targetModel;
         mRendererModel = playerModel;
+        mSingleRendererModel = rendererModel;
         mRendererModel.setStatusListener(this);
+        if (mSingleRendererModel != null) {
+            mSingleRendererModel.setOnTrackChangedListener(this::onTrackChanged);
+        }
         mPlayButtonResId = R.drawable.ic_play;
 
         final ContentEntity entity = mTargetModel.getContentEntity();
-        title = AribUtils.toDisplayableString(entity.getName());
+        mTitle = AribUtils.toDisplayableString(entity.getName());
         hasDuration = entity.getType().hasDuration();
         isPlayControlEnabled = hasDuration && mRendererModel.canPause();
-        final MediaServerModel serverModel = repository.getMediaServerModel();
+        mServerModel = repository.getMediaServerModel();
         subtitle = mRendererModel.getName()
                 + "  ←  "
-                + serverModel.getMediaServer().getFriendlyName();
-        propertyAdapter = PropertyAdapter.ofContent(mActivity, entity);
+                + mServerModel.getMediaServer().getFriendlyName();
+        mPropertyAdapter = PropertyAdapter.ofContent(mActivity, entity);
         imageResource = getImageResource(entity);
+        mRepeatMode = getRepeatMode(entity);
 
         mTrackingCancel = () -> mTracking = false;
         seekBarListener = new ScrubBarListener() {
@@ -146,12 +171,107 @@ public class DmcActivityModel extends BaseObservable implements StatusListener {
     public void initialize() {
         final Uri uri = mTargetModel.getUri();
         mRendererModel.setUri(uri, mTargetModel.getContentEntity());
+        prepareNext();
     }
 
     public void terminate() {
         mRendererModel.terminate();
     }
 
+    @NonNull
+    private static RepeatMode getRepeatMode(@NonNull final ContentEntity entity) {
+        switch (entity.getType()) {
+            case MOVIE:
+                return Settings.get().getRepeatModeMovie();
+            case MUSIC:
+                return Settings.get().getRepeatModeMusic();
+            default:
+                return RepeatMode.PLAY_ONCE;
+        }
+    }
+
+    /**
+     * 連続再生の次のコンテンツをMediaRendererに事前に設定する。
+     */
+    private void prepareNext() {
+        if (mSingleRendererModel == null) {
+            return;
+        }
+        final ContentEntity entity = peekNext();
+        if (entity == null) {
+            return;
+        }
+        final Uri uri = new PlaybackTargetModel(entity).getUri();
+        if (uri == Uri.EMPTY) {
+            return;
+        }
+        mSingleRendererModel.setNextUri(uri, entity);
+    }
+
+    @Nullable
+    private ContentEntity peekNext() {
+        switch (mRepeatMode) {
+            case SEQUENTIAL:
+                return mServerModel.peekNextEntity(MediaServerModel.SCAN_MODE_SEQUENTIAL);
+            case REPEAT_ALL:
+                return mServerModel.peekNextEntity(MediaServerModel.SCAN_MODE_LOOP);
+            default:
+                return null;
+        }
+    }
+
+    private boolean selectNext() {
+        switch (mRepeatMode) {
+            case SEQUENTIAL:
+                return mServerModel.selectNextEntity(MediaServerModel.SCAN_MODE_SEQUENTIAL);
+            case REPEAT_ALL:
+                return mServerModel.selectNextEntity(MediaServerModel.SCAN_MODE_LOOP);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 次のコンテンツを選択し、表示を更新する。
+     *
+     * @return 次のコンテンツがある場合true
+     */
+    private boolean updateToNext() {
+        if (!selectNext()) {
+            return false;
+        }
+        final PlaybackTargetModel targetModel = mRepository.getPlaybackTargetModel();
+        if (targetModel == null || targetModel.getUri() == Uri.EMPTY) {
+            return false;
+        }
+        mTargetModel = targetModel;
+        final ContentEntity entity = targetModel.getContentEntity();
+        mTitle = AribUtils.toDisplayableString(entity.getName());
+        mPropertyAdapter = PropertyAdapter.ofContent(mActivity, entity);
+        notifyPropertyChanged(BR.title);
+        notifyPropertyChanged(BR.propertyAdapter);
+        setProgress(0);
+        return true;
+    }
+
+    private void onTrackChanged() {
+        if (updateToNext()) {
+            prepareNext();
+        }
+    }
+
+    @NonNull
+    @Bindable
+    public String getTitle() {
+        return mTitle;
+    }
+
+    @NonNull
+    @Bindable
+    public PropertyAdapter getPropertyAdapter() {
+        return mPropertyAdapter;
+    }
+
     @Bindable
     public int getProgress() {
         return mProgress;
@@ -277,10 +397,10 @@ public class DmcActivityModel extends BaseObservable implements StatusListener {
             return;
         }
         mHandler.post(() -> {
-            final int count = propertyAdapter.getItemCount();
-            propertyAdapter.addEntry(mActivity.getString(R.string.prop_chapter_info),
+            final int count = mPropertyAdapter.getItemCount();
+            mPropertyAdapter.addEntry(mActivity.getString(R.string.prop_chapter_info),
                     makeChapterString(chapterList));
-            propertyAdapter.notifyItemInserted(count);
+            mPropertyAdapter.notifyItemInserted(count);
         });
     }
 
@@ -389,6 +509,11 @@ public class DmcActivityModel extends BaseObservable implements StatusListener {
 
     @Override
     public void onCompletion() {
-        ActivityCompat.finishAfterTransition(mActivity);
+        if (!updateToNext()) {
+            ActivityCompat.finishAfterTransition(mActivity);
+            return;
+        }
+        mRendererModel.setUri(mTargetModel.getUri(), mTargetModel.getContentEntity());
+        prepareNext();
     }
 }
@@ -134,7 +134,8 @@ public class MovieActivityModel extends BaseObservable
         }
         mPlayStartTime = System.currentTimeMillis();
         mMuteAlertHelper.alertIfMuted();
-        final PlayerModel playerModel = new MoviePlayerModel(mActivity, mVideoView);
+        final PlayerModel playerModel =
+                new MoviePlayerModel(mActivity, mVideoView, mRepository.getPollingScheduler());
         mControlPanelModel = new ControlPanelModel(mActivity, playerModel);
         mControlPanelModel.setRepeatMode(mRepeatMode);
         mControlPanelModel.setOnCompletionListener(this);
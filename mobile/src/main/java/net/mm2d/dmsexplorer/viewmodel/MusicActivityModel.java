@@ -105,7 +105,7 @@ public class MusicActivityModel extends BaseObservable
         }
         mPlayStartTime = System.currentTimeMillis();
         mMuteAlertHelper.alertIfMuted();
-        final PlayerModel playerModel = new MusicPlayerModel(mActivity);
+        final PlayerModel playerModel = new MusicPlayerModel(mActivity, mRepository.getPollingScheduler());
         mControlPanelModel = new ControlPanelModel(mActivity, playerModel);
         mControlPanelModel.setRepeatMode(mRepeatMode);
         mControlPanelModel.setOnCompletionListener(this);
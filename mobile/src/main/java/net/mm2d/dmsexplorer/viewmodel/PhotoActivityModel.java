@@ -25,15 +25,24 @@ import net.mm2d.android.util.DisplaySizeUtils;
 import net.mm2d.android.util.Toaster;
 import net.mm2d.dmsexplorer.R;
 import net.mm2d.dmsexplorer.Repository;
+import net.mm2d.dmsexplorer.domain.entity.ContentEntity;
+import net.mm2d.dmsexplorer.domain.model.MediaServerModel;
 import net.mm2d.dmsexplorer.domain.model.PlaybackTargetModel;
+import net.mm2d.dmsexplorer.domain.photo.PhotoPrefetcher;
+import net.mm2d.dmsexplorer.domain.photo.TiledImage;
 import net.mm2d.dmsexplorer.settings.Settings;
-import net.mm2d.dmsexplorer.util.Downloader;
 import net.mm2d.dmsexplorer.view.base.BaseActivity;
 
-import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.schedulers.Schedulers;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.disposables.Disposable;
 
 /**
+ * 静止画表示画面のModel。
+ *
+ * <p>静止画の取得は{@link PhotoPrefetcher}を通じて行い、表示後に前後の静止画を先読みさせる。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 public class PhotoActivityModel extends BaseObservable {
@@ -42,7 +51,9 @@ public class PhotoActivityModel extends BaseObservable {
     @ColorInt
     public final int background;
     @Nullable
-    private byte[] mImageBinary;
+    private TiledImage mImage;
+    @Nullable
+    private Disposable mDisposable;
     private boolean mLoading = true;
     private int mRightNavigationSize;
 
@@ -53,7 +64,8 @@ public class PhotoActivityModel extends BaseObservable {
 
     public PhotoActivityModel(
             @NonNull final BaseActivity activity,
-            @NonNull final Repository repository) {
+            @NonNull final Repository repository,
+            @NonNull final PhotoPrefetcher prefetcher) {
         mTargetModel = repository.getPlaybackTargetModel();
         if (mTargetModel == null) {
             throw new IllegalStateException();
@@ -70,22 +82,59 @@ public class PhotoActivityModel extends BaseObservable {
         if (uri == Uri.EMPTY) {
             throw new IllegalStateException();
         }
-        Downloader.create(uri.toString())
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(data -> {
+        mDisposable = prefetcher.load(uri.toString())
+                .subscribe(image -> {
                     final PlaybackTargetModel model = repository.getPlaybackTargetModel();
-                    if (model == null) {
-                        return;
-                    }
-                    if (!uri.equals(model.getUri())) {
+                    if (model == null || !uri.equals(model.getUri())) {
+                        image.recycle();
                         return;
                     }
                     setLoading(false);
-                    setImageBinary(data);
+                    setImage(image);
+                    prefetcher.prefetch(getNeighborUris(repository.getMediaServerModel()));
                 }, throwable -> Toaster.show(mActivity, R.string.toast_download_error));
     }
 
+    /**
+     * 前後に表示される静止画のURIを返す。
+     *
+     * <p>ページ送りで次に進む方が多いため、次の静止画を先にする。
+     */
+    @NonNull
+    private static List<String> getNeighborUris(@Nullable final MediaServerModel serverModel) {
+        final List<String> uris = new ArrayList<>(2);
+        if (serverModel == null) {
+            return uris;
+        }
+        addUri(uris, serverModel.peekNextEntity(MediaServerModel.SCAN_MODE_SEQUENTIAL));
+        addUri(uris, serverModel.peekPreviousEntity(MediaServerModel.SCAN_MODE_SEQUENTIAL));
+        return uris;
+    }
+
+    private static void addUri(
+            @NonNull final List<String> uris,
+            @Nullable final ContentEntity entity) {
+        if (entity == null) {
+            return;
+        }
+        final Uri uri = entity.getUri();
+        if (uri != null && uri != Uri.EMPTY) {
+            uris.add(uri.toString());
+        }
+    }
+
+    /**
+     * 取得中であれば中断する。
+     *
+     * <p>表示を終える時に呼び出すこと。取得済みの静止画は表示しているViewが解放する。
+     */
+    public void terminate() {
+        if (mDisposable != null) {
+            mDisposable.dispose();
+            mDisposable = null;
+        }
+    }
+
     public void adjustPanel(@NonNull final Activity activity) {
         final Point size = DisplaySizeUtils.getNavigationBarArea(activity);
         setRightNavigationSize(size.x);
@@ -97,13 +146,13 @@ public class PhotoActivityModel extends BaseObservable {
 
     @Nullable
     @Bindable
-    public byte[] getImageBinary() {
-        return mImageBinary;
+    public TiledImage getImage() {
+        return mImage;
     }
 
-    public void setImageBinary(@Nullable final byte[] imageBinary) {
-        mImageBinary = imageBinary;
-        notifyPropertyChanged(BR.imageBinary);
+    public void setImage(@Nullable final TiledImage image) {
+        mImage = image;
+        notifyPropertyChanged(BR.image);
     }
 
     @Bindable
@@ -36,6 +36,8 @@ import net.mm2d.dmsexplorer.util.FeatureUtils;
 import net.mm2d.dmsexplorer.view.adapter.ServerListAdapter;
 import net.mm2d.dmsexplorer.view.animator.CustomItemAnimator;
 
+import java.util.Collections;
+
 /**
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
@@ -109,10 +111,8 @@ public class ServerListActivityModel extends BaseObservable {
         focusable = !FeatureUtils.hasTouchScreen(context);
         serverListLayoutManager = new LinearLayoutManager(context);
         itemAnimator = new CustomItemAnimator(context);
-        onRefreshListener = () -> mControlPointModel.restart(() -> {
-            mServerListAdapter.clear();
-            mServerListAdapter.notifyDataSetChanged();
-        });
+        onRefreshListener = () -> mControlPointModel.restart(() ->
+                mServerListAdapter.submitList(Collections.emptyList(), null));
         mTwoPane = twoPane;
     }
 
@@ -132,10 +132,8 @@ public class ServerListActivityModel extends BaseObservable {
     }
 
     public void updateListAdapter() {
-        mServerListAdapter.clear();
-        mServerListAdapter.addAll(mControlPointModel.getMediaServerList());
-        mServerListAdapter.notifyDataSetChanged();
-        mServerListAdapter.setSelectedServer(mControlPointModel.getSelectedMediaServer());
+        mServerListAdapter.submitList(mControlPointModel.getMediaServerList(), () ->
+                mServerListAdapter.setSelectedServer(mControlPointModel.getSelectedMediaServer()));
     }
 
     @Nullable
@@ -189,28 +187,11 @@ public class ServerListActivityModel extends BaseObservable {
 
     private void onDiscoverServer(@NonNull MediaServer server) {
         setRefreshing(false);
-        if (mControlPointModel.getNumberOfMediaServer() == mServerListAdapter.getItemCount() + 1) {
-            final int position = mServerListAdapter.add(server);
-            mServerListAdapter.notifyItemInserted(position);
-        } else {
-            mServerListAdapter.clear();
-            mServerListAdapter.addAll(mControlPointModel.getMediaServerList());
-            mServerListAdapter.notifyDataSetChanged();
-        }
+        mServerListAdapter.submitList(mControlPointModel.getMediaServerList(), null);
     }
 
     private void onLostServer(@NonNull MediaServer server) {
-        final int position = mServerListAdapter.remove(server);
-        if (position < 0) {
-            return;
-        }
-        if (mControlPointModel.getNumberOfMediaServer() == mServerListAdapter.getItemCount()) {
-            mServerListAdapter.notifyItemRemoved(position);
-        } else {
-            mServerListAdapter.clear();
-            mServerListAdapter.addAll(mControlPointModel.getMediaServerList());
-            mServerListAdapter.notifyDataSetChanged();
-        }
+        mServerListAdapter.submitList(mControlPointModel.getMediaServerList(), null);
         if (server.equals(mControlPointModel.getSelectedMediaServer())) {
             mServerSelectListener.onLostSelection();
             mServerListAdapter.clearSelectedServer();
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp;
+
+import net.mm2d.android.upnp.ActionMetrics.Histogram;
+import net.mm2d.android.upnp.ActionMetrics.Result;
+import net.mm2d.android.upnp.ActionMetrics.Snapshot;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(RobolectricTestRunner.class)
+public class ActionMetricsTest {
+    @Test
+    public void percentile_記録がなければ0() {
+        assertThat(new Histogram().percentile(0.5), is(0L));
+    }
+
+    @Test
+    public void percentile_誤差はバケット幅以内() {
+        final Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.add(i * 10);
+        }
+        assertThat(histogram.percentile(0.50), is(both(greaterThanOrEqualTo(500L)).and(lessThanOrEqualTo(600L))));
+        assertThat(histogram.percentile(0.95), is(both(greaterThanOrEqualTo(950L)).and(lessThanOrEqualTo(1000L))));
+        assertThat(histogram.percentile(0.99), is(lessThanOrEqualTo(1000L)));
+        assertThat(histogram.getMax(), is(1000L));
+    }
+
+    @Test
+    public void record_機器とActionごとに集計する() {
+        final ActionMetrics metrics = new ActionMetrics();
+        metrics.record("uuid:1", "server", "Browse", 100, 10, 1000, Result.SUCCESS);
+        metrics.record("uuid:1", "server", "Browse", 30000, 10, 0, Result.TIMEOUT);
+        metrics.record("uuid:1", "server", "Browse", 50, 10, 100, 701);
+        metrics.record("uuid:1", "server", "Browse", 50, 10, 100, 701);
+        metrics.record("uuid:1", "server", "Search", 10, 10, 0, Result.ERROR);
+        metrics.record("uuid:2", "renderer", "Browse", 10, 10, 10, Result.SUCCESS);
+
+        final List<Snapshot> snapshots = metrics.getSnapshot();
+        assertThat(snapshots.size(), is(3));
+        final Snapshot browse = snapshots.get(0);
+        assertThat(browse.udn, is("uuid:1"));
+        assertThat(browse.actionName, is("Browse"));
+        assertThat(browse.count, is(4));
+        assertThat(browse.timeoutCount, is(1));
+        assertThat(browse.errorCount, is(0));
+        assertThat(browse.faultCounts, hasEntry(701, 2));
+        assertThat(browse.max, is(30000L));
+        assertThat(browse.averageResponseSize, is(400L));
+        assertThat(snapshots.get(1).errorCount, is(1));
+
+        metrics.clear();
+        assertThat(metrics.getSnapshot().isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.avt;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(RobolectricTestRunner.class)
+public class LastChangeParserTest {
+    private static final String XML = "<Event xmlns=\"urn:schemas-upnp-org:metadata-1-0/AVT/\">"
+            + "<InstanceID val=\"0\">"
+            + "<TransportState val=\"PLAYING\"/>"
+            + "<CurrentTrackDuration val=\"0:03:20\"/>"
+            + "<CurrentTrackURI val=\"http://192.0.2.1/1.mp4\"/>"
+            + "</InstanceID>"
+            + "<InstanceID val=\"1\">"
+            + "<TransportState val=\"STOPPED\"/>"
+            + "<NumberOfTracks val=\"1\"/>"
+            + "</InstanceID>"
+            + "</Event>";
+
+    @Test
+    public void parse_InstanceID0の値のみ返す() {
+        final Map<String, String> values = LastChangeParser.parse(XML);
+        assertThat(values.size(), is(3));
+        assertThat(values, hasEntry("TransportState", "PLAYING"));
+        assertThat(values, hasEntry("CurrentTrackDuration", "0:03:20"));
+        assertThat(values, hasEntry("CurrentTrackURI", "http://192.0.2.1/1.mp4"));
+    }
+
+    @Test
+    public void parse_不正なXMLは空() {
+        assertThat(LastChangeParser.parse(null).isEmpty(), is(true));
+        assertThat(LastChangeParser.parse("").isEmpty(), is(true));
+        assertThat(LastChangeParser.parse("<Event><InstanceID val=\"0\">").isEmpty(), is(true));
+    }
+
+    @Test
+    public void getEvent_各値を変換できる() {
+        final Map<String, String> values = LastChangeParser.parse(XML);
+        assertThat(MediaRenderer.getEventTransportState(values), is(TransportState.PLAYING));
+        assertThat(MediaRenderer.getEventDuration(values), is(200000));
+        assertThat(MediaRenderer.getEventProgress(values), is(-1));
+        assertThat(MediaRenderer.getEventTrackUri(values), is("http://192.0.2.1/1.mp4"));
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import net.mm2d.android.upnp.AvControlPointManager;
+import net.mm2d.android.upnp.cds.MsControlPoint.MsDiscoveryListener;
+
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Observable;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * FakeContentDirectoryServerに対して、
+ * SSDPによる発見からAvControlPointManager → MsControlPoint → MediaServer.browseの経路でBrowseを行う負荷試験。
+ *
+ * <p>取得件数とエラー時の振る舞いを検証し、
+ * 取得ごとのitems/secとtime-to-first-itemを{@link LoadReport}でbuild/reports/loadTest以下に出力する。
+ * 実際のネットワークインターフェースを使用するため{@link LoadTest}に分類し、通常のテストでは実行しない。
+ * 利用可能なネットワークインターフェースがない環境ではスキップする。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+@Category(LoadTest.class)
+public class BrowseLoadTest {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+    /**
+     * リクエストが発行されないことを確認する際に待つ時間。
+     */
+    private static final long QUIET_TIME = 500;
+    @ClassRule
+    public static final LoadReport REPORT = new LoadReport(BrowseLoadTest.class);
+    @Rule
+    public final TestName mTestName = new TestName();
+    private FakeContentDirectoryServer mServer;
+    private AvControlPointManager mManager;
+
+    @After
+    public void tearDown() {
+        if (mManager != null) {
+            mManager.stop();
+            mManager.terminate();
+        }
+        if (mServer != null) {
+            mServer.stop();
+        }
+    }
+
+    @Test
+    public void browse_大量のアイテムを全件取得できる() throws Exception {
+        final MediaServer server = start(new FakeContentDirectoryServer.Config()
+                .setItemsPerContainer(3000)
+                .setLatency(5));
+        for (final int window : new int[]{1, 4}) {
+            final List<CdsObject> list = browse(server, FakeContentDirectoryServer.ROOT_ID, window);
+            assertThat(list, hasSize(3000));
+            assertThat(list.get(2999).getTitle(), is("Item 2999"));
+        }
+    }
+
+    @Test
+    public void browse_ページサイズ制限があっても全件取得できる() throws Exception {
+        final MediaServer server = start(new FakeContentDirectoryServer.Config()
+                .setItemsPerContainer(500)
+                .setMaxPageSize(7));
+        for (final int window : new int[]{1, 4}) {
+            assertThat(browse(server, FakeContentDirectoryServer.ROOT_ID, window), hasSize(500));
+        }
+    }
+
+    @Test
+    public void browse_階層の深いツリーを辿れる() throws Exception {
+        final MediaServer server = start(new FakeContentDirectoryServer.Config()
+                .setDepth(3)
+                .setContainersPerContainer(4)
+                .setItemsPerContainer(50));
+        final List<CdsObject> root = browse(server, FakeContentDirectoryServer.ROOT_ID, 1);
+        assertThat(root, hasSize(54));
+        assertThat(root.get(0).isContainer(), is(true));
+        final List<CdsObject> child = browse(server, root.get(0).getObjectId(), 1);
+        assertThat(child, hasSize(mServer.getChildCount(root.get(0).getObjectId())));
+    }
+
+    @Test
+    public void browseFlowable_要求された分のページのみ取得する() throws Exception {
+        final MediaServer server = start(new FakeContentDirectoryServer.Config()
+                .setItemsPerContainer(500)
+                .setMaxPageSize(7));
+        final int requests = mServer.getRequestCount();
+        final TestSubscriber<CdsObject> subscriber = server.browseFlowable(FakeContentDirectoryServer.ROOT_ID).test(0);
+        assertThat(mServer.awaitRequestCount(requests + 1, QUIET_TIME), is(false));
+
+        subscriber.requestMore(10);
+        subscriber.awaitCount(10);
+        assertThat(mServer.awaitRequestCount(requests + 2, TIMEOUT), is(true));
+        assertThat(mServer.awaitRequestCount(requests + 3, QUIET_TIME), is(false));
+        subscriber.assertValueCount(10);
+
+        subscriber.cancel();
+        assertThat(mServer.awaitRequestCount(requests + 3, QUIET_TIME), is(false));
+    }
+
+    @Test
+    public void browseFlowable_全件要求すると全件取得できる() throws Exception {
+        final MediaServer server = start(new FakeContentDirectoryServer.Config()
+                .setItemsPerContainer(500)
+                .setMaxPageSize(7));
+        final List<CdsObject> list = server.browseFlowable(FakeContentDirectoryServer.ROOT_ID)
+                .toList()
+                .blockingGet();
+        assertThat(list, hasSize(500));
+        assertThat(list.get(499).getTitle(), is("Item 499"));
+    }
+
+    @Test
+    public void search_サーバ側で絞り込んだ結果を取得できる() throws Exception {
+        final MediaServer server = start(new FakeContentDirectoryServer.Config()
+                .setDepth(2)
+                .setContainersPerContainer(3)
+                .setItemsPerContainer(200)
+                .setLatency(5));
+        final SearchCriteria criteria = new SearchCriteria.Builder()
+                .setClassDerivedFrom("object.item")
+                .setTitleContains("Item 1")
+                .build();
+        final List<CdsObject> list = measure("search " + criteria,
+                server.search(FakeContentDirectoryServer.ROOT_ID, criteria));
+        // 各コンテナのItem 1, Item 10-19, Item 100-199
+        assertThat(list, hasSize(111 * 4));
+        for (final CdsObject object : list) {
+            assertThat(criteria.matches(object), is(true));
+        }
+    }
+
+    @Test
+    public void containerUpdateIds_更新が通知される() throws Exception {
+        final MediaServer server = start(new FakeContentDirectoryServer.Config()
+                .setItemsPerContainer(10));
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        mManager.getMsControlPoint().setSystemUpdateIdListener((s, id) -> subscribed.countDown());
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<List<String>> result = new AtomicReference<>();
+        mManager.getMsControlPoint().setContainerUpdateIdsListener((s, ids) -> {
+            if (ids.contains(FakeContentDirectoryServer.ROOT_ID)) {
+                result.set(ids);
+                latch.countDown();
+            }
+        });
+        server.subscribe();
+        // 購読開始時のイベントを受信した時点で購読が成立している
+        assertThat(subscribed.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        mServer.touch(FakeContentDirectoryServer.ROOT_ID);
+        assertThat(latch.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        assertThat(result.get(), contains(FakeContentDirectoryServer.ROOT_ID));
+    }
+
+    @Test
+    public void browse_エラー応答の場合はエラーを通知する() throws Exception {
+        final MediaServer server = start(new FakeContentDirectoryServer.Config()
+                .setItemsPerContainer(10)
+                .setErrorRate(1.0));
+        final TestObserver<CdsObject> observer = server.browse(FakeContentDirectoryServer.ROOT_ID).test();
+        assertThat(observer.awaitTerminalEvent(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        observer.assertNoValues();
+        observer.assertError(IllegalStateException.class);
+    }
+
+    @Test
+    public void browse_切断された場合はエラーを通知する() throws Exception {
+        final MediaServer server = start(new FakeContentDirectoryServer.Config()
+                .setItemsPerContainer(10)
+                .setDropRate(1.0));
+        final TestObserver<CdsObject> observer = server.browse(FakeContentDirectoryServer.ROOT_ID).test();
+        assertThat(observer.awaitTerminalEvent(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        observer.assertNoValues();
+        observer.assertError(IOException.class);
+    }
+
+    @Test
+    public void browse_途中のページでエラーとなった場合は取得済みの分を通知してからエラーを通知する() throws Exception {
+        final MediaServer server = start(new FakeContentDirectoryServer.Config()
+                .setItemsPerContainer(100)
+                .setMaxPageSize(10)
+                .setErrorRate(0.3)
+                .setSeed(1));
+        final TestObserver<CdsObject> observer = server.browse(FakeContentDirectoryServer.ROOT_ID).test();
+        assertThat(observer.awaitTerminalEvent(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        final int count = observer.valueCount();
+        if (count < 100) {
+            observer.assertError(IllegalStateException.class);
+        } else {
+            observer.assertComplete();
+        }
+        for (int i = 0; i < count; i++) {
+            assertThat(observer.values().get(i).getTitle(), is("Item " + i));
+        }
+    }
+
+    private MediaServer start(final FakeContentDirectoryServer.Config config) throws Exception {
+        final NetworkInterface networkInterface = findNetworkInterface();
+        assumeThat(networkInterface, is(notNullValue()));
+        mServer = new FakeContentDirectoryServer(config
+                .setAddress(findAddress(networkInterface))
+                .setSsdp(true));
+        mServer.start();
+        mManager = new AvControlPointManager();
+        mManager.initialize(Collections.singletonList(networkInterface));
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<MediaServer> result = new AtomicReference<>();
+        mManager.getMsControlPoint().setMsDiscoveryListener(new MsDiscoveryListener() {
+            @Override
+            public void onDiscover(final MediaServer server) {
+                if (server.getUdn().equals(mServer.getUdn())) {
+                    result.set(server);
+                    latch.countDown();
+                }
+            }
+
+            @Override
+            public void onLost(final MediaServer server) {
+            }
+        });
+        mManager.start();
+        mManager.search();
+        assertThat(latch.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        return result.get();
+    }
+
+    private List<CdsObject> browse(
+            final MediaServer server,
+            final String objectId,
+            final int window) {
+        server.setPipelineWindow(window);
+        return measure("browse " + objectId + " window=" + window, server.browse(objectId));
+    }
+
+    /**
+     * 全件を取得し、最初の1件と完了までの時間を計測して{@link #REPORT}に記録する。
+     */
+    private List<CdsObject> measure(
+            final String label,
+            final Observable<CdsObject> observable) {
+        final int requests = mServer.getRequestCount();
+        final AtomicLong first = new AtomicLong(-1);
+        final long start = System.nanoTime();
+        final List<CdsObject> list = observable
+                .doOnNext(object -> first.compareAndSet(-1, System.nanoTime() - start))
+                .toList()
+                .blockingGet();
+        final long total = System.nanoTime() - start;
+        REPORT.record(mTestName.getMethodName() + " " + label,
+                list.size(), mServer.getRequestCount() - requests, first.get(), total);
+        return list;
+    }
+
+    private static NetworkInterface findNetworkInterface() throws SocketException {
+        for (final NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+            if (networkInterface.isUp()
+                    && !networkInterface.isLoopback()
+                    && networkInterface.supportsMulticast()
+                    && findAddress(networkInterface) != null) {
+                return networkInterface;
+            }
+        }
+        return null;
+    }
+
+    private static InetAddress findAddress(final NetworkInterface networkInterface) {
+        for (final InetAddress address : Collections.list(networkInterface.getInetAddresses())) {
+            if (address instanceof Inet4Address) {
+                return address;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import android.os.Parcel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(RobolectricTestRunner.class)
+public class CdsObjectFactoryTest {
+    private static final String UDN = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<DIDL-Lite xmlns=\"urn:schemas-upnp-org:metadata-1-0/DIDL-Lite/\""
+            + " xmlns:dc=\"http://purl.org/dc/elements/1.1/\""
+            + " xmlns:upnp=\"urn:schemas-upnp-org:metadata-1-0/upnp/\">\n"
+            + "<container id=\"1\" parentID=\"0\" restricted=\"1\" childCount=\"2\">\n"
+            + "<dc:title>Video</dc:title>\n"
+            + "<upnp:class>object.container</upnp:class>\n"
+            + "</container>\n"
+            + "<item id=\"2\" parentID=\"0\" restricted=\"1\">\n"
+            + "<dc:title>A &amp; B</dc:title>\n"
+            + "<upnp:class>object.item.videoItem</upnp:class>\n"
+            + "<upnp:genre>drama</upnp:genre>\n"
+            + "<upnp:genre>news</upnp:genre>\n"
+            + "<dc:description>abc<![CDATA[<def>]]><x>ghi</x></dc:description>\n"
+            + "<res protocolInfo=\"http-get:*:video/mpeg:*\" size=\"100\">http://192.0.2.1/2.mpg</res>\n"
+            + "</item>\n"
+            + "<unknown id=\"3\" parentID=\"0\"><dc:title>x</dc:title><upnp:class>object.item</upnp:class></unknown>\n"
+            + "</DIDL-Lite>";
+
+    @Test
+    public void parseDirectChildren_item及びcontainerのみ出現順に返す() {
+        final List<CdsObject> list = CdsObjectFactory.parseDirectChildren(UDN, XML);
+        assertThat(list, hasSize(2));
+        assertThat(list.get(0).isContainer(), is(true));
+        assertThat(list.get(0).getObjectId(), is("1"));
+        assertThat(list.get(0).getValue(CdsObject.CHILD_COUNT), is("2"));
+        assertThat(list.get(1).isItem(), is(true));
+        assertThat(list.get(1).getObjectId(), is("2"));
+        assertThat(list.get(1).getUdn(), is(UDN));
+    }
+
+    @Test
+    public void parseDirectChildren_値と属性をDOMと同様に保持する() {
+        final CdsObject object = CdsObjectFactory.parseDirectChildren(UDN, XML).get(1);
+        assertThat(object.getTitle(), is("A & B"));
+        assertThat(object.getValue(CdsObject.UPNP_GENRE, 1), is("news"));
+        assertThat(object.getValue(CdsObject.DC_DESCRIPTION), is("abc<def>ghi"));
+        assertThat(object.getValue(CdsObject.RES_PROTOCOL_INFO), is("http-get:*:video/mpeg:*"));
+        assertThat(object.getValue(CdsObject.RES), is("http://192.0.2.1/2.mpg"));
+        assertThat(object.getRootTag().getAttribute("xmlns:dc"), is("http://purl.org/dc/elements/1.1/"));
+    }
+
+    @Test
+    public void parseDirectChildren_不正なXMLの場合空のリストを返す() {
+        assertThat(CdsObjectFactory.parseDirectChildren(UDN, XML.substring(0, XML.length() - 20)), is(empty()));
+        assertThat(CdsObjectFactory.parseDirectChildren(UDN, null), is(empty()));
+    }
+
+    @Test
+    public void parseMetadata_最初の要素を返す() {
+        final CdsObject object = CdsObjectFactory.parseMetadata(UDN, XML);
+        assertThat(object, is(notNullValue()));
+        assertThat(object.getObjectId(), is("1"));
+    }
+
+    @Test
+    public void contentEquals_別々にパースした同じ内容は等しい() {
+        final CdsObject first = CdsObjectFactory.parseDirectChildren(UDN, XML).get(1);
+        final CdsObject second = CdsObjectFactory.parseDirectChildren(UDN, XML).get(1);
+        assertThat(first, is(not(sameInstance(second))));
+        assertThat(first.contentEquals(second), is(true));
+        assertThat(first.hashCode(), is(second.hashCode()));
+    }
+
+    @Test
+    public void contentEquals_値が異なれば等しくない() {
+        final CdsObject first = CdsObjectFactory.parseDirectChildren(UDN, XML).get(1);
+        final CdsObject second = CdsObjectFactory.parseDirectChildren(UDN,
+                XML.replace("<upnp:genre>news</upnp:genre>", "<upnp:genre>sports</upnp:genre>")).get(1);
+        assertThat(first, is(second));
+        assertThat(first.contentEquals(second), is(false));
+    }
+
+    @Test
+    public void parcelable_復元した値が一致する() {
+        final CdsObject object = CdsObjectFactory.parseDirectChildren(UDN, XML).get(1);
+        final Parcel parcel = Parcel.obtain();
+        parcel.writeParcelable(object, 0);
+        parcel.setDataPosition(0);
+        final CdsObject restored = parcel.readParcelable(CdsObject.class.getClassLoader());
+        parcel.recycle();
+        assertThat(restored, is(object));
+        assertThat(restored.getValue(CdsObject.DC_DESCRIPTION), is("abc<def>ghi"));
+        assertThat(restored.getValue(CdsObject.UPNP_GENRE, 1), is("news"));
+    }
+}
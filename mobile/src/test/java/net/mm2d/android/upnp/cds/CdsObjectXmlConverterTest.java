@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(RobolectricTestRunner.class)
+public class CdsObjectXmlConverterTest {
+    private static final String UDN = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+    private static final String ROOT = "<DIDL-Lite xmlns=\"urn:schemas-upnp-org:metadata-1-0/DIDL-Lite/\""
+            + " xmlns:dc=\"http://purl.org/dc/elements/1.1/\""
+            + " xmlns:upnp=\"urn:schemas-upnp-org:metadata-1-0/upnp/\">";
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + ROOT + "\n"
+            + "<container id=\"1\" parentID=\"0\" restricted=\"1\">\n"
+            + "<dc:title>Video</dc:title>\n"
+            + "<upnp:class>object.container</upnp:class>\n"
+            + "</container>\n"
+            + "<item id=\"2\" parentID=\"0\" restricted=\"1\">\n"
+            + "<dc:title>A &amp; B &lt;&quot;C&quot;&gt; 日本語</dc:title>\n"
+            + "<upnp:class>object.item.videoItem</upnp:class>\n"
+            + "<upnp:genre>drama</upnp:genre>\n"
+            + "<upnp:genre>news</upnp:genre>\n"
+            + "<res protocolInfo=\"http-get:*:video/mpeg:*\" size=\"100\">http://192.0.2.1/2.mpg?a=1&amp;b=2</res>\n"
+            + "<res protocolInfo=\"http-get:*:image/jpeg:DLNA.ORG_PN=&quot;JPEG_TN&quot;\">http://192.0.2.1/2.jpg</res>\n"
+            + "</item>\n"
+            + "</DIDL-Lite>";
+
+    @Test
+    public void convert_固定の期待値と同じXML文字列を返す() {
+        final CdsObject object = CdsObjectFactory.parseDirectChildren(UDN, XML).get(1);
+        assertThat(CdsObjectXmlConverter.convert(object), is(ROOT
+                + "<item id=\"2\" parentID=\"0\" restricted=\"1\">"
+                + "<dc:title>A &amp; B &lt;\"C\"&gt; 日本語</dc:title>"
+                + "<upnp:class>object.item.videoItem</upnp:class>"
+                + "<upnp:genre>drama</upnp:genre>"
+                + "<upnp:genre>news</upnp:genre>"
+                + "<res protocolInfo=\"http-get:*:video/mpeg:*\" size=\"100\">http://192.0.2.1/2.mpg?a=1&amp;b=2</res>"
+                + "<res protocolInfo=\"http-get:*:image/jpeg:DLNA.ORG_PN=&quot;JPEG_TN&quot;\">http://192.0.2.1/2.jpg</res>"
+                + "</item>"
+                + "</DIDL-Lite>"));
+    }
+
+    @Test
+    public void convert_containerはnull() {
+        final CdsObject object = CdsObjectFactory.parseDirectChildren(UDN, XML).get(0);
+        assertThat(CdsObjectXmlConverter.convert(object), is(nullValue()));
+    }
+
+    @Test
+    public void convert_同じ内容のCdsObjectには同じインスタンスを返す() {
+        final List<CdsObject> first = CdsObjectFactory.parseDirectChildren(UDN, XML);
+        final List<CdsObject> second = CdsObjectFactory.parseDirectChildren(UDN, XML);
+        final String xml = CdsObjectXmlConverter.convert(first.get(1));
+        assertThat(CdsObjectXmlConverter.convert(second.get(1)), is(sameInstance(xml)));
+    }
+
+    @Test
+    public void convert_同じObjectIDでも内容が異なれば再変換する() {
+        final CdsObject first = CdsObjectFactory.parseDirectChildren(UDN, XML).get(1);
+        final CdsObject second = CdsObjectFactory.parseDirectChildren(UDN,
+                XML.replace("<upnp:genre>news</upnp:genre>", "<upnp:genre>sports</upnp:genre>")).get(1);
+        final String xml = CdsObjectXmlConverter.convert(first);
+        final String updated = CdsObjectXmlConverter.convert(second);
+        assertThat(updated, is(not(xml)));
+        assertThat(updated, containsString("<upnp:genre>sports</upnp:genre>"));
+    }
+}
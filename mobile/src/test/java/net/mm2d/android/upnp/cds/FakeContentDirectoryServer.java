@@ -0,0 +1,1001 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * 負荷試験用のContentDirectoryServiceを持つMediaServerの代替。
+ *
+ * <p>Device Description、SCPD、Browse/Search/DestroyObject等のSOAPアクション、
+ * GENAによるSystemUpdateID/ContainerUpdateIDsのイベント通知をHTTPで提供する。
+ * {@link Config#setSsdp(boolean)}を指定した場合はSSDPのM-SEARCHにも応答する。
+ *
+ * <p>コンテンツは{@link Config}で指定した構造の木を生成する。
+ * リクエストごとの遅延、1回の応答で返す件数の上限、エラー応答や切断の注入を設定できる。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class FakeContentDirectoryServer {
+    /**
+     * サーバの設定。
+     */
+    static class Config {
+        private int mDepth = 1;
+        private int mContainersPerContainer = 0;
+        private int mItemsPerContainer = 100;
+        private long mLatency = 0;
+        private int mMaxPageSize = 0;
+        private double mErrorRate = 0;
+        private double mDropRate = 0;
+        private long mSeed = 0;
+        private boolean mSsdp = false;
+        @Nullable
+        private InetAddress mAddress;
+
+        /**
+         * コンテナの階層数を設定する。ルートコンテナを1とする。
+         *
+         * @param depth 階層数
+         * @return this
+         */
+        @NonNull
+        Config setDepth(final int depth) {
+            mDepth = depth;
+            return this;
+        }
+
+        /**
+         * 最下層以外の各コンテナが持つ子コンテナの数を設定する。
+         *
+         * @param count 子コンテナの数
+         * @return this
+         */
+        @NonNull
+        Config setContainersPerContainer(final int count) {
+            mContainersPerContainer = count;
+            return this;
+        }
+
+        /**
+         * 各コンテナが持つアイテムの数を設定する。
+         *
+         * @param count アイテムの数
+         * @return this
+         */
+        @NonNull
+        Config setItemsPerContainer(final int count) {
+            mItemsPerContainer = count;
+            return this;
+        }
+
+        /**
+         * SOAPアクションの応答を返すまでの遅延を設定する。
+         *
+         * @param latency 遅延[ms]
+         * @return this
+         */
+        @NonNull
+        Config setLatency(final long latency) {
+            mLatency = latency;
+            return this;
+        }
+
+        /**
+         * 1回の応答で返す件数の上限を設定する。
+         *
+         * @param size 上限、0の場合は無制限
+         * @return this
+         */
+        @NonNull
+        Config setMaxPageSize(final int size) {
+            mMaxPageSize = size;
+            return this;
+        }
+
+        /**
+         * SOAPアクションがUPnPError(501)を返す確率を設定する。
+         *
+         * @param rate 0以上1以下の確率
+         * @return this
+         */
+        @NonNull
+        Config setErrorRate(final double rate) {
+            mErrorRate = rate;
+            return this;
+        }
+
+        /**
+         * SOAPアクションが応答せずに切断する確率を設定する。
+         *
+         * @param rate 0以上1以下の確率
+         * @return this
+         */
+        @NonNull
+        Config setDropRate(final double rate) {
+            mDropRate = rate;
+            return this;
+        }
+
+        /**
+         * エラー注入に使用する乱数のシードを設定する。
+         *
+         * @param seed シード
+         * @return this
+         */
+        @NonNull
+        Config setSeed(final long seed) {
+            mSeed = seed;
+            return this;
+        }
+
+        /**
+         * SSDPに応答するか否かを設定する。
+         *
+         * @param ssdp SSDPに応答する場合true
+         * @return this
+         */
+        @NonNull
+        Config setSsdp(final boolean ssdp) {
+            mSsdp = ssdp;
+            return this;
+        }
+
+        /**
+         * 待ち受けるアドレスを設定する。
+         *
+         * @param address アドレス、nullの場合ループバックアドレス
+         * @return this
+         */
+        @NonNull
+        Config setAddress(@Nullable final InetAddress address) {
+            mAddress = address;
+            return this;
+        }
+    }
+
+    /**
+     * コンテンツの木のノード。
+     */
+    private static class Content {
+        @NonNull
+        final String mId;
+        @NonNull
+        final String mParentId;
+        @NonNull
+        final String mTitle;
+        final boolean mContainer;
+        @NonNull
+        final List<Content> mChildren = new ArrayList<>();
+        int mUpdateId;
+
+        Content(
+                @NonNull final String id,
+                @NonNull final String parentId,
+                @NonNull final String title,
+                final boolean container) {
+            mId = id;
+            mParentId = parentId;
+            mTitle = title;
+            mContainer = container;
+        }
+    }
+
+    static final String ROOT_ID = "0";
+    private static final String DEVICE_PATH = "/device.xml";
+    private static final String SCPD_PATH = "/cds.xml";
+    private static final String CONTROL_PATH = "/cds/control";
+    private static final String EVENT_PATH = "/cds/event";
+    private static final String SERVICE_TYPE = "urn:schemas-upnp-org:service:ContentDirectory:1";
+    private static final String DEVICE_TYPE = "urn:schemas-upnp-org:device:MediaServer:1";
+    private static final Pattern CALLBACK_PATTERN = Pattern.compile("<([^>]+)>");
+    private static final Pattern CRITERIA_PATTERN = Pattern.compile("([\\w:@]+)\\s+(contains|derivedfrom|=)\\s+\"([^\"]*)\"");
+
+    @NonNull
+    private final Config mConfig;
+    @NonNull
+    private final String mUdn = "uuid:" + UUID.randomUUID();
+    @NonNull
+    private final Map<String, Content> mNodeMap = new HashMap<>();
+    @NonNull
+    private final Map<String, URL> mSubscriberMap = Collections.synchronizedMap(new LinkedHashMap<>());
+    @NonNull
+    private final Map<String, AtomicInteger> mSequenceMap = Collections.synchronizedMap(new HashMap<>());
+    @NonNull
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    @NonNull
+    private final Random mRandom;
+    @NonNull
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    @Nullable
+    private HttpServer mHttpServer;
+    @Nullable
+    private FakeSsdpResponder mSsdpResponder;
+    private int mSystemUpdateId = 1;
+
+    FakeContentDirectoryServer(@NonNull final Config config) {
+        mConfig = config;
+        mRandom = new Random(config.mSeed);
+        final Content root = new Content(ROOT_ID, "-1", "root", true);
+        mNodeMap.put(ROOT_ID, root);
+        createTree(root, 1);
+    }
+
+    private void createTree(
+            @NonNull final Content parent,
+            final int depth) {
+        if (depth < mConfig.mDepth) {
+            for (int i = 0; i < mConfig.mContainersPerContainer; i++) {
+                final Content node = new Content(parent.mId + "/" + i, parent.mId, "Folder " + i, true);
+                addNode(parent, node);
+                createTree(node, depth + 1);
+            }
+        }
+        for (int i = 0; i < mConfig.mItemsPerContainer; i++) {
+            addNode(parent, new Content(parent.mId + "/i" + i, parent.mId, "Item " + i, false));
+        }
+    }
+
+    private void addNode(
+            @NonNull final Content parent,
+            @NonNull final Content node) {
+        parent.mChildren.add(node);
+        mNodeMap.put(node.mId, node);
+    }
+
+    /**
+     * サーバを開始する。
+     *
+     * @throws IOException 開始に失敗した場合
+     */
+    void start() throws IOException {
+        final InetAddress address = mConfig.mAddress != null ? mConfig.mAddress : InetAddress.getLoopbackAddress();
+        mHttpServer = HttpServer.create(new InetSocketAddress(address, 0), 0);
+        mHttpServer.setExecutor(mExecutor);
+        mHttpServer.createContext(DEVICE_PATH, exchange -> respond(exchange, 200, makeDeviceDescription()));
+        mHttpServer.createContext(SCPD_PATH, exchange -> respond(exchange, 200, makeScpd()));
+        mHttpServer.createContext(CONTROL_PATH, this::handleControl);
+        mHttpServer.createContext(EVENT_PATH, this::handleEvent);
+        mHttpServer.start();
+        if (mConfig.mSsdp) {
+            mSsdpResponder = new FakeSsdpResponder(mUdn, DEVICE_TYPE, getLocation(), address);
+            mSsdpResponder.start();
+        }
+    }
+
+    /**
+     * サーバを終了する。
+     */
+    void stop() {
+        if (mSsdpResponder != null) {
+            mSsdpResponder.stop();
+            mSsdpResponder = null;
+        }
+        if (mHttpServer != null) {
+            mHttpServer.stop(0);
+            mHttpServer = null;
+        }
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Device DescriptionのURLを返す。
+     *
+     * @return Device DescriptionのURL
+     */
+    @NonNull
+    String getLocation() {
+        if (mHttpServer == null) {
+            throw new IllegalStateException("server is not started");
+        }
+        final InetSocketAddress address = mHttpServer.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + DEVICE_PATH;
+    }
+
+    @NonNull
+    String getUdn() {
+        return mUdn;
+    }
+
+    /**
+     * 指定したコンテナの直下の子要素の数を返す。
+     *
+     * @param id ObjectID
+     * @return 子要素の数
+     */
+    synchronized int getChildCount(@NonNull final String id) {
+        final Content node = mNodeMap.get(id);
+        return node == null ? 0 : node.mChildren.size();
+    }
+
+    /**
+     * 受け付けたSOAPアクションの数を返す。
+     *
+     * @return SOAPアクションの数
+     */
+    int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * 受け付けたSOAPアクションの数が指定数に達するまで待つ。
+     *
+     * @param count   SOAPアクションの数
+     * @param timeout タイムアウト(ms)
+     * @return 達した場合true、タイムアウトした場合false
+     * @throws InterruptedException 割り込まれた場合
+     */
+    boolean awaitRequestCount(
+            final int count,
+            final long timeout) throws InterruptedException {
+        final long limit = System.currentTimeMillis() + timeout;
+        synchronized (mRequestCount) {
+            while (mRequestCount.get() < count) {
+                final long wait = limit - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return false;
+                }
+                mRequestCount.wait(wait);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 指定したコンテナが更新されたものとしてUpdateIDを更新し、イベントを通知する。
+     *
+     * @param id ObjectID
+     */
+    void touch(@NonNull final String id) {
+        final String ids;
+        synchronized (this) {
+            final Content node = mNodeMap.get(id);
+            if (node == null) {
+                return;
+            }
+            node.mUpdateId++;
+            mSystemUpdateId++;
+            ids = node.mId + "," + node.mUpdateId;
+        }
+        notifyAll(ids);
+    }
+
+    private void handleControl(@NonNull final HttpExchange exchange) throws IOException {
+        synchronized (mRequestCount) {
+            mRequestCount.incrementAndGet();
+            mRequestCount.notifyAll();
+        }
+        sleep(mConfig.mLatency);
+        final double dice;
+        synchronized (mRandom) {
+            dice = mRandom.nextDouble();
+        }
+        if (dice < mConfig.mDropRate) {
+            exchange.close();
+            return;
+        }
+        if (dice < mConfig.mDropRate + mConfig.mErrorRate) {
+            respond(exchange, 500, makeFault(501, "Action Failed"));
+            return;
+        }
+        final Element action;
+        try {
+            final Document document = parseXml(readBody(exchange));
+            action = getFirstChildElement(document.getElementsByTagNameNS("*", "Body").item(0));
+        } catch (final Exception e) {
+            respond(exchange, 500, makeFault(401, "Invalid Action"));
+            return;
+        }
+        if (action == null) {
+            respond(exchange, 500, makeFault(401, "Invalid Action"));
+            return;
+        }
+        final Map<String, String> args = new HashMap<>();
+        for (Node node = action.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                args.put(node.getLocalName() != null ? node.getLocalName() : node.getNodeName(), node.getTextContent());
+            }
+        }
+        final String name = action.getLocalName();
+        final Map<String, String> result;
+        try {
+            result = invoke(name, args);
+        } catch (final UpnpException e) {
+            respond(exchange, 500, makeFault(e.mCode, e.getMessage()));
+            return;
+        }
+        respond(exchange, 200, makeResponse(name, result));
+    }
+
+    @NonNull
+    private Map<String, String> invoke(
+            @NonNull final String name,
+            @NonNull final Map<String, String> args) throws UpnpException {
+        switch (name) {
+            case "Browse":
+                return browse(args);
+            case "Search":
+                return search(args);
+            case "DestroyObject":
+                return destroyObject(args.get("ObjectID"));
+            case "GetSystemUpdateID":
+                synchronized (this) {
+                    return Collections.singletonMap("Id", String.valueOf(mSystemUpdateId));
+                }
+            case "GetSearchCapabilities":
+                return Collections.singletonMap("SearchCaps", "dc:title,upnp:class,@id,@parentID");
+            case "GetSortCapabilities":
+                return Collections.singletonMap("SortCaps", "dc:title,dc:date");
+            default:
+                throw new UpnpException(401, "Invalid Action");
+        }
+    }
+
+    @NonNull
+    private synchronized Map<String, String> browse(@NonNull final Map<String, String> args) throws UpnpException {
+        final Content node = mNodeMap.get(args.get("ObjectID"));
+        if (node == null) {
+            throw new UpnpException(701, "No such object");
+        }
+        if ("BrowseMetadata".equals(args.get("BrowseFlag"))) {
+            return makePage(Collections.singletonList(node), 0, 1, node.mUpdateId);
+        }
+        return makePage(node.mChildren, parseInt(args.get("StartingIndex")), parseInt(args.get("RequestedCount")), node.mUpdateId);
+    }
+
+    @NonNull
+    private synchronized Map<String, String> search(@NonNull final Map<String, String> args) throws UpnpException {
+        final Content node = mNodeMap.get(args.get("ContainerID"));
+        if (node == null) {
+            throw new UpnpException(710, "No such container");
+        }
+        final String criteria = args.get("SearchCriteria");
+        final List<Content> list = new ArrayList<>();
+        collect(node, criteria == null ? "*" : criteria.trim(), list);
+        return makePage(list, parseInt(args.get("StartingIndex")), parseInt(args.get("RequestedCount")), node.mUpdateId);
+    }
+
+    private void collect(
+            @NonNull final Content node,
+            @NonNull final String criteria,
+            @NonNull final List<Content> list) {
+        for (final Content child : node.mChildren) {
+            if (matches(child, criteria)) {
+                list.add(child);
+            }
+            collect(child, criteria, list);
+        }
+    }
+
+    private static boolean matches(
+            @NonNull final Content node,
+            @NonNull final String criteria) {
+        if (criteria.equals("*")) {
+            return true;
+        }
+        final Matcher matcher = CRITERIA_PATTERN.matcher(criteria);
+        boolean found = false;
+        while (matcher.find()) {
+            found = true;
+            final String value = getProperty(node, matcher.group(1));
+            final String operand = matcher.group(3);
+            switch (matcher.group(2)) {
+                case "contains":
+                    if (value == null || !value.toLowerCase(Locale.US).contains(operand.toLowerCase(Locale.US))) {
+                        return false;
+                    }
+                    break;
+                case "derivedfrom":
+                    if (value == null || !value.startsWith(operand)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    if (!operand.equals(value)) {
+                        return false;
+                    }
+                    break;
+            }
+        }
+        return found;
+    }
+
+    @Nullable
+    private static String getProperty(
+            @NonNull final Content node,
+            @NonNull final String property) {
+        switch (property) {
+            case "dc:title":
+                return node.mTitle;
+            case "upnp:class":
+                return getUpnpClass(node);
+            case "@id":
+                return node.mId;
+            case "@parentID":
+                return node.mParentId;
+            default:
+                return null;
+        }
+    }
+
+    @NonNull
+    private Map<String, String> destroyObject(@Nullable final String id) throws UpnpException {
+        final String ids;
+        synchronized (this) {
+            final Content node = mNodeMap.get(id);
+            if (node == null || node.mId.equals(ROOT_ID)) {
+                throw new UpnpException(701, "No such object");
+            }
+            final Content parent = mNodeMap.get(node.mParentId);
+            remove(node);
+            parent.mChildren.remove(node);
+            parent.mUpdateId++;
+            mSystemUpdateId++;
+            ids = parent.mId + "," + parent.mUpdateId;
+        }
+        notifyAll(ids);
+        return Collections.emptyMap();
+    }
+
+    private void remove(@NonNull final Content node) {
+        mNodeMap.remove(node.mId);
+        for (final Content child : node.mChildren) {
+            remove(child);
+        }
+    }
+
+    @NonNull
+    private Map<String, String> makePage(
+            @NonNull final List<Content> list,
+            final int start,
+            final int requested,
+            final int updateId) {
+        int count = requested == 0 ? Integer.MAX_VALUE : requested;
+        if (mConfig.mMaxPageSize > 0) {
+            count = Math.min(count, mConfig.mMaxPageSize);
+        }
+        final int end = (int) Math.min((long) start + count, list.size());
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<DIDL-Lite xmlns=\"urn:schemas-upnp-org:metadata-1-0/DIDL-Lite/\"")
+                .append(" xmlns:dc=\"http://purl.org/dc/elements/1.1/\"")
+                .append(" xmlns:upnp=\"urn:schemas-upnp-org:metadata-1-0/upnp/\">");
+        final String base = getLocation().replace(DEVICE_PATH, "/content/");
+        for (int i = start; i < end; i++) {
+            appendObject(sb, list.get(i), base);
+        }
+        sb.append("</DIDL-Lite>");
+        final Map<String, String> result = new LinkedHashMap<>();
+        result.put("Result", sb.toString());
+        result.put("NumberReturned", String.valueOf(Math.max(0, end - start)));
+        result.put("TotalMatches", String.valueOf(list.size()));
+        result.put("UpdateID", String.valueOf(updateId));
+        return result;
+    }
+
+    private void appendObject(
+            @NonNull final StringBuilder sb,
+            @NonNull final Content node,
+            @NonNull final String base) {
+        final String tag = node.mContainer ? "container" : "item";
+        sb.append('<').append(tag)
+                .append(" id=\"").append(escape(node.mId))
+                .append("\" parentID=\"").append(escape(node.mParentId))
+                .append("\" restricted=\"1\"");
+        if (node.mContainer) {
+            sb.append(" searchable=\"1\" childCount=\"").append(node.mChildren.size()).append('"');
+        }
+        sb.append('>');
+        sb.append("<dc:title>").append(escape(node.mTitle)).append("</dc:title>");
+        sb.append("<upnp:class>").append(getUpnpClass(node)).append("</upnp:class>");
+        if (!node.mContainer) {
+            sb.append("<dc:date>2018-07-01T21:00:00</dc:date>");
+            sb.append("<upnp:albumArtURI>").append(base).append(node.mTitle.hashCode()).append(".jpg</upnp:albumArtURI>");
+            sb.append("<res protocolInfo=\"http-get:*:video/mp4:DLNA.ORG_OP=01\" size=\"1048576\" duration=\"0:10:00.000\">")
+                    .append(base).append(node.mTitle.hashCode()).append(".mp4</res>");
+        }
+        sb.append("</").append(tag).append('>');
+    }
+
+    @NonNull
+    private static String getUpnpClass(@NonNull final Content node) {
+        return node.mContainer ? "object.container.storageFolder" : "object.item.videoItem";
+    }
+
+    private void handleEvent(@NonNull final HttpExchange exchange) throws IOException {
+        final String method = exchange.getRequestMethod();
+        final String sid = exchange.getRequestHeaders().getFirst("SID");
+        if (method.equals("UNSUBSCRIBE")) {
+            if (sid != null) {
+                mSubscriberMap.remove(sid);
+                mSequenceMap.remove(sid);
+            }
+            respond(exchange, 200, null);
+            return;
+        }
+        if (!method.equals("SUBSCRIBE")) {
+            respond(exchange, 405, null);
+            return;
+        }
+        if (sid != null) {
+            respond(exchange, mSubscriberMap.containsKey(sid) ? 200 : 412, null, "SID", sid);
+            return;
+        }
+        final String callback = exchange.getRequestHeaders().getFirst("CALLBACK");
+        final Matcher matcher = callback == null ? null : CALLBACK_PATTERN.matcher(callback);
+        if (matcher == null || !matcher.find()) {
+            respond(exchange, 412, null);
+            return;
+        }
+        final String newSid = "uuid:" + UUID.randomUUID();
+        mSubscriberMap.put(newSid, new URL(matcher.group(1)));
+        mSequenceMap.put(newSid, new AtomicInteger());
+        respond(exchange, 200, null, "SID", newSid);
+        mExecutor.execute(() -> sendInitialEvent(newSid));
+    }
+
+    private void sendInitialEvent(@NonNull final String sid) {
+        final int systemUpdateId;
+        synchronized (this) {
+            systemUpdateId = mSystemUpdateId;
+        }
+        final URL url = mSubscriberMap.get(sid);
+        if (url != null) {
+            sendNotify(sid, url, makePropertySet(systemUpdateId, ""));
+        }
+    }
+
+    private void notifyAll(@NonNull final String ids) {
+        final int systemUpdateId;
+        synchronized (this) {
+            systemUpdateId = mSystemUpdateId;
+        }
+        final Map<String, URL> subscribers;
+        synchronized (mSubscriberMap) {
+            subscribers = new HashMap<>(mSubscriberMap);
+        }
+        final String body = makePropertySet(systemUpdateId, ids);
+        for (final Map.Entry<String, URL> entry : subscribers.entrySet()) {
+            mExecutor.execute(() -> sendNotify(entry.getKey(), entry.getValue(), body));
+        }
+    }
+
+    private void sendNotify(
+            @NonNull final String sid,
+            @NonNull final URL url,
+            @NonNull final String body) {
+        final AtomicInteger sequence = mSequenceMap.get(sid);
+        if (sequence == null) {
+            return;
+        }
+        final byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        final int port = url.getPort() < 0 ? 80 : url.getPort();
+        final String path = url.getFile().isEmpty() ? "/" : url.getFile();
+        try (Socket socket = new Socket(url.getHost(), port)) {
+            socket.setSoTimeout(5000);
+            final String header = "NOTIFY " + path + " HTTP/1.1\r\n"
+                    + "HOST: " + url.getHost() + ":" + port + "\r\n"
+                    + "CONTENT-TYPE: text/xml; charset=\"utf-8\"\r\n"
+                    + "NT: upnp:event\r\n"
+                    + "NTS: upnp:propchange\r\n"
+                    + "SID: " + sid + "\r\n"
+                    + "SEQ: " + sequence.getAndIncrement() + "\r\n"
+                    + "CONTENT-LENGTH: " + content.length + "\r\n"
+                    + "CONNECTION: close\r\n"
+                    + "\r\n";
+            final OutputStream os = socket.getOutputStream();
+            os.write(header.getBytes(StandardCharsets.US_ASCII));
+            os.write(content);
+            os.flush();
+            final InputStream is = socket.getInputStream();
+            while (is.read() >= 0) {
+                // 応答は読み捨てる
+            }
+        } catch (final IOException ignored) {
+        }
+    }
+
+    @NonNull
+    private static String makePropertySet(
+            final int systemUpdateId,
+            @NonNull final String containerUpdateIds) {
+        return "<?xml version=\"1.0\"?>"
+                + "<e:propertyset xmlns:e=\"urn:schemas-upnp-org:event-1-0\">"
+                + "<e:property><SystemUpdateID>" + systemUpdateId + "</SystemUpdateID></e:property>"
+                + "<e:property><ContainerUpdateIDs>" + escape(containerUpdateIds) + "</ContainerUpdateIDs></e:property>"
+                + "</e:propertyset>";
+    }
+
+    @NonNull
+    private String makeDeviceDescription() {
+        return "<?xml version=\"1.0\"?>"
+                + "<root xmlns=\"urn:schemas-upnp-org:device-1-0\">"
+                + "<specVersion><major>1</major><minor>0</minor></specVersion>"
+                + "<device>"
+                + "<deviceType>" + DEVICE_TYPE + "</deviceType>"
+                + "<friendlyName>Fake MediaServer</friendlyName>"
+                + "<manufacturer>mm2d.net</manufacturer>"
+                + "<modelName>FakeContentDirectoryServer</modelName>"
+                + "<UDN>" + mUdn + "</UDN>"
+                + "<serviceList><service>"
+                + "<serviceType>" + SERVICE_TYPE + "</serviceType>"
+                + "<serviceId>" + Cds.CDS_SERVICE_ID + "</serviceId>"
+                + "<SCPDURL>" + SCPD_PATH + "</SCPDURL>"
+                + "<controlURL>" + CONTROL_PATH + "</controlURL>"
+                + "<eventSubURL>" + EVENT_PATH + "</eventSubURL>"
+                + "</service></serviceList>"
+                + "</device>"
+                + "</root>";
+    }
+
+    @NonNull
+    private static String makeScpd() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\"?>")
+                .append("<scpd xmlns=\"urn:schemas-upnp-org:service-1-0\">")
+                .append("<specVersion><major>1</major><minor>0</minor></specVersion>")
+                .append("<actionList>");
+        appendAction(sb, "Browse", new String[][]{
+                {"ObjectID", "in", "A_ARG_TYPE_ObjectID"},
+                {"BrowseFlag", "in", "A_ARG_TYPE_BrowseFlag"},
+                {"Filter", "in", "A_ARG_TYPE_Filter"},
+                {"StartingIndex", "in", "A_ARG_TYPE_Index"},
+                {"RequestedCount", "in", "A_ARG_TYPE_Count"},
+                {"SortCriteria", "in", "A_ARG_TYPE_SortCriteria"},
+                {"Result", "out", "A_ARG_TYPE_Result"},
+                {"NumberReturned", "out", "A_ARG_TYPE_Count"},
+                {"TotalMatches", "out", "A_ARG_TYPE_Count"},
+                {"UpdateID", "out", "A_ARG_TYPE_UpdateID"},
+        });
+        appendAction(sb, "Search", new String[][]{
+                {"ContainerID", "in", "A_ARG_TYPE_ObjectID"},
+                {"SearchCriteria", "in", "A_ARG_TYPE_SearchCriteria"},
+                {"Filter", "in", "A_ARG_TYPE_Filter"},
+                {"StartingIndex", "in", "A_ARG_TYPE_Index"},
+                {"RequestedCount", "in", "A_ARG_TYPE_Count"},
+                {"SortCriteria", "in", "A_ARG_TYPE_SortCriteria"},
+                {"Result", "out", "A_ARG_TYPE_Result"},
+                {"NumberReturned", "out", "A_ARG_TYPE_Count"},
+                {"TotalMatches", "out", "A_ARG_TYPE_Count"},
+                {"UpdateID", "out", "A_ARG_TYPE_UpdateID"},
+        });
+        appendAction(sb, "DestroyObject", new String[][]{
+                {"ObjectID", "in", "A_ARG_TYPE_ObjectID"},
+        });
+        appendAction(sb, "GetSystemUpdateID", new String[][]{
+                {"Id", "out", "SystemUpdateID"},
+        });
+        appendAction(sb, "GetSearchCapabilities", new String[][]{
+                {"SearchCaps", "out", "SearchCapabilities"},
+        });
+        appendAction(sb, "GetSortCapabilities", new String[][]{
+                {"SortCaps", "out", "SortCapabilities"},
+        });
+        sb.append("</actionList><serviceStateTable>");
+        appendStateVariable(sb, "A_ARG_TYPE_ObjectID", "string", false);
+        appendStateVariable(sb, "A_ARG_TYPE_Result", "string", false);
+        appendStateVariable(sb, "A_ARG_TYPE_BrowseFlag", "string", false);
+        appendStateVariable(sb, "A_ARG_TYPE_Filter", "string", false);
+        appendStateVariable(sb, "A_ARG_TYPE_SortCriteria", "string", false);
+        appendStateVariable(sb, "A_ARG_TYPE_SearchCriteria", "string", false);
+        appendStateVariable(sb, "A_ARG_TYPE_Index", "ui4", false);
+        appendStateVariable(sb, "A_ARG_TYPE_Count", "ui4", false);
+        appendStateVariable(sb, "A_ARG_TYPE_UpdateID", "ui4", false);
+        appendStateVariable(sb, "SearchCapabilities", "string", false);
+        appendStateVariable(sb, "SortCapabilities", "string", false);
+        appendStateVariable(sb, Cds.SYSTEM_UPDATE_ID, "ui4", true);
+        appendStateVariable(sb, Cds.CONTAINER_UPDATE_IDS, "string", true);
+        sb.append("</serviceStateTable></scpd>");
+        return sb.toString();
+    }
+
+    private static void appendAction(
+            @NonNull final StringBuilder sb,
+            @NonNull final String name,
+            @NonNull final String[][] arguments) {
+        sb.append("<action><name>").append(name).append("</name><argumentList>");
+        for (final String[] argument : arguments) {
+            sb.append("<argument><name>").append(argument[0])
+                    .append("</name><direction>").append(argument[1])
+                    .append("</direction><relatedStateVariable>").append(argument[2])
+                    .append("</relatedStateVariable></argument>");
+        }
+        sb.append("</argumentList></action>");
+    }
+
+    private static void appendStateVariable(
+            @NonNull final StringBuilder sb,
+            @NonNull final String name,
+            @NonNull final String type,
+            final boolean sendEvents) {
+        sb.append("<stateVariable sendEvents=\"").append(sendEvents ? "yes" : "no").append("\">")
+                .append("<name>").append(name).append("</name>")
+                .append("<dataType>").append(type).append("</dataType>")
+                .append("</stateVariable>");
+    }
+
+    @NonNull
+    private static String makeResponse(
+            @NonNull final String action,
+            @NonNull final Map<String, String> result) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\"?>")
+                .append("<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\"")
+                .append(" s:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\"><s:Body>")
+                .append("<u:").append(action).append("Response xmlns:u=\"").append(SERVICE_TYPE).append("\">");
+        for (final Map.Entry<String, String> entry : result.entrySet()) {
+            sb.append('<').append(entry.getKey()).append('>')
+                    .append(escape(entry.getValue()))
+                    .append("</").append(entry.getKey()).append('>');
+        }
+        sb.append("</u:").append(action).append("Response></s:Body></s:Envelope>");
+        return sb.toString();
+    }
+
+    @NonNull
+    private static String makeFault(
+            final int code,
+            @NonNull final String description) {
+        return "<?xml version=\"1.0\"?>"
+                + "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\""
+                + " s:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\"><s:Body>"
+                + "<s:Fault><faultcode>s:Client</faultcode><faultstring>UPnPError</faultstring><detail>"
+                + "<UPnPError xmlns=\"urn:schemas-upnp-org:control-1-0\">"
+                + "<errorCode>" + code + "</errorCode>"
+                + "<errorDescription>" + escape(description) + "</errorDescription>"
+                + "</UPnPError></detail></s:Fault></s:Body></s:Envelope>";
+    }
+
+    private static void respond(
+            @NonNull final HttpExchange exchange,
+            final int status,
+            @Nullable final String body,
+            @NonNull final String... headers) throws IOException {
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            exchange.getResponseHeaders().add(headers[i], headers[i + 1]);
+        }
+        if (body == null) {
+            exchange.getResponseHeaders().add("TIMEOUT", "Second-300");
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        final byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=\"utf-8\"");
+        exchange.sendResponseHeaders(status, content.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(content);
+        }
+    }
+
+    @NonNull
+    private static byte[] readBody(@NonNull final HttpExchange exchange) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (InputStream is = exchange.getRequestBody()) {
+            final byte[] buffer = new byte[4096];
+            int size;
+            while ((size = is.read(buffer)) >= 0) {
+                os.write(buffer, 0, size);
+            }
+        }
+        return os.toByteArray();
+    }
+
+    @NonNull
+    private static Document parseXml(@NonNull final byte[] xml) throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+    }
+
+    @Nullable
+    private static Element getFirstChildElement(@Nullable final Node parent) {
+        if (parent == null) {
+            return null;
+        }
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+
+    @NonNull
+    private static String escape(@NonNull final String value) {
+        final StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                default:
+                    sb.append(c);
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int parseInt(@Nullable final String value) {
+        try {
+            return value == null ? 0 : Integer.parseInt(value.trim());
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void sleep(final long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * UPnPErrorとして返すエラー。
+     */
+    private static class UpnpException extends Exception {
+        final int mCode;
+
+        UpnpException(
+                final int code,
+                @NonNull final String description) {
+            super(description);
+            mCode = code;
+        }
+    }
+}
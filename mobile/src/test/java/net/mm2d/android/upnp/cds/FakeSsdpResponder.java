@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * FakeContentDirectoryServerのSSDP応答部分。
+ *
+ * <p>開始時にssdp:alive、終了時にssdp:byebyeをマルチキャストし、
+ * 受信したM-SEARCHのうち、このデバイスに該当するものにユニキャストで応答する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class FakeSsdpResponder {
+    private static final String SSDP_ADDRESS = "239.255.255.250";
+    private static final int SSDP_PORT = 1900;
+    private static final String ROOT_DEVICE = "upnp:rootdevice";
+
+    @NonNull
+    private final String mUdn;
+    @NonNull
+    private final String mDeviceType;
+    @NonNull
+    private final String mLocation;
+    @NonNull
+    private final InetAddress mAddress;
+    @Nullable
+    private MulticastSocket mSocket;
+    @Nullable
+    private Thread mThread;
+
+    FakeSsdpResponder(
+            @NonNull final String udn,
+            @NonNull final String deviceType,
+            @NonNull final String location,
+            @NonNull final InetAddress address) {
+        mUdn = udn;
+        mDeviceType = deviceType;
+        mLocation = location;
+        mAddress = address;
+    }
+
+    void start() throws IOException {
+        final MulticastSocket socket = new MulticastSocket(SSDP_PORT);
+        final InetAddress group = InetAddress.getByName(SSDP_ADDRESS);
+        // HTTPを待ち受けるアドレスのインターフェースで送受信する
+        final NetworkInterface networkInterface = NetworkInterface.getByInetAddress(mAddress);
+        if (networkInterface != null) {
+            socket.setNetworkInterface(networkInterface);
+            socket.joinGroup(new InetSocketAddress(group, SSDP_PORT), networkInterface);
+        } else {
+            socket.joinGroup(group);
+        }
+        mSocket = socket;
+        sendNotify("ssdp:alive");
+        mThread = new Thread(this::receiveLoop, "FakeSsdpResponder");
+        mThread.start();
+    }
+
+    void stop() {
+        final MulticastSocket socket = mSocket;
+        if (socket == null) {
+            return;
+        }
+        try {
+            sendNotify("ssdp:byebye");
+        } catch (final IOException ignored) {
+        }
+        mSocket = null;
+        socket.close();
+        if (mThread != null) {
+            mThread.interrupt();
+            mThread = null;
+        }
+    }
+
+    private void receiveLoop() {
+        final byte[] buffer = new byte[1500];
+        while (true) {
+            final MulticastSocket socket = mSocket;
+            if (socket == null) {
+                return;
+            }
+            final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                final String message = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+                if (message.startsWith("M-SEARCH")) {
+                    onSearch(message, packet.getSocketAddress());
+                }
+            } catch (final IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void onSearch(
+            @NonNull final String message,
+            @NonNull final SocketAddress address) throws IOException {
+        final String st = getHeader(message, "ST");
+        if (st == null) {
+            return;
+        }
+        if (st.equals("ssdp:all")) {
+            respond(address, ROOT_DEVICE);
+            respond(address, mUdn);
+            respond(address, mDeviceType);
+        } else if (st.equals(ROOT_DEVICE) || st.equals(mUdn) || st.equals(mDeviceType)) {
+            respond(address, st);
+        }
+    }
+
+    private void respond(
+            @NonNull final SocketAddress address,
+            @NonNull final String st) throws IOException {
+        final String message = "HTTP/1.1 200 OK\r\n"
+                + "CACHE-CONTROL: max-age=1800\r\n"
+                + "EXT:\r\n"
+                + "LOCATION: " + mLocation + "\r\n"
+                + "SERVER: FakeContentDirectoryServer UPnP/1.0\r\n"
+                + "ST: " + st + "\r\n"
+                + "USN: " + makeUsn(st) + "\r\n"
+                + "\r\n";
+        send(message, address);
+    }
+
+    private void sendNotify(@NonNull final String nts) throws IOException {
+        final SocketAddress address = new InetSocketAddress(SSDP_ADDRESS, SSDP_PORT);
+        for (final String nt : new String[]{ROOT_DEVICE, mUdn, mDeviceType}) {
+            final String message = "NOTIFY * HTTP/1.1\r\n"
+                    + "HOST: " + SSDP_ADDRESS + ":" + SSDP_PORT + "\r\n"
+                    + "CACHE-CONTROL: max-age=1800\r\n"
+                    + "LOCATION: " + mLocation + "\r\n"
+                    + "NT: " + nt + "\r\n"
+                    + "NTS: " + nts + "\r\n"
+                    + "SERVER: FakeContentDirectoryServer UPnP/1.0\r\n"
+                    + "USN: " + makeUsn(nt) + "\r\n"
+                    + "\r\n";
+            send(message, address);
+        }
+    }
+
+    @NonNull
+    private String makeUsn(@NonNull final String type) {
+        return type.equals(mUdn) ? mUdn : mUdn + "::" + type;
+    }
+
+    private void send(
+            @NonNull final String message,
+            @NonNull final SocketAddress address) throws IOException {
+        final MulticastSocket socket = mSocket;
+        if (socket == null) {
+            return;
+        }
+        final byte[] data = message.getBytes(StandardCharsets.UTF_8);
+        socket.send(new DatagramPacket(data, data.length, address));
+    }
+
+    @Nullable
+    private static String getHeader(
+            @NonNull final String message,
+            @NonNull final String name) {
+        for (final String line : message.split("\r\n")) {
+            final int pos = line.indexOf(':');
+            if (pos > 0 && line.substring(0, pos).trim().equalsIgnoreCase(name)) {
+                return line.substring(pos + 1).trim();
+            }
+        }
+        return null;
+    }
+}
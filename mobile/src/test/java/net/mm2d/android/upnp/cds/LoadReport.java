@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import android.support.annotation.NonNull;
+
+import org.junit.rules.ExternalResource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 負荷試験の計測結果を集計し、テストクラスの終了時にbuild/reports/loadTest以下へ出力するClassRule。
+ *
+ * <p>1回の取得ごとに件数、リクエスト数、time-to-first-item、全件取得までの時間とitems/secを1行で記録する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class LoadReport extends ExternalResource {
+    private static final File DIRECTORY = new File("build/reports/loadTest");
+
+    @NonNull
+    private final String mName;
+    @NonNull
+    private final List<String> mLines = new ArrayList<>();
+
+    LoadReport(@NonNull final Class<?> testClass) {
+        mName = testClass.getSimpleName();
+    }
+
+    /**
+     * 1回の取得の計測結果を記録する。
+     *
+     * @param label      計測対象を示す文字列
+     * @param items      取得した件数
+     * @param requests   発行したリクエスト数
+     * @param firstNanos 開始から最初の1件を受け取るまでの時間(ns)、受け取っていない場合は負値
+     * @param totalNanos 開始から完了までの時間(ns)
+     */
+    synchronized void record(
+            @NonNull final String label,
+            final int items,
+            final int requests,
+            final long firstNanos,
+            final long totalNanos) {
+        final double seconds = totalNanos / 1e9;
+        mLines.add(String.format(Locale.US,
+                "%s: items=%d requests=%d time-to-first-item=%.1fms total=%.1fms %.0f items/sec",
+                label, items, requests,
+                firstNanos < 0 ? Double.NaN : firstNanos / 1e6,
+                totalNanos / 1e6, seconds > 0 ? items / seconds : Double.NaN));
+    }
+
+    @Override
+    protected synchronized void after() {
+        if (mLines.isEmpty()) {
+            return;
+        }
+        if (!DIRECTORY.exists() && !DIRECTORY.mkdirs()) {
+            throw new IllegalStateException("fail to create " + DIRECTORY);
+        }
+        final File file = new File(DIRECTORY, mName + ".txt");
+        try (final Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            for (final String line : mLines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
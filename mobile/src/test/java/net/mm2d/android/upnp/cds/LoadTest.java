@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+/**
+ * 実際のネットワークインターフェースを使用する負荷試験を示すJUnitのカテゴリ。
+ *
+ * <p>通常のテストからは除外され、{@code ./gradlew test -PloadTest}を指定した場合のみ実行する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public interface LoadTest {
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.android.upnp.cds;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(RobolectricTestRunner.class)
+public class SearchCriteriaTest {
+    private static final String UDN = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<DIDL-Lite xmlns=\"urn:schemas-upnp-org:metadata-1-0/DIDL-Lite/\""
+            + " xmlns:dc=\"http://purl.org/dc/elements/1.1/\""
+            + " xmlns:upnp=\"urn:schemas-upnp-org:metadata-1-0/upnp/\">\n"
+            + "<container id=\"1\" parentID=\"0\" restricted=\"1\">\n"
+            + "<dc:title>News</dc:title>\n"
+            + "<upnp:class>object.container</upnp:class>\n"
+            + "</container>\n"
+            + "<item id=\"2\" parentID=\"0\" restricted=\"1\">\n"
+            + "<dc:title>Evening NEWS</dc:title>\n"
+            + "<dc:date>2018-05-01T19:00:00+09:00</dc:date>\n"
+            + "<upnp:class>object.item.videoItem.videoBroadcast</upnp:class>\n"
+            + "</item>\n"
+            + "<item id=\"3\" parentID=\"0\" restricted=\"1\">\n"
+            + "<dc:title>Drama</dc:title>\n"
+            + "<upnp:class>object.item.videoItem</upnp:class>\n"
+            + "</item>\n"
+            + "</DIDL-Lite>";
+
+    @Test
+    public void toCriteria_条件がない場合は全件() {
+        assertThat(new SearchCriteria.Builder().build().toCriteria(), is("*"));
+    }
+
+    @Test
+    public void toCriteria_条件をandで結合しエスケープする() {
+        final SearchCriteria criteria = new SearchCriteria.Builder()
+                .setClassDerivedFrom("object.item.videoItem")
+                .setTitleContains("say \"hi\"")
+                .build();
+        assertThat(criteria.toCriteria(),
+                is("upnp:class derivedfrom \"object.item.videoItem\" and dc:title contains \"say \\\"hi\\\"\""));
+    }
+
+    @Test
+    public void isSupportedBy_SearchCapabilitiesで判定する() {
+        final SearchCriteria criteria = new SearchCriteria.Builder()
+                .setClassDerivedFrom("object.item")
+                .setTitleContains("a")
+                .build();
+        assertThat(criteria.isSupportedBy(Arrays.asList("dc:title", "upnp:class")), is(true));
+        assertThat(criteria.isSupportedBy(Collections.singletonList("*")), is(true));
+        assertThat(criteria.isSupportedBy(Collections.singletonList("dc:title")), is(false));
+        assertThat(criteria.isSupportedBy(Collections.emptyList()), is(false));
+    }
+
+    @Test
+    public void matches_サーバと同じ条件で絞り込める() {
+        final List<CdsObject> list = CdsObjectFactory.parseDirectChildren(UDN, XML);
+        final SearchCriteria news = new SearchCriteria.Builder()
+                .setClassDerivedFrom("object.item.videoItem")
+                .setTitleContains("news")
+                .build();
+        assertThat(news.matches(list.get(0)), is(false));
+        assertThat(news.matches(list.get(1)), is(true));
+        assertThat(news.matches(list.get(2)), is(false));
+
+        final SearchCriteria video = new SearchCriteria.Builder()
+                .setClassEquals("object.item.videoItem")
+                .build();
+        assertThat(video.matches(list.get(1)), is(false));
+        assertThat(video.matches(list.get(2)), is(true));
+    }
+
+    @Test
+    public void matches_日付のない要素は日付条件に一致しない() {
+        final List<CdsObject> list = CdsObjectFactory.parseDirectChildren(UDN, XML);
+        final SearchCriteria criteria = new SearchCriteria.Builder()
+                .setDateFrom(CdsObject.parseDate("2018-01-01"))
+                .build();
+        assertThat(criteria.matches(list.get(1)), is(true));
+        assertThat(criteria.matches(list.get(2)), is(false));
+    }
+}
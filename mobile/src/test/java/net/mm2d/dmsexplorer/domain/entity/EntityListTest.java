@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.entity;
+
+import net.mm2d.android.upnp.cds.CdsObject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(RobolectricTestRunner.class)
+public class EntityListTest {
+    private static ContentEntity makeEntity(final String id) {
+        final CdsObject object = mock(CdsObject.class);
+        doReturn(id).when(object).getObjectId();
+        final ContentEntity entity = mock(ContentEntity.class);
+        doReturn(object).when(entity).getObject();
+        return entity;
+    }
+
+    @Test
+    public void indexOf_追加順の位置を返す() {
+        final ContentEntity a = makeEntity("a");
+        final ContentEntity b = makeEntity("b");
+        final ContentEntity c = makeEntity("c");
+        final EntityList list = new EntityList.Builder().addAll(Arrays.asList(a, b, c)).build();
+        assertThat(list.indexOf(a), is(0));
+        assertThat(list.indexOf(c), is(2));
+        assertThat(list.contains(b), is(true));
+        assertThat(list.contains(makeEntity("d")), is(false));
+    }
+
+    @Test
+    public void indexOf_スナップショット作成後に追加された要素は含まない() {
+        final ContentEntity a = makeEntity("a");
+        final ContentEntity b = makeEntity("b");
+        final EntityList.Builder builder = new EntityList.Builder().add(a);
+        final EntityList first = builder.build();
+        final EntityList second = builder.add(b).build();
+        assertThat(first, hasSize(1));
+        assertThat(first.indexOf(b), is(-1));
+        assertThat(second.indexOf(b), is(1));
+    }
+
+    @Test
+    public void indexOf_ObjectIDが重複していても正しい位置を返す() {
+        final ContentEntity a1 = makeEntity("a");
+        final ContentEntity a2 = makeEntity("a");
+        final EntityList list = new EntityList.Builder().addAll(Arrays.asList(a1, a2)).build();
+        assertThat(list.indexOf(a1), is(0));
+        assertThat(list.indexOf(a2), is(1));
+    }
+
+    @Test
+    public void indexOfSameObject_別インスタンスでもObjectIDで探せる() {
+        final EntityList list = new EntityList.Builder()
+                .addAll(Arrays.asList(makeEntity("a"), makeEntity("b")))
+                .build();
+        final ContentEntity other = makeEntity("b");
+        assertThat(list.indexOf(other), is(-1));
+        assertThat(list.indexOfSameObject(other), is(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void add_変更できない() {
+        new EntityList.Builder().add(makeEntity("a")).build().add(makeEntity("b"));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.library;
+
+import net.mm2d.android.upnp.cds.CdsObject;
+import net.mm2d.dmsexplorer.domain.library.LibraryIndex.Checkpoint;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(RobolectricTestRunner.class)
+public class LibraryIndexTest {
+    private static final String UDN = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+    private LibraryIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new LibraryIndex(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() {
+        mIndex.close();
+    }
+
+    private static CdsObject makeItem(
+            final String id,
+            final String title) {
+        return makeObject(id, title, false);
+    }
+
+    private static CdsObject makeContainer(final String id) {
+        return makeObject(id, id, true);
+    }
+
+    private static CdsObject makeObject(
+            final String id,
+            final String title,
+            final boolean container) {
+        final CdsObject object = mock(CdsObject.class);
+        doReturn(id).when(object).getObjectId();
+        doReturn(title).when(object).getTitle();
+        doReturn(container ? "object.container" : "object.item.videoItem").when(object).getUpnpClass();
+        doReturn(container).when(object).isContainer();
+        return object;
+    }
+
+    private void storeLastPage(
+            final String objectId,
+            final List<CdsObject> list) {
+        final Checkpoint checkpoint = mIndex.nextCheckpoint(UDN);
+        assertThat(checkpoint, is(notNullValue()));
+        assertThat(checkpoint.getObjectId(), is(objectId));
+        mIndex.store(UDN, checkpoint, list, true);
+    }
+
+    @Test
+    public void nextCheckpoint_初回はルートコンテナの先頭を返す() {
+        final Checkpoint checkpoint = mIndex.nextCheckpoint(UDN);
+        assertThat(checkpoint, is(notNullValue()));
+        assertThat(checkpoint.getObjectId(), is("0"));
+        assertThat(checkpoint.getNextIndex(), is(0));
+    }
+
+    @Test
+    public void nextCheckpoint_途中のページまで格納した場合は続きの位置を返す() {
+        final Checkpoint first = mIndex.nextCheckpoint(UDN);
+        mIndex.store(UDN, first, Arrays.asList(makeItem("a", "alpha"), makeItem("b", "beta")), false);
+
+        mIndex.close();
+        mIndex = new LibraryIndex(RuntimeEnvironment.application);
+
+        final Checkpoint next = mIndex.nextCheckpoint(UDN);
+        assertThat(next, is(notNullValue()));
+        assertThat(next.getObjectId(), is("0"));
+        assertThat(next.getNextIndex(), is(2));
+        assertThat(mIndex.search("alpha", 10), hasSize(1));
+    }
+
+    @Test
+    public void nextCheckpoint_最後のページを格納すると子コンテナを返し全て取得済みならnull() {
+        storeLastPage("0", Arrays.asList(makeContainer("1"), makeItem("a", "alpha")));
+        final Checkpoint next = mIndex.nextCheckpoint(UDN);
+        assertThat(next, is(notNullValue()));
+        assertThat(next.getObjectId(), is("1"));
+        assertThat(next.getNextIndex(), is(0));
+
+        mIndex.store(UDN, next, Collections.emptyList(), true);
+        assertThat(mIndex.nextCheckpoint(UDN), is(nullValue()));
+    }
+
+    @Test
+    public void invalidate_取得済みのコンテナを先頭から再取得する() {
+        storeLastPage("0", Collections.singletonList(makeItem("a", "alpha")));
+        assertThat(mIndex.nextCheckpoint(UDN), is(nullValue()));
+
+        mIndex.invalidate(UDN, Collections.singletonList("0"));
+
+        final Checkpoint next = mIndex.nextCheckpoint(UDN);
+        assertThat(next, is(notNullValue()));
+        assertThat(next.getObjectId(), is("0"));
+        assertThat(next.getNextIndex(), is(0));
+
+        mIndex.store(UDN, next, Collections.singletonList(makeItem("b", "beta")), true);
+        assertThat(mIndex.search("alpha", 10), is(empty()));
+        assertThat(mIndex.search("beta", 10), hasSize(1));
+    }
+
+    @Test
+    public void invalidate_未登録のコンテナは無視する() {
+        storeLastPage("0", Collections.emptyList());
+        mIndex.invalidate(UDN, Collections.singletonList("unknown"));
+        assertThat(mIndex.nextCheckpoint(UDN), is(nullValue()));
+    }
+
+    @Test
+    public void store_再取得で見つからなかった子コンテナ以下を全て破棄する() {
+        storeLastPage("0", Collections.singletonList(makeContainer("1")));
+        storeLastPage("1", Arrays.asList(makeContainer("2"), makeItem("a", "alpha")));
+        storeLastPage("2", Collections.singletonList(makeItem("b", "beta")));
+        assertThat(mIndex.nextCheckpoint(UDN), is(nullValue()));
+
+        mIndex.invalidate(UDN, Collections.singletonList("0"));
+        storeLastPage("0", Collections.singletonList(makeItem("c", "gamma")));
+
+        assertThat(mIndex.search("alpha", 10), is(empty()));
+        assertThat(mIndex.search("beta", 10), is(empty()));
+        assertThat(mIndex.search("gamma", 10), hasSize(1));
+        assertThat(mIndex.nextCheckpoint(UDN), is(nullValue()));
+    }
+
+    @Test
+    public void store_再取得で残った子コンテナ以下は保持する() {
+        storeLastPage("0", Collections.singletonList(makeContainer("1")));
+        storeLastPage("1", Collections.singletonList(makeItem("a", "alpha")));
+
+        mIndex.invalidate(UDN, Collections.singletonList("0"));
+        storeLastPage("0", Collections.singletonList(makeContainer("1")));
+
+        assertThat(mIndex.search("alpha", 10), hasSize(1));
+        assertThat(mIndex.nextCheckpoint(UDN), is(nullValue()));
+    }
+
+    @Test
+    public void store_同じObjectIDを再度格納すると検索対象を置き換える() {
+        final Checkpoint first = mIndex.nextCheckpoint(UDN);
+        mIndex.store(UDN, first, Collections.singletonList(makeItem("a", "alpha")), false);
+        // ページの取得の間にサーバ側で並びが変わり、同じオブジェクトを再度受け取った場合
+        final Checkpoint next = mIndex.nextCheckpoint(UDN);
+        mIndex.store(UDN, next, Collections.singletonList(makeItem("a", "beta")), true);
+
+        assertThat(mIndex.search("alpha", 10), is(empty()));
+        final List<LibraryEntry> result = mIndex.search("beta", 10);
+        assertThat(result, hasSize(1));
+        assertThat(result.get(0).getObjectId(), is("a"));
+        assertThat(result.get(0).getTitle(), is("beta"));
+    }
+
+    @Test
+    public void clear_指定サーバの情報を全て破棄する() {
+        storeLastPage("0", Collections.singletonList(makeItem("a", "alpha")));
+        mIndex.clear(UDN);
+        assertThat(mIndex.search("alpha", 10), is(empty()));
+        final Checkpoint next = mIndex.nextCheckpoint(UDN);
+        assertThat(next, is(notNullValue()));
+        assertThat(next.getObjectId(), is("0"));
+    }
+}
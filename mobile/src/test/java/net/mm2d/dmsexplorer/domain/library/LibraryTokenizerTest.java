@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.dmsexplorer.domain.library;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(RobolectricTestRunner.class)
+public class LibraryTokenizerTest {
+    @Test
+    public void toIndexText_英数字は小文字の単語に分割する() {
+        assertThat(LibraryTokenizer.toIndexText("Hello, World-2018"), is("hello world 2018"));
+    }
+
+    @Test
+    public void toIndexText_英数字以外はbigramと末尾の1文字に分割する() {
+        assertThat(LibraryTokenizer.toIndexText("録画番組"), is("録画 画番 番組 組"));
+        assertThat(LibraryTokenizer.toIndexText("夜 ニュース"), is("夜 ニュ ュー ース ス"));
+    }
+
+    @Test
+    public void toIndexText_英数字とそれ以外の境界で分割する() {
+        assertThat(LibraryTokenizer.toIndexText("NHKニュース7"), is("nhk ニュ ュー ース ス 7"));
+    }
+
+    @Test
+    public void toIndexText_nullは空文字() {
+        assertThat(LibraryTokenizer.toIndexText(null), is(""));
+    }
+
+    @Test
+    public void toMatchQuery_英数字と1文字は前方一致() {
+        assertThat(LibraryTokenizer.toMatchQuery("News 夜"), is("news* 夜*"));
+    }
+
+    @Test
+    public void toMatchQuery_2文字以上はbigramのフレーズ() {
+        assertThat(LibraryTokenizer.toMatchQuery("番組"), is("\"番組\""));
+        assertThat(LibraryTokenizer.toMatchQuery("録画番組"), is("\"録画 画番 番組\""));
+    }
+
+    @Test
+    public void toMatchQuery_英数字とそれ以外の境界で分割する() {
+        assertThat(LibraryTokenizer.toMatchQuery("NHKニュース"), is("nhk* \"ニュ ュー ース\""));
+    }
+
+    @Test
+    public void toMatchQuery_有効な語がなければnull() {
+        assertThat(LibraryTokenizer.toMatchQuery(" \"*- "), is(nullValue()));
+    }
+}